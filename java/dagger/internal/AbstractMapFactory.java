@@ -35,7 +35,7 @@ abstract class AbstractMapFactory<K, V, V2> implements Factory<Map<K, V2>> {
   private final Map<K, Provider<V>> contributingMap;
 
   AbstractMapFactory(Map<K, Provider<V>> map) {
-    this.contributingMap = unmodifiableMap(map);
+    this.contributingMap = map instanceof IndexedMap ? map : unmodifiableMap(map);
   }
 
   /** The map of {@link Provider}s that contribute to this map binding. */
@@ -43,12 +43,76 @@ abstract class AbstractMapFactory<K, V, V2> implements Factory<Map<K, V2>> {
     return contributingMap;
   }
 
+  /** How the map of a factory stores its keys. */
+  enum KeyType {
+    /** The keys are stored as they are given. */
+    OBJECT,
+
+    /** The keys are {@link Integer}s, and are stored in an {@link IntKeyMap}. */
+    INT,
+
+    /** The keys are {@link Long}s, and are stored in a {@link LongKeyMap}. */
+    LONG,
+
+    /** The keys are {@link String}s, and are stored in a {@link StringKeyMap}. */
+    STRING,
+
+    /** The keys are {@link Class}es, and are stored in a {@link ClassKeyMap}. */
+    CLASS,
+  }
+
   /** A builder for {@link AbstractMapFactory}. */
   public abstract static class Builder<K, V, V2> {
     final LinkedHashMap<K, Provider<V>> map;
+    private final KeyType keyType;
+    private final int[] displacements;
 
     Builder(int size) {
+      this(size, KeyType.OBJECT);
+    }
+
+    Builder(int size, KeyType keyType) {
+      this(size, keyType, null);
+    }
+
+    /**
+     * Creates a builder whose keys are stored as {@code keyType} requires. {@code displacements}
+     * are the displacements of the {@link HashedKeyMap} for {@link KeyType#STRING} and {@link
+     * KeyType#CLASS} keys.
+     */
+    Builder(int size, KeyType keyType, int[] displacements) {
       this.map = newLinkedHashMapWithExpectedSize(size);
+      this.keyType = keyType;
+      this.displacements = displacements;
+    }
+
+    /** Returns the map of {@link Provider}s, with its keys stored as {@link #keyType} requires. */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // the key type is checked by the builder methods
+    final Map<K, Provider<V>> contributions() {
+      switch (keyType) {
+        case INT:
+          return (Map) IntKeyMap.copyOf((Map) map);
+        case LONG:
+          return (Map) LongKeyMap.copyOf((Map) map);
+        case STRING:
+          return (Map) StringKeyMap.copyOf((Map) map, displacements);
+        case CLASS:
+          return (Map) ClassKeyMap.copyOf((Map) map, displacements);
+        default:
+          return map;
+      }
+    }
+
+    /**
+     * Returns the map of {@link Provider}s as an {@link IndexedMap}, with its keys stored as {@link
+     * #keyType} requires if possible.
+     */
+    @SuppressWarnings("unchecked") // contributions() only changes how the keys are stored
+    final IndexedMap<K, Provider<V>> indexedContributions() {
+      Map<K, Provider<V>> contributions = contributions();
+      return contributions instanceof IndexedMap
+          ? (IndexedMap<K, Provider<V>>) contributions
+          : ObjectKeyMap.copyOf(contributions);
     }
 
     // Unfortunately, we cannot return a self-type here because a raw Provider type passed to one of
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable {@link java.util.Set} of a few elements, stored in an array in the order in which
+ * they were added. Finding an element compares it with each element, which is faster than hashing
+ * for the few elements of a small multibound set.
+ */
+final class ArraySet<E> extends AbstractSet<E> {
+  private final Object[] elements;
+  private final int size;
+
+  private ArraySet(Object[] elements, int size) {
+    this.elements = elements;
+    this.size = size;
+  }
+
+  /**
+   * Returns a set of {@code elements}, without the elements that are equal to earlier ones. The
+   * array is owned by the returned set.
+   */
+  static <E> ArraySet<E> copyOfOwned(Object[] elements) {
+    int size = 0;
+    for (int i = 0; i < elements.length; i++) {
+      if (indexOf(elements, size, elements[i]) < 0) {
+        elements[size++] = elements[i];
+      }
+    }
+    return new ArraySet<E>(elements, size);
+  }
+
+  private static int indexOf(Object[] elements, int size, Object element) {
+    for (int i = 0; i < size; i++) {
+      if (elements[i].equals(element)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean contains(Object element) {
+    return element != null && indexOf(elements, size, element) >= 0;
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @SuppressWarnings("unchecked") // only elements of type E are added
+      @Override
+      public E next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return (E) elements[index++];
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable {@link java.util.Map} with {@link Class} keys, used to implement multibound maps
+ * whose keys are {@link Class}es. Its iteration order is the order in which the entries were
+ * contributed.
+ *
+ * <p>The keys are found in a {@linkplain HashedKeyMap hash table} whose displacements are computed
+ * by Dagger from the hash codes of the classes' {@linkplain Class#getName() names}, so that each
+ * key of the map is found with one probe. Keys are compared by identity.
+ */
+public final class ClassKeyMap<K extends Class<?>, V> extends HashedKeyMap<K, V> {
+  private ClassKeyMap(Object[] keys, int[] displacements, Object[] values) {
+    super(keys, displacements, values);
+  }
+
+  private ClassKeyMap(ClassKeyMap<K, ?> map, Object[] values) {
+    super(map, values);
+  }
+
+  /**
+   * Returns a new {@link Builder} with room for {@code size} entries, whose keys will be found with
+   * {@code displacements}.
+   */
+  public static <K extends Class<?>, V> Builder<K, V> builder(int size, int[] displacements) {
+    return new Builder<K, V>(size, displacements);
+  }
+
+  /** Returns a {@link ClassKeyMap} with the entries of {@code map}, in its iteration order. */
+  static <K extends Class<?>, V> ClassKeyMap<K, V> copyOf(Map<K, V> map, int[] displacements) {
+    Builder<K, V> builder = builder(map.size(), displacements);
+    for (Entry<K, V> entry : map.entrySet()) {
+      builder.put(entry.getKey(), entry.getValue());
+    }
+    return builder.build();
+  }
+
+  @Override
+  boolean isKeyType(Object key) {
+    return key instanceof Class;
+  }
+
+  @Override
+  int hash(Object key) {
+    return ((Class<?>) key).getName().hashCode();
+  }
+
+  @Override
+  boolean matches(Object storedKey, Object key) {
+    return storedKey == key;
+  }
+
+  @Override
+  <V2> ClassKeyMap<K, V2> withValues(Object[] values) {
+    return new ClassKeyMap<K, V2>(this, values);
+  }
+
+  /** A builder for {@link ClassKeyMap}. */
+  public static final class Builder<K extends Class<?>, V> {
+    private final Object[] keys;
+    private final Object[] values;
+    private final int[] displacements;
+    private int size;
+
+    private Builder(int size, int[] displacements) {
+      this.keys = new Object[size];
+      this.values = new Object[size];
+      this.displacements = displacements;
+    }
+
+    /** Associates {@code key} with {@code value}. */
+    public Builder<K, V> put(K key, V value) {
+      keys[size] = Preconditions.checkNotNull(key, "key");
+      values[size] = value;
+      size++;
+      return this;
+    }
+
+    /** Returns a new {@link ClassKeyMap}. */
+    public ClassKeyMap<K, V> build() {
+      return new ClassKeyMap<K, V>(
+          size == keys.length ? keys : Arrays.copyOf(keys, size),
+          displacements,
+          size == values.length ? values : Arrays.copyOf(values, size));
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+import javax.inject.Provider;
+
+/** A {@link Provider} that counts the instances that its delegate provides. */
+public final class CountingProvider<T> implements Provider<T> {
+  private final Provider<T> delegate;
+  private final ProvisionCounters counters;
+  private final int index;
+
+  private CountingProvider(Provider<T> delegate, ProvisionCounters counters, int index) {
+    this.delegate = delegate;
+    this.counters = counters;
+    this.index = index;
+  }
+
+  @Override
+  public T get() {
+    T instance = delegate.get();
+    counters.increment(index);
+    return instance;
+  }
+
+  /**
+   * Returns a {@link Provider} that adds one to the counter at {@code index} of {@code counters}
+   * each time {@code delegate} provides an instance.
+   */
+  public static <T> Provider<T> provider(
+      Provider<T> delegate, ProvisionCounters counters, int index) {
+    return new CountingProvider<T>(checkNotNull(delegate), checkNotNull(counters), index);
+  }
+}
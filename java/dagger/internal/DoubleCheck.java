@@ -25,8 +25,8 @@ import javax.inject.Provider;
  * A {@link Lazy} and {@link Provider} implementation that memoizes the value returned from a
  * delegate using the double-check idiom described in Item 71 of <i>Effective Java 2</i>.
  */
-public final class DoubleCheck<T> implements Provider<T>, Lazy<T> {
-  private static final Object UNINITIALIZED = new Object();
+public final class DoubleCheck<T> implements Provider<T>, Lazy<T>, ThreadSafeMemoizer {
+  static final Object UNINITIALIZED = new Object();
 
   private volatile Provider<T> provider;
   private volatile Object instance = UNINITIALIZED;
@@ -60,7 +60,7 @@ public final class DoubleCheck<T> implements Provider<T>, Lazy<T> {
    * new instance is the same as the current instance, return the instance. However, if the new
    * instance differs from the current instance, an {@link IllegalStateException} is thrown.
    */
-  private static Object reentrantCheck(Object currentInstance, Object newInstance) {
+  static Object reentrantCheck(Object currentInstance, Object newInstance) {
     boolean isReentrant = currentInstance != UNINITIALIZED;
     if (isReentrant && currentInstance != newInstance) {
       throw new IllegalStateException("Scoped provider was invoked recursively returning "
@@ -70,12 +70,17 @@ public final class DoubleCheck<T> implements Provider<T>, Lazy<T> {
     return newInstance;
   }
 
+  /** Returns {@code true} if the instance has been created, without creating it otherwise. */
+  boolean isCreated() {
+    return instance != UNINITIALIZED;
+  }
+
   /** Returns a {@link Provider} that caches the value from the given delegate provider. */
   // This method is declared this way instead of "<T> Provider<T> provider(Provider<T> delegate)"
   // to work around an Eclipse type inference bug: https://github.com/google/dagger/issues/949.
   public static <P extends Provider<T>, T> Provider<T> provider(P delegate) {
     checkNotNull(delegate);
-    if (delegate instanceof DoubleCheck) {
+    if (delegate instanceof ThreadSafeMemoizer) {
       /* This should be a rare case, but if we have a scoped @Binds that delegates to a scoped
        * binding, we shouldn't cache the value again. */
       return delegate;
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+/**
+ * An immutable map whose keys are found with an open-addressing hash table.
+ *
+ * <p>A key's slot is derived from its {@linkplain #hash hash} and a displacement for the key's
+ * bucket. When the keys are known at compile time, Dagger chooses the displacements so that no two
+ * keys share a slot, which makes the table a perfect hash table: looking up a key of the map takes
+ * one probe, and creating the table takes one pass over the keys. If a key's hash at runtime isn't
+ * the one Dagger computed (e.g. a class was renamed by an optimizer), it is linearly probed
+ * instead, which is slower but still correct.
+ */
+abstract class HashedKeyMap<K, V> extends IndexedMap<K, V> {
+  /** The keys, in contribution order. */
+  final Object[] keys;
+  /** The displacement of each bucket. The number of buckets is a power of two. */
+  final int[] displacements;
+  /** One more than the index in {@link #keys} of the key in each slot, or 0 for empty slots. */
+  final int[] table;
+
+  /**
+   * Creates a map of {@code keys} to {@code values}, and creates the table of the keys.
+   *
+   * @throws IllegalArgumentException if the number of displacements isn't a power of two, or if
+   *     {@code keys} contains the same key twice
+   */
+  HashedKeyMap(Object[] keys, int[] displacements, Object[] values) {
+    super(values);
+    this.keys = keys;
+    this.displacements = displacements;
+    this.table = createTable();
+  }
+
+  /** Creates a map with the keys of {@code map}, sharing its table, mapped to {@code values}. */
+  HashedKeyMap(HashedKeyMap<K, ?> map, Object[] values) {
+    super(values);
+    this.keys = map.keys;
+    this.displacements = map.displacements;
+    this.table = map.table;
+  }
+
+  // The following methods are called while the table is created in the constructor, so they must
+  // not depend on the state of subclasses.
+
+  /** Returns {@code true} if {@code key} has the type of this map's keys. */
+  abstract boolean isKeyType(Object key);
+
+  /** Returns the hash of {@code key}, which has the type of this map's keys. */
+  abstract int hash(Object key);
+
+  /** Returns {@code true} if {@code key} is the same key as {@code storedKey}. */
+  abstract boolean matches(Object storedKey, Object key);
+
+  @SuppressWarnings("unchecked")
+  @Override
+  final K keyAt(int index) {
+    return (K) keys[index];
+  }
+
+  @Override
+  final int indexOf(Object key) {
+    if (!isKeyType(key)) {
+      return -1;
+    }
+    int mask = table.length - 1;
+    for (int slot = slot(hash(key), displacements, mask); ; slot = (slot + 1) & mask) {
+      int entry = table[slot];
+      if (entry == 0) {
+        return -1;
+      }
+      if (matches(keys[entry - 1], key)) {
+        return entry - 1;
+      }
+    }
+  }
+
+  private int[] createTable() {
+    if (Integer.bitCount(displacements.length) != 1) {
+      throw new IllegalArgumentException(
+          "The number of displacements must be a power of two: " + displacements.length);
+    }
+    int[] table = new int[tableSize(keys.length)];
+    int mask = table.length - 1;
+    for (int i = 0; i < keys.length; i++) {
+      int slot = slot(hash(keys[i]), displacements, mask);
+      while (table[slot] != 0) {
+        if (matches(keys[table[slot] - 1], keys[i])) {
+          throw new IllegalArgumentException("Duplicate key: " + keys[i]);
+        }
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = i + 1;
+    }
+    return table;
+  }
+
+  /**
+   * Returns the size of the table of a map with {@code size} keys: the smallest power of two that
+   * is at least twice {@code size}.
+   */
+  static int tableSize(int size) {
+    return Integer.highestOneBit(Math.max(2 * size - 1, 1)) << 1;
+  }
+
+  /** Returns the slot of a key with hash {@code hash}. */
+  static int slot(int hash, int[] displacements, int mask) {
+    int h = hash * 0x9E3779B9;
+    int displacement = displacements[(h >>> 16) & (displacements.length - 1)];
+    return mix(h ^ displacement) & mask;
+  }
+
+  /** The finalization mix of MurmurHash3. */
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable {@link Map} that stores its values in an array, in the order in which they were
+ * contributed. Subclasses store the keys and find the index of a key.
+ */
+abstract class IndexedMap<K, V> extends AbstractMap<K, V> {
+  final Object[] values;
+
+  IndexedMap(Object[] values) {
+    this.values = values;
+  }
+
+  /** Returns the key at {@code index}. */
+  abstract K keyAt(int index);
+
+  /** Returns the index of {@code key}, or {@code -1} if this map doesn't contain it. */
+  abstract int indexOf(Object key);
+
+  /**
+   * Returns a map with the same keys as this one, in the same order, mapped to {@code values}. The
+   * returned map shares the keys of this map, so creating it only allocates the map itself.
+   */
+  abstract <V2> IndexedMap<K, V2> withValues(Object[] values);
+
+  /** Returns the value at {@code index}. */
+  @SuppressWarnings("unchecked")
+  V valueAt(int index) {
+    return (V) values[index];
+  }
+
+  @Override
+  public final int size() {
+    return values.length;
+  }
+
+  @Override
+  public final boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public final V get(Object key) {
+    int index = indexOf(key);
+    return index < 0 ? null : valueAt(index);
+  }
+
+  @Override
+  public final Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public int size() {
+        return values.length;
+      }
+
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new Iterator<Entry<K, V>>() {
+          private int index = 0;
+
+          @Override
+          public boolean hasNext() {
+            return index < values.length;
+          }
+
+          @Override
+          public Entry<K, V> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = new SimpleImmutableEntry<K, V>(keyAt(index), valueAt(index));
+            index++;
+            return entry;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+}
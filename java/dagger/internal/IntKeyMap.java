@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import dagger.multibindings.PrimitiveKeyMaps.IntKeyLookup;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable {@link Map} with {@code int} keys, used to implement multibound maps whose keys are
+ * {@link Integer}s. Its iteration order is the order in which the entries were contributed.
+ *
+ * <p>The keys are stored unboxed, and {@link #get(int)} finds a key with a binary search, so it
+ * neither boxes nor allocates.
+ */
+public final class IntKeyMap<V> extends IndexedMap<Integer, V> implements IntKeyLookup<V> {
+  private static final int[] NO_KEYS = new int[0];
+  private static final IntKeyMap<Object> EMPTY =
+      new IntKeyMap<Object>(NO_KEYS, NO_KEYS, NO_KEYS, new Object[0]);
+
+  /** The keys, in contribution order. */
+  private final int[] keys;
+  /** The keys, sorted. */
+  private final int[] sortedKeys;
+  /** The index in {@link #keys} of each key in {@link #sortedKeys}. */
+  private final int[] sortedIndices;
+
+  private IntKeyMap(int[] keys, int[] sortedKeys, int[] sortedIndices, Object[] values) {
+    super(values);
+    this.keys = keys;
+    this.sortedKeys = sortedKeys;
+    this.sortedIndices = sortedIndices;
+  }
+
+  /** Returns a new {@link Builder} with room for {@code size} entries. */
+  public static <V> Builder<V> builder(int size) {
+    return new Builder<V>(size);
+  }
+
+  /** Returns an {@link IntKeyMap} with the entries of {@code map}, in its iteration order. */
+  static <V> IntKeyMap<V> copyOf(Map<Integer, V> map) {
+    if (map instanceof IntKeyMap) {
+      return (IntKeyMap<V>) map;
+    }
+    Builder<V> builder = builder(map.size());
+    for (Entry<Integer, V> entry : map.entrySet()) {
+      builder.put(entry.getKey(), entry.getValue());
+    }
+    return builder.build();
+  }
+
+  /** Returns the value for {@code key}, or {@code null} if this map doesn't contain it. */
+  @Override
+  public V get(int key) {
+    int index = indexOf(key);
+    return index < 0 ? null : valueAt(index);
+  }
+
+  /** Returns {@code true} if this map contains {@code key}. */
+  public boolean containsKey(int key) {
+    return indexOf(key) >= 0;
+  }
+
+  int indexOf(int key) {
+    int sortedIndex = Arrays.binarySearch(sortedKeys, key);
+    return sortedIndex < 0 ? -1 : sortedIndices[sortedIndex];
+  }
+
+  @Override
+  int indexOf(Object key) {
+    return key instanceof Integer ? indexOf(((Integer) key).intValue()) : -1;
+  }
+
+  @Override
+  Integer keyAt(int index) {
+    return keys[index];
+  }
+
+  @Override
+  <V2> IntKeyMap<V2> withValues(Object[] values) {
+    return new IntKeyMap<V2>(keys, sortedKeys, sortedIndices, values);
+  }
+
+  /** A builder for {@link IntKeyMap}. */
+  public static final class Builder<V> {
+    private final int[] keys;
+    private final Object[] values;
+    private int size;
+
+    private Builder(int size) {
+      this.keys = new int[size];
+      this.values = new Object[size];
+    }
+
+    /** Associates {@code key} with {@code value}. */
+    public Builder<V> put(int key, V value) {
+      keys[size] = key;
+      values[size] = value;
+      size++;
+      return this;
+    }
+
+    /** Returns a new {@link IntKeyMap}. */
+    @SuppressWarnings("unchecked")
+    public IntKeyMap<V> build() {
+      if (size == 0) {
+        return (IntKeyMap<V>) EMPTY;
+      }
+      int[] keys = size == this.keys.length ? this.keys : Arrays.copyOf(this.keys, size);
+      Object[] values = size == this.values.length ? this.values : Arrays.copyOf(this.values, size);
+      int[] sortedKeys = keys.clone();
+      Arrays.sort(sortedKeys);
+      for (int i = 1; i < size; i++) {
+        if (sortedKeys[i] == sortedKeys[i - 1]) {
+          throw new IllegalArgumentException("Duplicate key: " + sortedKeys[i]);
+        }
+      }
+      int[] sortedIndices = new int[size];
+      for (int i = 0; i < size; i++) {
+        sortedIndices[Arrays.binarySearch(sortedKeys, keys[i])] = i;
+      }
+      return new IntKeyMap<V>(keys, sortedKeys, sortedIndices, values);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import dagger.multibindings.PrimitiveKeyMaps.IntKeyLookup;
+import dagger.multibindings.PrimitiveKeyMaps.LongKeyLookup;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.inject.Provider;
+
+/**
+ * An immutable {@link java.util.Map} whose values are provided by {@link Provider}s when they are
+ * first accessed, used to implement multibound maps whose values are only needed for a few of their
+ * keys.
+ *
+ * <p>Each value is provided at most once per map: {@link #get} and iterating over the {@link
+ * #entrySet()} provide the values they return and memoize them, so creating the map doesn't call
+ * any provider. Methods that look at all values, such as {@link #equals}, {@link #hashCode} and
+ * {@link #containsValue}, provide all of them. The iteration order is that of the providers.
+ *
+ * <p>The maps of the providers of an {@link IntKeyMap} or a {@link LongKeyMap} implement {@link
+ * IntKeyLookup} or {@link LongKeyLookup} too, so their keys can be looked up without boxing.
+ */
+class LazyValueMap<K, V> extends IndexedMap<K, V> {
+  private final IndexedMap<K, Provider<V>> providers;
+  /**
+   * The memoizing provider of each value, or {@code null} if the value hasn't been accessed yet.
+   * Each value is memoized on its own, so providing one value doesn't block access to the others.
+   */
+  private final AtomicReferenceArray<Provider<V>> memoized;
+
+  /** Returns a map whose values are provided by {@code providers} when they are first accessed. */
+  @SuppressWarnings("unchecked") // the keys of IntKeyMaps and LongKeyMaps are Integers and Longs
+  static <K, V> LazyValueMap<K, V> create(IndexedMap<K, Provider<V>> providers) {
+    if (providers instanceof IntKeyMap) {
+      return (LazyValueMap<K, V>)
+          (LazyValueMap<?, V>)
+              new IntKeys<V>((IntKeyMap<Provider<V>>) (IndexedMap<?, ?>) providers);
+    }
+    if (providers instanceof LongKeyMap) {
+      return (LazyValueMap<K, V>)
+          (LazyValueMap<?, V>)
+              new LongKeys<V>((LongKeyMap<Provider<V>>) (IndexedMap<?, ?>) providers);
+    }
+    return new LazyValueMap<K, V>(providers);
+  }
+
+  private LazyValueMap(IndexedMap<K, Provider<V>> providers) {
+    super(providers.values);
+    this.providers = providers;
+    this.memoized = new AtomicReferenceArray<Provider<V>>(providers.size());
+  }
+
+  @Override
+  K keyAt(int index) {
+    return providers.keyAt(index);
+  }
+
+  @Override
+  int indexOf(Object key) {
+    return providers.indexOf(key);
+  }
+
+  @Override
+  <V2> IndexedMap<K, V2> withValues(Object[] values) {
+    return providers.withValues(values);
+  }
+
+  @Override
+  V valueAt(int index) {
+    Provider<V> provider = memoized.get(index);
+    if (provider == null) {
+      provider = DoubleCheck.provider(providers.valueAt(index));
+      if (!memoized.compareAndSet(index, null, provider)) {
+        // Another thread accessed the value first, so use its provider to provide the value once.
+        provider = memoized.get(index);
+      }
+    }
+    return provider.get();
+  }
+
+  private static final class IntKeys<V> extends LazyValueMap<Integer, V>
+      implements IntKeyLookup<V> {
+    private final IntKeyMap<Provider<V>> providers;
+
+    IntKeys(IntKeyMap<Provider<V>> providers) {
+      super(providers);
+      this.providers = providers;
+    }
+
+    @Override
+    public V get(int key) {
+      int index = providers.indexOf(key);
+      return index < 0 ? null : valueAt(index);
+    }
+  }
+
+  private static final class LongKeys<V> extends LazyValueMap<Long, V> implements LongKeyLookup<V> {
+    private final LongKeyMap<Provider<V>> providers;
+
+    LongKeys(LongKeyMap<Provider<V>> providers) {
+      super(providers);
+      this.providers = providers;
+    }
+
+    @Override
+    public V get(long key) {
+      int index = providers.indexOf(key);
+      return index < 0 ? null : valueAt(index);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import dagger.multibindings.PrimitiveKeyMaps.LongKeyLookup;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable {@link Map} with {@code long} keys, used to implement multibound maps whose keys are
+ * {@link Long}s. Its iteration order is the order in which the entries were contributed.
+ *
+ * <p>The keys are stored unboxed, and {@link #get(long)} finds a key with a binary search, so it
+ * neither boxes nor allocates.
+ */
+public final class LongKeyMap<V> extends IndexedMap<Long, V> implements LongKeyLookup<V> {
+  private static final long[] NO_KEYS = new long[0];
+  private static final int[] NO_INDICES = new int[0];
+  private static final LongKeyMap<Object> EMPTY =
+      new LongKeyMap<Object>(NO_KEYS, NO_KEYS, NO_INDICES, new Object[0]);
+
+  /** The keys, in contribution order. */
+  private final long[] keys;
+  /** The keys, sorted. */
+  private final long[] sortedKeys;
+  /** The index in {@link #keys} of each key in {@link #sortedKeys}. */
+  private final int[] sortedIndices;
+
+  private LongKeyMap(long[] keys, long[] sortedKeys, int[] sortedIndices, Object[] values) {
+    super(values);
+    this.keys = keys;
+    this.sortedKeys = sortedKeys;
+    this.sortedIndices = sortedIndices;
+  }
+
+  /** Returns a new {@link Builder} with room for {@code size} entries. */
+  public static <V> Builder<V> builder(int size) {
+    return new Builder<V>(size);
+  }
+
+  /** Returns a {@link LongKeyMap} with the entries of {@code map}, in its iteration order. */
+  static <V> LongKeyMap<V> copyOf(Map<Long, V> map) {
+    if (map instanceof LongKeyMap) {
+      return (LongKeyMap<V>) map;
+    }
+    Builder<V> builder = builder(map.size());
+    for (Entry<Long, V> entry : map.entrySet()) {
+      builder.put(entry.getKey(), entry.getValue());
+    }
+    return builder.build();
+  }
+
+  /** Returns the value for {@code key}, or {@code null} if this map doesn't contain it. */
+  @Override
+  public V get(long key) {
+    int index = indexOf(key);
+    return index < 0 ? null : valueAt(index);
+  }
+
+  /** Returns {@code true} if this map contains {@code key}. */
+  public boolean containsKey(long key) {
+    return indexOf(key) >= 0;
+  }
+
+  int indexOf(long key) {
+    int sortedIndex = Arrays.binarySearch(sortedKeys, key);
+    return sortedIndex < 0 ? -1 : sortedIndices[sortedIndex];
+  }
+
+  @Override
+  int indexOf(Object key) {
+    return key instanceof Long ? indexOf(((Long) key).longValue()) : -1;
+  }
+
+  @Override
+  Long keyAt(int index) {
+    return keys[index];
+  }
+
+  @Override
+  <V2> LongKeyMap<V2> withValues(Object[] values) {
+    return new LongKeyMap<V2>(keys, sortedKeys, sortedIndices, values);
+  }
+
+  /** A builder for {@link LongKeyMap}. */
+  public static final class Builder<V> {
+    private final long[] keys;
+    private final Object[] values;
+    private int size;
+
+    private Builder(int size) {
+      this.keys = new long[size];
+      this.values = new Object[size];
+    }
+
+    /** Associates {@code key} with {@code value}. */
+    public Builder<V> put(long key, V value) {
+      keys[size] = key;
+      values[size] = value;
+      size++;
+      return this;
+    }
+
+    /** Returns a new {@link LongKeyMap}. */
+    @SuppressWarnings("unchecked")
+    public LongKeyMap<V> build() {
+      if (size == 0) {
+        return (LongKeyMap<V>) EMPTY;
+      }
+      long[] keys = size == this.keys.length ? this.keys : Arrays.copyOf(this.keys, size);
+      Object[] values = size == this.values.length ? this.values : Arrays.copyOf(this.values, size);
+      long[] sortedKeys = keys.clone();
+      Arrays.sort(sortedKeys);
+      for (int i = 1; i < size; i++) {
+        if (sortedKeys[i] == sortedKeys[i - 1]) {
+          throw new IllegalArgumentException("Duplicate key: " + sortedKeys[i]);
+        }
+      }
+      int[] sortedIndices = new int[size];
+      for (int i = 0; i < size; i++) {
+        sortedIndices[Arrays.binarySearch(sortedKeys, keys[i])] = i;
+      }
+      return new LongKeyMap<V>(keys, sortedKeys, sortedIndices, values);
+    }
+  }
+}
@@ -37,22 +37,72 @@ public final class MapFactory<K, V> extends AbstractMapFactory<K, V, V> {
     return new Builder<>(size);
   }
 
+  /**
+   * Returns a new {@link Builder} of a map whose {@link Integer} keys are stored unboxed, so that
+   * the map can be looked up with {@link dagger.multibindings.PrimitiveKeyMaps#intKeyLookup}.
+   */
+  public static <V> Builder<Integer, V> intKeyBuilder(int size) {
+    return new Builder<>(size, KeyType.INT);
+  }
+
+  /**
+   * Returns a new {@link Builder} of a map whose {@link Long} keys are stored unboxed, so that the
+   * map can be looked up with {@link dagger.multibindings.PrimitiveKeyMaps#longKeyLookup}.
+   */
+  public static <V> Builder<Long, V> longKeyBuilder(int size) {
+    return new Builder<>(size, KeyType.LONG);
+  }
+
+  /**
+   * Returns a new {@link Builder} of a map whose {@link String} keys are found with a hash table
+   * whose {@code displacements} were computed by Dagger.
+   */
+  public static <V> Builder<String, V> stringKeyBuilder(int size, int[] displacements) {
+    return new Builder<>(size, KeyType.STRING, displacements);
+  }
+
+  /**
+   * Returns a new {@link Builder} of a map whose {@link Class} keys are found with a hash table
+   * whose {@code displacements} were computed by Dagger.
+   */
+  public static <K extends Class<?>, V> Builder<K, V> classKeyBuilder(
+      int size, int[] displacements) {
+    return new Builder<>(size, KeyType.CLASS, displacements);
+  }
+
   /** Returns a factory of an empty map. */
   @SuppressWarnings("unchecked") // safe contravariant cast
   public static <K, V> Provider<Map<K, V>> emptyMapProvider() {
     return (Provider<Map<K, V>>) (Provider) EMPTY;
   }
 
-  private MapFactory(Map<K, Provider<V>> map) {
+  private final boolean lazyValues;
+
+  private MapFactory(Map<K, Provider<V>> map, boolean lazyValues) {
     super(map);
+    this.lazyValues = lazyValues;
   }
 
   /**
    * Returns a {@code Map<K, V>} whose iteration order is that of the elements given by each of the
-   * providers, which are invoked in the order given at creation.
+   * providers, which are invoked in the order given at creation. If the factory was built with
+   * {@link Builder#lazyValues()}, the providers are instead invoked when their values are first
+   * accessed.
    */
   @Override
   public Map<K, V> get() {
+    if (lazyValues) {
+      return LazyValueMap.create((IndexedMap<K, Provider<V>>) contributingMap());
+    }
+    if (contributingMap() instanceof IndexedMap) {
+      // Share the keys of the contributing map, rather than copying them.
+      IndexedMap<K, Provider<V>> providers = (IndexedMap<K, Provider<V>>) contributingMap();
+      Object[] values = new Object[providers.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = providers.valueAt(i).get();
+      }
+      return providers.withValues(values);
+    }
     Map<K, V> result = newLinkedHashMapWithExpectedSize(contributingMap().size());
     for (Entry<K, Provider<V>> entry : contributingMap().entrySet()) {
       result.put(entry.getKey(), entry.getValue().get());
@@ -62,10 +112,20 @@ public final class MapFactory<K, V> extends AbstractMapFactory<K, V, V> {
 
   /** A builder for {@link MapFactory}. */
   public static final class Builder<K, V> extends AbstractMapFactory.Builder<K, V, V> {
+    private boolean lazyValues;
+
     private Builder(int size) {
       super(size);
     }
 
+    private Builder(int size, KeyType keyType) {
+      super(size, keyType);
+    }
+
+    private Builder(int size, KeyType keyType, int[] displacements) {
+      super(size, keyType, displacements);
+    }
+
     @Override
     public Builder<K, V> put(K key, Provider<V> providerOfValue) {
       super.put(key, providerOfValue);
@@ -78,9 +138,18 @@ public final class MapFactory<K, V> extends AbstractMapFactory<K, V, V> {
       return this;
     }
 
+    /**
+     * Makes the factory return maps that invoke each value's provider only when the value is first
+     * accessed, and then memoize the value.
+     */
+    public Builder<K, V> lazyValues() {
+      this.lazyValues = true;
+      return this;
+    }
+
     /** Returns a new {@link MapProviderFactory}. */
     public MapFactory<K, V> build() {
-      return new MapFactory<>(map);
+      return new MapFactory<>(lazyValues ? indexedContributions() : contributions(), lazyValues);
     }
   }
 }
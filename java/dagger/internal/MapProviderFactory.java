@@ -32,6 +32,39 @@ public final class MapProviderFactory<K, V> extends AbstractMapFactory<K, V, Pro
     return new Builder<>(size);
   }
 
+  /**
+   * Returns a new {@link Builder} of a map whose {@link Integer} keys are stored unboxed, so that
+   * the map can be looked up with {@link dagger.multibindings.PrimitiveKeyMaps#intKeyLookup}.
+   */
+  public static <V> Builder<Integer, V> intKeyBuilder(int size) {
+    return new Builder<>(size, KeyType.INT);
+  }
+
+  /**
+   * Returns a new {@link Builder} of a map whose {@link Long} keys are stored unboxed, so that the
+   * map can be looked up with {@link dagger.multibindings.PrimitiveKeyMaps#longKeyLookup}.
+   */
+  public static <V> Builder<Long, V> longKeyBuilder(int size) {
+    return new Builder<>(size, KeyType.LONG);
+  }
+
+  /**
+   * Returns a new {@link Builder} of a map whose {@link String} keys are found with a hash table
+   * whose {@code displacements} were computed by Dagger.
+   */
+  public static <V> Builder<String, V> stringKeyBuilder(int size, int[] displacements) {
+    return new Builder<>(size, KeyType.STRING, displacements);
+  }
+
+  /**
+   * Returns a new {@link Builder} of a map whose {@link Class} keys are found with a hash table
+   * whose {@code displacements} were computed by Dagger.
+   */
+  public static <K extends Class<?>, V> Builder<K, V> classKeyBuilder(
+      int size, int[] displacements) {
+    return new Builder<>(size, KeyType.CLASS, displacements);
+  }
+
   private MapProviderFactory(Map<K, Provider<V>> contributingMap) {
     super(contributingMap);
   }
@@ -51,6 +84,14 @@ public final class MapProviderFactory<K, V> extends AbstractMapFactory<K, V, Pro
       super(size);
     }
 
+    private Builder(int size, KeyType keyType) {
+      super(size, keyType);
+    }
+
+    private Builder(int size, KeyType keyType, int[] displacements) {
+      super(size, keyType, displacements);
+    }
+
     @Override
     public Builder<K, V> put(K key, Provider<V> providerOfValue) {
       super.put(key, providerOfValue);
@@ -65,7 +106,7 @@ public final class MapProviderFactory<K, V> extends AbstractMapFactory<K, V, Pro
 
     /** Returns a new {@link MapProviderFactory}. */
     public MapProviderFactory<K, V> build() {
-      return new MapProviderFactory<>(map);
+      return new MapProviderFactory<>(contributions());
     }
   }
 }
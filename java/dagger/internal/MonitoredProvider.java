@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+import dagger.monitoring.ProvisionMonitor;
+import dagger.monitoring.ProvisionMonitors;
+import dagger.monitoring.ProvisionToken;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.inject.Provider;
+
+/**
+ * A {@link Provider} that reports each instance that its delegate provides to the installed {@link
+ * ProvisionMonitor}.
+ */
+public final class MonitoredProvider<T> implements Provider<T> {
+  private static final Logger logger = Logger.getLogger(MonitoredProvider.class.getName());
+
+  private final Provider<T> delegate;
+  private final ProvisionToken token;
+
+  private MonitoredProvider(Provider<T> delegate, ProvisionToken token) {
+    this.delegate = delegate;
+    this.token = token;
+  }
+
+  @Override
+  public T get() {
+    // Read the monitor once, so that it sees both events of a provision even if it is uninstalled
+    // in between.
+    ProvisionMonitor monitor = ProvisionMonitors.installed();
+    if (monitor == null) {
+      return delegate.get();
+    }
+    try {
+      monitor.provisionStarting(token);
+    } catch (RuntimeException e) {
+      logMonitorException(e, monitor);
+    }
+    T instance;
+    try {
+      instance = delegate.get();
+    } catch (Throwable t) {
+      try {
+        monitor.provisionFailed(token, t);
+      } catch (RuntimeException e) {
+        logMonitorException(e, monitor);
+      }
+      throw t;
+    }
+    try {
+      monitor.provisionFinished(token);
+    } catch (RuntimeException e) {
+      logMonitorException(e, monitor);
+    }
+    return instance;
+  }
+
+  private void logMonitorException(RuntimeException e, ProvisionMonitor monitor) {
+    logger.log(
+        Level.SEVERE,
+        "RuntimeException while calling ProvisionMonitor " + monitor + " for " + token,
+        e);
+  }
+
+  /**
+   * Returns a {@link Provider} that reports the provisions of {@code delegate} as provisions of the
+   * binding represented by {@code token}.
+   */
+  public static <T> Provider<T> provider(Provider<T> delegate, ProvisionToken token) {
+    return new MonitoredProvider<T>(checkNotNull(delegate), checkNotNull(token));
+  }
+}
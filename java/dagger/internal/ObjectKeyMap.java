@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import java.util.Map;
+
+/**
+ * An immutable {@link java.util.Map} with keys of any type, found by their {@link Object#hashCode()
+ * hash codes} in a {@linkplain HashedKeyMap hash table} with linear probing. Its iteration order is
+ * the order in which the entries were contributed.
+ */
+final class ObjectKeyMap<K, V> extends HashedKeyMap<K, V> {
+  private static final int[] NO_DISPLACEMENTS = {0};
+
+  private ObjectKeyMap(Object[] keys, Object[] values) {
+    super(keys, NO_DISPLACEMENTS, values);
+  }
+
+  private ObjectKeyMap(ObjectKeyMap<K, ?> map, Object[] values) {
+    super(map, values);
+  }
+
+  /** Returns an {@link ObjectKeyMap} with the entries of {@code map}, in its iteration order. */
+  static <K, V> ObjectKeyMap<K, V> copyOf(Map<K, V> map) {
+    Object[] keys = new Object[map.size()];
+    Object[] values = new Object[map.size()];
+    int i = 0;
+    for (Entry<K, V> entry : map.entrySet()) {
+      keys[i] = entry.getKey();
+      values[i] = entry.getValue();
+      i++;
+    }
+    return new ObjectKeyMap<K, V>(keys, values);
+  }
+
+  @Override
+  boolean isKeyType(Object key) {
+    return key != null;
+  }
+
+  @Override
+  int hash(Object key) {
+    return key.hashCode();
+  }
+
+  @Override
+  boolean matches(Object storedKey, Object key) {
+    return storedKey.equals(key);
+  }
+
+  @Override
+  <V2> ObjectKeyMap<K, V2> withValues(Object[] values) {
+    return new ObjectKeyMap<K, V2>(this, values);
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+/**
+ * Counts how many instances each binding of a component has provided, for the {@code
+ * provisionCounts()} method of components generated with {@code
+ * -Adagger.generateIntrospectionMethods=enabled}.
+ *
+ * <p>The counters are a {@link StripedLongArray}, so threads that provide the same binding at the
+ * same time don't keep contending for its counter.
+ */
+public final class ProvisionCounters {
+  private final StripedLongArray counts;
+
+  public ProvisionCounters(int size) {
+    this.counts = new StripedLongArray(size);
+  }
+
+  /** Adds one to the counter at {@code index}. */
+  public void increment(int index) {
+    counts.increment(index);
+  }
+
+  /** Returns the counter at {@code index}. */
+  public long count(int index) {
+    return counts.sum(index);
+  }
+}
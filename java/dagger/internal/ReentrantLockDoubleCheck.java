@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static dagger.internal.DoubleCheck.UNINITIALIZED;
+import static dagger.internal.DoubleCheck.reentrantCheck;
+import static dagger.internal.Preconditions.checkNotNull;
+
+import dagger.Lazy;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.inject.Provider;
+
+/**
+ * A {@link Lazy} and {@link Provider} implementation that memoizes the value returned from a
+ * delegate like {@link DoubleCheck}, but guards the creation of the value with a {@link
+ * ReentrantLock} instead of a {@code synchronized} block.
+ *
+ * <p>Threads that are waiting for the value to be created park instead of blocking on a monitor,
+ * so virtual threads don't pin their carrier thread while a scoped instance is being created. Once
+ * the value has been created, it is read without any locking, as with {@link DoubleCheck}.
+ */
+public final class ReentrantLockDoubleCheck<T>
+    implements Provider<T>, Lazy<T>, ThreadSafeMemoizer {
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile Provider<T> provider;
+  private volatile Object instance = UNINITIALIZED;
+
+  private ReentrantLockDoubleCheck(Provider<T> provider) {
+    assert provider != null;
+    this.provider = provider;
+  }
+
+  @SuppressWarnings("unchecked") // cast only happens when result comes from the provider
+  @Override
+  public T get() {
+    Object result = instance;
+    if (result == UNINITIALIZED) {
+      lock.lock();
+      try {
+        result = instance;
+        if (result == UNINITIALIZED) {
+          result = provider.get();
+          instance = reentrantCheck(instance, result);
+          /* Null out the reference to the provider. We are never going to need it again, so we
+           * can make it eligible for GC. */
+          provider = null;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return (T) result;
+  }
+
+  /** Returns {@code true} if the instance has been created, without creating it otherwise. */
+  boolean isCreated() {
+    return instance != UNINITIALIZED;
+  }
+
+  /** Returns a {@link Provider} that caches the value from the given delegate provider. */
+  // This method is declared this way instead of "<T> Provider<T> provider(Provider<T> delegate)"
+  // to work around an Eclipse type inference bug: https://github.com/google/dagger/issues/949.
+  public static <P extends Provider<T>, T> Provider<T> provider(P delegate) {
+    checkNotNull(delegate);
+    if (delegate instanceof ThreadSafeMemoizer) {
+      /* This should be a rare case, but if we have a scoped @Binds that delegates to a scoped
+       * binding, we shouldn't cache the value again. */
+      return delegate;
+    }
+    return new ReentrantLockDoubleCheck<T>(delegate);
+  }
+}
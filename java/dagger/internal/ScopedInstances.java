@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import javax.inject.Provider;
+
+/**
+ * Utility methods for the {@code scopedInstances()} method of components generated with {@code
+ * -Adagger.generateIntrospectionMethods=enabled}.
+ */
+public final class ScopedInstances {
+  /**
+   * Puts the instance of {@code scopedProvider} into {@code instances} if it has already been
+   * created, without creating it otherwise.
+   *
+   * @throws IllegalArgumentException if {@code scopedProvider} doesn't cache its instance
+   */
+  public static void putIfCreated(
+      MapBuilder<String, Object> instances, String key, Provider<?> scopedProvider) {
+    Provider<?> provider = scopedProvider;
+    if (provider instanceof DelegateFactory) {
+      provider = ((DelegateFactory<?>) provider).getDelegate();
+    }
+    if (isCreated(provider)) {
+      instances.put(key, provider.get());
+    }
+  }
+
+  private static boolean isCreated(Provider<?> provider) {
+    if (provider instanceof DoubleCheck) {
+      return ((DoubleCheck<?>) provider).isCreated();
+    } else if (provider instanceof ReentrantLockDoubleCheck) {
+      return ((ReentrantLockDoubleCheck<?>) provider).isCreated();
+    } else if (provider instanceof SingleCheck) {
+      return ((SingleCheck<?>) provider).isCreated();
+    }
+    throw new IllegalArgumentException("Not a scoped provider: " + provider);
+  }
+
+  private ScopedInstances() {}
+}
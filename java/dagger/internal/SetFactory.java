@@ -25,6 +25,7 @@ import static java.util.Collections.unmodifiableSet;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import javax.inject.Provider;
@@ -42,13 +43,43 @@ public final class SetFactory<T> implements Factory<Set<T>> {
     return (Factory) EMPTY_FACTORY;
   }
 
+  /**
+   * Returns a factory of sets of the one element provided by {@code provider}.
+   *
+   * <p>The factory returns a {@linkplain Collections#singleton singleton set}, instead of copying
+   * the element into a new {@link java.util.HashSet}.
+   */
+  public static <T> Factory<Set<T>> singleton(Provider<? extends T> provider) {
+    return new SingletonSetFactory<T>(checkNotNull(provider));
+  }
+
+  /**
+   * Returns a factory of sets of the elements of the collections provided by {@code provider}.
+   *
+   * <p>If the provided collection is a {@link Set}, the factory returns an unmodifiable view of it
+   * after checking that it has no {@code null} elements, instead of copying it into a new {@link
+   * java.util.HashSet}.
+   */
+  public static <T> Factory<Set<T>> fromCollection(
+      Provider<? extends Collection<? extends T>> provider) {
+    return new CollectionSetFactory<T>(checkNotNull(provider));
+  }
+
+  /**
+   * Constructs a new {@link Builder} for a {@link SetFactory} of fewer than eight individual {@code
+   * Provider<T>} instances, whose sets are stored in arrays rather than hash tables.
+   */
+  public static <T> Builder<T> smallSetBuilder(int individualProviderSize) {
+    return new Builder<T>(individualProviderSize, 0, true);
+  }
+
   /**
    * Constructs a new {@link Builder} for a {@link SetFactory} with {@code individualProviderSize}
    * individual {@code Provider<T>} and {@code collectionProviderSize} {@code
    * Provider<Collection<T>>} instances.
    */
   public static <T> Builder<T> builder(int individualProviderSize, int collectionProviderSize) {
-    return new Builder<T>(individualProviderSize, collectionProviderSize);
+    return new Builder<T>(individualProviderSize, collectionProviderSize, false);
   }
 
   /**
@@ -59,10 +90,12 @@ public final class SetFactory<T> implements Factory<Set<T>> {
   public static final class Builder<T> {
     private final List<Provider<T>> individualProviders;
     private final List<Provider<Collection<T>>> collectionProviders;
+    private final boolean small;
 
-    private Builder(int individualProviderSize, int collectionProviderSize) {
+    private Builder(int individualProviderSize, int collectionProviderSize, boolean small) {
       individualProviders = presizedList(individualProviderSize);
       collectionProviders = presizedList(collectionProviderSize);
+      this.small = small;
     }
 
     @SuppressWarnings("unchecked")
@@ -87,17 +120,24 @@ public final class SetFactory<T> implements Factory<Set<T>> {
       assert !hasDuplicates(collectionProviders)
           : "Codegen error?  Duplicates in the provider list";
 
-      return new SetFactory<T>(individualProviders, collectionProviders);
+      assert !small || collectionProviders.isEmpty()
+          : "Codegen error?  Collection providers in a small set";
+
+      return new SetFactory<T>(individualProviders, collectionProviders, small);
     }
   }
 
   private final List<Provider<T>> individualProviders;
   private final List<Provider<Collection<T>>> collectionProviders;
+  private final boolean small;
 
   private SetFactory(
-      List<Provider<T>> individualProviders, List<Provider<Collection<T>>> collectionProviders) {
+      List<Provider<T>> individualProviders,
+      List<Provider<Collection<T>>> collectionProviders,
+      boolean small) {
     this.individualProviders = individualProviders;
     this.collectionProviders = collectionProviders;
+    this.small = small;
   }
 
   /**
@@ -108,6 +148,13 @@ public final class SetFactory<T> implements Factory<Set<T>> {
    */
   @Override
   public Set<T> get() {
+    if (small) {
+      Object[] elements = new Object[individualProviders.size()];
+      for (int i = 0; i < elements.length; i++) {
+        elements[i] = checkNotNull(individualProviders.get(i).get());
+      }
+      return ArraySet.copyOfOwned(elements);
+    }
     int size = individualProviders.size();
     // Profiling revealed that this method was a CPU-consuming hotspot in some applications, so
     // these loops were changed to use c-style for.  Versus enhanced for-each loops, C-style for is
@@ -133,4 +180,47 @@ public final class SetFactory<T> implements Factory<Set<T>> {
 
     return unmodifiableSet(providedValues);
   }
+
+  /** A factory of sets of one element. */
+  private static final class SingletonSetFactory<T> implements Factory<Set<T>> {
+    private final Provider<? extends T> provider;
+
+    SingletonSetFactory(Provider<? extends T> provider) {
+      this.provider = provider;
+    }
+
+    @Override
+    public Set<T> get() {
+      return Collections.<T>singleton(checkNotNull(provider.get()));
+    }
+  }
+
+  /** A factory of sets of the elements of one provided collection. */
+  private static final class CollectionSetFactory<T> implements Factory<Set<T>> {
+    private final Provider<? extends Collection<? extends T>> provider;
+
+    CollectionSetFactory(Provider<? extends Collection<? extends T>> provider) {
+      this.provider = provider;
+    }
+
+    @SuppressWarnings("unchecked") // the set is unmodifiable, so it can be viewed as a Set<T>
+    @Override
+    public Set<T> get() {
+      Collection<? extends T> providedCollection = checkNotNull(provider.get());
+      if (providedCollection.isEmpty()) {
+        return emptySet();
+      }
+      if (providedCollection instanceof Set) {
+        for (T element : providedCollection) {
+          checkNotNull(element);
+        }
+        return unmodifiableSet((Set<T>) providedCollection);
+      }
+      Set<T> providedValues = newHashSetWithExpectedSize(providedCollection.size());
+      for (T element : providedCollection) {
+        providedValues.add(checkNotNull(element));
+      }
+      return unmodifiableSet(providedValues);
+    }
+  }
 }
@@ -57,12 +57,17 @@ public final class SingleCheck<T> implements Provider<T> {
     return (T) local;
   }
 
+  /** Returns {@code true} if the instance has been created, without creating it otherwise. */
+  boolean isCreated() {
+    return instance != UNINITIALIZED;
+  }
+
   /** Returns a {@link Provider} that caches the value from the given delegate provider. */
   // This method is declared this way instead of "<T> Provider<T> provider(Provider<T> provider)" 
   // to work around an Eclipse type inference bug: https://github.com/google/dagger/issues/949.
   public static <P extends Provider<T>, T> Provider<T> provider(P provider) {
     // If a scoped @Binds delegates to a scoped binding, don't cache the value again.
-    if (provider instanceof SingleCheck || provider instanceof DoubleCheck) {
+    if (provider instanceof SingleCheck || provider instanceof ThreadSafeMemoizer) {
       return provider;
     }
     return new SingleCheck<T>(checkNotNull(provider));
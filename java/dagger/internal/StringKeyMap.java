@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable {@link java.util.Map} with {@link String} keys, used to implement multibound maps
+ * whose keys are {@link String}s. Its iteration order is the order in which the entries were
+ * contributed.
+ *
+ * <p>The keys are found in a {@linkplain HashedKeyMap hash table} whose displacements are computed
+ * by Dagger, so that each key of the map is found with one probe.
+ */
+public final class StringKeyMap<V> extends HashedKeyMap<String, V> {
+  private StringKeyMap(Object[] keys, int[] displacements, Object[] values) {
+    super(keys, displacements, values);
+  }
+
+  private StringKeyMap(StringKeyMap<?> map, Object[] values) {
+    super(map, values);
+  }
+
+  /**
+   * Returns a new {@link Builder} with room for {@code size} entries, whose keys will be found with
+   * {@code displacements}.
+   */
+  public static <V> Builder<V> builder(int size, int[] displacements) {
+    return new Builder<V>(size, displacements);
+  }
+
+  /** Returns a {@link StringKeyMap} with the entries of {@code map}, in its iteration order. */
+  static <V> StringKeyMap<V> copyOf(Map<String, V> map, int[] displacements) {
+    Builder<V> builder = builder(map.size(), displacements);
+    for (Entry<String, V> entry : map.entrySet()) {
+      builder.put(entry.getKey(), entry.getValue());
+    }
+    return builder.build();
+  }
+
+  @Override
+  boolean isKeyType(Object key) {
+    return key instanceof String;
+  }
+
+  @Override
+  int hash(Object key) {
+    return key.hashCode();
+  }
+
+  @Override
+  boolean matches(Object storedKey, Object key) {
+    return storedKey.equals(key);
+  }
+
+  @Override
+  <V2> StringKeyMap<V2> withValues(Object[] values) {
+    return new StringKeyMap<V2>(this, values);
+  }
+
+  /** A builder for {@link StringKeyMap}. */
+  public static final class Builder<V> {
+    private final Object[] keys;
+    private final Object[] values;
+    private final int[] displacements;
+    private int size;
+
+    private Builder(int size, int[] displacements) {
+      this.keys = new Object[size];
+      this.values = new Object[size];
+      this.displacements = displacements;
+    }
+
+    /** Associates {@code key} with {@code value}. */
+    public Builder<V> put(String key, V value) {
+      keys[size] = Preconditions.checkNotNull(key, "key");
+      values[size] = value;
+      size++;
+      return this;
+    }
+
+    /** Returns a new {@link StringKeyMap}. */
+    public StringKeyMap<V> build() {
+      return new StringKeyMap<V>(
+          size == keys.length ? keys : Arrays.copyOf(keys, size),
+          displacements,
+          size == values.length ? values : Arrays.copyOf(values, size));
+    }
+  }
+}
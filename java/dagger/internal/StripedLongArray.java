@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed-size array of counters that many threads can increment at once, such as the {@link
+ * ProvisionCounters} of a component and the buckets of a latency histogram.
+ *
+ * <p>The counters are striped like {@code java.util.concurrent.atomic.LongAdder}, which Java 7
+ * doesn't have: an increment that loses a race for a counter is added to a row of counters for the
+ * incrementing thread instead, so threads that increment the same counter at the same time don't
+ * keep contending for it. The rows are only allocated once there is contention.
+ *
+ * <p>Each row is as long as the array, so there are at most eight rows, however many processors
+ * there are. That bounds the memory of a contended array to nine copies of its counters, at the
+ * cost of some contention on machines with more processors.
+ */
+public final class StripedLongArray {
+  private static final int MAX_STRIPES = 8;
+  private static final int STRIPES = stripes();
+
+  private final AtomicLongArray base;
+  private final AtomicReferenceArray<AtomicLongArray> stripes =
+      new AtomicReferenceArray<AtomicLongArray>(STRIPES);
+
+  public StripedLongArray(int length) {
+    this.base = new AtomicLongArray(length);
+  }
+
+  /** Adds one to the counter at {@code index}. */
+  public void increment(int index) {
+    long count = base.get(index);
+    if (!base.compareAndSet(index, count, count + 1)) {
+      stripe().incrementAndGet(index);
+    }
+  }
+
+  /** Returns the counter at {@code index}. */
+  public long sum(int index) {
+    long sum = base.get(index);
+    for (int i = 0; i < STRIPES; i++) {
+      AtomicLongArray stripe = stripes.get(i);
+      if (stripe != null) {
+        sum += stripe.get(index);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the counter at {@code index} and sets it to zero. Each increment that happens
+   * concurrently is either in the returned sum or remains counted, but never both.
+   */
+  public long sumThenReset(int index) {
+    long sum = base.getAndSet(index, 0);
+    for (int i = 0; i < STRIPES; i++) {
+      AtomicLongArray stripe = stripes.get(i);
+      if (stripe != null) {
+        sum += stripe.getAndSet(index, 0);
+      }
+    }
+    return sum;
+  }
+
+  private AtomicLongArray stripe() {
+    int index = hash(Thread.currentThread().getId()) & (STRIPES - 1);
+    AtomicLongArray stripe = stripes.get(index);
+    if (stripe == null) {
+      stripes.compareAndSet(index, null, new AtomicLongArray(base.length()));
+      stripe = stripes.get(index);
+    }
+    return stripe;
+  }
+
+  /** Spreads sequential thread IDs over the stripes. */
+  private static int hash(long threadId) {
+    long h = threadId * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /** Returns the smallest power of two that is at least the number of processors, up to 8. */
+  private static int stripes() {
+    int processors = Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES);
+    return Integer.highestOneBit(Math.max(processors, 1) * 2 - 1);
+  }
+}
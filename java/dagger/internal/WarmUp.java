@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.inject.Provider;
+
+/**
+ * Calls {@link Provider#get()} on a set of providers whose values depend on each other, calling
+ * each provider only after the providers it depends on have returned, and calling independent
+ * providers in parallel.
+ *
+ * <p>This is used by the {@code warmUp(Executor)} method of generated components to create all of
+ * their scoped instances ahead of time.
+ */
+public final class WarmUp {
+  /** Returns a new builder with room for {@code expectedSize} providers. */
+  public static Builder builder(int expectedSize) {
+    return new Builder(expectedSize);
+  }
+
+  /** A builder of the providers to call, in an order where dependencies come first. */
+  public static final class Builder {
+    private final List<Provider<?>> providers;
+    private final List<int[]> dependencies;
+
+    private Builder(int expectedSize) {
+      this.providers = new ArrayList<Provider<?>>(expectedSize);
+      this.dependencies = new ArrayList<int[]>(expectedSize);
+    }
+
+    /**
+     * Adds a provider that is called after the providers at the given indices have returned. The
+     * index of the added provider is the number of providers added before it.
+     */
+    public Builder add(Provider<?> provider, int... dependencies) {
+      checkNotNull(provider);
+      for (int dependency : dependencies) {
+        if (dependency < 0 || dependency >= providers.size()) {
+          throw new IllegalArgumentException(
+              "Invalid dependency " + dependency + " for provider " + providers.size());
+        }
+      }
+      this.providers.add(provider);
+      this.dependencies.add(dependencies);
+      return this;
+    }
+
+    /**
+     * Starts calling the providers on {@code executor}, and returns a future that completes when
+     * all of them have returned, or when any of them has thrown.
+     */
+    public Future<Void> start(Executor executor) {
+      Execution execution = new Execution(this, checkNotNull(executor));
+      execution.start();
+      return execution;
+    }
+  }
+
+  private static final int RUNNING = 0;
+  private static final int SUCCEEDED = 1;
+  private static final int FAILED = 2;
+  private static final int CANCELLED = 3;
+
+  private static final class Execution implements Future<Void> {
+    private final Executor executor;
+    private final Task[] tasks;
+    private final AtomicInteger remaining;
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+    private final CountDownLatch done = new CountDownLatch(1);
+    // Set only by the thread that moves the state to FAILED, before it counts down done.
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    Execution(Builder builder, Executor executor) {
+      this.executor = executor;
+      int size = builder.providers.size();
+      this.tasks = new Task[size];
+      int[] dependentCounts = new int[size];
+      for (int i = 0; i < size; i++) {
+        tasks[i] = new Task(builder.providers.get(i), builder.dependencies.get(i).length);
+        for (int dependency : builder.dependencies.get(i)) {
+          dependentCounts[dependency]++;
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        tasks[i].dependents = new Task[dependentCounts[i]];
+      }
+      for (int i = 0; i < size; i++) {
+        for (int dependency : builder.dependencies.get(i)) {
+          Task dependencyTask = tasks[dependency];
+          dependencyTask.dependents[--dependentCounts[dependency]] = tasks[i];
+        }
+      }
+      this.remaining = new AtomicInteger(size);
+    }
+
+    void start() {
+      if (tasks.length == 0) {
+        complete(SUCCEEDED);
+        return;
+      }
+      for (Task task : tasks) {
+        if (task.pendingDependencies.get() == 0) {
+          submit(task);
+        }
+      }
+    }
+
+    private void submit(Task task) {
+      try {
+        executor.execute(task);
+      } catch (RuntimeException e) {
+        fail(e);
+      }
+    }
+
+    private void fail(Throwable throwable) {
+      if (state.compareAndSet(RUNNING, FAILED)) {
+        failure.set(throwable);
+        done.countDown();
+      }
+    }
+
+    private void complete(int finalState) {
+      if (state.compareAndSet(RUNNING, finalState)) {
+        done.countDown();
+      }
+    }
+
+    private final class Task implements Runnable {
+      private final Provider<?> provider;
+      private final AtomicInteger pendingDependencies;
+      private Task[] dependents;
+
+      Task(Provider<?> provider, int dependencies) {
+        this.provider = provider;
+        this.pendingDependencies = new AtomicInteger(dependencies);
+      }
+
+      @Override
+      public void run() {
+        // Like fork-join, run one of the dependents that this task makes ready on the current
+        // thread, and fork the others.
+        Task task = this;
+        while (task != null && state.get() == RUNNING) {
+          try {
+            task.provider.get();
+          } catch (Throwable t) {
+            fail(t);
+            return;
+          }
+          Task next = null;
+          for (Task dependent : task.dependents) {
+            if (dependent.pendingDependencies.decrementAndGet() == 0) {
+              if (next == null) {
+                next = dependent;
+              } else {
+                submit(dependent);
+              }
+            }
+          }
+          if (remaining.decrementAndGet() == 0) {
+            complete(SUCCEEDED);
+          }
+          task = next;
+        }
+      }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      // Providers that are already running finish, but no more are started.
+      complete(CANCELLED);
+      return state.get() == CANCELLED;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return state.get() == CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+      return state.get() != RUNNING;
+    }
+
+    @Override
+    public Void get() throws InterruptedException, ExecutionException {
+      done.await();
+      return getDone();
+    }
+
+    @Override
+    public Void get(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+      if (!done.await(timeout, unit)) {
+        throw new TimeoutException();
+      }
+      return getDone();
+    }
+
+    private Void getDone() throws ExecutionException {
+      switch (state.get()) {
+        case FAILED:
+          throw new ExecutionException(failure.get());
+        case CANCELLED:
+          throw new CancellationException();
+        default:
+          return null;
+      }
+    }
+  }
+
+  private WarmUp() {}
+}
@@ -0,0 +1,603 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen;
+
+import static androidx.room.compiler.processing.compat.XConverters.toJavac;
+import static com.google.auto.common.GeneratedAnnotations.generatedAnnotation;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import androidx.room.compiler.processing.XFiler;
+import androidx.room.compiler.processing.XMessager;
+import androidx.room.compiler.processing.XProcessingEnv;
+import androidx.room.compiler.processing.XType;
+import androidx.room.compiler.processing.XTypeElement;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import dagger.internal.codegen.base.CacheStats;
+import dagger.internal.codegen.base.ClearableCache;
+import dagger.internal.codegen.base.ProcessingTracer;
+import dagger.internal.codegen.base.ProcessingTracer.Span;
+import dagger.internal.codegen.binding.BindingGraph;
+import dagger.internal.codegen.binding.ComponentCreatorDescriptor;
+import dagger.internal.codegen.binding.ComponentDescriptor;
+import dagger.internal.codegen.binding.ComponentRequirement;
+import dagger.internal.codegen.binding.InjectBindingRegistry;
+import dagger.internal.codegen.binding.KeyFactory;
+import dagger.internal.codegen.binding.ModuleDescriptor;
+import dagger.internal.codegen.compileroption.CompilerOptions;
+import dagger.internal.codegen.compileroption.ProcessingOptions;
+import dagger.internal.codegen.langmodel.DaggerElements;
+import dagger.spi.BindingGraphPlugin;
+import dagger.spi.model.Binding;
+import dagger.spi.model.BindingKind;
+import dagger.spi.model.DependencyRequest;
+import dagger.spi.model.Key;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Caches the sources generated for root components in {@code -Adagger.componentCacheDirectory}, so
+ * that a later compilation can reuse them instead of resolving and generating the component again.
+ *
+ * <p>A component's cache entry records a hash of the signature of every type that its binding graph
+ * was resolved from: the components, creators and modules, the types in each binding's key and
+ * dependencies, the types that declare the bindings, all of their supertypes, and the types that
+ * enclose any of those. A signature covers a type's annotations, modifiers, supertypes and the
+ * declarations of its members, but not the bodies of its methods, which don't affect the generated
+ * component. The entry is only reused if all of those types still have the same signature, and the
+ * processor version and options are the same.
+ *
+ * <p>Components are only cached if their binding graph validation reported no diagnostics at all,
+ * so that reusing an entry never hides a warning, and only if there are no external {@link
+ * BindingGraphPlugin}s, since those may have side effects.
+ */
+@Singleton
+final class ComponentCache implements ClearableCache {
+  private static final int MAGIC = 0xDA66E4CC;
+  private static final int FORMAT_VERSION = 1;
+
+  /** Options that don't affect the generated components. */
+  private static final ImmutableSet<String> IGNORED_OPTIONS =
+      ImmutableSet.of(
+          "dagger.componentCacheDirectory",
+          "dagger.processingTraceFile",
+          "dagger.processingThreads",
+          "dagger.parallelBindingGraphPlugins",
+          "dagger.parallelComponentGeneration");
+
+  private final Optional<Path> cacheDirectory;
+  private final XProcessingEnv processingEnv;
+  private final XFiler filer;
+  private final XMessager messager;
+  private final DaggerElements elements;
+  private final InjectBindingRegistry injectBindingRegistry;
+  private final KeyFactory keyFactory;
+  private final ProcessingTracer processingTracer;
+  private final String environmentHash;
+  private final boolean hasExternalPlugins;
+  private final Map<String, Optional<String>> signatureHashes = new HashMap<>();
+  private long lookups;
+
+  @Inject
+  ComponentCache(
+      CompilerOptions compilerOptions,
+      @ProcessingOptions Map<String, String> processingOptions,
+      SourceVersion sourceVersion,
+      XProcessingEnv processingEnv,
+      XFiler filer,
+      XMessager messager,
+      DaggerElements elements,
+      InjectBindingRegistry injectBindingRegistry,
+      KeyFactory keyFactory,
+      ProcessingTracer processingTracer,
+      ImmutableSet<BindingGraphPlugin> externalPlugins) {
+    this.cacheDirectory = compilerOptions.componentCacheDirectory();
+    this.processingEnv = processingEnv;
+    this.filer = filer;
+    this.messager = messager;
+    this.elements = elements;
+    this.injectBindingRegistry = injectBindingRegistry;
+    this.keyFactory = keyFactory;
+    this.processingTracer = processingTracer;
+    this.hasExternalPlugins = !externalPlugins.isEmpty();
+    this.environmentHash = environmentHash(processingOptions, sourceVersion, elements);
+  }
+
+  /** Returns {@code true} if components are cached. */
+  boolean isEnabled() {
+    return cacheDirectory.isPresent() && !hasExternalPlugins;
+  }
+
+  /**
+   * Writes the sources that were cached for {@code component} if none of the types that its binding
+   * graph was resolved from have changed since, and returns {@code true} if it did.
+   */
+  boolean writeCachedSources(XTypeElement component) {
+    if (!isEnabled()) {
+      return false;
+    }
+    try (Span span = processingTracer.begin("ComponentCache")) {
+      Optional<Entry> entry = read(component);
+      boolean hit = entry.isPresent() && entry.get().isUpToDate();
+      span.arg("hit", hit);
+      if (!hit) {
+        return false;
+      }
+      entry.get().registerInjectBindings();
+      entry.get().writeSources(component);
+      return true;
+    }
+  }
+
+  /**
+   * Caches the {@code sources} that were generated for {@code bindingGraph}, which must be the
+   * {@code toString()} of each of the {@code javaFiles}.
+   */
+  void store(BindingGraph bindingGraph, List<JavaFile> javaFiles, List<String> sources) {
+    checkState(isEnabled());
+    try (Span span = processingTracer.begin("ComponentCache store")) {
+      ImmutableSet<TypeElement> inputs = inputs(bindingGraph);
+      ImmutableSortedMap.Builder<String, String> hashes = ImmutableSortedMap.naturalOrder();
+      for (TypeElement input : inputs) {
+        String name = input.getQualifiedName().toString();
+        Optional<String> hash = signatureHash(name);
+        if (!hash.isPresent()) {
+          // Local types and types in the unnamed module that can't be found by name can't be
+          // checked later, so don't cache a component that depends on one.
+          return;
+        }
+        hashes.put(name, hash.get());
+      }
+      span.arg("inputs", inputs.size());
+
+      ImmutableMap.Builder<String, String> sourcesByName = ImmutableMap.builder();
+      for (int i = 0; i < javaFiles.size(); i++) {
+        JavaFile javaFile = javaFiles.get(i);
+        sourcesByName.put(
+            ClassName.get(javaFile.packageName, javaFile.typeSpec.name).toString(), sources.get(i));
+      }
+      write(
+          bindingGraph.componentTypeElement(),
+          new Entry(hashes.build(), injectedTypes(bindingGraph), sourcesByName.build()));
+    }
+  }
+
+  @Override
+  public void clearCache() {
+    signatureHashes.clear();
+    lookups = 0;
+  }
+
+  @Override
+  public CacheStats cacheStats() {
+    return CacheStats.create(lookups, signatureHashes.size());
+  }
+
+  /** Returns the types that the resolution of {@code bindingGraph} depended on. */
+  private ImmutableSet<TypeElement> inputs(BindingGraph bindingGraph) {
+    Set<TypeElement> inputs = new LinkedHashSet<>();
+    for (ComponentDescriptor component : bindingGraph.componentDescriptorsByPath().values()) {
+      inputs.add(toJavac(component.typeElement()));
+      component
+          .creatorDescriptor()
+          .map(ComponentCreatorDescriptor::typeElement)
+          .ifPresent(creator -> inputs.add(toJavac(creator)));
+      for (ModuleDescriptor module : component.modules()) {
+        inputs.add(toJavac(module.moduleElement()));
+      }
+      for (ComponentRequirement dependency : component.dependencies()) {
+        inputs.add(toJavac(dependency.typeElement()));
+      }
+    }
+    for (Binding binding : bindingGraph.topLevelBindingGraph().bindings()) {
+      addTypes(binding.key(), inputs);
+      for (DependencyRequest dependency : binding.dependencies()) {
+        addTypes(dependency.key(), inputs);
+      }
+      binding.bindingElement().map(element -> enclosingType(element.java())).ifPresent(inputs::add);
+      binding.contributingModule().ifPresent(module -> inputs.add(module.java()));
+    }
+
+    // Members and annotations that are inherited from supertypes affect the resolved bindings, too.
+    Deque<TypeElement> queue = new ArrayDeque<>(inputs);
+    while (!queue.isEmpty()) {
+      TypeElement type = queue.remove();
+      for (TypeMirror supertype :
+          toJavac(processingEnv).getTypeUtils().directSupertypes(type.asType())) {
+        TypeElement supertypeElement = (TypeElement) ((DeclaredType) supertype).asElement();
+        if (inputs.add(supertypeElement)) {
+          queue.add(supertypeElement);
+        }
+      }
+    }
+
+    // The modifiers of enclosing types affect whether nested types are accessible, too.
+    for (TypeElement type : ImmutableList.copyOf(inputs)) {
+      for (Element enclosing = type.getEnclosingElement();
+          enclosing instanceof TypeElement;
+          enclosing = enclosing.getEnclosingElement()) {
+        inputs.add((TypeElement) enclosing);
+      }
+    }
+    return ImmutableSet.copyOf(inputs);
+  }
+
+  private static void addTypes(Key key, Set<TypeElement> types) {
+    key.qualifier()
+        .ifPresent(
+            qualifier -> types.add((TypeElement) qualifier.java().getAnnotationType().asElement()));
+    addTypes(key.type().java(), types);
+  }
+
+  private static void addTypes(TypeMirror type, Set<TypeElement> types) {
+    switch (type.getKind()) {
+      case DECLARED:
+        DeclaredType declaredType = (DeclaredType) type;
+        types.add((TypeElement) declaredType.asElement());
+        declaredType.getTypeArguments().forEach(typeArgument -> addTypes(typeArgument, types));
+        addTypes(declaredType.getEnclosingType(), types);
+        break;
+      case ARRAY:
+        addTypes(((ArrayType) type).getComponentType(), types);
+        break;
+      case WILDCARD:
+        WildcardType wildcardType = (WildcardType) type;
+        if (wildcardType.getExtendsBound() != null) {
+          addTypes(wildcardType.getExtendsBound(), types);
+        }
+        if (wildcardType.getSuperBound() != null) {
+          addTypes(wildcardType.getSuperBound(), types);
+        }
+        break;
+      default:
+        // Primitives and type variables don't have declarations that could change.
+    }
+  }
+
+  private static TypeElement enclosingType(Element element) {
+    while (!(element instanceof TypeElement)) {
+      element = element.getEnclosingElement();
+    }
+    return (TypeElement) element;
+  }
+
+  /** Returns the qualified names of the types whose {@code @Inject} bindings are in the graph. */
+  private static ImmutableSortedMap<String, BindingKind> injectedTypes(BindingGraph bindingGraph) {
+    Map<String, BindingKind> injectedTypes = new HashMap<>();
+    for (Binding binding : bindingGraph.topLevelBindingGraph().bindings()) {
+      switch (binding.kind()) {
+        case INJECTION:
+        case ASSISTED_INJECTION:
+        case MEMBERS_INJECTION:
+          binding
+              .bindingElement()
+              .map(element -> enclosingType(element.java()).getQualifiedName().toString())
+              .ifPresent(name -> injectedTypes.putIfAbsent(name, binding.kind()));
+          break;
+        default:
+          break;
+      }
+    }
+    return ImmutableSortedMap.copyOf(injectedTypes);
+  }
+
+  /**
+   * Returns a hash of the signature of the type named {@code qualifiedName}, or empty if there is
+   * no such type.
+   */
+  private Optional<String> signatureHash(String qualifiedName) {
+    lookups++;
+    return signatureHashes.computeIfAbsent(
+        qualifiedName,
+        name ->
+            Optional.ofNullable(elements.getTypeElement(name))
+                .map(type -> Hashing.murmur3_128().hashString(signature(type), UTF_8).toString()));
+  }
+
+  private static String signature(TypeElement type) {
+    StringBuilder signature = new StringBuilder();
+    appendDeclaration(signature, type);
+    signature
+        .append(" extends ")
+        .append(type.getSuperclass())
+        .append(" implements ")
+        .append(type.getInterfaces())
+        .append(" {\n");
+    for (Element member : type.getEnclosedElements()) {
+      appendDeclaration(signature, member);
+      if (member instanceof ExecutableElement) {
+        ExecutableElement method = (ExecutableElement) member;
+        signature.append(" returns ").append(method.getReturnType()).append(" (");
+        for (VariableElement parameter : method.getParameters()) {
+          appendDeclaration(signature, parameter);
+          signature.append(' ').append(parameter.asType()).append(", ");
+        }
+        signature
+            .append(") varargs=")
+            .append(method.isVarArgs())
+            .append(" throws ")
+            .append(method.getThrownTypes())
+            .append(" default ")
+            .append(method.getDefaultValue());
+      } else if (member instanceof VariableElement) {
+        VariableElement field = (VariableElement) member;
+        signature.append(' ').append(field.asType()).append(" = ").append(field.getConstantValue());
+      }
+      signature.append('\n');
+    }
+    return signature.append('}').toString();
+  }
+
+  private static void appendDeclaration(StringBuilder signature, Element element) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      signature.append(annotation).append(' ');
+    }
+    signature
+        .append(element.getModifiers())
+        .append(' ')
+        .append(element.getKind())
+        .append(' ')
+        .append(element.getSimpleName());
+    if (element instanceof TypeElement || element instanceof ExecutableElement) {
+      List<? extends TypeParameterElement> typeParameters =
+          element instanceof TypeElement
+              ? ((TypeElement) element).getTypeParameters()
+              : ((ExecutableElement) element).getTypeParameters();
+      signature.append('<');
+      for (TypeParameterElement typeParameter : typeParameters) {
+        signature.append(typeParameter).append(" extends ").append(typeParameter.getBounds());
+        signature.append(", ");
+      }
+      signature.append('>');
+    }
+  }
+
+  /**
+   * Returns a hash of everything other than the input types that affects the generated components:
+   * the processor itself, its options and the source version.
+   */
+  private static String environmentHash(
+      Map<String, String> processingOptions, SourceVersion sourceVersion, DaggerElements elements) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    hasher.putInt(FORMAT_VERSION).putString(processorVersion(), UTF_8);
+    ImmutableSortedMap.copyOf(processingOptions)
+        .forEach(
+            (option, value) -> {
+              if (!IGNORED_OPTIONS.contains(option)) {
+                hasher.putString(option, UTF_8).putString(String.valueOf(value), UTF_8);
+              }
+            });
+    hasher.putString(sourceVersion.name(), UTF_8);
+    hasher.putString(
+        generatedAnnotation(elements, sourceVersion)
+            .map(annotation -> annotation.getQualifiedName().toString())
+            .orElse(""),
+        UTF_8);
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns a string that identifies the version of the processor: the implementation version of
+   * its jar if it has one, or else the size and modification time of the jar.
+   */
+  private static String processorVersion() {
+    String implementationVersion = ComponentProcessor.class.getPackage().getImplementationVersion();
+    if (implementationVersion != null && !implementationVersion.endsWith("SNAPSHOT")) {
+      return implementationVersion;
+    }
+    try {
+      CodeSource codeSource = ComponentProcessor.class.getProtectionDomain().getCodeSource();
+      URL location = codeSource == null ? null : codeSource.getLocation();
+      if (location != null && location.getProtocol().equals("file")) {
+        Path path = Paths.get(location.toURI());
+        if (Files.isRegularFile(path)) {
+          return path + " " + Files.size(path) + " " + Files.getLastModifiedTime(path);
+        }
+      }
+    } catch (IOException | URISyntaxException | SecurityException e) {
+      // Fall through.
+    }
+    return String.valueOf(implementationVersion);
+  }
+
+  private Path cacheFile(XTypeElement component) {
+    return cacheDirectory.get().resolve(toJavac(component).getQualifiedName() + ".daggercache");
+  }
+
+  private Optional<Entry> read(XTypeElement component) {
+    try (InputStream inputStream = Files.newInputStream(cacheFile(component));
+        DataInputStream input = new DataInputStream(inputStream)) {
+      if (input.readInt() != MAGIC
+          || input.readInt() != FORMAT_VERSION
+          || !input.readUTF().equals(environmentHash)) {
+        return Optional.empty();
+      }
+      ImmutableSortedMap.Builder<String, String> signatureHashes =
+          ImmutableSortedMap.naturalOrder();
+      for (int i = input.readInt(); i > 0; i--) {
+        signatureHashes.put(input.readUTF(), input.readUTF());
+      }
+      ImmutableSortedMap.Builder<String, BindingKind> injectedTypes =
+          ImmutableSortedMap.naturalOrder();
+      for (int i = input.readInt(); i > 0; i--) {
+        injectedTypes.put(input.readUTF(), BindingKind.valueOf(input.readUTF()));
+      }
+      ImmutableMap.Builder<String, String> sources = ImmutableMap.builder();
+      for (int i = input.readInt(); i > 0; i--) {
+        String name = input.readUTF();
+        byte[] source = new byte[input.readInt()];
+        input.readFully(source);
+        sources.put(name, new String(source, UTF_8));
+      }
+      return Optional.of(
+          new Entry(signatureHashes.build(), injectedTypes.build(), sources.build()));
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IOException | IllegalArgumentException e) {
+      // A corrupt or incompatible entry is replaced when the component is generated again.
+      return Optional.empty();
+    }
+  }
+
+  private void write(XTypeElement component, Entry entry) {
+    Path cacheFile = cacheFile(component);
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      // Write to a temporary file first so that concurrent compilations never read a partial entry.
+      Path temporaryFile =
+          Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+      try (OutputStream outputStream = Files.newOutputStream(temporaryFile);
+          DataOutputStream output = new DataOutputStream(outputStream)) {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeUTF(environmentHash);
+        output.writeInt(entry.signatureHashes.size());
+        for (Map.Entry<String, String> signatureHash : entry.signatureHashes.entrySet()) {
+          output.writeUTF(signatureHash.getKey());
+          output.writeUTF(signatureHash.getValue());
+        }
+        output.writeInt(entry.injectedTypes.size());
+        for (Map.Entry<String, BindingKind> injectedType : entry.injectedTypes.entrySet()) {
+          output.writeUTF(injectedType.getKey());
+          output.writeUTF(injectedType.getValue().name());
+        }
+        output.writeInt(entry.sources.size());
+        for (Map.Entry<String, String> source : entry.sources.entrySet()) {
+          byte[] bytes = source.getValue().getBytes(UTF_8);
+          output.writeUTF(source.getKey());
+          output.writeInt(bytes.length);
+          output.write(bytes);
+        }
+      }
+      Files.move(
+          temporaryFile,
+          cacheFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      messager.printMessage(
+          Diagnostic.Kind.NOTE,
+          String.format("Could not cache %s: %s", component.getQualifiedName(), e),
+          component);
+    }
+  }
+
+  /** The cached sources of a component and the inputs that they were generated from. */
+  private final class Entry {
+    private final ImmutableSortedMap<String, String> signatureHashes;
+    private final ImmutableSortedMap<String, BindingKind> injectedTypes;
+    private final ImmutableMap<String, String> sources;
+
+    Entry(
+        ImmutableSortedMap<String, String> signatureHashes,
+        ImmutableSortedMap<String, BindingKind> injectedTypes,
+        ImmutableMap<String, String> sources) {
+      this.signatureHashes = signatureHashes;
+      this.injectedTypes = injectedTypes;
+      this.sources = sources;
+    }
+
+    boolean isUpToDate() {
+      return signatureHashes
+          .entrySet()
+          .stream()
+          .allMatch(
+              signatureHash ->
+                  signatureHash(signatureHash.getKey())
+                      .map(signatureHash.getValue()::equals)
+                      .orElse(false));
+    }
+
+    /**
+     * Registers the {@code @Inject} bindings that resolving the graph would have registered, so
+     * that factories are still generated for the ones from other compilation units that don't have
+     * them yet.
+     */
+    void registerInjectBindings() {
+      injectedTypes.forEach(
+          (name, kind) -> {
+            XType type = processingEnv.requireTypeElement(name).getType();
+            if (kind.equals(BindingKind.MEMBERS_INJECTION)) {
+              injectBindingRegistry.getOrFindMembersInjectionBinding(
+                  keyFactory.forMembersInjectedType(type));
+            } else {
+              injectBindingRegistry.getOrFindProvisionBinding(
+                  keyFactory.forInjectConstructorWithResolvedType(type));
+            }
+          });
+    }
+
+    void writeSources(XTypeElement component) {
+      sources.forEach(
+          (name, source) -> {
+            try {
+              JavaFileObject sourceFile = toJavac(filer).createSourceFile(name, toJavac(component));
+              try (Writer writer = sourceFile.openWriter()) {
+                writer.write(source);
+              }
+            } catch (IOException e) {
+              messager.printMessage(
+                  Diagnostic.Kind.ERROR,
+                  String.format("Could not write the cached %s: %s", name, e),
+                  component);
+            }
+          });
+    }
+  }
+}
@@ -21,25 +21,38 @@ import static dagger.internal.codegen.base.ComponentAnnotation.allComponentAnnot
 import static dagger.internal.codegen.base.ComponentAnnotation.rootComponentAnnotations;
 import static dagger.internal.codegen.base.ComponentAnnotation.subcomponentAnnotations;
 import static dagger.internal.codegen.binding.ComponentCreatorAnnotation.allCreatorAnnotations;
+import static dagger.internal.codegen.extension.DaggerStreams.toImmutableList;
 import static java.util.Collections.disjoint;
 
+import androidx.room.compiler.processing.XElement;
 import androidx.room.compiler.processing.XMessager;
+import androidx.room.compiler.processing.XProcessingEnv;
 import androidx.room.compiler.processing.XTypeElement;
 import com.google.auto.common.BasicAnnotationProcessor.ProcessingStep;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import dagger.internal.codegen.base.ConcurrentSourceFileWriter;
+import dagger.internal.codegen.base.ProcessingThreadPool;
+import dagger.internal.codegen.base.ProcessingTracer;
+import dagger.internal.codegen.base.ProcessingTracer.Span;
+import dagger.internal.codegen.base.SourceFileGenerationException;
 import dagger.internal.codegen.base.SourceFileGenerator;
 import dagger.internal.codegen.binding.BindingGraph;
 import dagger.internal.codegen.binding.BindingGraphFactory;
 import dagger.internal.codegen.binding.ComponentDescriptor;
 import dagger.internal.codegen.binding.ComponentDescriptorFactory;
+import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.validation.BindingGraphValidator;
 import dagger.internal.codegen.validation.ComponentCreatorValidator;
 import dagger.internal.codegen.validation.ComponentDescriptorValidator;
 import dagger.internal.codegen.validation.ComponentValidator;
 import dagger.internal.codegen.validation.TypeCheckingProcessingStep;
 import dagger.internal.codegen.validation.ValidationReport;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import javax.inject.Inject;
 
@@ -56,6 +69,9 @@ final class ComponentProcessingStep extends TypeCheckingProcessingStep<XTypeElem
   private final BindingGraphFactory bindingGraphFactory;
   private final SourceFileGenerator<BindingGraph> componentGenerator;
   private final BindingGraphValidator bindingGraphValidator;
+  private final ProcessingTracer processingTracer;
+  private final ComponentCache componentCache;
+  private final Optional<ConcurrentSourceFileWriter<BindingGraph>> concurrentComponentWriter;
 
   @Inject
   ComponentProcessingStep(
@@ -66,7 +82,11 @@ final class ComponentProcessingStep extends TypeCheckingProcessingStep<XTypeElem
       ComponentDescriptorFactory componentDescriptorFactory,
       BindingGraphFactory bindingGraphFactory,
       SourceFileGenerator<BindingGraph> componentGenerator,
-      BindingGraphValidator bindingGraphValidator) {
+      BindingGraphValidator bindingGraphValidator,
+      CompilerOptions compilerOptions,
+      ProcessingTracer processingTracer,
+      ProcessingThreadPool processingThreadPool,
+      ComponentCache componentCache) {
     this.messager = messager;
     this.componentValidator = componentValidator;
     this.creatorValidator = creatorValidator;
@@ -75,6 +95,13 @@ final class ComponentProcessingStep extends TypeCheckingProcessingStep<XTypeElem
     this.bindingGraphFactory = bindingGraphFactory;
     this.componentGenerator = componentGenerator;
     this.bindingGraphValidator = bindingGraphValidator;
+    this.processingTracer = processingTracer;
+    this.componentCache = componentCache;
+    this.concurrentComponentWriter =
+        compilerOptions.parallelComponentGeneration()
+            ? Optional.of(
+                new ConcurrentSourceFileWriter<>(componentGenerator, processingThreadPool))
+            : Optional.empty();
   }
 
   @Override
@@ -82,6 +109,15 @@ final class ComponentProcessingStep extends TypeCheckingProcessingStep<XTypeElem
     return union(allComponentAnnotations(), allCreatorAnnotations());
   }
 
+  @Override
+  public ImmutableSet<XElement> process(
+      XProcessingEnv env, Map<String, ? extends Set<? extends XElement>> elementsByAnnotation) {
+    ImmutableSet<XElement> deferredElements = super.process(env, elementsByAnnotation);
+    // The components of this round must be written before javac moves on to the next one.
+    concurrentComponentWriter.ifPresent(writer -> writer.flush(messager));
+    return deferredElements;
+  }
+
   @Override
   protected void process(XTypeElement element, ImmutableSet<ClassName> annotations) {
     if (!disjoint(annotations, rootComponentAnnotations())) {
@@ -95,21 +131,41 @@ final class ComponentProcessingStep extends TypeCheckingProcessingStep<XTypeElem
     }
   }
 
+  @SuppressWarnings("try")
   private void processRootComponent(XTypeElement component) {
-    if (!isComponentValid(component)) {
-      return;
-    }
-    ComponentDescriptor componentDescriptor =
-        componentDescriptorFactory.rootComponentDescriptor(component);
-    if (!isValid(componentDescriptor)) {
-      return;
-    }
-    if (!validateFullBindingGraph(componentDescriptor)) {
-      return;
-    }
-    BindingGraph bindingGraph = bindingGraphFactory.create(componentDescriptor, false);
-    if (bindingGraphValidator.isValid(bindingGraph.topLevelBindingGraph())) {
-      generateComponent(bindingGraph);
+    try (Span span = processingTracer.begin(component.getQualifiedName())) {
+      if (!isComponentValid(component)) {
+        return;
+      }
+      ComponentDescriptor componentDescriptor;
+      try (Span descriptorSpan = processingTracer.begin("ComponentDescriptorFactory")) {
+        componentDescriptor = componentDescriptorFactory.rootComponentDescriptor(component);
+      }
+      if (!isValid(componentDescriptor)) {
+        return;
+      }
+      if (!validateFullBindingGraph(componentDescriptor)) {
+        return;
+      }
+      if (componentCache.writeCachedSources(component)) {
+        return;
+      }
+      BindingGraph bindingGraph;
+      try (Span bindingGraphSpan = processingTracer.begin("BindingGraphFactory")) {
+        bindingGraph = bindingGraphFactory.create(componentDescriptor, false);
+        if (processingTracer.isEnabled()) {
+          bindingGraphSpan.arg("bindings", bindingGraph.topLevelBindingGraph().bindings().size());
+        }
+      }
+      int reportedDiagnostics = bindingGraphValidator.reportedDiagnostics();
+      if (!bindingGraphValidator.isValid(bindingGraph.topLevelBindingGraph())) {
+        return;
+      }
+      // Only cache components without warnings, so that reusing them doesn't hide any.
+      generateComponent(
+          bindingGraph,
+          componentCache.isEnabled()
+              && bindingGraphValidator.reportedDiagnostics() == reportedDiagnostics);
     }
   }
 
@@ -123,34 +179,70 @@ final class ComponentProcessingStep extends TypeCheckingProcessingStep<XTypeElem
     validateFullBindingGraph(subcomponentDescriptor);
   }
 
-  private void generateComponent(BindingGraph bindingGraph) {
-    componentGenerator.generate(bindingGraph, messager);
+  @SuppressWarnings("try")
+  private void generateComponent(BindingGraph bindingGraph, boolean cache) {
+    try (Span span = processingTracer.begin("ComponentGenerator")) {
+      if (concurrentComponentWriter.isPresent()) {
+        concurrentComponentWriter
+            .get()
+            .generate(
+                bindingGraph,
+                messager,
+                (javaFiles, sources) -> {
+                  if (cache) {
+                    componentCache.store(bindingGraph, javaFiles, sources);
+                  }
+                });
+      } else if (cache) {
+        ImmutableList<JavaFile> javaFiles = componentGenerator.javaFiles(bindingGraph);
+        ImmutableList<String> sources =
+            javaFiles.stream().map(componentGenerator::render).collect(toImmutableList());
+        for (int i = 0; i < javaFiles.size(); i++) {
+          componentGenerator.writeSource(bindingGraph, javaFiles.get(i), sources.get(i));
+        }
+        componentCache.store(bindingGraph, javaFiles, sources);
+      } else {
+        componentGenerator.generate(bindingGraph, messager);
+      }
+    } catch (SourceFileGenerationException e) {
+      e.printMessageTo(messager);
+    }
   }
 
   private void processCreator(XTypeElement creator) {
     creatorValidator.validate(creator).printMessagesTo(messager);
   }
 
+  @SuppressWarnings("try")
   private boolean isComponentValid(XTypeElement component) {
-    ValidationReport report = componentValidator.validate(component);
-    report.printMessagesTo(messager);
-    return report.isClean();
+    try (Span span = processingTracer.begin("ComponentValidator")) {
+      ValidationReport report = componentValidator.validate(component);
+      report.printMessagesTo(messager);
+      return report.isClean();
+    }
   }
 
   @CanIgnoreReturnValue
+  @SuppressWarnings("try")
   private boolean validateFullBindingGraph(ComponentDescriptor componentDescriptor) {
     if (!bindingGraphValidator.shouldDoFullBindingGraphValidation(
         componentDescriptor.typeElement())) {
       return true;
     }
-    BindingGraph fullBindingGraph = bindingGraphFactory.create(componentDescriptor, true);
+    BindingGraph fullBindingGraph;
+    try (Span span = processingTracer.begin("BindingGraphFactory (full binding graph)")) {
+      fullBindingGraph = bindingGraphFactory.create(componentDescriptor, true);
+    }
     return bindingGraphValidator.isValid(fullBindingGraph.topLevelBindingGraph());
   }
 
+  @SuppressWarnings("try")
   private boolean isValid(ComponentDescriptor componentDescriptor) {
-    ValidationReport componentDescriptorReport =
-        componentDescriptorValidator.validate(componentDescriptor);
-    componentDescriptorReport.printMessagesTo(messager);
-    return componentDescriptorReport.isClean();
+    try (Span span = processingTracer.begin("ComponentDescriptorValidator")) {
+      ValidationReport componentDescriptorReport =
+          componentDescriptorValidator.validate(componentDescriptor);
+      componentDescriptorReport.printMessagesTo(messager);
+      return componentDescriptorReport.isClean();
+    }
   }
 }
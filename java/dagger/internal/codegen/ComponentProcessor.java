@@ -33,6 +33,7 @@ import dagger.Component;
 import dagger.Module;
 import dagger.Provides;
 import dagger.internal.codegen.base.ClearableCache;
+import dagger.internal.codegen.base.ProcessingTracer;
 import dagger.internal.codegen.base.SourceFileGenerationException;
 import dagger.internal.codegen.base.SourceFileGenerator;
 import dagger.internal.codegen.binding.InjectBindingRegistry;
@@ -78,6 +79,7 @@ public class ComponentProcessor extends JavacBasicAnnotationProcessor {
   @Inject ValidationBindingGraphPlugins validationBindingGraphPlugins;
   @Inject ExternalBindingGraphPlugins externalBindingGraphPlugins;
   @Inject Set<ClearableCache> clearableCaches;
+  @Inject ProcessingTracer processingTracer;
 
   public ComponentProcessor() {
     this.testingPlugins = Optional.empty();
@@ -201,16 +203,19 @@ public class ComponentProcessor extends JavacBasicAnnotationProcessor {
   }
 
   @Override
+  @SuppressWarnings("try")
   public void postRound(XProcessingEnv env, XRoundEnv roundEnv) {
     // TODO(bcorso): Add a way to determine if processing is over without converting to Javac here.
     if (!XConverters.toJavac(roundEnv).processingOver()) {
-      try {
+      try (ProcessingTracer.Span span = processingTracer.begin("InjectBindingRegistry")) {
         injectBindingRegistry.generateSourcesForRequiredBindings(
             factoryGenerator, membersInjectorGenerator);
       } catch (SourceFileGenerationException e) {
         e.printMessageTo(env.getMessager());
       }
     }
+    clearableCaches.forEach(processingTracer::recordCacheStats);
     clearableCaches.forEach(ClearableCache::clearCache);
+    processingTracer.endRound();
   }
 }
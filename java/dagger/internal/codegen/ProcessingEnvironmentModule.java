@@ -26,6 +26,8 @@ import dagger.Module;
 import dagger.Provides;
 import dagger.Reusable;
 import dagger.internal.codegen.base.ClearableCache;
+import dagger.internal.codegen.base.ProcessingThreadPool;
+import dagger.internal.codegen.base.ProcessingTracer;
 import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions;
 import dagger.internal.codegen.compileroption.ProcessingOptions;
@@ -82,6 +84,21 @@ interface ProcessingEnvironmentModule {
     return new DaggerTypes(XConverters.toJavac(xProcessingEnv).getTypeUtils(), elements);
   }
 
+  @Provides
+  @Singleton
+  static ProcessingTracer processingTracer(CompilerOptions compilerOptions) {
+    return compilerOptions
+        .processingTraceFile()
+        .map(ProcessingTracer::create)
+        .orElse(ProcessingTracer.disabled());
+  }
+
+  @Provides
+  @Singleton
+  static ProcessingThreadPool processingThreadPool(CompilerOptions compilerOptions) {
+    return ProcessingThreadPool.create(compilerOptions.processingThreads());
+  }
+
   @Binds
   @IntoSet
   ClearableCache daggerElementAsClearableCache(DaggerElements elements);
@@ -52,6 +52,10 @@ interface ProcessingRoundCacheModule {
   @IntoSet
   ClearableCache bindingGraphFactory(BindingGraphFactory cache);
 
+  @Binds
+  @IntoSet
+  ClearableCache componentCache(ComponentCache cache);
+
   @Binds
   @IntoSet
   ClearableCache componentValidator(ComponentValidator cache);
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.base;
+
+/** The number of lookups in a {@link ClearableCache} since it was last cleared. */
+public final class CacheStats {
+  private static final CacheStats EMPTY = new CacheStats(0, 0);
+
+  private final long lookups;
+  private final long misses;
+
+  private CacheStats(long lookups, long misses) {
+    this.lookups = lookups;
+    this.misses = misses;
+  }
+
+  /**
+   * Returns the statistics of a cache that has had {@code lookups} lookups and holds {@code
+   * entries} entries. Caches that only ever add an entry when a lookup misses can use the number of
+   * entries as the number of misses.
+   */
+  public static CacheStats create(long lookups, long entries) {
+    return new CacheStats(lookups, entries);
+  }
+
+  /** Returns the statistics of a cache that does not record them. */
+  public static CacheStats empty() {
+    return EMPTY;
+  }
+
+  /** Returns the number of lookups in the cache. */
+  public long lookups() {
+    return lookups;
+  }
+
+  /** Returns the number of lookups that found a cached value. */
+  public long hits() {
+    return lookups - misses;
+  }
+
+  /** Returns the number of lookups that had to compute a value. */
+  public long misses() {
+    return misses;
+  }
+
+  /** Returns the fraction of lookups that found a cached value, or {@code 0} if there were none. */
+  public double hitRate() {
+    return lookups == 0 ? 0 : (double) hits() / lookups;
+  }
+}
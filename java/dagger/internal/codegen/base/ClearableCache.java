@@ -20,4 +20,9 @@ package dagger.internal.codegen.base;
 public interface ClearableCache {
   /** Releases cached references. */
   void clearCache();
+
+  /** Returns the statistics of the lookups in this cache since it was last cleared. */
+  default CacheStats cacheStats() {
+    return CacheStats.empty();
+  }
 }
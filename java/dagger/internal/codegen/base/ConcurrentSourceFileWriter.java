@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.base;
+
+import androidx.room.compiler.processing.XMessager;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.squareup.javapoet.JavaFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import javax.annotation.processing.Filer;
+
+/**
+ * Generates source files with a {@link SourceFileGenerator}, but renders their source on the {@link
+ * ProcessingThreadPool} so that the processing thread can move on to the next input in the
+ * meantime.
+ *
+ * <p>Only the {@linkplain SourceFileGenerator#render rendering}, i.e. JavaPoet's import resolution
+ * and code emission, happens on the pool. Creating the types for an input reads the javac model,
+ * and writing them uses the {@link Filer}, neither of which is thread-safe, so both happen on the
+ * calling thread. {@link #flush} writes the files in the order in which their inputs were
+ * generated, so the output is the same as if each input had been generated with {@link
+ * SourceFileGenerator#generate(Object, XMessager)}.
+ *
+ * @param <T> The input type from which source is to be generated.
+ */
+public final class ConcurrentSourceFileWriter<T> {
+  private final SourceFileGenerator<T> generator;
+  private final ProcessingThreadPool threadPool;
+  private final List<PendingSources> pendingSources = new ArrayList<>();
+
+  public ConcurrentSourceFileWriter(
+      SourceFileGenerator<T> generator, ProcessingThreadPool threadPool) {
+    this.generator = generator;
+    this.threadPool = threadPool;
+  }
+
+  /**
+   * Creates the source files for {@code input} and starts rendering them. Writes any generation
+   * exception to {@code messager} and does not throw.
+   */
+  public void generate(T input, XMessager messager) {
+    generate(input, messager, (javaFiles, sources) -> {});
+  }
+
+  /**
+   * Like {@link #generate(Object, XMessager)}, but passes the files of {@code input} and their
+   * rendered sources to {@code onWritten} once they have all been written.
+   */
+  public void generate(
+      T input,
+      XMessager messager,
+      BiConsumer<ImmutableList<JavaFile>, ImmutableList<String>> onWritten) {
+    ImmutableList<JavaFile> javaFiles;
+    try {
+      javaFiles = generator.javaFiles(input);
+    } catch (SourceFileGenerationException e) {
+      e.printMessageTo(messager);
+      return;
+    }
+    ImmutableList.Builder<Future<String>> sources = ImmutableList.builder();
+    for (JavaFile javaFile : javaFiles) {
+      sources.add(threadPool.submit(() -> generator.render(javaFile)));
+    }
+    pendingSources.add(new PendingSources(input, javaFiles, sources.build(), onWritten));
+  }
+
+  /**
+   * Waits for the source files that have been generated since the last call to be rendered, and
+   * writes them. Writes any generation exception to {@code messager} and does not throw.
+   */
+  public void flush(XMessager messager) {
+    try {
+      for (PendingSources sources : pendingSources) {
+        try {
+          sources.write();
+        } catch (SourceFileGenerationException e) {
+          e.printMessageTo(messager);
+        }
+      }
+    } finally {
+      pendingSources.clear();
+    }
+  }
+
+  /** The source files of one input, which may still be rendering. */
+  private final class PendingSources {
+    private final T input;
+    private final ImmutableList<JavaFile> javaFiles;
+    private final ImmutableList<Future<String>> sources;
+    private final BiConsumer<ImmutableList<JavaFile>, ImmutableList<String>> onWritten;
+
+    PendingSources(
+        T input,
+        ImmutableList<JavaFile> javaFiles,
+        ImmutableList<Future<String>> sources,
+        BiConsumer<ImmutableList<JavaFile>, ImmutableList<String>> onWritten) {
+      this.input = input;
+      this.javaFiles = javaFiles;
+      this.sources = sources;
+      this.onWritten = onWritten;
+    }
+
+    void write() throws SourceFileGenerationException {
+      ImmutableList.Builder<String> writtenSources = ImmutableList.builder();
+      for (int i = 0; i < javaFiles.size(); i++) {
+        String source;
+        try {
+          source = Uninterruptibles.getUninterruptibly(sources.get(i));
+        } catch (ExecutionException e) {
+          throw new SourceFileGenerationException(
+              Optional.empty(), e.getCause(), generator.originatingElement(input));
+        }
+        generator.writeSource(input, javaFiles.get(i), source);
+        writtenSources.add(source);
+      }
+      onWritten.accept(javaFiles, writtenSources.build());
+    }
+  }
+}
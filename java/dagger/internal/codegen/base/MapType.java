@@ -71,6 +71,11 @@ public abstract class MapType {
     return type().getTypeArguments().get(1);
   }
 
+  /** Returns {@code true} if the raw type of {@link #keyType()} is {@code className}. */
+  public boolean keysAreTypeOf(ClassName className) {
+    return !isRawType() && isTypeOf(keyType(), className);
+  }
+
   /** Returns {@code true} if the raw type of {@link #valueType()} is {@code className}. */
   public boolean valuesAreTypeOf(ClassName className) {
     return !isRawType() && isTypeOf(valueType(), className);
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.base;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of threads for work that the processor does concurrently.
+ *
+ * <p>The threads are daemon threads that are started on demand and exit when they have been idle
+ * for a second, since javac doesn't tell a processor when it is done with it.
+ */
+public final class ProcessingThreadPool {
+  private final int threads;
+  private ThreadPoolExecutor executor;
+
+  private ProcessingThreadPool(int threads) {
+    this.threads = threads;
+  }
+
+  /** Returns a pool that runs at most {@code threads} tasks at a time. */
+  public static ProcessingThreadPool create(int threads) {
+    checkArgument(threads > 0, "threads must be positive: %s", threads);
+    return new ProcessingThreadPool(threads);
+  }
+
+  /** Submits {@code task} to run on one of the pool's threads. */
+  public <T> Future<T> submit(Callable<T> task) {
+    return executor().submit(task);
+  }
+
+  /** Submits {@code task} to run on one of the pool's threads. */
+  public Future<?> submit(Runnable task) {
+    return executor().submit(task);
+  }
+
+  private synchronized ThreadPoolExecutor executor() {
+    if (executor == null) {
+      executor =
+          new ThreadPoolExecutor(
+              threads,
+              threads,
+              1,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(),
+              new ThreadFactoryBuilder()
+                  .setNameFormat("dagger-processing-%d")
+                  .setDaemon(true)
+                  .build());
+      executor.allowCoreThreadTimeOut(true);
+    }
+    return executor;
+  }
+}
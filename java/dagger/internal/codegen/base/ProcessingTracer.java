@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.base;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Records how long the phases of annotation processing take and writes them to a file in the <a
+ * href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">Chrome
+ * trace-event format</a>, which can be opened in {@code chrome://tracing} or Perfetto.
+ *
+ * <p>Tracing is disabled unless a trace file is passed with {@code -Adagger.processingTraceFile}.
+ * When disabled, {@link #begin(String)} returns a shared no-op span so that instrumented code does
+ * not allocate.
+ */
+public final class ProcessingTracer {
+  private static final ProcessingTracer DISABLED = new ProcessingTracer(Optional.empty());
+  private static final Span NO_OP_SPAN = new Span(null, null, 0, 0);
+
+  private final Optional<Path> traceFile;
+  private final long startNanos = System.nanoTime();
+  private final List<String> events = new ArrayList<>();
+  private int round = 1;
+  private long roundStartNanos = startNanos;
+
+  private ProcessingTracer(Optional<Path> traceFile) {
+    this.traceFile = traceFile;
+  }
+
+  /** Returns a tracer that records nothing. */
+  public static ProcessingTracer disabled() {
+    return DISABLED;
+  }
+
+  /** Returns a tracer that writes its events to {@code traceFile} at the end of each round. */
+  public static ProcessingTracer create(Path traceFile) {
+    return new ProcessingTracer(Optional.of(traceFile));
+  }
+
+  /** Returns {@code true} if events are being recorded. */
+  public boolean isEnabled() {
+    return traceFile.isPresent();
+  }
+
+  /**
+   * Begins a span named {@code name} on the current thread. The span ends when it is {@linkplain
+   * Span#close() closed}, so it should be used in a try-with-resources statement. Since the span is
+   * often not referenced in the statement's body, methods that begin one suppress javac's {@code
+   * try} lint with {@code @SuppressWarnings("try")}.
+   */
+  public Span begin(String name) {
+    return isEnabled()
+        ? new Span(this, name, System.nanoTime(), AllocationCounter.currentThreadAllocatedBytes())
+        : NO_OP_SPAN;
+  }
+
+  /** Records the statistics of {@code cache} for the current round. */
+  public void recordCacheStats(ClearableCache cache) {
+    if (!isEnabled()) {
+      return;
+    }
+    CacheStats stats = cache.cacheStats();
+    if (stats.lookups() == 0) {
+      return;
+    }
+    // Use the binary name without the package so that nested caches, like ModuleDescriptor.Factory,
+    // are distinguishable.
+    String className = cache.getClass().getName();
+    String cacheName = className.substring(className.lastIndexOf('.') + 1).replace('$', '.');
+    long now = System.nanoTime();
+    Map<String, Object> lookups = new LinkedHashMap<>();
+    lookups.put("hits", stats.hits());
+    lookups.put("misses", stats.misses());
+    addEvent(counterEvent(cacheName + " lookups", now, lookups));
+    Map<String, Object> hitRate = new LinkedHashMap<>();
+    hitRate.put("hitRate", stats.hitRate());
+    addEvent(counterEvent(cacheName + " hit rate", now, hitRate));
+  }
+
+  /**
+   * Records a span for the processing round that is ending and writes all of the events recorded so
+   * far to the trace file.
+   */
+  public void endRound() {
+    if (!isEnabled()) {
+      return;
+    }
+    long now = System.nanoTime();
+    Map<String, Object> args = new LinkedHashMap<>();
+    args.put("round", round);
+    synchronized (this) {
+      events.add(
+          completeEvent(
+              "round " + round, roundStartNanos, now, Thread.currentThread().getId(), args));
+      round++;
+      roundStartNanos = now;
+      write();
+    }
+  }
+
+  private synchronized void addEvent(String event) {
+    events.add(event);
+  }
+
+  private void write() {
+    try (Writer writer = Files.newBufferedWriter(traceFile.get(), UTF_8)) {
+      writer.write("{\"traceEvents\":[\n");
+      for (int i = 0; i < events.size(); i++) {
+        writer.write(events.get(i));
+        writer.write(i + 1 < events.size() ? ",\n" : "\n");
+      }
+      writer.write("]}\n");
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write " + traceFile.get(), e);
+    }
+  }
+
+  private String completeEvent(
+      String name, long beginNanos, long endNanos, long threadId, Map<String, Object> args) {
+    StringBuilder event = startEvent(name, "X", beginNanos, threadId);
+    event.append(",\"dur\":").append(micros(endNanos - beginNanos));
+    return endEvent(event, args);
+  }
+
+  private String counterEvent(String name, long timestampNanos, Map<String, Object> args) {
+    return endEvent(startEvent(name, "C", timestampNanos, Thread.currentThread().getId()), args);
+  }
+
+  private StringBuilder startEvent(String name, String phase, long timestampNanos, long threadId) {
+    StringBuilder event = new StringBuilder("{\"name\":");
+    appendString(event, name);
+    return event
+        .append(",\"ph\":\"")
+        .append(phase)
+        .append("\",\"ts\":")
+        .append(micros(timestampNanos - startNanos))
+        .append(",\"pid\":1,\"tid\":")
+        .append(threadId);
+  }
+
+  private static String endEvent(StringBuilder event, Map<String, Object> args) {
+    event.append(",\"args\":{");
+    boolean first = true;
+    for (Map.Entry<String, Object> arg : args.entrySet()) {
+      if (!first) {
+        event.append(',');
+      }
+      first = false;
+      appendString(event, arg.getKey());
+      event.append(':');
+      if (arg.getValue() instanceof Number) {
+        event.append(arg.getValue());
+      } else {
+        appendString(event, String.valueOf(arg.getValue()));
+      }
+    }
+    return event.append("}}").toString();
+  }
+
+  private static String micros(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+  }
+
+  private static void appendString(StringBuilder json, String string) {
+    json.append('"');
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        default:
+          if (c < 0x20) {
+            json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+      }
+    }
+    json.append('"');
+  }
+
+  /** A timed phase of processing. */
+  public static final class Span implements AutoCloseable {
+    private final ProcessingTracer tracer;
+    private final String name;
+    private final long beginNanos;
+    private final long beginAllocatedBytes;
+    private final Map<String, Object> args;
+
+    private Span(ProcessingTracer tracer, String name, long beginNanos, long beginAllocatedBytes) {
+      this.tracer = tracer;
+      this.name = name;
+      this.beginNanos = beginNanos;
+      this.beginAllocatedBytes = beginAllocatedBytes;
+      this.args = tracer == null ? null : new LinkedHashMap<>();
+    }
+
+    /** Adds an argument that is shown with this span in the trace. */
+    @CanIgnoreReturnValue
+    public Span arg(String name, Object value) {
+      if (tracer != null) {
+        args.put(name, value);
+      }
+      return this;
+    }
+
+    @Override
+    public void close() {
+      if (tracer == null) {
+        return;
+      }
+      long endNanos = System.nanoTime();
+      long allocatedBytes = AllocationCounter.currentThreadAllocatedBytes();
+      if (allocatedBytes >= 0 && beginAllocatedBytes >= 0) {
+        args.put("allocatedBytes", allocatedBytes - beginAllocatedBytes);
+      }
+      tracer.addEvent(
+          tracer.completeEvent(name, beginNanos, endNanos, Thread.currentThread().getId(), args));
+    }
+  }
+
+  /** Reads the per-thread allocation counter of HotSpot-based JVMs, where it is available. */
+  private static final class AllocationCounter {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean SUPPORTED = isSupported();
+
+    private static boolean isSupported() {
+      try {
+        return THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemoryEnabled();
+      } catch (LinkageError | UnsupportedOperationException e) {
+        return false;
+      }
+    }
+
+    /** Returns the bytes allocated by the current thread, or {@code -1} if unsupported. */
+    static long currentThreadAllocatedBytes() {
+      return SUPPORTED
+          ? ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN)
+              .getThreadAllocatedBytes(Thread.currentThread().getId())
+          : -1;
+    }
+  }
+}
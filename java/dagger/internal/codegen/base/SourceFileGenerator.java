@@ -38,8 +38,13 @@ import dagger.internal.DaggerGenerated;
 import dagger.internal.codegen.javapoet.AnnotationSpecs;
 import dagger.internal.codegen.javapoet.AnnotationSpecs.Suppression;
 import dagger.internal.codegen.langmodel.DaggerElements;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Optional;
+import javax.annotation.processing.Filer;
 import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.tools.JavaFileObject;
 
 /**
  * A template class that provides a framework for properly handling IO while generating source files
@@ -81,7 +86,7 @@ public abstract class SourceFileGenerator<T> {
   public void generate(T input) throws SourceFileGenerationException {
     for (TypeSpec.Builder type : topLevelTypes(input)) {
       try {
-        buildJavaFile(input, type).writeTo(XConverters.toJavac(filer));
+        writeJavaFile(buildJavaFile(input, type), XConverters.toJavac(filer));
       } catch (Exception e) {
         // if the code above threw a SFGE, use that
         Throwables.propagateIfPossible(e, SourceFileGenerationException.class);
@@ -91,6 +96,69 @@ public abstract class SourceFileGenerator<T> {
     }
   }
 
+  /** Writes {@code javaFile} to {@code filer}. */
+  protected void writeJavaFile(JavaFile javaFile, Filer filer) throws IOException {
+    javaFile.writeTo(filer);
+  }
+
+  /**
+   * Returns the files to be compiled for {@code T} without writing them, so that their source can
+   * be rendered separately and then passed to {@link #writeSource(Object, JavaFile, String)}.
+   */
+  public ImmutableList<JavaFile> javaFiles(T input) throws SourceFileGenerationException {
+    ImmutableList.Builder<JavaFile> javaFiles = ImmutableList.builder();
+    for (TypeSpec.Builder type : topLevelTypes(input)) {
+      try {
+        javaFiles.add(buildJavaFile(input, type));
+      } catch (RuntimeException e) {
+        throw new SourceFileGenerationException(Optional.empty(), e, originatingElement(input));
+      }
+    }
+    return javaFiles.build();
+  }
+
+  /** Returns the source of {@code javaFile}, one of the {@linkplain #javaFiles(Object) files}. */
+  public String render(JavaFile javaFile) {
+    return javaFile.toString();
+  }
+
+  /**
+   * Writes {@code source}, which must be the result of {@code javaFile.toString()}, for one of the
+   * {@linkplain #javaFiles(Object) files} of {@code input}.
+   */
+  public void writeSource(T input, JavaFile javaFile, String source)
+      throws SourceFileGenerationException {
+    try {
+      writeSource(javaFile, source, XConverters.toJavac(filer));
+    } catch (IOException | RuntimeException e) {
+      throw new SourceFileGenerationException(
+          Optional.of(ClassName.get(javaFile.packageName, javaFile.typeSpec.name)),
+          e,
+          originatingElement(input));
+    }
+  }
+
+  /**
+   * Writes the already rendered {@code source} of {@code javaFile} to {@code filer}. This mirrors
+   * {@link JavaFile#writeTo(Filer)}, including deleting the file if it can't be written.
+   */
+  static void writeSource(JavaFile javaFile, String source, Filer filer) throws IOException {
+    JavaFileObject sourceFile =
+        filer.createSourceFile(
+            ClassName.get(javaFile.packageName, javaFile.typeSpec.name).toString(),
+            javaFile.typeSpec.originatingElements.toArray(new Element[0]));
+    try (Writer writer = sourceFile.openWriter()) {
+      writer.write(source);
+    } catch (IOException | RuntimeException e) {
+      try {
+        sourceFile.delete();
+      } catch (RuntimeException ignored) {
+        // Report the original exception.
+      }
+      throw e;
+    }
+  }
+
   private JavaFile buildJavaFile(T input, TypeSpec.Builder typeSpecBuilder) {
     addOriginatingElement(typeSpecBuilder, originatingElement(input));
     typeSpecBuilder.addAnnotation(DaggerGenerated.class);
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.base;
+
+import androidx.room.compiler.processing.XElement;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeSpec;
+import dagger.internal.codegen.base.ProcessingTracer.Span;
+import dagger.internal.codegen.javapoet.AnnotationSpecs.Suppression;
+import java.io.IOException;
+import javax.annotation.processing.Filer;
+
+/**
+ * A source file generator that records how long it takes to create the types of another generator
+ * and to emit their source, along with the size of the emitted source.
+ */
+public final class TracingSourceFileGenerator<T> extends SourceFileGenerator<T> {
+  private final SourceFileGenerator<T> delegate;
+  private final ProcessingTracer processingTracer;
+
+  private TracingSourceFileGenerator(
+      SourceFileGenerator<T> delegate, ProcessingTracer processingTracer) {
+    super(delegate);
+    this.delegate = delegate;
+    this.processingTracer = processingTracer;
+  }
+
+  /** Returns {@code delegate} wrapped so that it is traced, if tracing is enabled. */
+  public static <T> SourceFileGenerator<T> wrap(
+      SourceFileGenerator<T> delegate, ProcessingTracer processingTracer) {
+    return processingTracer.isEnabled()
+        ? new TracingSourceFileGenerator<>(delegate, processingTracer)
+        : delegate;
+  }
+
+  @Override
+  public XElement originatingElement(T input) {
+    return delegate.originatingElement(input);
+  }
+
+  @Override
+  @SuppressWarnings("try")
+  public ImmutableList<TypeSpec.Builder> topLevelTypes(T input) {
+    try (Span span = processingTracer.begin(delegate.getClass().getSimpleName() + " types")) {
+      return delegate.topLevelTypes(input);
+    }
+  }
+
+  @Override
+  protected ImmutableSet<Suppression> warningSuppressions() {
+    return delegate.warningSuppressions();
+  }
+
+  @Override
+  public String render(JavaFile javaFile) {
+    try (Span span = processingTracer.begin("JavaFile")) {
+      String source = delegate.render(javaFile);
+      span.arg("type", ClassName.get(javaFile.packageName, javaFile.typeSpec.name))
+          .arg("sourceLength", source.length());
+      return source;
+    }
+  }
+
+  @Override
+  protected void writeJavaFile(JavaFile javaFile, Filer filer) throws IOException {
+    // Render the source separately, so that rendering it is traced.
+    writeSource(javaFile, render(javaFile), filer);
+  }
+}
@@ -51,6 +51,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimaps;
 import dagger.MembersInjector;
 import dagger.Reusable;
+import dagger.internal.codegen.base.CacheStats;
 import dagger.internal.codegen.base.ClearableCache;
 import dagger.internal.codegen.base.ContributionType;
 import dagger.internal.codegen.base.Keys;
@@ -91,6 +92,7 @@ public final class BindingGraphFactory implements ClearableCache {
   private final ModuleDescriptor.Factory moduleDescriptorFactory;
   private final BindingGraphConverter bindingGraphConverter;
   private final Map<Key, ImmutableSet<Key>> keysMatchingRequestCache = new HashMap<>();
+  private long lookups;
   private final CompilerOptions compilerOptions;
 
   @Inject
@@ -311,6 +313,12 @@ public final class BindingGraphFactory implements ClearableCache {
   @Override
   public void clearCache() {
     keysMatchingRequestCache.clear();
+    lookups = 0;
+  }
+
+  @Override
+  public CacheStats cacheStats() {
+    return CacheStats.create(lookups, keysMatchingRequestCache.size());
   }
 
   private final class Resolver {
@@ -518,6 +526,7 @@ public final class BindingGraphFactory implements ClearableCache {
      * </ul>
      */
     private ImmutableSet<Key> keysMatchingRequest(Key requestKey) {
+      lookups++;
       return keysMatchingRequestCache.computeIfAbsent(
           requestKey, this::keysMatchingRequestUncached);
     }
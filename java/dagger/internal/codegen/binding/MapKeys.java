@@ -101,7 +101,7 @@ public final class MapKeys {
    * @throws IllegalArgumentException if {@code mapKey}'s type is not annotated with
    *     {@link MapKey @MapKey} at all.
    */
-  static Optional<? extends AnnotationValue> unwrapValue(AnnotationMirror mapKey) {
+  public static Optional<? extends AnnotationValue> unwrapValue(AnnotationMirror mapKey) {
     MapKey mapKeyAnnotation = mapKey.getAnnotationType().asElement().getAnnotation(MapKey.class);
     checkArgument(
         mapKeyAnnotation != null, "%s is not annotated with @MapKey", mapKey.getAnnotationType());
@@ -48,6 +48,7 @@ import com.squareup.javapoet.TypeName;
 import dagger.Binds;
 import dagger.BindsOptionalOf;
 import dagger.Module;
+import dagger.internal.codegen.base.CacheStats;
 import dagger.internal.codegen.base.ClearableCache;
 import dagger.internal.codegen.javapoet.TypeNames;
 import dagger.internal.codegen.langmodel.DaggerElements;
@@ -112,6 +113,7 @@ public abstract class ModuleDescriptor {
     private final SubcomponentDeclaration.Factory subcomponentDeclarationFactory;
     private final OptionalBindingDeclaration.Factory optionalBindingDeclarationFactory;
     private final Map<XTypeElement, ModuleDescriptor> cache = new HashMap<>();
+    private long lookups;
 
     @Inject
     Factory(
@@ -132,6 +134,7 @@ public abstract class ModuleDescriptor {
     }
 
     public ModuleDescriptor create(XTypeElement moduleElement) {
+      lookups++;
       return reentrantComputeIfAbsent(cache, moduleElement, this::createUncached);
     }
 
@@ -278,6 +281,12 @@ public abstract class ModuleDescriptor {
     @Override
     public void clearCache() {
       cache.clear();
+      lookups = 0;
+    }
+
+    @Override
+    public CacheStats cacheStats() {
+      return CacheStats.create(lookups, cache.size());
     }
   }
 }
@@ -43,12 +43,12 @@ import dagger.internal.codegen.base.MapType;
 import dagger.internal.codegen.base.OptionalType;
 import dagger.internal.codegen.binding.DependencyRequestFormatter;
 import dagger.internal.codegen.javapoet.TypeNames;
+import dagger.internal.codegen.validation.ConcurrentValidationPlugin;
 import dagger.spi.model.Binding;
 import dagger.spi.model.BindingGraph;
 import dagger.spi.model.BindingGraph.ComponentNode;
 import dagger.spi.model.BindingGraph.DependencyEdge;
 import dagger.spi.model.BindingGraph.Node;
-import dagger.spi.model.BindingGraphPlugin;
 import dagger.spi.model.BindingKind;
 import dagger.spi.model.DependencyRequest;
 import dagger.spi.model.DiagnosticReporter;
@@ -60,7 +60,7 @@ import java.util.stream.Stream;
 import javax.inject.Inject;
 
 /** Reports errors for dependency cycles. */
-final class DependencyCycleValidator implements BindingGraphPlugin {
+final class DependencyCycleValidator implements ConcurrentValidationPlugin {
 
   private final DependencyRequestFormatter dependencyRequestFormatter;
 
@@ -75,20 +75,31 @@ final class DependencyCycleValidator implements BindingGraphPlugin {
   }
 
   @Override
-  public void visitGraph(BindingGraph bindingGraph, DiagnosticReporter diagnosticReporter) {
+  public Traversal prepare(BindingGraph bindingGraph) {
+    // Whether a dependency breaks a cycle depends on its type, so look that up before traversing.
     ImmutableNetwork<Node, DependencyEdge> dependencyGraph =
         nonCycleBreakingDependencyGraph(bindingGraph);
-    // First check the graph for a cycle. If there is one, then we'll do more work to report where.
+    return () -> {
+      ImmutableList<Cycle<Node>> cycles = cycles(dependencyGraph);
+      return diagnosticReporter ->
+          cycles.forEach(cycle -> reportCycle(cycle, bindingGraph, diagnosticReporter));
+    };
+  }
+
+  private ImmutableList<Cycle<Node>> cycles(
+      ImmutableNetwork<Node, DependencyEdge> dependencyGraph) {
+    // First check the graph for a cycle. If there is one, then we'll do more work to find where.
     if (!Graphs.hasCycle(dependencyGraph)) {
-      return;
+      return ImmutableList.of();
     }
     // Check each endpoint pair only once, no matter how many parallel edges connect them.
     Set<EndpointPair<Node>> dependencyEndpointPairs = dependencyGraph.asGraph().edges();
     Set<EndpointPair<Node>> visited = newHashSetWithExpectedSize(dependencyEndpointPairs.size());
+    ImmutableList.Builder<Cycle<Node>> cycles = ImmutableList.builder();
     for (EndpointPair<Node> endpointPair : dependencyEndpointPairs) {
-      cycleContainingEndpointPair(endpointPair, dependencyGraph, visited)
-          .ifPresent(cycle -> reportCycle(cycle, bindingGraph, diagnosticReporter));
+      cycleContainingEndpointPair(endpointPair, dependencyGraph, visited).ifPresent(cycles::add);
     }
+    return cycles.build();
   }
 
   private Optional<Cycle<Node>> cycleContainingEndpointPair(
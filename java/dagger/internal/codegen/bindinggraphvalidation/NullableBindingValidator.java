@@ -22,12 +22,13 @@ import static dagger.internal.codegen.extension.DaggerStreams.toImmutableSet;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
 import dagger.internal.codegen.compileroption.CompilerOptions;
+import dagger.internal.codegen.validation.ConcurrentValidationPlugin;
 import dagger.spi.model.Binding;
 import dagger.spi.model.BindingGraph;
 import dagger.spi.model.BindingGraph.DependencyEdge;
-import dagger.spi.model.BindingGraphPlugin;
 import dagger.spi.model.DiagnosticReporter;
 import javax.inject.Inject;
 
@@ -35,7 +36,7 @@ import javax.inject.Inject;
  * Reports errors or warnings (depending on the {@code -Adagger.nullableValidation} value) for each
  * non-nullable dependency request that is satisfied by a nullable binding.
  */
-final class NullableBindingValidator implements BindingGraphPlugin {
+final class NullableBindingValidator implements ConcurrentValidationPlugin {
 
   private final CompilerOptions compilerOptions;
 
@@ -45,17 +46,28 @@ final class NullableBindingValidator implements BindingGraphPlugin {
   }
 
   @Override
-  public void visitGraph(BindingGraph bindingGraph, DiagnosticReporter diagnosticReporter) {
-    for (Binding binding : nullableBindings(bindingGraph)) {
-      for (DependencyEdge dependencyEdge : nonNullableDependencies(bindingGraph, binding)) {
-        diagnosticReporter.reportDependency(
-            compilerOptions.nullableValidationKind(),
-            dependencyEdge,
-            nullableToNonNullable(
-                binding.key().toString(),
-                binding.toString())); // binding.toString() will include the @Nullable
+  public Traversal prepare(BindingGraph bindingGraph) {
+    return () -> {
+      ImmutableListMultimap.Builder<Binding, DependencyEdge> nonNullableDependencies =
+          ImmutableListMultimap.builder();
+      for (Binding binding : nullableBindings(bindingGraph)) {
+        nonNullableDependencies.putAll(binding, nonNullableDependencies(bindingGraph, binding));
       }
-    }
+      return diagnosticReporter -> report(nonNullableDependencies.build(), diagnosticReporter);
+    };
+  }
+
+  private void report(
+      ImmutableListMultimap<Binding, DependencyEdge> nonNullableDependencies,
+      DiagnosticReporter diagnosticReporter) {
+    nonNullableDependencies.forEach(
+        (binding, dependencyEdge) ->
+            diagnosticReporter.reportDependency(
+                compilerOptions.nullableValidationKind(),
+                dependencyEdge,
+                nullableToNonNullable(
+                    binding.key().toString(),
+                    binding.toString()))); // binding.toString() will include the @Nullable
   }
 
   @Override
@@ -20,14 +20,15 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
 import static dagger.internal.codegen.base.RequestKinds.canBeSatisfiedByProductionBinding;
 import static dagger.internal.codegen.extension.DaggerStreams.instancesOf;
+import static dagger.internal.codegen.extension.DaggerStreams.toImmutableList;
 import static javax.tools.Diagnostic.Kind.ERROR;
 
+import com.google.common.collect.ImmutableList;
+import dagger.internal.codegen.validation.ConcurrentValidationPlugin;
 import dagger.spi.model.Binding;
 import dagger.spi.model.BindingGraph;
 import dagger.spi.model.BindingGraph.DependencyEdge;
 import dagger.spi.model.BindingGraph.Node;
-import dagger.spi.model.BindingGraphPlugin;
-import dagger.spi.model.DiagnosticReporter;
 import java.util.stream.Stream;
 import javax.inject.Inject;
 
@@ -36,7 +37,7 @@ import javax.inject.Inject;
  * binding.
  */
 // TODO(b/29509141): Clarify the error.
-final class ProvisionDependencyOnProducerBindingValidator implements BindingGraphPlugin {
+final class ProvisionDependencyOnProducerBindingValidator implements ConcurrentValidationPlugin {
 
   @Inject
   ProvisionDependencyOnProducerBindingValidator() {}
@@ -47,16 +48,20 @@ final class ProvisionDependencyOnProducerBindingValidator implements BindingGrap
   }
 
   @Override
-  public void visitGraph(BindingGraph bindingGraph, DiagnosticReporter diagnosticReporter) {
-    provisionDependenciesOnProductionBindings(bindingGraph)
-        .forEach(
-            provisionDependent ->
-                diagnosticReporter.reportDependency(
-                    ERROR,
-                    provisionDependent,
-                    provisionDependent.isEntryPoint()
-                        ? entryPointErrorMessage(provisionDependent)
-                        : dependencyErrorMessage(provisionDependent, bindingGraph)));
+  public Traversal prepare(BindingGraph bindingGraph) {
+    return () -> {
+      ImmutableList<DependencyEdge> provisionDependents =
+          provisionDependenciesOnProductionBindings(bindingGraph).collect(toImmutableList());
+      return diagnosticReporter ->
+          provisionDependents.forEach(
+              provisionDependent ->
+                  diagnosticReporter.reportDependency(
+                      ERROR,
+                      provisionDependent,
+                      provisionDependent.isEntryPoint()
+                          ? entryPointErrorMessage(provisionDependent)
+                          : dependencyErrorMessage(provisionDependent, bindingGraph)));
+    };
   }
 
   private Stream<DependencyEdge> provisionDependenciesOnProductionBindings(
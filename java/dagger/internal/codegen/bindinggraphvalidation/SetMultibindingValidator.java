@@ -22,18 +22,19 @@ import static javax.tools.Diagnostic.Kind.ERROR;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import dagger.spi.model.Binding;
+import dagger.internal.codegen.validation.ConcurrentValidationPlugin;
 import dagger.spi.model.BindingGraph;
-import dagger.spi.model.BindingGraphPlugin;
-import dagger.spi.model.DiagnosticReporter;
+import dagger.spi.model.BindingGraph.ComponentNode;
 import dagger.spi.model.Key;
 import javax.inject.Inject;
 
 /** Validates that there are not multiple set binding contributions to the same binding. */
-final class SetMultibindingValidator implements BindingGraphPlugin {
+final class SetMultibindingValidator implements ConcurrentValidationPlugin {
 
   @Inject
   SetMultibindingValidator() {
@@ -45,16 +46,21 @@ final class SetMultibindingValidator implements BindingGraphPlugin {
   }
 
   @Override
-  public void visitGraph(BindingGraph bindingGraph, DiagnosticReporter diagnosticReporter) {
-    bindingGraph.bindings().stream()
-        .filter(binding -> binding.kind().equals(MULTIBOUND_SET))
-        .forEach(
-            binding ->
-                checkForDuplicateSetContributions(binding, bindingGraph, diagnosticReporter));
+  public Traversal prepare(BindingGraph bindingGraph) {
+    return () -> {
+      ImmutableList.Builder<Report> reports = ImmutableList.builder();
+      bindingGraph.bindings().stream()
+          .filter(binding -> binding.kind().equals(MULTIBOUND_SET))
+          .forEach(
+              binding -> checkForDuplicateSetContributions(binding, bindingGraph, reports));
+      ImmutableList<Report> duplicateSetContributions = reports.build();
+      return diagnosticReporter ->
+          duplicateSetContributions.forEach(report -> report.report(diagnosticReporter));
+    };
   }
 
   private void checkForDuplicateSetContributions(
-      Binding binding, BindingGraph bindingGraph, DiagnosticReporter diagnosticReporter) {
+      Binding binding, BindingGraph bindingGraph, ImmutableList.Builder<Report> reports) {
     // Map of delegate target key to the original contribution binding
     Multimap<Key, Binding> dereferencedBindsTargets = HashMultimap.create();
     for (Binding dep : bindingGraph.requestedBindings(binding)) {
@@ -68,14 +74,18 @@ final class SetMultibindingValidator implements BindingGraphPlugin {
         .forEach(
             (targetKey, contributions) -> {
               if (contributions.size() > 1) {
-                diagnosticReporter.reportComponent(
-                    ERROR,
-                    bindingGraph.componentNode(binding.componentPath()).get(),
-                    "Multiple set contributions into %s for the same contribution key: %s.\n\n"
-                        + "    %s\n",
-                    binding.key(),
-                    targetKey,
-                    Joiner.on("\n    ").join(contributions));
+                ComponentNode componentNode =
+                    bindingGraph.componentNode(binding.componentPath()).get();
+                reports.add(
+                    diagnosticReporter ->
+                        diagnosticReporter.reportComponent(
+                            ERROR,
+                            componentNode,
+                            "Multiple set contributions into %s for the same contribution key: "
+                                + "%s.\n\n    %s\n",
+                            binding.key(),
+                            targetKey,
+                            Joiner.on("\n    ").join(contributions)));
               }
             });
   }
@@ -19,6 +19,8 @@ package dagger.internal.codegen.compileroption;
 import static androidx.room.compiler.processing.compat.XConverters.toJavac;
 
 import androidx.room.compiler.processing.XTypeElement;
+import java.nio.file.Path;
+import java.util.Optional;
 import javax.lang.model.element.TypeElement;
 import javax.tools.Diagnostic;
 
@@ -128,11 +130,155 @@ public abstract class CompilerOptions {
 
   public abstract boolean experimentalDaggerErrorMessages();
 
-  /** Returns the number of bindings allowed per shard. */
+  /**
+   * Returns {@code true} if the {@code BindingGraphPlugin}s that are loaded from the processor path
+   * and {@linkplain dagger.spi.BindingGraphPlugin#supportsConcurrentVisits() declare that they are
+   * thread-safe} should visit each binding graph concurrently, and if Dagger's own validation
+   * plugins that don't need javac to traverse a graph should traverse it concurrently with the
+   * others. Their diagnostics are still reported in the order in which the plugins are installed.
+   */
+  public abstract boolean parallelBindingGraphPlugins();
+
+  /**
+   * Returns {@code true} if the source of root components should be rendered concurrently with
+   * processing the remaining root components. The generated files are the same either way.
+   */
+  public abstract boolean parallelComponentGeneration();
+
+  /**
+   * Returns {@code true} if the shards of a component should be created the first time that one of
+   * their bindings is requested, rather than when the component is created.
+   */
+  public abstract boolean lazyComponentShards();
+
+  /**
+   * Returns {@code true} if scoped bindings should be memoized with {@code
+   * ReentrantLockDoubleCheck}, which doesn't pin virtual threads while an instance is created,
+   * instead of {@code DoubleCheck}.
+   */
+  public abstract boolean reentrantLockDoubleCheck();
+
+  /**
+   * Returns {@code true} if scoped bindings without dependencies in a root component should be held
+   * in a static field of a nested holder class, instead of a {@code DoubleCheck} in the component.
+   *
+   * <p>The holder is shared by all instances of the component, and the instance is created when
+   * the holder class is initialized, so an exception thrown while creating it surfaces as an {@link
+   * ExceptionInInitializerError}.
+   */
+  public abstract boolean staticHolderSingletons();
+
+  /**
+   * Returns {@code true} if root components should have a {@code warmUp(Executor)} method that
+   * creates all of their scoped instances ahead of time, creating independent instances in
+   * parallel.
+   */
+  public abstract boolean generateWarmUpMethod();
+
+  /**
+   * Returns {@code true} if multibound maps with {@link Integer} or {@link Long} keys should store
+   * their keys unboxed, so that they can be looked up without boxing.
+   */
+  public abstract boolean primitiveKeyMaps();
+
+  /**
+   * Returns {@code true} if multibound maps with {@link String} or {@link Class} keys should be
+   * stored in hash tables whose layout is computed at compile time, so that each key is found with
+   * one probe.
+   */
+  public abstract boolean perfectHashMaps();
+
+  /**
+   * Returns {@code true} if multibound {@code Map<K, V>}s should provide each value when it is
+   * first accessed, rather than providing all values when the map is created.
+   */
+  public abstract boolean lazyMapValues();
+
+  /**
+   * Returns {@code true} if multibound sets and maps whose contributions are all scoped or bound
+   * instances should be cached, since they never change.
+   */
+  public abstract boolean cacheConstantMultibindings();
+
+  /**
+   * Returns {@code true} if multibound sets with a single contribution, or with fewer than eight
+   * elements, should be created by factories specialized for that shape rather than by copying
+   * every element into a new {@link java.util.HashSet}.
+   */
+  public abstract boolean specializedSetFactories();
+
+  /**
+   * Returns {@code true} if components should report the provision of each {@code @Inject} and
+   * {@code @Provides} binding to the installed {@code dagger.monitoring.ProvisionMonitor}.
+   */
+  public abstract boolean provisionMonitoring();
+
+  /**
+   * Returns {@code true} if root components should have {@code provisionCounts()} and {@code
+   * scopedInstances()} methods that report how many instances each binding has provided and which
+   * scoped instances the component holds.
+   */
+  public abstract boolean generateIntrospectionMethods();
+
+  /**
+   * Returns {@code true} if production components should have a {@code producerDependencies()}
+   * method that maps each producer method's token to the tokens of the producer methods it waits
+   * on.
+   */
+  public abstract boolean writeProducerDependencies();
+
+  /**
+   * Returns {@code true} if production components should run their {@code @Produces} methods with
+   * one generated state machine, rather than with a producer object for each of them.
+   */
+  public abstract boolean productionStateMachine();
+
+  /** Returns the maximum number of threads that the processor may use for concurrent work. */
+  public int processingThreads() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Returns the number of bindings allowed per shard of {@code component}.
+   *
+   * <p>If {@link #sizeAwareComponentShards()} is enabled, this is a budget in units of a typical
+   * binding rather than a number of bindings.
+   */
   public int keysPerComponentShard(XTypeElement component) {
     return 3500;
   }
 
+  /**
+   * Returns the number of cases in each switch statement of a fastInit {@code SwitchingProvider}.
+   * Each switch is put in its own method, and each {@code SwitchingProvider} class has at most this
+   * many switches.
+   */
+  public int switchingProviderCasesPerSwitch() {
+    return 100;
+  }
+
+  /**
+   * Returns {@code true} if bindings should be partitioned into shards by the estimated size of the
+   * code generated for them, rather than by their number.
+   */
+  public abstract boolean sizeAwareComponentShards();
+
+  /**
+   * Returns the file that a trace of the time spent in each processing step, component and plugin
+   * is written to, or empty if tracing is disabled.
+   */
+  public Optional<Path> processingTraceFile() {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns the directory in which the sources generated for root components are cached between
+   * compilations, or empty if they are not cached.
+   */
+  public Optional<Path> componentCacheDirectory() {
+    return Optional.empty();
+  }
+
   /**
    * This option enables a fix to an issue where Dagger previously would erroneously allow
    * multibinding contributions in a component to have dependencies on child components. This will
@@ -23,17 +23,33 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Sets.immutableEnumSet;
 import static dagger.internal.codegen.compileroption.FeatureStatus.DISABLED;
 import static dagger.internal.codegen.compileroption.FeatureStatus.ENABLED;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.CACHE_CONSTANT_MULTIBINDINGS;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.EXPERIMENTAL_AHEAD_OF_TIME_SUBCOMPONENTS;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.EXPERIMENTAL_ANDROID_MODE;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.EXPERIMENTAL_DAGGER_ERROR_MESSAGES;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.FAST_INIT;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.FLOATING_BINDS_METHODS;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.FORMAT_GENERATED_SOURCE;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.GENERATE_INTROSPECTION_METHODS;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.GENERATE_WARM_UP_METHOD;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.IGNORE_PRIVATE_AND_STATIC_INJECTION_FOR_COMPONENT;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.LAZY_COMPONENT_SHARDS;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.LAZY_MAP_VALUES;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.PARALLEL_BINDING_GRAPH_PLUGINS;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.PARALLEL_COMPONENT_GENERATION;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.PERFECT_HASH_MAPS;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.PLUGINS_VISIT_FULL_BINDING_GRAPHS;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.PRIMITIVE_KEY_MAPS;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.PRODUCTION_STATE_MACHINE;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.PROVISION_MONITORING;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.REENTRANT_LOCK_DOUBLE_CHECK;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.SIZE_AWARE_COMPONENT_SHARDS;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.SPECIALIZED_SET_FACTORIES;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.STATIC_HOLDER_SINGLETONS;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.STRICT_MULTIBINDING_VALIDATION;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.VALIDATE_TRANSITIVE_COMPONENT_DEPENDENCIES;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.WARN_IF_INJECTION_FACTORY_NOT_GENERATED_UPSTREAM;
+import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.WRITE_PRODUCER_DEPENDENCIES;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.Feature.WRITE_PRODUCER_NAME_IN_TOKEN;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.KeyOnlyOption.HEADER_COMPILATION;
 import static dagger.internal.codegen.compileroption.ProcessingEnvironmentCompilerOptions.KeyOnlyOption.USE_GRADLE_INCREMENTAL_PROCESSING;
@@ -48,20 +64,25 @@ import static dagger.internal.codegen.compileroption.ValidationType.ERROR;
 import static dagger.internal.codegen.compileroption.ValidationType.NONE;
 import static dagger.internal.codegen.compileroption.ValidationType.WARNING;
 import static dagger.internal.codegen.extension.DaggerStreams.toImmutableSet;
+import static dagger.internal.codegen.langmodel.DaggerElements.isAnyAnnotationPresent;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Stream.concat;
 
 import androidx.room.compiler.processing.XMessager;
 import androidx.room.compiler.processing.XTypeElement;
 import com.google.common.base.Ascii;
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import dagger.internal.codegen.javapoet.TypeNames;
 import dagger.internal.codegen.langmodel.DaggerElements;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -72,8 +93,13 @@ import javax.tools.Diagnostic;
 
 /** {@link CompilerOptions} for the given processor. */
 public final class ProcessingEnvironmentCompilerOptions extends CompilerOptions {
-  // EnumOption<T> doesn't support integer inputs so just doing this as a 1-off for now.
+  // EnumOption<T> doesn't support integer or string inputs so just doing these as 1-offs for now.
   private static final String KEYS_PER_COMPONENT_SHARD = "dagger.keysPerComponentShard";
+  private static final String PROCESSING_TRACE_FILE = "dagger.processingTraceFile";
+  private static final String PROCESSING_THREADS = "dagger.processingThreads";
+  private static final String COMPONENT_CACHE_DIRECTORY = "dagger.componentCacheDirectory";
+  private static final String SWITCHING_PROVIDER_CASES_PER_SWITCH =
+      "dagger.switchingProviderCasesPerSwitch";
 
   private final XMessager messager;
   private final Map<String, String> options;
@@ -81,6 +107,9 @@ public final class ProcessingEnvironmentCompilerOptions extends CompilerOptions
   private final Map<EnumOption<?>, Object> enumOptions = new HashMap<>();
   private final Map<EnumOption<?>, ImmutableMap<String, ? extends Enum<?>>> allCommandLineOptions =
       new HashMap<>();
+  // The values of KEYS_PER_COMPONENT_SHARD, which are parsed by checkValid().
+  private Optional<Integer> defaultKeysPerComponentShard = Optional.empty();
+  private ImmutableMap<String, Integer> keysPerComponentShardOverrides = ImmutableMap.of();
 
   @Inject
   ProcessingEnvironmentCompilerOptions(
@@ -203,6 +232,91 @@ public final class ProcessingEnvironmentCompilerOptions extends CompilerOptions
     return isEnabled(EXPERIMENTAL_DAGGER_ERROR_MESSAGES);
   }
 
+  @Override
+  public boolean parallelBindingGraphPlugins() {
+    return isEnabled(PARALLEL_BINDING_GRAPH_PLUGINS);
+  }
+
+  @Override
+  public boolean parallelComponentGeneration() {
+    return isEnabled(PARALLEL_COMPONENT_GENERATION);
+  }
+
+  @Override
+  public boolean lazyComponentShards() {
+    return isEnabled(LAZY_COMPONENT_SHARDS);
+  }
+
+  @Override
+  public boolean reentrantLockDoubleCheck() {
+    return isEnabled(REENTRANT_LOCK_DOUBLE_CHECK);
+  }
+
+  @Override
+  public boolean staticHolderSingletons() {
+    return isEnabled(STATIC_HOLDER_SINGLETONS);
+  }
+
+  @Override
+  public boolean generateWarmUpMethod() {
+    return isEnabled(GENERATE_WARM_UP_METHOD);
+  }
+
+  @Override
+  public boolean primitiveKeyMaps() {
+    return isEnabled(PRIMITIVE_KEY_MAPS);
+  }
+
+  @Override
+  public boolean perfectHashMaps() {
+    return isEnabled(PERFECT_HASH_MAPS);
+  }
+
+  @Override
+  public boolean lazyMapValues() {
+    return isEnabled(LAZY_MAP_VALUES);
+  }
+
+  @Override
+  public boolean cacheConstantMultibindings() {
+    return isEnabled(CACHE_CONSTANT_MULTIBINDINGS);
+  }
+
+  @Override
+  public boolean specializedSetFactories() {
+    return isEnabled(SPECIALIZED_SET_FACTORIES);
+  }
+
+  @Override
+  public boolean provisionMonitoring() {
+    return isEnabled(PROVISION_MONITORING);
+  }
+
+  @Override
+  public boolean generateIntrospectionMethods() {
+    return isEnabled(GENERATE_INTROSPECTION_METHODS);
+  }
+
+  @Override
+  public boolean writeProducerDependencies() {
+    return isEnabled(WRITE_PRODUCER_DEPENDENCIES);
+  }
+
+  @Override
+  public boolean productionStateMachine() {
+    return isEnabled(PRODUCTION_STATE_MACHINE);
+  }
+
+  @Override
+  public int processingThreads() {
+    if (options.containsKey(PROCESSING_THREADS)) {
+      int processingThreads = Integer.parseInt(options.get(PROCESSING_THREADS));
+      checkArgument(processingThreads > 0, "%s must be positive", PROCESSING_THREADS);
+      return processingThreads;
+    }
+    return super.processingThreads();
+  }
+
   @Override
   public boolean strictMultibindingValidation() {
     return isEnabled(STRICT_MULTIBINDING_VALIDATION);
@@ -210,13 +324,36 @@ public final class ProcessingEnvironmentCompilerOptions extends CompilerOptions
 
   @Override
   public int keysPerComponentShard(XTypeElement component) {
-    if (options.containsKey(KEYS_PER_COMPONENT_SHARD)) {
-      checkArgument(
-          component.getClassName().packageName().startsWith("dagger."),
-          "Cannot set %s. It is only meant for internal testing.", KEYS_PER_COMPONENT_SHARD);
-      return Integer.parseInt(options.get(KEYS_PER_COMPONENT_SHARD));
+    Integer keysPerShard = keysPerComponentShardOverrides.get(component.getQualifiedName());
+    if (keysPerShard != null) {
+      return keysPerShard;
+    }
+    return defaultKeysPerComponentShard.orElseGet(() -> super.keysPerComponentShard(component));
+  }
+
+  @Override
+  public int switchingProviderCasesPerSwitch() {
+    if (options.containsKey(SWITCHING_PROVIDER_CASES_PER_SWITCH)) {
+      int casesPerSwitch = Integer.parseInt(options.get(SWITCHING_PROVIDER_CASES_PER_SWITCH));
+      checkArgument(casesPerSwitch > 0, "%s must be positive", SWITCHING_PROVIDER_CASES_PER_SWITCH);
+      return casesPerSwitch;
     }
-    return super.keysPerComponentShard(component);
+    return super.switchingProviderCasesPerSwitch();
+  }
+
+  @Override
+  public boolean sizeAwareComponentShards() {
+    return isEnabled(SIZE_AWARE_COMPONENT_SHARDS);
+  }
+
+  @Override
+  public Optional<Path> processingTraceFile() {
+    return Optional.ofNullable(options.get(PROCESSING_TRACE_FILE)).map(Paths::get);
+  }
+
+  @Override
+  public Optional<Path> componentCacheDirectory() {
+    return Optional.ofNullable(options.get(COMPONENT_CACHE_DIRECTORY)).map(Paths::get);
   }
 
   private boolean isEnabled(KeyOnlyOption keyOnlyOption) {
@@ -246,9 +383,71 @@ public final class ProcessingEnvironmentCompilerOptions extends CompilerOptions
     noLongerRecognized(FLOATING_BINDS_METHODS);
     noLongerRecognized(EXPERIMENTAL_AHEAD_OF_TIME_SUBCOMPONENTS);
     noLongerRecognized(USE_GRADLE_INCREMENTAL_PROCESSING);
+    parseKeysPerComponentShard();
     return this;
   }
 
+  /**
+   * Parses {@code -Adagger.keysPerComponentShard}. Its value is either a single number, or a
+   * comma-separated list of a default number and per-component overrides, e.g. {@code
+   * 3500,com.example.BigComponent=1000}.
+   */
+  private void parseKeysPerComponentShard() {
+    if (!options.containsKey(KEYS_PER_COMPONENT_SHARD)) {
+      return;
+    }
+    String value = options.get(KEYS_PER_COMPONENT_SHARD);
+    if (value == null) {
+      messager.printMessage(
+          Diagnostic.Kind.ERROR,
+          "Processor option -A" + KEYS_PER_COMPONENT_SHARD + " needs a value");
+      return;
+    }
+    Optional<Integer> defaultKeysPerShard = Optional.empty();
+    Map<String, Integer> overrides = new LinkedHashMap<>();
+    for (String entry : Splitter.on(',').trimResults().omitEmptyStrings().split(value)) {
+      int separator = entry.indexOf('=');
+      Optional<Integer> keysPerShard =
+          parseKeysPerShard(separator < 0 ? entry : entry.substring(separator + 1).trim());
+      if (!keysPerShard.isPresent()) {
+        messager.printMessage(
+            Diagnostic.Kind.ERROR,
+            String.format(
+                "Processor option -A%s may only have a positive number, optionally followed by "
+                    + "<component>=<positive number> overrides, separated by commas, found: %s",
+                KEYS_PER_COMPONENT_SHARD, value));
+        return;
+      }
+      if (separator < 0) {
+        defaultKeysPerShard = keysPerShard;
+      } else {
+        String componentName = entry.substring(0, separator).trim();
+        overrides.putIfAbsent(componentName, keysPerShard.get());
+        TypeElement component = elements.getTypeElement(componentName);
+        if (component == null
+            || !isAnyAnnotationPresent(
+                component, TypeNames.COMPONENT, TypeNames.PRODUCTION_COMPONENT)) {
+          messager.printMessage(
+              Diagnostic.Kind.WARNING,
+              String.format(
+                  "Processor option -A%s has an override for %s, which is not a root component",
+                  KEYS_PER_COMPONENT_SHARD, componentName));
+        }
+      }
+    }
+    defaultKeysPerComponentShard = defaultKeysPerShard;
+    keysPerComponentShardOverrides = ImmutableMap.copyOf(overrides);
+  }
+
+  private static Optional<Integer> parseKeysPerShard(String value) {
+    try {
+      int keysPerShard = Integer.parseInt(value);
+      return keysPerShard > 0 ? Optional.of(keysPerShard) : Optional.empty();
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+
   private void noLongerRecognized(CommandLineOption commandLineOption) {
     if (options.containsKey(commandLineOption.toString())) {
       messager.printMessage(
@@ -331,7 +530,39 @@ public final class ProcessingEnvironmentCompilerOptions extends CompilerOptions
 
     STRICT_MULTIBINDING_VALIDATION,
 
-    VALIDATE_TRANSITIVE_COMPONENT_DEPENDENCIES(ENABLED)
+    VALIDATE_TRANSITIVE_COMPONENT_DEPENDENCIES(ENABLED),
+
+    PARALLEL_BINDING_GRAPH_PLUGINS,
+
+    PARALLEL_COMPONENT_GENERATION,
+
+    LAZY_COMPONENT_SHARDS,
+
+    SIZE_AWARE_COMPONENT_SHARDS,
+
+    REENTRANT_LOCK_DOUBLE_CHECK,
+
+    STATIC_HOLDER_SINGLETONS,
+
+    GENERATE_WARM_UP_METHOD,
+
+    PRIMITIVE_KEY_MAPS,
+
+    PERFECT_HASH_MAPS,
+
+    LAZY_MAP_VALUES,
+
+    CACHE_CONSTANT_MULTIBINDINGS,
+
+    SPECIALIZED_SET_FACTORIES,
+
+    PROVISION_MONITORING,
+
+    GENERATE_INTROSPECTION_METHODS,
+
+    WRITE_PRODUCER_DEPENDENCIES,
+
+    PRODUCTION_STATE_MACHINE
     ;
 
     final FeatureStatus defaultValue;
@@ -434,6 +665,10 @@ public final class ProcessingEnvironmentCompilerOptions extends CompilerOptions
             .flatMap(CommandLineOption::allNames)
             .collect(toImmutableSet()))
         .add(KEYS_PER_COMPONENT_SHARD)
+        .add(PROCESSING_TRACE_FILE)
+        .add(PROCESSING_THREADS)
+        .add(COMPONENT_CACHE_DIRECTORY)
+        .add(SWITCHING_PROVIDER_CASES_PER_SWITCH)
         .build();
   }
 
@@ -18,7 +18,10 @@ package dagger.internal.codegen.componentgenerator;
 
 import dagger.Binds;
 import dagger.Module;
+import dagger.Provides;
+import dagger.internal.codegen.base.ProcessingTracer;
 import dagger.internal.codegen.base.SourceFileGenerator;
+import dagger.internal.codegen.base.TracingSourceFileGenerator;
 import dagger.internal.codegen.binding.BindingGraph;
 import dagger.internal.codegen.binding.ComponentDescriptor;
 
@@ -26,8 +29,11 @@ import dagger.internal.codegen.binding.ComponentDescriptor;
 @Module(subcomponents = TopLevelImplementationComponent.class)
 public interface ComponentGeneratorModule {
 
-  @Binds
-  abstract SourceFileGenerator<BindingGraph> componentGenerator(ComponentGenerator generator);
+  @Provides
+  static SourceFileGenerator<BindingGraph> componentGenerator(
+      ComponentGenerator generator, ProcessingTracer processingTracer) {
+    return TracingSourceFileGenerator.wrap(generator, processingTracer);
+  }
 
   // The HjarSourceFileGenerator wrapper first generates the entire TypeSpec before stripping out
   // things that aren't needed for the hjar. However, this can be really expensive for the component
@@ -121,6 +121,86 @@ final class JavacPluginCompilerOptions extends CompilerOptions {
     return false;
   }
 
+  @Override
+  public boolean parallelBindingGraphPlugins() {
+    return false;
+  }
+
+  @Override
+  public boolean parallelComponentGeneration() {
+    return false;
+  }
+
+  @Override
+  public boolean lazyComponentShards() {
+    return false;
+  }
+
+  @Override
+  public boolean sizeAwareComponentShards() {
+    return false;
+  }
+
+  @Override
+  public boolean reentrantLockDoubleCheck() {
+    return false;
+  }
+
+  @Override
+  public boolean staticHolderSingletons() {
+    return false;
+  }
+
+  @Override
+  public boolean generateWarmUpMethod() {
+    return false;
+  }
+
+  @Override
+  public boolean primitiveKeyMaps() {
+    return false;
+  }
+
+  @Override
+  public boolean perfectHashMaps() {
+    return false;
+  }
+
+  @Override
+  public boolean lazyMapValues() {
+    return false;
+  }
+
+  @Override
+  public boolean cacheConstantMultibindings() {
+    return false;
+  }
+
+  @Override
+  public boolean specializedSetFactories() {
+    return false;
+  }
+
+  @Override
+  public boolean provisionMonitoring() {
+    return false;
+  }
+
+  @Override
+  public boolean generateIntrospectionMethods() {
+    return false;
+  }
+
+  @Override
+  public boolean writeProducerDependencies() {
+    return false;
+  }
+
+  @Override
+  public boolean productionStateMachine() {
+    return false;
+  }
+
   @Override
   public boolean strictMultibindingValidation() {
     return false;
@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.javac;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.sun.source.util.JavacTask;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.PushbackReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.Processor;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs javac with Dagger in a Bazel persistent worker, so that the JVM, the JIT-compiled processor
+ * and the jars that javac has opened stay warm between compilations.
+ *
+ * <p>With {@code --persistent_worker}, the worker reads work requests in Bazel's JSON worker
+ * protocol from standard input, and writes a response for each of them to standard output. Each
+ * request's arguments are a javac command line, including the sources to compile. Otherwise, the
+ * arguments are compiled once, like {@code javac} would.
+ *
+ * <p>Every compilation gets new instances of the annotation processors, and so a new {@code
+ * ProcessorComponent} with empty caches: the elements and types that those caches hold belong to a
+ * single javac invocation. What is kept between compilations is:
+ *
+ * <ul>
+ *   <li>the classes of the processors, in class loaders that are reused while the digests of the
+ *       jars on their processor path don't change. Processors that are on the worker's own
+ *       classpath, like Dagger's, are always reused.
+ *   <li>javac's file manager, with its index of the jars on the classpath. It is recreated if the
+ *       digest of a jar that it may have opened changes, or if a compilation doesn't pass all of
+ *       the file manager options that the previous ones did, since it would otherwise inherit their
+ *       output directories and paths.
+ * </ul>
+ */
+public final class JavacWorker implements Closeable {
+  /** The javac options that are followed by a value. */
+  private static final ImmutableSet<String> OPTIONS_WITH_VALUES =
+      ImmutableSet.of(
+          "-d",
+          "-s",
+          "-h",
+          "-cp",
+          "-classpath",
+          "--class-path",
+          "-sourcepath",
+          "--source-path",
+          "-bootclasspath",
+          "--boot-class-path",
+          "-extdirs",
+          "-endorseddirs",
+          "-processorpath",
+          "--processor-path",
+          "--processor-module-path",
+          "-processor",
+          "-encoding",
+          "-source",
+          "--source",
+          "-target",
+          "--target",
+          "--release",
+          "-Xmaxerrs",
+          "-Xmaxwarns",
+          "-p",
+          "--module-path",
+          "--module-source-path",
+          "--system",
+          "--upgrade-module-path",
+          "--add-modules",
+          "--add-exports",
+          "--add-reads",
+          "--patch-module",
+          "--limit-modules",
+          "--module",
+          "-m",
+          "--multi-release",
+          "--default-module-for-created-files");
+
+  private static final ImmutableSet<String> PROCESSOR_PATH_OPTIONS =
+      ImmutableSet.of("-processorpath", "--processor-path");
+
+  private static final ImmutableSet<String> CLASS_PATH_OPTIONS =
+      ImmutableSet.of("-cp", "-classpath", "--class-path", "-bootclasspath", "--boot-class-path");
+
+  /**
+   * The javac options that configure the file manager, by their alternative spellings. javac only
+   * sets the locations of the options that it is passed, so a file manager keeps the ones of the
+   * earlier compilations that used it.
+   */
+  private static final ImmutableMap<String, String> FILE_MANAGER_OPTIONS =
+      ImmutableMap.<String, String>builder()
+          .put("-d", "-d")
+          .put("-s", "-s")
+          .put("-h", "-h")
+          .put("-cp", "--class-path")
+          .put("-classpath", "--class-path")
+          .put("--class-path", "--class-path")
+          .put("-sourcepath", "--source-path")
+          .put("--source-path", "--source-path")
+          .put("-bootclasspath", "--boot-class-path")
+          .put("--boot-class-path", "--boot-class-path")
+          .put("-extdirs", "-extdirs")
+          .put("-endorseddirs", "-endorseddirs")
+          .put("--processor-module-path", "--processor-module-path")
+          .put("-p", "--module-path")
+          .put("--module-path", "--module-path")
+          .put("--module-source-path", "--module-source-path")
+          .put("--system", "--system")
+          .put("--upgrade-module-path", "--upgrade-module-path")
+          .put("--patch-module", "--patch-module")
+          .put("--release", "--release")
+          .put("-encoding", "-encoding")
+          .put("--multi-release", "--multi-release")
+          .build();
+
+  private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+  private final ProcessorClassLoaders processorClassLoaders = new ProcessorClassLoaders(4);
+  private final Map<Path, String> fileManagerDigests = new HashMap<>();
+  private StandardJavaFileManager fileManager;
+  // The FILE_MANAGER_OPTIONS that fileManager has been configured with.
+  private Set<String> fileManagerOptions = new HashSet<>();
+
+  public static void main(String[] args) throws IOException, ReflectiveOperationException {
+    if (Arrays.asList(args).contains("--persistent_worker")) {
+      PrintStream stdout = System.out;
+      // Standard output is reserved for the work responses.
+      System.setOut(System.err);
+      try (JavacWorker worker = new JavacWorker()) {
+        worker.runPersistentWorker(System.in, stdout);
+      }
+      return;
+    }
+    int exitCode;
+    try (JavacWorker worker = new JavacWorker()) {
+      Result result = worker.compile(Arrays.asList(args), ImmutableMap.of());
+      System.err.print(result.output);
+      exitCode = result.exitCode;
+    }
+    System.exit(exitCode);
+  }
+
+  /**
+   * Compiles the work requests from {@code requests} one after the other until it ends, and writes
+   * their responses to {@code responses}.
+   */
+  public void runPersistentWorker(InputStream requests, PrintStream responses) throws IOException {
+    PushbackReader reader = new PushbackReader(new InputStreamReader(requests, UTF_8));
+    for (Object request = WorkerJson.read(reader);
+        request != null;
+        request = WorkerJson.read(reader)) {
+      Map<?, ?> workRequest = (Map<?, ?>) request;
+      int requestId = intValue(workRequest.get("requestId"));
+      if (Boolean.TRUE.equals(workRequest.get("cancel"))) {
+        // Requests are compiled as they are read, so there is never one to cancel.
+        continue;
+      }
+      Result result;
+      try {
+        result = compile(stringList(workRequest.get("arguments")), inputDigests(workRequest));
+      } catch (RuntimeException | IOException | ReflectiveOperationException e) {
+        StringWriter output = new StringWriter();
+        e.printStackTrace(new PrintWriter(output));
+        result = new Result(1, output.toString());
+      }
+      Map<String, Object> response = new LinkedHashMap<>();
+      response.put("exitCode", result.exitCode);
+      response.put("output", result.output);
+      response.put("requestId", requestId);
+      StringBuilder json = new StringBuilder();
+      WorkerJson.write(json, response);
+      responses.println(json);
+      responses.flush();
+    }
+  }
+
+  /**
+   * Compiles a javac command line.
+   *
+   * @param digests the digests of the inputs of the compilation, by path
+   */
+  Result compile(List<String> arguments, Map<Path, String> digests)
+      throws IOException, ReflectiveOperationException {
+    List<String> options = new ArrayList<>();
+    List<File> sources = new ArrayList<>();
+    List<Path> processorPath = new ArrayList<>();
+    List<Path> classPath = new ArrayList<>();
+    List<String> processorNames = new ArrayList<>();
+    Set<String> requestFileManagerOptions = new HashSet<>();
+    boolean processorsDisabled = false;
+
+    List<String> expandedArguments = expandParamsFiles(arguments);
+    for (int i = 0; i < expandedArguments.size(); i++) {
+      String argument = expandedArguments.get(i);
+      String fileManagerOption = fileManagerOption(argument);
+      if (fileManagerOption != null) {
+        requestFileManagerOptions.add(fileManagerOption);
+      }
+      if (OPTIONS_WITH_VALUES.contains(argument) && i + 1 < expandedArguments.size()) {
+        String value = expandedArguments.get(++i);
+        if (PROCESSOR_PATH_OPTIONS.contains(argument)) {
+          processorPath.addAll(splitPath(value));
+          // The processors are instantiated here, so javac mustn't load them again.
+          continue;
+        } else if (argument.equals("-processor")) {
+          processorNames.addAll(Arrays.asList(value.split(",")));
+          continue;
+        } else if (CLASS_PATH_OPTIONS.contains(argument)) {
+          classPath.addAll(splitPath(value));
+        }
+        options.add(argument);
+        options.add(value);
+      } else if (!argument.startsWith("-") && argument.endsWith(".java")) {
+        sources.add(new File(argument));
+      } else {
+        processorsDisabled |= argument.equals("-proc:none");
+        options.add(argument);
+      }
+    }
+
+    StandardJavaFileManager javaFileManager =
+        fileManager(classPath, digests, requestFileManagerOptions);
+    StringWriter output = new StringWriter();
+    JavacTask task;
+    try {
+      task =
+          (JavacTask)
+              compiler.getTask(
+                  output,
+                  javaFileManager,
+                  /* diagnosticListener= */ null,
+                  options,
+                  /* classes= */ null,
+                  javaFileManager.getJavaFileObjectsFromFiles(sources));
+    } catch (IllegalArgumentException e) {
+      return new Result(2, "error: " + e.getMessage() + "\n");
+    }
+    if (!processorsDisabled) {
+      // Like javac, search the classpath for processors if there is no processor path.
+      ImmutableList<Processor> processors =
+          processorClassLoaders.processors(
+              processorPath.isEmpty() ? classPath : processorPath, digests, processorNames);
+      task.setProcessors(processors);
+    }
+    boolean success;
+    try {
+      success = task.call();
+    } finally {
+      javaFileManager.flush();
+    }
+    return new Result(success ? 0 : 1, output.toString());
+  }
+
+  /**
+   * Returns the {@link #FILE_MANAGER_OPTIONS} key of {@code argument}, or {@code null} if it
+   * doesn't configure the file manager.
+   */
+  private static String fileManagerOption(String argument) {
+    if (argument.startsWith("-Xbootclasspath")) {
+      return "--boot-class-path";
+    }
+    int equals = argument.indexOf('=');
+    return FILE_MANAGER_OPTIONS.get(
+        argument.startsWith("--") && equals > 0 ? argument.substring(0, equals) : argument);
+  }
+
+  /**
+   * Returns the file manager to compile with. It is recreated if any of the jars on {@code
+   * classPath} have changed since they may have been opened by it, or if the compilation doesn't
+   * set all of the {@code fileManagerOptions} that the earlier compilations did.
+   */
+  private StandardJavaFileManager fileManager(
+      List<Path> classPath, Map<Path, String> digests, Set<String> requestFileManagerOptions)
+      throws IOException {
+    boolean stale = !requestFileManagerOptions.containsAll(fileManagerOptions);
+    Map<Path, String> currentDigests = new HashMap<>();
+    for (Path path : classPath) {
+      if (Files.isRegularFile(path)) {
+        String digest = ProcessorClassLoaders.digest(path, digests);
+        currentDigests.put(path, digest);
+        String previousDigest = fileManagerDigests.get(path);
+        stale |= previousDigest != null && !previousDigest.equals(digest);
+      }
+    }
+    if (fileManager == null || stale) {
+      if (fileManager != null) {
+        fileManager.close();
+      }
+      fileManager = compiler.getStandardFileManager(null, null, UTF_8);
+      fileManagerDigests.clear();
+    }
+    fileManagerDigests.putAll(currentDigests);
+    fileManagerOptions = requestFileManagerOptions;
+    return fileManager;
+  }
+
+  @Override
+  public void close() throws IOException {
+    processorClassLoaders.close();
+    if (fileManager != null) {
+      fileManager.close();
+    }
+  }
+
+  /** Replaces each {@code @file} argument with the lines of the file. */
+  private static List<String> expandParamsFiles(List<String> arguments) throws IOException {
+    List<String> expanded = new ArrayList<>();
+    for (String argument : arguments) {
+      if (argument.startsWith("@") && !argument.startsWith("@@")) {
+        expanded.addAll(
+            expandParamsFiles(Files.readAllLines(Paths.get(argument.substring(1)), UTF_8)));
+      } else {
+        expanded.add(argument.startsWith("@@") ? argument.substring(1) : argument);
+      }
+    }
+    return expanded;
+  }
+
+  private static List<Path> splitPath(String path) {
+    List<Path> paths = new ArrayList<>();
+    for (String entry : path.split(File.pathSeparator)) {
+      if (!entry.isEmpty()) {
+        paths.add(Paths.get(entry).normalize());
+      }
+    }
+    return paths;
+  }
+
+  private static Map<Path, String> inputDigests(Map<?, ?> workRequest) {
+    Map<Path, String> digests = new HashMap<>();
+    Object inputs = workRequest.get("inputs");
+    if (inputs instanceof List) {
+      for (Object input : (List<?>) inputs) {
+        Map<?, ?> inputMap = (Map<?, ?>) input;
+        Object path = inputMap.get("path");
+        Object digest = inputMap.get("digest");
+        if (path instanceof String && digest instanceof String && !((String) digest).isEmpty()) {
+          digests.put(Paths.get((String) path).normalize(), (String) digest);
+        }
+      }
+    }
+    return digests;
+  }
+
+  private static List<String> stringList(Object value) {
+    List<String> strings = new ArrayList<>();
+    if (value instanceof List) {
+      for (Object element : (List<?>) value) {
+        strings.add(String.valueOf(element));
+      }
+    }
+    return strings;
+  }
+
+  private static int intValue(Object value) {
+    return value instanceof Number ? ((Number) value).intValue() : 0;
+  }
+
+  /** The exit code and the diagnostics of a compilation. */
+  static final class Result {
+    final int exitCode;
+    final String output;
+
+    Result(int exitCode, String output) {
+      this.exitCode = exitCode;
+      this.output = output;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.javac;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.Processor;
+
+/**
+ * Caches the class loaders of annotation processor paths between the compilations of a {@link
+ * JavacWorker}, so that the classes of the processors stay loaded and compiled by the JIT.
+ *
+ * <p>A class loader is reused only while the digests of all of the jars on its path are the same.
+ * The class loaders delegate to the worker's own class loader first, so the processors that are on
+ * the worker's classpath, like Dagger's, are always shared.
+ */
+final class ProcessorClassLoaders implements Closeable {
+  private static final String PROCESSOR_SERVICE = "META-INF/services/" + Processor.class.getName();
+
+  private final int maxSize;
+  private final Map<ImmutableMap<Path, String>, URLClassLoader> classLoaders =
+      new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+
+  ProcessorClassLoaders(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns new instances of the processors that javac would run for {@code processorPath}: the
+   * {@code processorNames} if there are any, or else the processors that the jars on the path
+   * declare as services.
+   *
+   * @param digests the digests of the jars on {@code processorPath}
+   */
+  ImmutableList<Processor> processors(
+      List<Path> processorPath, Map<Path, String> digests, List<String> processorNames)
+      throws IOException, ReflectiveOperationException {
+    URLClassLoader classLoader = classLoader(processorPath, digests);
+    Set<String> classNames = new LinkedHashSet<>(processorNames);
+    if (classNames.isEmpty()) {
+      for (URL service : Collections.list(classLoader.findResources(PROCESSOR_SERVICE))) {
+        classNames.addAll(serviceClassNames(service));
+      }
+    }
+    ImmutableList.Builder<Processor> processors = ImmutableList.builder();
+    for (String className : classNames) {
+      processors.add(
+          classLoader
+              .loadClass(className)
+              .asSubclass(Processor.class)
+              .getDeclaredConstructor()
+              .newInstance());
+    }
+    return processors.build();
+  }
+
+  private URLClassLoader classLoader(List<Path> processorPath, Map<Path, String> digests)
+      throws IOException {
+    ImmutableMap.Builder<Path, String> key = ImmutableMap.builder();
+    for (Path path : processorPath) {
+      key.put(path, digest(path, digests));
+    }
+    ImmutableMap<Path, String> cacheKey = key.buildKeepingLast();
+    URLClassLoader classLoader = classLoaders.get(cacheKey);
+    if (classLoader == null) {
+      List<URL> urls = new ArrayList<>();
+      for (Path path : processorPath) {
+        urls.add(toUrl(path));
+      }
+      classLoader =
+          new URLClassLoader(
+              urls.toArray(new URL[0]), ProcessorClassLoaders.class.getClassLoader());
+      classLoaders.put(cacheKey, classLoader);
+      evict();
+    }
+    return classLoader;
+  }
+
+  private void evict() throws IOException {
+    Iterator<URLClassLoader> iterator = classLoaders.values().iterator();
+    while (classLoaders.size() > maxSize) {
+      URLClassLoader eldest = iterator.next();
+      iterator.remove();
+      eldest.close();
+    }
+  }
+
+  /**
+   * Returns the digest of {@code path} that Bazel sent with the work request, or else a digest
+   * derived from the size and modification time of the file.
+   */
+  static String digest(Path path, Map<Path, String> digests) throws IOException {
+    String digest = digests.get(path);
+    if (digest != null) {
+      return digest;
+    }
+    if (!Files.isRegularFile(path)) {
+      // Directories are never reused, since their contents may change without the directory's
+      // modification time changing.
+      return "directory " + System.nanoTime();
+    }
+    return Files.size(path) + " " + Files.getLastModifiedTime(path).toMillis();
+  }
+
+  private static URL toUrl(Path path) {
+    try {
+      return path.toUri().toURL();
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private static List<String> serviceClassNames(URL service) throws IOException {
+    List<String> classNames = new ArrayList<>();
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(service.openStream(), UTF_8))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        int comment = line.indexOf('#');
+        String className = (comment >= 0 ? line.substring(0, comment) : line).trim();
+        if (!className.isEmpty()) {
+          classNames.add(className);
+        }
+      }
+    }
+    return classNames;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (URLClassLoader classLoader : classLoaders.values()) {
+      classLoader.close();
+    }
+    classLoaders.clear();
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.javac;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the JSON values of Bazel's JSON worker protocol, which are objects, arrays,
+ * strings, numbers, booleans and {@code null}.
+ */
+final class WorkerJson {
+  /**
+   * Reads the next value from {@code reader}, or returns {@code null} if the reader is at the end
+   * of its input. Objects are returned as {@link Map}s, arrays as {@link List}s and numbers as
+   * {@link Double}s.
+   */
+  static Object read(PushbackReader reader) throws IOException {
+    int c = skipWhitespace(reader);
+    if (c == -1) {
+      return null;
+    }
+    reader.unread(c);
+    return readValue(reader);
+  }
+
+  private static Object readValue(PushbackReader reader) throws IOException {
+    int c = skipWhitespace(reader);
+    switch (c) {
+      case -1:
+        throw new EOFException("Unexpected end of JSON input");
+      case '{':
+        Map<String, Object> object = new LinkedHashMap<>();
+        if (!consumeIf(reader, '}')) {
+          do {
+            expect(reader, '"');
+            String name = readString(reader);
+            expect(reader, ':');
+            object.put(name, readValue(reader));
+          } while (consumeIf(reader, ','));
+          expect(reader, '}');
+        }
+        return object;
+      case '[':
+        List<Object> array = new ArrayList<>();
+        if (!consumeIf(reader, ']')) {
+          do {
+            array.add(readValue(reader));
+          } while (consumeIf(reader, ','));
+          expect(reader, ']');
+        }
+        return array;
+      case '"':
+        return readString(reader);
+      default:
+        StringBuilder literal = new StringBuilder();
+        while (c != -1 && (Character.isLetterOrDigit(c) || "+-.".indexOf(c) >= 0)) {
+          literal.append((char) c);
+          c = reader.read();
+        }
+        if (c != -1) {
+          reader.unread(c);
+        }
+        switch (literal.toString()) {
+          case "true":
+            return true;
+          case "false":
+            return false;
+          case "null":
+            return null;
+          default:
+            try {
+              return Double.parseDouble(literal.toString());
+            } catch (NumberFormatException e) {
+              throw new IOException("Unexpected JSON value: " + literal, e);
+            }
+        }
+    }
+  }
+
+  private static String readString(PushbackReader reader) throws IOException {
+    StringBuilder string = new StringBuilder();
+    for (int c = reader.read(); c != '"'; c = reader.read()) {
+      if (c == -1) {
+        throw new EOFException("Unterminated JSON string");
+      }
+      if (c == '\\') {
+        c = reader.read();
+        switch (c) {
+          case 'b':
+            c = '\b';
+            break;
+          case 'f':
+            c = '\f';
+            break;
+          case 'n':
+            c = '\n';
+            break;
+          case 'r':
+            c = '\r';
+            break;
+          case 't':
+            c = '\t';
+            break;
+          case 'u':
+            char[] hex = new char[4];
+            for (int i = 0; i < hex.length; i++) {
+              hex[i] = (char) reader.read();
+            }
+            c = Integer.parseInt(new String(hex), 16);
+            break;
+          default:
+            // \", \\ and \/ stand for the character itself.
+        }
+      }
+      string.append((char) c);
+    }
+    return string.toString();
+  }
+
+  private static int skipWhitespace(PushbackReader reader) throws IOException {
+    int c;
+    do {
+      c = reader.read();
+    } while (c != -1 && Character.isWhitespace(c));
+    return c;
+  }
+
+  private static boolean consumeIf(PushbackReader reader, char expected) throws IOException {
+    int c = skipWhitespace(reader);
+    if (c == expected) {
+      return true;
+    }
+    if (c != -1) {
+      reader.unread(c);
+    }
+    return false;
+  }
+
+  private static void expect(PushbackReader reader, char expected) throws IOException {
+    if (!consumeIf(reader, expected)) {
+      throw new IOException("Expected '" + expected + "' in JSON input");
+    }
+  }
+
+  /** Appends {@code value}, which must be a string, number, boolean or map, as JSON. */
+  static void write(StringBuilder json, Object value) {
+    if (value instanceof Map) {
+      json.append('{');
+      String separator = "";
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        json.append(separator);
+        write(json, entry.getKey());
+        json.append(':');
+        write(json, entry.getValue());
+        separator = ",";
+      }
+      json.append('}');
+    } else if (value instanceof Number || value instanceof Boolean) {
+      json.append(value);
+    } else {
+      checkArgument(value instanceof String, "Unsupported JSON value: %s", value);
+      json.append('"');
+      for (char c : ((String) value).toCharArray()) {
+        switch (c) {
+          case '"':
+            json.append("\\\"");
+            break;
+          case '\\':
+            json.append("\\\\");
+            break;
+          case '\n':
+            json.append("\\n");
+            break;
+          case '\r':
+            json.append("\\r");
+            break;
+          case '\t':
+            json.append("\\t");
+            break;
+          default:
+            if (c < 0x20) {
+              json.append(String.format("\\u%04x", (int) c));
+            } else {
+              json.append(c);
+            }
+        }
+      }
+      json.append('"');
+    }
+  }
+
+  private WorkerJson() {}
+}
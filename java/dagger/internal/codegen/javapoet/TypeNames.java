@@ -53,6 +53,9 @@ public final class TypeNames {
   public static final ClassName SUBCOMPONENT_FACTORY = SUBCOMPONENT.nestedClass("Factory");
 
   // Dagger Internal classnames
+  public static final ClassName CLASS_KEY_MAP = ClassName.get("dagger.internal", "ClassKeyMap");
+  public static final ClassName COUNTING_PROVIDER =
+      ClassName.get("dagger.internal", "CountingProvider");
   public static final ClassName DELEGATE_FACTORY =
       ClassName.get("dagger.internal", "DelegateFactory");
   public static final ClassName DOUBLE_CHECK = ClassName.get("dagger.internal", "DoubleCheck");
@@ -61,18 +64,36 @@ public final class TypeNames {
       ClassName.get("dagger.internal", "InjectedFieldSignature");
   public static final ClassName INSTANCE_FACTORY =
       ClassName.get("dagger.internal", "InstanceFactory");
+  public static final ClassName INT_KEY_MAP = ClassName.get("dagger.internal", "IntKeyMap");
+  public static final ClassName LONG_KEY_MAP = ClassName.get("dagger.internal", "LongKeyMap");
+  public static final ClassName MAP_BUILDER = ClassName.get("dagger.internal", "MapBuilder");
   public static final ClassName MAP_FACTORY = ClassName.get("dagger.internal", "MapFactory");
   public static final ClassName MAP_PROVIDER_FACTORY =
       ClassName.get("dagger.internal", "MapProviderFactory");
   public static final ClassName MEMBERS_INJECTOR = ClassName.get("dagger", "MembersInjector");
+  public static final ClassName MONITORED_PROVIDER =
+      ClassName.get("dagger.internal", "MonitoredProvider");
   public static final ClassName MEMBERS_INJECTORS =
       ClassName.get("dagger.internal", "MembersInjectors");
   public static final ClassName PROVIDER = ClassName.get("javax.inject", "Provider");
   public static final ClassName PROVIDER_OF_LAZY =
       ClassName.get("dagger.internal", "ProviderOfLazy");
+  public static final ClassName PROVISION_COUNTERS =
+      ClassName.get("dagger.internal", "ProvisionCounters");
+  public static final ClassName REENTRANT_LOCK_DOUBLE_CHECK =
+      ClassName.get("dagger.internal", "ReentrantLockDoubleCheck");
+  public static final ClassName SCOPED_INSTANCES =
+      ClassName.get("dagger.internal", "ScopedInstances");
+  public static final ClassName SET_BUILDER = ClassName.get("dagger.internal", "SetBuilder");
   public static final ClassName SET_FACTORY = ClassName.get("dagger.internal", "SetFactory");
   public static final ClassName SINGLE_CHECK = ClassName.get("dagger.internal", "SingleCheck");
+  public static final ClassName STRING_KEY_MAP = ClassName.get("dagger.internal", "StringKeyMap");
   public static final ClassName LAZY = ClassName.get("dagger", "Lazy");
+  public static final ClassName WARM_UP = ClassName.get("dagger.internal", "WarmUp");
+
+  // Dagger Monitoring classnames
+  public static final ClassName PROVISION_TOKEN =
+      ClassName.get("dagger.monitoring", "ProvisionToken");
 
   // Dagger Producers classnames
   public static final ClassName ABSTRACT_PRODUCER =
@@ -96,6 +117,8 @@ public final class TypeNames {
   public static final ClassName PRODUCED = ClassName.get("dagger.producers", "Produced");
   public static final ClassName PRODUCER = ClassName.get("dagger.producers", "Producer");
   public static final ClassName PRODUCERS = ClassName.get("dagger.producers.internal", "Producers");
+  public static final ClassName PRODUCER_DEPENDENCIES =
+      ClassName.get("dagger.producers.internal", "ProducerDependencies");
   public static final ClassName PRODUCER_MODULE =
       ClassName.get("dagger.producers", "ProducerModule");
   public static final ClassName PRODUCES = ClassName.get("dagger.producers", "Produces");
@@ -110,6 +133,8 @@ public final class TypeNames {
       ClassName.get("dagger.producers.internal", "ProductionExecutorModule");
   public static final ClassName PRODUCTION_IMPLEMENTATION =
       ClassName.get("dagger.producers.internal", "ProductionImplementation");
+  public static final ClassName PRODUCTION_STATE_MACHINE =
+      ClassName.get("dagger.producers.internal", "ProductionStateMachine");
   public static final ClassName PRODUCTION_SUBCOMPONENT =
       ClassName.get("dagger.producers", "ProductionSubcomponent");
   public static final ClassName PRODUCTION_SUBCOMPONENT_BUILDER =
@@ -19,6 +19,7 @@ package dagger.internal.codegen.kotlin;
 import static com.google.auto.common.MoreElements.isAnnotationPresent;
 import static dagger.internal.codegen.langmodel.DaggerElements.closestEnclosingTypeElement;
 
+import dagger.internal.codegen.base.CacheStats;
 import dagger.internal.codegen.base.ClearableCache;
 import java.util.HashMap;
 import java.util.Map;
@@ -37,6 +38,7 @@ import kotlin.Metadata;
 @Singleton
 public final class KotlinMetadataFactory implements ClearableCache {
   private final Map<TypeElement, KotlinMetadata> metadataCache = new HashMap<>();
+  private long lookups;
 
   @Inject
   KotlinMetadataFactory() {}
@@ -53,11 +55,18 @@ public final class KotlinMetadataFactory implements ClearableCache {
     if (!isAnnotationPresent(enclosingElement, Metadata.class)) {
       throw new IllegalStateException("Missing @Metadata for: " + enclosingElement);
     }
+    lookups++;
     return metadataCache.computeIfAbsent(enclosingElement, KotlinMetadata::from);
   }
 
   @Override
   public void clearCache() {
     metadataCache.clear();
+    lookups = 0;
+  }
+
+  @Override
+  public CacheStats cacheStats() {
+    return CacheStats.create(lookups, metadataCache.size());
   }
 }
@@ -28,6 +28,7 @@ import androidx.room.compiler.processing.XMethodElement;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.squareup.javapoet.ClassName;
+import dagger.internal.codegen.base.CacheStats;
 import dagger.internal.codegen.base.ClearableCache;
 import java.util.HashMap;
 import java.util.Map;
@@ -39,6 +40,7 @@ import javax.inject.Singleton;
 public final class AnyBindingMethodValidator implements ClearableCache {
   private final ImmutableMap<ClassName, BindingMethodValidator> validators;
   private final Map<XMethodElement, ValidationReport> reports = new HashMap<>();
+  private long lookups;
 
   @Inject
   AnyBindingMethodValidator(ImmutableMap<ClassName, BindingMethodValidator> validators) {
@@ -48,6 +50,12 @@ public final class AnyBindingMethodValidator implements ClearableCache {
   @Override
   public void clearCache() {
     reports.clear();
+    lookups = 0;
+  }
+
+  @Override
+  public CacheStats cacheStats() {
+    return CacheStats.create(lookups, reports.size());
   }
 
   /** Returns the binding method annotations considered by this validator. */
@@ -77,6 +85,7 @@ public final class AnyBindingMethodValidator implements ClearableCache {
    *     #methodAnnotations() binding method annotation}
    */
   ValidationReport validate(XMethodElement method) {
+    lookups++;
     return reentrantComputeIfAbsent(reports, method, this::validateUncached);
   }
 
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.validation;
+
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Uninterruptibles;
+import dagger.internal.codegen.base.ProcessingThreadPool;
+import dagger.internal.codegen.base.ProcessingTracer;
+import dagger.internal.codegen.base.ProcessingTracer.Span;
+import dagger.internal.codegen.compileroption.CompilerOptions;
+import dagger.internal.codegen.validation.DiagnosticReporterFactory.DiagnosticReporterImpl;
+import dagger.internal.codegen.validation.ConcurrentValidationPlugin.Report;
+import dagger.internal.codegen.validation.ConcurrentValidationPlugin.Traversal;
+import dagger.spi.model.BindingGraph;
+import dagger.spi.model.BindingGraphPlugin;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.inject.Inject;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * Visits a binding graph with a set of plugins, either one after another on the processing thread
+ * or, for {@linkplain #visit plugins that may run concurrently} and {@linkplain
+ * ConcurrentValidationPlugin validation plugins that can traverse the graph concurrently} with
+ * {@code -Adagger.parallelBindingGraphPlugins=enabled}, concurrently on the {@link
+ * ProcessingThreadPool}.
+ *
+ * <p>When the plugins run concurrently, the diagnostics are printed on the processing thread in the
+ * order in which the plugins are installed, so the output does not depend on how the visits were
+ * scheduled. External plugins report to a {@linkplain DiagnosticReporterFactory#bufferingReporter
+ * buffering reporter}, while validation plugins only report once their traversal has finished.
+ *
+ * <p>In either mode, each visit is recorded as a span named after the plugin in the processing
+ * trace, so that slow plugins can be identified.
+ */
+final class BindingGraphPluginExecutor {
+  private final DiagnosticReporterFactory diagnosticReporterFactory;
+  private final CompilerOptions compilerOptions;
+  private final ProcessingTracer processingTracer;
+  private final ProcessingThreadPool threadPool;
+
+  @Inject
+  BindingGraphPluginExecutor(
+      DiagnosticReporterFactory diagnosticReporterFactory,
+      CompilerOptions compilerOptions,
+      ProcessingTracer processingTracer,
+      ProcessingThreadPool threadPool) {
+    this.diagnosticReporterFactory = diagnosticReporterFactory;
+    this.compilerOptions = compilerOptions;
+    this.processingTracer = processingTracer;
+    this.threadPool = threadPool;
+  }
+
+  /**
+   * Visits {@code graph} with each of the {@code plugins} on the processing thread, and returns
+   * {@code false} if any of them reported an error.
+   *
+   * @param visitGraph visits the graph with a plugin, reporting diagnostics to the given reporter
+   */
+  <P> boolean visitSerially(
+      BindingGraph graph,
+      ImmutableSet<P> plugins,
+      Function<P, String> pluginName,
+      boolean reportErrorsAsWarnings,
+      BiConsumer<P, DiagnosticReporterImpl> visitGraph) {
+    boolean isClean = true;
+    for (P plugin : plugins) {
+      String name = pluginName.apply(plugin);
+      DiagnosticReporterImpl reporter =
+          diagnosticReporterFactory.reporter(graph, name, reportErrorsAsWarnings);
+      visitPlugin(plugin, name, reporter, visitGraph);
+      if (reporter.reportedDiagnosticKinds().contains(ERROR)) {
+        isClean = false;
+      }
+    }
+    return isClean;
+  }
+
+  /**
+   * Visits {@code graph} with each of the {@code plugins}, and returns {@code false} if any of them
+   * reported an error. If {@code -Adagger.parallelBindingGraphPlugins} is enabled, the plugins for
+   * which {@code supportsConcurrentVisits} is true are visited concurrently on the thread pool,
+   * while the others are visited on the processing thread.
+   *
+   * <p>Plugins that support concurrent visits must not share unsynchronized state with each other
+   * or with the processor. In particular, javac's {@code Types}, {@code Elements} and {@code Filer}
+   * are not thread-safe.
+   *
+   * @param visitGraph visits the graph with a plugin, reporting diagnostics to the given reporter
+   */
+  <P> boolean visit(
+      BindingGraph graph,
+      ImmutableSet<P> plugins,
+      Function<P, String> pluginName,
+      Predicate<P> supportsConcurrentVisits,
+      boolean reportErrorsAsWarnings,
+      BiConsumer<P, DiagnosticReporterImpl> visitGraph) {
+    if (!compilerOptions.parallelBindingGraphPlugins()
+        || plugins.stream().filter(supportsConcurrentVisits).count() < 2) {
+      return visitSerially(graph, plugins, pluginName, reportErrorsAsWarnings, visitGraph);
+    }
+
+    List<PluginVisit> visits = new ArrayList<>(plugins.size());
+    for (P plugin : plugins) {
+      String name = pluginName.apply(plugin);
+      if (supportsConcurrentVisits.test(plugin)) {
+        DiagnosticReporterImpl reporter =
+            diagnosticReporterFactory.bufferingReporter(graph, name, reportErrorsAsWarnings);
+        visits.add(
+            PluginVisit.concurrent(
+                reporter,
+                () ->
+                    () -> {
+                      visitPlugin(plugin, name, reporter, visitGraph);
+                      return reporter::flush;
+                    }));
+      } else {
+        DiagnosticReporterImpl reporter =
+            diagnosticReporterFactory.reporter(graph, name, reportErrorsAsWarnings);
+        visits.add(
+            PluginVisit.serial(reporter, () -> visitPlugin(plugin, name, reporter, visitGraph)));
+      }
+    }
+    return visitInOrder(visits);
+  }
+
+  /**
+   * Visits {@code graph} with each of Dagger's own validation {@code plugins}, and returns {@code
+   * false} if any of them reported an error. If {@code -Adagger.parallelBindingGraphPlugins} is
+   * enabled, the {@linkplain ConcurrentValidationPlugin.Traversal traversals} of the {@link
+   * ConcurrentValidationPlugin}s run concurrently on the thread pool, while the other plugins are
+   * visited on the processing thread.
+   */
+  boolean visitValidationPlugins(
+      BindingGraph graph,
+      ImmutableSet<BindingGraphPlugin> plugins,
+      boolean reportErrorsAsWarnings) {
+    if (!compilerOptions.parallelBindingGraphPlugins()
+        || plugins.stream().filter(ConcurrentValidationPlugin.class::isInstance).count() < 2) {
+      return visitSerially(
+          graph,
+          plugins,
+          BindingGraphPlugin::pluginName,
+          reportErrorsAsWarnings,
+          (plugin, reporter) -> plugin.visitGraph(graph, reporter));
+    }
+
+    List<PluginVisit> visits = new ArrayList<>(plugins.size());
+    for (BindingGraphPlugin plugin : plugins) {
+      String name = plugin.pluginName();
+      DiagnosticReporterImpl reporter =
+          diagnosticReporterFactory.reporter(graph, name, reportErrorsAsWarnings);
+      if (plugin instanceof ConcurrentValidationPlugin) {
+        visits.add(
+            PluginVisit.concurrent(
+                reporter,
+                () -> {
+                  Traversal traversal = ((ConcurrentValidationPlugin) plugin).prepare(graph);
+                  return () -> {
+                    Report report = traced(name, traversal::traverse);
+                    return () -> report.report(reporter);
+                  };
+                }));
+      } else {
+        visits.add(
+            PluginVisit.serial(
+                reporter,
+                () -> visitPlugin(plugin, name, reporter, (p, r) -> p.visitGraph(graph, r))));
+      }
+    }
+    return visitInOrder(visits);
+  }
+
+  /**
+   * Starts the traversals of the concurrent {@code visits} on the thread pool, and then finishes
+   * each visit on the processing thread in order. Returns {@code false} if any of them reported an
+   * error.
+   */
+  private boolean visitInOrder(List<PluginVisit> visits) {
+    // Null for the visits that happen on the processing thread.
+    List<Future<Runnable>> traversals = new ArrayList<>(visits.size());
+    for (PluginVisit visit : visits) {
+      if (visit.concurrentVisit == null) {
+        traversals.add(null);
+        continue;
+      }
+      Callable<Runnable> traversal;
+      try {
+        traversal = visit.concurrentVisit.get();
+      } catch (RuntimeException | Error e) {
+        cancelAll(traversals);
+        throw e;
+      }
+      traversals.add(threadPool.submit(traversal));
+    }
+
+    boolean isClean = true;
+    for (int i = 0; i < visits.size(); i++) {
+      PluginVisit visit = visits.get(i);
+      try {
+        if (traversals.get(i) == null) {
+          visit.serialVisit.run();
+        } else {
+          Uninterruptibles.getUninterruptibly(traversals.get(i)).run();
+        }
+      } catch (ExecutionException e) {
+        // Report what the earlier plugins found, and then fail the same way that visiting the
+        // plugins serially would have.
+        cancelAll(traversals);
+        Throwables.throwIfUnchecked(e.getCause());
+        throw new IllegalStateException(e.getCause());
+      } catch (RuntimeException | Error e) {
+        cancelAll(traversals);
+        throw e;
+      }
+      if (visit.reporter.reportedDiagnosticKinds().contains(ERROR)) {
+        isClean = false;
+      }
+    }
+    return isClean;
+  }
+
+  private static void cancelAll(List<? extends Future<?>> futures) {
+    for (Future<?> future : futures) {
+      if (future != null) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  @SuppressWarnings("try")
+  private <P> void visitPlugin(
+      P plugin,
+      String name,
+      DiagnosticReporterImpl reporter,
+      BiConsumer<P, DiagnosticReporterImpl> visitGraph) {
+    // Anonymous plugins don't have a name by default.
+    String spanName = name != null ? name : plugin.getClass().getName();
+    try (Span span = processingTracer.begin(spanName)) {
+      visitGraph.accept(plugin, reporter);
+    }
+  }
+
+  @SuppressWarnings("try")
+  private <T> T traced(String name, Supplier<T> work) {
+    try (Span span = processingTracer.begin(name)) {
+      return work.get();
+    }
+  }
+
+  /** The visit of a graph with one plugin. */
+  private static final class PluginVisit {
+    final DiagnosticReporterImpl reporter;
+
+    /** Visits the graph on the processing thread, or null if the visit is concurrent. */
+    @NullableDecl final Runnable serialVisit;
+
+    /**
+     * Called on the processing thread to return the traversal of the graph to run on the thread
+     * pool, which returns what to run on the processing thread afterwards to report what it found.
+     * Null if the visit is serial.
+     */
+    @NullableDecl final Supplier<Callable<Runnable>> concurrentVisit;
+
+    private PluginVisit(
+        DiagnosticReporterImpl reporter,
+        @NullableDecl Runnable serialVisit,
+        @NullableDecl Supplier<Callable<Runnable>> concurrentVisit) {
+      this.reporter = reporter;
+      this.serialVisit = serialVisit;
+      this.concurrentVisit = concurrentVisit;
+    }
+
+    static PluginVisit serial(DiagnosticReporterImpl reporter, Runnable visit) {
+      return new PluginVisit(reporter, visit, null);
+    }
+
+    static PluginVisit concurrent(
+        DiagnosticReporterImpl reporter, Supplier<Callable<Runnable>> visit) {
+      return new PluginVisit(reporter, null, visit);
+    }
+  }
+}
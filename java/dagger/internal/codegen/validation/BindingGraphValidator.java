@@ -18,6 +18,8 @@ package dagger.internal.codegen.validation;
 
 import androidx.room.compiler.processing.XTypeElement;
 import androidx.room.compiler.processing.compat.XConverters;
+import dagger.internal.codegen.base.ProcessingTracer;
+import dagger.internal.codegen.base.ProcessingTracer.Span;
 import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.compileroption.ValidationType;
 import dagger.spi.model.BindingGraph;
@@ -31,15 +33,29 @@ public final class BindingGraphValidator {
   private final ValidationBindingGraphPlugins validationPlugins;
   private final ExternalBindingGraphPlugins externalPlugins;
   private final CompilerOptions compilerOptions;
+  private final ProcessingTracer processingTracer;
+  private final DiagnosticReporterFactory diagnosticReporterFactory;
 
   @Inject
   BindingGraphValidator(
       ValidationBindingGraphPlugins validationPlugins,
       ExternalBindingGraphPlugins externalPlugins,
-      CompilerOptions compilerOptions) {
+      CompilerOptions compilerOptions,
+      ProcessingTracer processingTracer,
+      DiagnosticReporterFactory diagnosticReporterFactory) {
     this.validationPlugins = validationPlugins;
     this.externalPlugins = externalPlugins;
     this.compilerOptions = compilerOptions;
+    this.processingTracer = processingTracer;
+    this.diagnosticReporterFactory = diagnosticReporterFactory;
+  }
+
+  /**
+   * Returns the number of diagnostics, including warnings and notes, that have been reported while
+   * validating binding graphs so far.
+   */
+  public int reportedDiagnostics() {
+    return diagnosticReporterFactory.printedDiagnostics();
   }
 
   /** Returns {@code true} if validation or analysis is required on the full binding graph. */
@@ -58,15 +74,19 @@ public final class BindingGraphValidator {
   }
 
   /** Returns {@code true} if validation plugins report no errors. */
+  @SuppressWarnings("try")
   private boolean visitValidationPlugins(BindingGraph graph) {
     if (graph.isFullBindingGraph() && !requiresFullBindingGraphValidation()) {
       return true;
     }
 
-    return validationPlugins.visit(graph);
+    try (Span span = processingTracer.begin("ValidationBindingGraphPlugins")) {
+      return validationPlugins.visit(graph);
+    }
   }
 
   /** Returns {@code true} if external plugins report no errors. */
+  @SuppressWarnings("try")
   private boolean visitExternalPlugins(BindingGraph graph) {
     TypeElement component = graph.rootComponentNode().componentPath().currentComponent().java();
     if (graph.isFullBindingGraph()
@@ -77,6 +97,8 @@ public final class BindingGraphValidator {
       return true;
     }
 
-    return externalPlugins.visit(graph);
+    try (Span span = processingTracer.begin("ExternalBindingGraphPlugins")) {
+      return externalPlugins.visit(graph);
+    }
   }
 }
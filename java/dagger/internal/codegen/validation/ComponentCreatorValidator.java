@@ -35,6 +35,7 @@ import androidx.room.compiler.processing.XTypeElement;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ObjectArrays;
+import dagger.internal.codegen.base.CacheStats;
 import dagger.internal.codegen.base.ClearableCache;
 import dagger.internal.codegen.binding.ComponentCreatorAnnotation;
 import dagger.internal.codegen.binding.ErrorMessages;
@@ -53,6 +54,7 @@ import javax.inject.Singleton;
 public final class ComponentCreatorValidator implements ClearableCache {
 
   private final Map<XTypeElement, ValidationReport> reports = new HashMap<>();
+  private long lookups;
   private final DaggerTypes types;
   private final KotlinMetadataUtil metadataUtil;
 
@@ -65,10 +67,17 @@ public final class ComponentCreatorValidator implements ClearableCache {
   @Override
   public void clearCache() {
     reports.clear();
+    lookups = 0;
+  }
+
+  @Override
+  public CacheStats cacheStats() {
+    return CacheStats.create(lookups, reports.size());
   }
 
   /** Validates that the given {@code type} is potentially a valid component creator type. */
   public ValidationReport validate(XTypeElement type) {
+    lookups++;
     return reentrantComputeIfAbsent(reports, type, this::validateUncached);
   }
 
@@ -61,6 +61,7 @@ import com.google.common.collect.Sets;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.TypeName;
 import dagger.Component;
+import dagger.internal.codegen.base.CacheStats;
 import dagger.internal.codegen.base.ClearableCache;
 import dagger.internal.codegen.base.ComponentAnnotation;
 import dagger.internal.codegen.binding.ComponentKind;
@@ -101,6 +102,7 @@ public final class ComponentValidator implements ClearableCache {
   private final MethodSignatureFormatter methodSignatureFormatter;
   private final DependencyRequestFactory dependencyRequestFactory;
   private final Map<XTypeElement, ValidationReport> reports = new HashMap<>();
+  private long lookups;
   private final KotlinMetadataUtil metadataUtil;
 
   @Inject
@@ -128,10 +130,17 @@ public final class ComponentValidator implements ClearableCache {
   @Override
   public void clearCache() {
     reports.clear();
+    lookups = 0;
+  }
+
+  @Override
+  public CacheStats cacheStats() {
+    return CacheStats.create(lookups, reports.size());
   }
 
   /** Validates the given component. */
   public ValidationReport validate(XTypeElement component) {
+    lookups++;
     return reentrantComputeIfAbsent(reports, component, this::validateUncached);
   }
 
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dagger.internal.codegen.validation;
+
+import dagger.spi.model.BindingGraph;
+import dagger.spi.model.BindingGraphPlugin;
+import dagger.spi.model.DiagnosticReporter;
+
+/**
+ * A {@link BindingGraphPlugin} for Dagger's own validation whose traversal of a graph can run
+ * concurrently with the other plugins, on the {@link
+ * dagger.internal.codegen.base.ProcessingThreadPool}, when {@code
+ * -Adagger.parallelBindingGraphPlugins=enabled} is passed.
+ *
+ * <p>javac isn't thread-safe, so a visit is split into three steps. {@link #prepare} runs on the
+ * processing thread and looks up whatever the traversal needs from javac. The {@link Traversal} it
+ * returns may run on any thread, and must only read the graph and what {@code prepare} looked up.
+ * The {@link Report} that the traversal returns runs on the processing thread again, and may use
+ * javac to format the diagnostics.
+ */
+public interface ConcurrentValidationPlugin extends BindingGraphPlugin {
+  /** Looks up what the traversal of {@code graph} needs from javac. */
+  Traversal prepare(BindingGraph graph);
+
+  @Override
+  default void visitGraph(BindingGraph graph, DiagnosticReporter diagnosticReporter) {
+    prepare(graph).traverse().report(diagnosticReporter);
+  }
+
+  /** A traversal of a binding graph that doesn't use javac. */
+  interface Traversal {
+    /** Traverses the graph, and returns how to report what it found. */
+    Report traverse();
+  }
+
+  /** Reports the diagnostics that a {@link Traversal} found. */
+  interface Report {
+    void report(DiagnosticReporter diagnosticReporter);
+  }
+}
@@ -31,7 +31,10 @@ import dagger.spi.model.BindingGraph.ComponentNode;
 import dagger.spi.model.BindingGraph.DependencyEdge;
 import dagger.spi.model.BindingGraph.MaybeBinding;
 import dagger.spi.model.DiagnosticReporter;
+import java.util.ArrayList;
+import java.util.List;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.tools.Diagnostic;
@@ -40,9 +43,11 @@ import org.checkerframework.checker.nullness.compatqual.NullableDecl;
 /** A factory for {@link DiagnosticReporter}s. */
 // TODO(ronshapiro): If multiple plugins print errors on the same node/edge, should we condense the
 // messages and only print the dependency trace once?
+@Singleton
 final class DiagnosticReporterFactory {
   private final XMessager messager;
   private final DiagnosticMessageGenerator.Factory diagnosticMessageGeneratorFactory;
+  private int printedDiagnostics;
 
   @Inject
   DiagnosticReporterFactory(
@@ -51,10 +56,28 @@ final class DiagnosticReporterFactory {
     this.diagnosticMessageGeneratorFactory = diagnosticMessageGeneratorFactory;
   }
 
+  /** Returns the number of diagnostics that reporters from this factory have printed so far. */
+  int printedDiagnostics() {
+    return printedDiagnostics;
+  }
+
   /** Creates a reporter for a binding graph and a plugin. */
   DiagnosticReporterImpl reporter(
       BindingGraph graph, String pluginName, boolean reportErrorsAsWarnings) {
-    return new DiagnosticReporterImpl(graph, pluginName, reportErrorsAsWarnings);
+    return new DiagnosticReporterImpl(
+        graph, pluginName, reportErrorsAsWarnings, /* bufferDiagnostics= */ false);
+  }
+
+  /**
+   * Creates a reporter for a binding graph and a plugin that holds on to the diagnostics until
+   * {@link DiagnosticReporterImpl#flush()} is called, so that the plugin can run off of the
+   * processing thread. The reporter only records the arguments of each report; the messages are
+   * built when they are flushed, since that looks up types with javac, which isn't thread-safe.
+   */
+  DiagnosticReporterImpl bufferingReporter(
+      BindingGraph graph, String pluginName, boolean reportErrorsAsWarnings) {
+    return new DiagnosticReporterImpl(
+        graph, pluginName, reportErrorsAsWarnings, /* bufferDiagnostics= */ true);
   }
 
   /**
@@ -68,12 +91,19 @@ final class DiagnosticReporterFactory {
     private final ImmutableSet.Builder<Diagnostic.Kind> reportedDiagnosticKinds =
         ImmutableSet.builder();
     private final DiagnosticMessageGenerator diagnosticMessageGenerator;
+    // Reports that are made by flush(), on the processing thread. Null when not buffering.
+    @NullableDecl private List<Runnable> bufferedReports;
 
-    DiagnosticReporterImpl(BindingGraph graph, String plugin, boolean reportErrorsAsWarnings) {
+    DiagnosticReporterImpl(
+        BindingGraph graph,
+        String plugin,
+        boolean reportErrorsAsWarnings,
+        boolean bufferDiagnostics) {
       this.plugin = plugin;
       this.reportErrorsAsWarnings = reportErrorsAsWarnings;
       this.rootComponent = graph.rootComponentNode().componentPath().currentComponent().java();
       this.diagnosticMessageGenerator = diagnosticMessageGeneratorFactory.create(graph);
+      this.bufferedReports = bufferDiagnostics ? new ArrayList<>() : null;
     }
 
     /** Returns which {@linkplain Diagnostic.Kind kinds} of diagnostics were reported. */
@@ -81,9 +111,36 @@ final class DiagnosticReporterFactory {
       return reportedDiagnosticKinds.build();
     }
 
+    /**
+     * Prints the diagnostics that have been buffered, in the order in which they were reported.
+     * Later reports are printed immediately.
+     */
+    void flush() {
+      if (bufferedReports != null) {
+        List<Runnable> reports = bufferedReports;
+        bufferedReports = null;
+        reports.forEach(Runnable::run);
+      }
+    }
+
+    /**
+     * Returns {@code true} if {@code report} was buffered to be made by {@link #flush()}, or {@code
+     * false} if it should be made now.
+     */
+    private boolean buffer(Runnable report) {
+      if (bufferedReports == null) {
+        return false;
+      }
+      bufferedReports.add(report);
+      return true;
+    }
+
     @Override
     public void reportComponent(
         Diagnostic.Kind diagnosticKind, ComponentNode componentNode, String messageFormat) {
+      if (buffer(() -> reportComponent(diagnosticKind, componentNode, messageFormat))) {
+        return;
+      }
       StringBuilder message = new StringBuilder(messageFormat);
       diagnosticMessageGenerator.appendComponentPathUnlessAtRoot(message, componentNode);
       // TODO(dpb): Report at the component node component.
@@ -98,6 +155,11 @@ final class DiagnosticReporterFactory {
         String messageFormat,
         Object firstArg,
         Object... moreArgs) {
+      if (buffer(
+          () ->
+              reportComponent(diagnosticKind, componentNode, messageFormat, firstArg, moreArgs))) {
+        return;
+      }
       reportComponent(
           diagnosticKind, componentNode, formatMessage(messageFormat, firstArg, moreArgs));
     }
@@ -106,6 +168,9 @@ final class DiagnosticReporterFactory {
     @Override
     public void reportBinding(
         Diagnostic.Kind diagnosticKind, MaybeBinding binding, String message) {
+      if (buffer(() -> reportBinding(diagnosticKind, binding, message))) {
+        return;
+      }
       printMessage(
           diagnosticKind, message + diagnosticMessageGenerator.getMessage(binding), rootComponent);
     }
@@ -117,12 +182,18 @@ final class DiagnosticReporterFactory {
         String messageFormat,
         Object firstArg,
         Object... moreArgs) {
+      if (buffer(() -> reportBinding(diagnosticKind, binding, messageFormat, firstArg, moreArgs))) {
+        return;
+      }
       reportBinding(diagnosticKind, binding, formatMessage(messageFormat, firstArg, moreArgs));
     }
 
     @Override
     public void reportDependency(
         Diagnostic.Kind diagnosticKind, DependencyEdge dependencyEdge, String message) {
+      if (buffer(() -> reportDependency(diagnosticKind, dependencyEdge, message))) {
+        return;
+      }
       printMessage(
           diagnosticKind,
           message + diagnosticMessageGenerator.getMessage(dependencyEdge),
@@ -136,6 +207,12 @@ final class DiagnosticReporterFactory {
         String messageFormat,
         Object firstArg,
         Object... moreArgs) {
+      if (buffer(
+          () ->
+              reportDependency(
+                  diagnosticKind, dependencyEdge, messageFormat, firstArg, moreArgs))) {
+        return;
+      }
       reportDependency(
           diagnosticKind, dependencyEdge, formatMessage(messageFormat, firstArg, moreArgs));
     }
@@ -145,6 +222,10 @@ final class DiagnosticReporterFactory {
         Diagnostic.Kind diagnosticKind,
         ChildFactoryMethodEdge childFactoryMethodEdge,
         String message) {
+      if (buffer(
+          () -> reportSubcomponentFactoryMethod(diagnosticKind, childFactoryMethodEdge, message))) {
+        return;
+      }
       printMessage(diagnosticKind, message, childFactoryMethodEdge.factoryMethod().java());
     }
 
@@ -155,6 +236,12 @@ final class DiagnosticReporterFactory {
         String messageFormat,
         Object firstArg,
         Object... moreArgs) {
+      if (buffer(
+          () ->
+              reportSubcomponentFactoryMethod(
+                  diagnosticKind, childFactoryMethodEdge, messageFormat, firstArg, moreArgs))) {
+        return;
+      }
       reportSubcomponentFactoryMethod(
           diagnosticKind, childFactoryMethodEdge, formatMessage(messageFormat, firstArg, moreArgs));
     }
@@ -179,8 +266,14 @@ final class DiagnosticReporterFactory {
         elementToReport = rootComponent;
       }
 
-      XConverters.toJavac(messager)
-          .printMessage(diagnosticKind, fullMessage.append(message), elementToReport);
+      fullMessage.append(message);
+      print(diagnosticKind, fullMessage, elementToReport);
+    }
+
+    private void print(
+        Diagnostic.Kind diagnosticKind, CharSequence message, @NullableDecl Element element) {
+      printedDiagnostics++;
+      XConverters.toJavac(messager).printMessage(diagnosticKind, message, element);
     }
 
     private void appendBracketPrefix(StringBuilder message, String prefix) {
@@ -17,7 +17,6 @@
 package dagger.internal.codegen.validation;
 
 import static dagger.internal.codegen.extension.DaggerStreams.toImmutableSet;
-import static javax.tools.Diagnostic.Kind.ERROR;
 
 import androidx.room.compiler.processing.XFiler;
 import androidx.room.compiler.processing.compat.XConverters;
@@ -26,10 +25,8 @@ import com.google.common.collect.Maps;
 import dagger.internal.codegen.compileroption.ProcessingOptions;
 import dagger.internal.codegen.langmodel.DaggerElements;
 import dagger.internal.codegen.langmodel.DaggerTypes;
-import dagger.internal.codegen.validation.DiagnosticReporterFactory.DiagnosticReporterImpl;
 import dagger.model.BindingGraph;
 import dagger.spi.BindingGraphPlugin;
-import dagger.spi.DiagnosticReporter;
 import java.util.Map;
 import java.util.Set;
 import javax.inject.Inject;
@@ -37,7 +34,7 @@ import javax.inject.Inject;
 /** Initializes {@link BindingGraphPlugin}s. */
 public final class ExternalBindingGraphPlugins {
   private final ImmutableSet<BindingGraphPlugin> plugins;
-  private final DiagnosticReporterFactory diagnosticReporterFactory;
+  private final BindingGraphPluginExecutor pluginExecutor;
   private final XFiler filer;
   private final DaggerTypes types;
   private final DaggerElements elements;
@@ -46,13 +43,13 @@ public final class ExternalBindingGraphPlugins {
   @Inject
   ExternalBindingGraphPlugins(
       ImmutableSet<BindingGraphPlugin> plugins,
-      DiagnosticReporterFactory diagnosticReporterFactory,
+      BindingGraphPluginExecutor pluginExecutor,
       XFiler filer,
       DaggerTypes types,
       DaggerElements elements,
       @ProcessingOptions Map<String, String> processingOptions) {
     this.plugins = plugins;
-    this.diagnosticReporterFactory = diagnosticReporterFactory;
+    this.pluginExecutor = pluginExecutor;
     this.filer = filer;
     this.types = types;
     this.elements = elements;
@@ -85,17 +82,13 @@ public final class ExternalBindingGraphPlugins {
   /** Returns {@code false} if any of the plugins reported an error. */
   boolean visit(dagger.spi.model.BindingGraph spiGraph) {
     BindingGraph graph = ExternalBindingGraphConverter.fromSpiModel(spiGraph);
-    boolean isClean = true;
-    for (BindingGraphPlugin plugin : plugins) {
-      DiagnosticReporterImpl spiReporter =
-          diagnosticReporterFactory.reporter(
-              spiGraph, plugin.pluginName(), /* reportErrorsAsWarnings= */ false);
-      DiagnosticReporter reporter = ExternalBindingGraphConverter.fromSpiModel(spiReporter);
-      plugin.visitGraph(graph, reporter);
-      if (spiReporter.reportedDiagnosticKinds().contains(ERROR)) {
-        isClean = false;
-      }
-    }
-    return isClean;
+    return pluginExecutor.visit(
+        spiGraph,
+        plugins,
+        BindingGraphPlugin::pluginName,
+        BindingGraphPlugin::supportsConcurrentVisits,
+        /* reportErrorsAsWarnings= */ false,
+        (plugin, spiReporter) ->
+            plugin.visitGraph(graph, ExternalBindingGraphConverter.fromSpiModel(spiReporter)));
   }
 }
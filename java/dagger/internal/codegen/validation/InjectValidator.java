@@ -38,6 +38,7 @@ import androidx.room.compiler.processing.XTypeElement;
 import androidx.room.compiler.processing.XVariableElement;
 import com.google.common.collect.ImmutableSet;
 import com.squareup.javapoet.ClassName;
+import dagger.internal.codegen.base.CacheStats;
 import dagger.internal.codegen.base.ClearableCache;
 import dagger.internal.codegen.binding.InjectionAnnotations;
 import dagger.internal.codegen.compileroption.CompilerOptions;
@@ -72,6 +73,7 @@ public final class InjectValidator implements ClearableCache {
   private final InjectionAnnotations injectionAnnotations;
   private final KotlinMetadataUtil metadataUtil;
   private final Map<XTypeElement, ValidationReport> reports = new HashMap<>();
+  private long lookups;
 
   @Inject
   InjectValidator(
@@ -119,6 +121,12 @@ public final class InjectValidator implements ClearableCache {
   @Override
   public void clearCache() {
     reports.clear();
+    lookups = 0;
+  }
+
+  @Override
+  public CacheStats cacheStats() {
+    return CacheStats.create(lookups, reports.size());
   }
 
   /**
@@ -142,6 +150,7 @@ public final class InjectValidator implements ClearableCache {
   }
 
   public ValidationReport validate(XTypeElement typeElement) {
+    lookups++;
     return reentrantComputeIfAbsent(reports, typeElement, this::validateUncached);
   }
 
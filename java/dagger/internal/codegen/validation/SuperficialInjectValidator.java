@@ -20,6 +20,7 @@ import static androidx.room.compiler.processing.compat.XConverters.toJavac;
 import static dagger.internal.codegen.langmodel.DaggerElements.isAnnotationPresent;
 
 import androidx.room.compiler.processing.XTypeElement;
+import dagger.internal.codegen.base.CacheStats;
 import dagger.internal.codegen.base.ClearableCache;
 import dagger.internal.codegen.javapoet.TypeNames;
 import java.util.HashMap;
@@ -34,11 +35,13 @@ import javax.lang.model.element.TypeElement;
 public final class SuperficialInjectValidator implements ClearableCache {
 
   private final Map<XTypeElement, Boolean> validatedTypeElements = new HashMap<>();
+  private long lookups;
 
   @Inject
   SuperficialInjectValidator() {}
 
   public void throwIfNotValid(XTypeElement injectTypeElement) {
+    lookups++;
     if (!validatedTypeElements.computeIfAbsent(injectTypeElement, this::validate)) {
       throw new TypeNotPresentException(injectTypeElement.toString(), null);
     }
@@ -64,5 +67,11 @@ public final class SuperficialInjectValidator implements ClearableCache {
   @Override
   public void clearCache() {
     validatedTypeElements.clear();
+    lookups = 0;
+  }
+
+  @Override
+  public CacheStats cacheStats() {
+    return CacheStats.create(lookups, validatedTypeElements.size());
   }
 }
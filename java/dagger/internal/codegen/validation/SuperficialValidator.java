@@ -21,6 +21,7 @@ import static dagger.internal.codegen.langmodel.DaggerElements.closestEnclosingT
 import androidx.room.compiler.processing.XElement;
 import androidx.room.compiler.processing.compat.XConverters;
 import com.google.auto.common.SuperficialValidation;
+import dagger.internal.codegen.base.CacheStats;
 import dagger.internal.codegen.base.ClearableCache;
 import java.util.HashMap;
 import java.util.Map;
@@ -34,12 +35,14 @@ import javax.lang.model.element.TypeElement;
 public final class SuperficialValidator implements ClearableCache {
 
   private final Map<TypeElement, Boolean> validatedTypeElements = new HashMap<>();
+  private long lookups;
 
   @Inject
   SuperficialValidator() {}
 
   public void throwIfNearestEnclosingTypeNotValid(XElement element) {
     Element javaElement = XConverters.toJavac(element);
+    lookups++;
     if (!validatedTypeElements.computeIfAbsent(
         closestEnclosingTypeElement(javaElement), SuperficialValidation::validateElement)) {
       throw new TypeNotPresentException(element.toString(), null);
@@ -49,5 +52,11 @@ public final class SuperficialValidator implements ClearableCache {
   @Override
   public void clearCache() {
     validatedTypeElements.clear();
+    lookups = 0;
+  }
+
+  @Override
+  public CacheStats cacheStats() {
+    return CacheStats.create(lookups, validatedTypeElements.size());
   }
 }
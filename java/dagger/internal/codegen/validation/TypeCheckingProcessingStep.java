@@ -29,6 +29,8 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Maps;
 import com.squareup.javapoet.ClassName;
+import dagger.internal.codegen.base.ProcessingTracer;
+import dagger.internal.codegen.base.ProcessingTracer.Span;
 import java.util.Map;
 import java.util.Set;
 import javax.inject.Inject;
@@ -40,33 +42,41 @@ import javax.inject.Inject;
 public abstract class TypeCheckingProcessingStep<E extends XElement> implements XProcessingStep {
 
   @Inject SuperficialValidator superficialValidator;
+  @Inject ProcessingTracer processingTracer;
 
   @Override
   public final ImmutableSet<String> annotations() {
     return annotationClassNames().stream().map(ClassName::canonicalName).collect(toImmutableSet());
   }
 
-  @SuppressWarnings("unchecked") // Subclass must ensure all annotated targets are of valid type.
+  // The casts are unchecked because subclasses must ensure all annotated targets are of valid type.
+  @SuppressWarnings({"try", "unchecked"})
   @Override
   public ImmutableSet<XElement> process(
       XProcessingEnv env, Map<String, ? extends Set<? extends XElement>> elementsByAnnotation) {
     ImmutableSet.Builder<XElement> deferredElements = ImmutableSet.builder();
-    inverse(elementsByAnnotation)
-        .forEach(
-            (element, annotations) -> {
-              try {
-                // The XBasicAnnotationProcessor only validates the element itself. However, we
-                // validate the enclosing type here to keep the previous behavior of
-                // BasicAnnotationProcessor, since Dagger still relies on this behavior.
-                // TODO(b/201479062): It's inefficient to require validation of the entire enclosing
-                //  type, we should try to remove this and handle any additional validation into the
-                //  steps that need it.
+    try (Span stepSpan = processingTracer.begin(getClass().getSimpleName())) {
+      ImmutableMap<XElement, ImmutableSet<ClassName>> annotationsByElement =
+          inverse(elementsByAnnotation);
+      stepSpan.arg("elements", annotationsByElement.size());
+      annotationsByElement.forEach(
+          (element, annotations) -> {
+            try {
+              // The XBasicAnnotationProcessor only validates the element itself. However, we
+              // validate the enclosing type here to keep the previous behavior of
+              // BasicAnnotationProcessor, since Dagger still relies on this behavior.
+              // TODO(b/201479062): It's inefficient to require validation of the entire enclosing
+              //  type, we should try to remove this and handle any additional validation into the
+              //  steps that need it.
+              try (Span span = processingTracer.begin("SuperficialValidator")) {
                 superficialValidator.throwIfNearestEnclosingTypeNotValid(element);
-                process((E) element, annotations);
-              } catch (TypeNotPresentException e) {
-                deferredElements.add(element);
               }
-            });
+              process((E) element, annotations);
+            } catch (TypeNotPresentException e) {
+              deferredElements.add(element);
+            }
+          });
+    }
     return deferredElements.build();
   }
 
@@ -17,7 +17,6 @@
 package dagger.internal.codegen.validation;
 
 import static dagger.internal.codegen.extension.DaggerStreams.toImmutableSet;
-import static javax.tools.Diagnostic.Kind.ERROR;
 
 import androidx.room.compiler.processing.XFiler;
 import androidx.room.compiler.processing.compat.XConverters;
@@ -28,7 +27,6 @@ import dagger.internal.codegen.compileroption.ProcessingOptions;
 import dagger.internal.codegen.compileroption.ValidationType;
 import dagger.internal.codegen.langmodel.DaggerElements;
 import dagger.internal.codegen.langmodel.DaggerTypes;
-import dagger.internal.codegen.validation.DiagnosticReporterFactory.DiagnosticReporterImpl;
 import dagger.spi.model.BindingGraph;
 import dagger.spi.model.BindingGraphPlugin;
 import java.util.Map;
@@ -38,7 +36,7 @@ import javax.inject.Inject;
 /** Initializes {@link BindingGraphPlugin}s. */
 public final class ValidationBindingGraphPlugins {
   private final ImmutableSet<BindingGraphPlugin> plugins;
-  private final DiagnosticReporterFactory diagnosticReporterFactory;
+  private final BindingGraphPluginExecutor pluginExecutor;
   private final XFiler filer;
   private final DaggerTypes types;
   private final DaggerElements elements;
@@ -48,14 +46,14 @@ public final class ValidationBindingGraphPlugins {
   @Inject
   ValidationBindingGraphPlugins(
       @Validation ImmutableSet<BindingGraphPlugin> plugins,
-      DiagnosticReporterFactory diagnosticReporterFactory,
+      BindingGraphPluginExecutor pluginExecutor,
       XFiler filer,
       DaggerTypes types,
       DaggerElements elements,
       CompilerOptions compilerOptions,
       @ProcessingOptions Map<String, String> processingOptions) {
     this.plugins = plugins;
-    this.diagnosticReporterFactory = diagnosticReporterFactory;
+    this.pluginExecutor = pluginExecutor;
     this.filer = filer;
     this.types = types;
     this.elements = elements;
@@ -91,16 +89,6 @@ public final class ValidationBindingGraphPlugins {
     boolean errorsAsWarnings =
         graph.isFullBindingGraph()
             && compilerOptions.fullBindingGraphValidationType().equals(ValidationType.WARNING);
-
-    boolean isClean = true;
-    for (BindingGraphPlugin plugin : plugins) {
-      DiagnosticReporterImpl reporter =
-          diagnosticReporterFactory.reporter(graph, plugin.pluginName(), errorsAsWarnings);
-      plugin.visitGraph(graph, reporter);
-      if (reporter.reportedDiagnosticKinds().contains(ERROR)) {
-        isClean = false;
-      }
-    }
-    return isClean;
+    return pluginExecutor.visitValidationPlugins(graph, plugins, errorsAsWarnings);
   }
 }
@@ -16,23 +16,79 @@
 
 package dagger.internal.codegen.writing;
 
+import static dagger.internal.codegen.javapoet.TypeNames.COUNTING_PROVIDER;
 import static dagger.internal.codegen.javapoet.TypeNames.DOUBLE_CHECK;
+import static dagger.internal.codegen.javapoet.TypeNames.MONITORED_PROVIDER;
+import static dagger.internal.codegen.javapoet.TypeNames.PROVISION_TOKEN;
+import static dagger.internal.codegen.javapoet.TypeNames.REENTRANT_LOCK_DOUBLE_CHECK;
 import static dagger.internal.codegen.javapoet.TypeNames.SINGLE_CHECK;
 
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import dagger.internal.codegen.binding.Binding;
+import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.writing.FrameworkFieldInitializer.FrameworkInstanceCreationExpression;
+import dagger.spi.model.Scope;
 
 /** Holds common methods for BindingRepresentations. */
 final class BindingRepresentations {
   static FrameworkInstanceCreationExpression scope(
-      Binding binding, FrameworkInstanceCreationExpression unscoped) {
+      Binding binding,
+      FrameworkInstanceCreationExpression unscoped,
+      CompilerOptions compilerOptions) {
     return () ->
         CodeBlock.of(
             "$T.provider($L)",
-            binding.scope().get().isReusable() ? SINGLE_CHECK : DOUBLE_CHECK,
+            scopedProviderType(binding.scope().get(), compilerOptions),
             unscoped.creationExpression());
   }
 
+  /**
+   * Returns an expression that memoizes the instances of {@code unscoped} like a {@link
+   * dagger.Reusable} binding.
+   */
+  static FrameworkInstanceCreationExpression singleCheck(
+      FrameworkInstanceCreationExpression unscoped) {
+    return () -> CodeBlock.of("$T.provider($L)", SINGLE_CHECK, unscoped.creationExpression());
+  }
+
+  /**
+   * Returns an expression that reports the provisions of {@code unmonitored} to the installed
+   * {@code ProvisionMonitor}.
+   */
+  static FrameworkInstanceCreationExpression monitored(
+      Binding binding, FrameworkInstanceCreationExpression unmonitored) {
+    return () ->
+        CodeBlock.of(
+            "$T.provider($L, $T.create($S))",
+            MONITORED_PROVIDER,
+            unmonitored.creationExpression(),
+            PROVISION_TOKEN,
+            binding.key().toString());
+  }
+
+  /**
+   * Returns an expression that adds one to the counter at {@code index} of {@code counters} for
+   * each instance that {@code uncounted} provides.
+   */
+  static FrameworkInstanceCreationExpression counted(
+      FrameworkInstanceCreationExpression uncounted, CodeBlock counters, int index) {
+    return () ->
+        CodeBlock.of(
+            "$T.provider($L, $L, $L)",
+            COUNTING_PROVIDER,
+            uncounted.creationExpression(),
+            counters,
+            index);
+  }
+
+  /** Returns the runtime class that memoizes the instances of a binding with the given scope. */
+  static ClassName scopedProviderType(Scope scope, CompilerOptions compilerOptions) {
+    if (scope.isReusable()) {
+      return SINGLE_CHECK;
+    }
+    return compilerOptions.reentrantLockDoubleCheck() ? REENTRANT_LOCK_DOUBLE_CHECK : DOUBLE_CHECK;
+  }
+
   private BindingRepresentations() {}
 }
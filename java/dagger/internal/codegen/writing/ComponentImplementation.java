@@ -26,6 +26,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.squareup.javapoet.MethodSpec.constructorBuilder;
 import static com.squareup.javapoet.MethodSpec.methodBuilder;
 import static com.squareup.javapoet.TypeSpec.classBuilder;
+import static dagger.internal.codegen.binding.BindingRequest.bindingRequest;
 import static dagger.internal.codegen.binding.ComponentCreatorKind.BUILDER;
 import static dagger.internal.codegen.binding.SourceFiles.simpleVariableName;
 import static dagger.internal.codegen.extension.DaggerStreams.instancesOf;
@@ -36,12 +37,16 @@ import static dagger.internal.codegen.javapoet.AnnotationSpecs.suppressWarnings;
 import static dagger.internal.codegen.javapoet.CodeBlocks.parameterNames;
 import static dagger.internal.codegen.langmodel.Accessibility.isTypeAccessibleFrom;
 import static dagger.internal.codegen.writing.ComponentImplementation.MethodSpecKind.COMPONENT_METHOD;
+import static dagger.internal.codegen.writing.ProducerFactoryGenerator.isAsyncDependency;
+import static dagger.internal.codegen.writing.ProducerFactoryGenerator.producerTokenConstruction;
+import static dagger.internal.codegen.writing.StaticHolderRequestRepresentation.usesStaticHolder;
 import static dagger.internal.codegen.xprocessing.XElements.getSimpleName;
 import static dagger.producers.CancellationPolicy.Propagation.PROPAGATE;
 import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.PUBLIC;
 import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.VOLATILE;
 import static javax.tools.Diagnostic.Kind.ERROR;
 
 import androidx.room.compiler.processing.XMessager;
@@ -59,11 +64,14 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.Sets;
+import com.google.common.graph.ImmutableNetwork;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import dagger.internal.Preconditions;
 import dagger.internal.codegen.base.UniqueNameSet;
@@ -71,6 +79,7 @@ import dagger.internal.codegen.binding.Binding;
 import dagger.internal.codegen.binding.BindingGraph;
 import dagger.internal.codegen.binding.BindingNode;
 import dagger.internal.codegen.binding.BindingRequest;
+import dagger.internal.codegen.binding.BindingType;
 import dagger.internal.codegen.binding.ComponentCreatorDescriptor;
 import dagger.internal.codegen.binding.ComponentCreatorKind;
 import dagger.internal.codegen.binding.ComponentDescriptor;
@@ -78,23 +87,34 @@ import dagger.internal.codegen.binding.ComponentDescriptor.ComponentMethodDescri
 import dagger.internal.codegen.binding.ComponentRequirement;
 import dagger.internal.codegen.binding.KeyVariableNamer;
 import dagger.internal.codegen.binding.MethodSignature;
+import dagger.internal.codegen.binding.ProductionBinding;
+import dagger.internal.codegen.binding.ProvisionBinding;
 import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.javapoet.CodeBlocks;
 import dagger.internal.codegen.javapoet.TypeNames;
 import dagger.internal.codegen.javapoet.TypeSpecs;
 import dagger.internal.codegen.langmodel.DaggerElements;
 import dagger.internal.codegen.langmodel.DaggerTypes;
+import dagger.spi.model.BindingGraph.DependencyEdge;
+import dagger.spi.model.BindingGraph.Edge;
 import dagger.spi.model.BindingGraph.Node;
+import dagger.spi.model.BindingKind;
+import dagger.spi.model.DependencyRequest;
 import dagger.spi.model.Key;
 import dagger.spi.model.RequestKind;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.lang.model.element.ExecutableElement;
@@ -120,6 +140,9 @@ public final class ComponentImplementation {
     /** A field required by the component, e.g. module instances. */
     COMPONENT_REQUIREMENT_FIELD,
 
+    /** The {@code ProvisionCounters} of a root component's bindings. */
+    PROVISION_COUNTERS_FIELD,
+
     /** A framework field for type T, e.g. {@code Provider<T>}. */
     FRAMEWORK_FIELD,
 
@@ -156,7 +179,19 @@ public final class ComponentImplementation {
      * The {@link dagger.producers.internal.CancellationListener#onProducerFutureCancelled(boolean)}
      * method for a production component.
      */
-    CANCELLATION_LISTENER_METHOD
+    CANCELLATION_LISTENER_METHOD,
+
+    /** The {@code warmUp(Executor)} method of a root component, and the methods it calls. */
+    WARM_UP_METHOD,
+
+    /**
+     * The {@code provisionCounts()} and {@code scopedInstances()} methods of a root component, and
+     * the methods they call.
+     */
+    INTROSPECTION_METHOD,
+
+    /** The {@code producerDependencies()} method of a production component. */
+    PRODUCER_DEPENDENCIES_METHOD
   }
 
   /** A type of nested class that this component can contain. */
@@ -174,13 +209,18 @@ public final class ComponentImplementation {
     COMPONENT_SHARD_TYPE,
 
     /** A class for the subcomponent or subcomponent builder. */
-    SUBCOMPONENT
+    SUBCOMPONENT,
+
+    /** A class that holds the instance of a binding in a static field. */
+    STATIC_HOLDER
   }
 
   /**
    * Returns the {@link ShardImplementation} for each binding in this graph.
    *
-   * <p>Each shard contains approximately {@link CompilerOptions#keysPerComponentShard()} bindings.
+   * <p>Each shard contains approximately {@link CompilerOptions#keysPerComponentShard} bindings,
+   * or, if {@link CompilerOptions#sizeAwareComponentShards()} is enabled, bindings whose {@linkplain
+   * #estimatedSize(Binding) estimated size} adds up to approximately that many typical bindings.
    *
    * <p>If more than 1 shard is needed, we iterate the strongly connected nodes to make sure of two
    * things: 1) bindings are put in shards in reverse topological order (i.e., bindings in Shard{i}
@@ -201,25 +241,42 @@ public final class ComponentImplementation {
   private static ImmutableList<ImmutableList<Binding>> bindingPartitions(
       BindingGraph graph, CompilerOptions compilerOptions) {
     int bindingsPerShard = compilerOptions.keysPerComponentShard(graph.componentTypeElement());
-    int maxPartitions = (graph.localBindingNodes().size() / bindingsPerShard) + 1;
+    ToIntFunction<Binding> bindingSize;
+    int sizePerShard;
+    if (compilerOptions.sizeAwareComponentShards()) {
+      bindingSize = ComponentImplementation::estimatedSize;
+      sizePerShard =
+          (int) Math.min((long) bindingsPerShard * TYPICAL_BINDING_SIZE, Integer.MAX_VALUE);
+    } else {
+      bindingSize = binding -> 1;
+      sizePerShard = bindingsPerShard;
+    }
+    int totalSize =
+        graph.localBindingNodes().stream().map(BindingNode::delegate).mapToInt(bindingSize).sum();
+    int maxPartitions = (totalSize / sizePerShard) + 1;
     if (maxPartitions <= 1) {
       return ImmutableList.of(
           graph.localBindingNodes().stream().map(BindingNode::delegate).collect(toImmutableList()));
     }
 
     // Iterate through all SCCs in order until all bindings local to this component are partitioned.
-    List<Binding> currPartition = new ArrayList<>(bindingsPerShard);
+    List<Binding> currPartition = new ArrayList<>();
+    int currPartitionSize = 0;
     ImmutableList.Builder<ImmutableList<Binding>> partitions =
         ImmutableList.builderWithExpectedSize(maxPartitions);
     for (ImmutableSet<Node> nodes : graph.topLevelBindingGraph().stronglyConnectedNodes()) {
-      nodes.stream()
-          .flatMap(instancesOf(BindingNode.class))
-          .filter(bindingNode -> bindingNode.componentPath().equals(graph.componentPath()))
-          .map(BindingNode::delegate)
-          .forEach(currPartition::add);
-      if (currPartition.size() >= bindingsPerShard) {
+      ImmutableList<Binding> bindings =
+          nodes.stream()
+              .flatMap(instancesOf(BindingNode.class))
+              .filter(bindingNode -> bindingNode.componentPath().equals(graph.componentPath()))
+              .map(BindingNode::delegate)
+              .collect(toImmutableList());
+      currPartition.addAll(bindings);
+      currPartitionSize += bindings.stream().mapToInt(bindingSize).sum();
+      if (currPartitionSize >= sizePerShard) {
         partitions.add(ImmutableList.copyOf(currPartition));
-        currPartition = new ArrayList<>(bindingsPerShard);
+        currPartition = new ArrayList<>();
+        currPartitionSize = 0;
       }
     }
     if (!currPartition.isEmpty()) {
@@ -228,12 +285,52 @@ public final class ComponentImplementation {
     return partitions.build();
   }
 
+  /**
+   * The {@linkplain #estimatedSize(Binding) estimated size} of a typical binding: an unscoped
+   * provision with two dependencies.
+   */
+  private static final int TYPICAL_BINDING_SIZE = 4;
+
+  /**
+   * Returns an estimate of the size of the code that a shard contains for {@code binding}, in
+   * units of roughly one field, statement or argument.
+   *
+   * <p>Every binding costs a framework field and the statement that initializes it, and each of
+   * its dependencies adds an argument to that statement. Map contributions also need an expression
+   * for their key, scoped bindings are wrapped in a {@code DoubleCheck}, and production bindings
+   * also need a statement to cancel them.
+   */
+  private static int estimatedSize(Binding binding) {
+    int dependencies = binding.dependencies().size();
+    int size = 2 + dependencies;
+    if (binding.kind().equals(BindingKind.MULTIBOUND_MAP)) {
+      size += dependencies;
+    }
+    if (binding.scope().isPresent()) {
+      size += 1;
+    }
+    if (binding.bindingType().equals(BindingType.PRODUCTION)) {
+      size += 1;
+    }
+    return size;
+  }
+
   /** The boolean parameter of the onProducerFutureCancelled method. */
   public static final ParameterSpec MAY_INTERRUPT_IF_RUNNING_PARAM =
       ParameterSpec.builder(boolean.class, "mayInterruptIfRunning").build();
 
   private static final String CANCELLATION_LISTENER_METHOD_NAME = "onProducerFutureCancelled";
 
+  private static final String WARM_UP_METHOD_NAME = "warmUp";
+
+  private static final ClassName WARM_UP_BUILDER = TypeNames.WARM_UP.nestedClass("Builder");
+
+  private static final String PROVISION_COUNTS_METHOD_NAME = "provisionCounts";
+
+  private static final String SCOPED_INSTANCES_METHOD_NAME = "scopedInstances";
+
+  private static final String PRODUCER_DEPENDENCIES_METHOD_NAME = "producerDependencies";
+
   /**
    * How many statements per {@code initialize()} or {@code onProducerFutureCancelled()} method
    * before they get partitioned.
@@ -243,8 +340,11 @@ public final class ComponentImplementation {
   private final ShardImplementation componentShard;
   private final ImmutableMap<Binding, ShardImplementation> shardsByBinding;
   private final Map<ShardImplementation, FieldSpec> shardFieldsByImplementation = new HashMap<>();
+  private final Map<ShardImplementation, String> shardMethodNamesByImplementation =
+      new HashMap<>();
   private final List<CodeBlock> shardInitializations = new ArrayList<>();
   private final List<CodeBlock> shardCancellations = new ArrayList<>();
+  private Optional<FieldSpec> shardsCancelledField = Optional.empty();
   private final Optional<ComponentImplementation> parent;
   private final ChildComponentImplementationFactory childComponentImplementationFactory;
   private final Provider<ComponentRequestRepresentations> bindingExpressionsProvider;
@@ -256,7 +356,14 @@ public final class ComponentImplementation {
   private final DaggerTypes types;
   private final ImmutableMap<ComponentImplementation, FieldSpec> componentFieldsByImplementation;
   private final XMessager messager;
+  private final CompilerOptions compilerOptions;
   private final boolean isFastInit;
+  private final boolean lazyShards;
+  private final boolean generateWarmUpMethod;
+  private final boolean generateIntrospectionMethods;
+  private final boolean writeProducerDependencies;
+  private final ImmutableMap<Binding, Integer> provisionCounterIndices;
+  private final Optional<FieldSpec> provisionCountersField;
 
   @Inject
   ComponentImplementation(
@@ -288,6 +395,21 @@ public final class ComponentImplementation {
     elements
         .getLocalAndInheritedMethods(toJavac(graph.componentTypeElement()))
         .forEach(method -> componentShard.componentMethodNames.claim(method.getSimpleName()));
+    this.generateWarmUpMethod = compilerOptions.generateWarmUpMethod() && !parent.isPresent();
+    if (generateWarmUpMethod) {
+      componentShard.claimMethodName(WARM_UP_METHOD_NAME);
+    }
+    this.generateIntrospectionMethods =
+        compilerOptions.generateIntrospectionMethods() && !parent.isPresent();
+    if (generateIntrospectionMethods) {
+      componentShard.claimMethodName(PROVISION_COUNTS_METHOD_NAME);
+      componentShard.claimMethodName(SCOPED_INSTANCES_METHOD_NAME);
+    }
+    this.writeProducerDependencies =
+        compilerOptions.writeProducerDependencies() && graph.componentDescriptor().isProduction();
+    if (writeProducerDependencies) {
+      componentShard.claimMethodName(PRODUCER_DEPENDENCIES_METHOD_NAME);
+    }
 
     // Create the shards for this component, indexed by binding.
     this.shardsByBinding = createShardsByBinding(componentShard, graph, compilerOptions);
@@ -296,8 +418,30 @@ public final class ComponentImplementation {
     this.componentFieldsByImplementation =
         createComponentFieldsByImplementation(this, compilerOptions);
     this.messager = messager;
+    this.compilerOptions = compilerOptions;
     this.isFastInit =
         compilerOptions.fastInit(rootComponentImplementation().componentDescriptor().typeElement());
+    this.lazyShards = compilerOptions.lazyComponentShards();
+
+    // Number the counted bindings, and create the counters for them.
+    this.provisionCounterIndices =
+        generateIntrospectionMethods
+            ? countedBindings(graph, compilerOptions)
+            : ImmutableMap.of();
+    this.provisionCountersField =
+        generateIntrospectionMethods
+            ? Optional.of(
+                FieldSpec.builder(
+                        TypeNames.PROVISION_COUNTERS,
+                        componentShard.getUniqueFieldName("provisionCounters"),
+                        PRIVATE,
+                        FINAL)
+                    .initializer(
+                        "new $T($L)", TypeNames.PROVISION_COUNTERS, provisionCounterIndices.size())
+                    .build())
+            : Optional.empty();
+    provisionCountersField.ifPresent(
+        field -> componentShard.addField(FieldSpecKind.PROVISION_COUNTERS_FIELD, field));
   }
 
   /**
@@ -310,6 +454,19 @@ public final class ComponentImplementation {
     return shardsByBinding.get(binding);
   }
 
+  /**
+   * Returns the index of the counter of {@code binding} in the component's {@code
+   * ProvisionCounters}, if the component counts the instances that the binding provides.
+   */
+  Optional<Integer> provisionCounterIndex(Binding binding) {
+    return Optional.ofNullable(provisionCounterIndices.get(binding));
+  }
+
+  /** Returns a reference to the component's {@code ProvisionCounters}. */
+  CodeBlock provisionCountersReference() {
+    return CodeBlock.of("$L.$N", componentFieldReference(), provisionCountersField.get());
+  }
+
   /** Returns the root {@link ComponentImplementation}. */
   ComponentImplementation rootComponentImplementation() {
     return parent.map(ComponentImplementation::rootComponentImplementation).orElse(this);
@@ -432,7 +589,7 @@ public final class ComponentImplementation {
     private final UniqueNameSet componentClassNames = new UniqueNameSet();
     private final UniqueNameSet assistedParamNames = new UniqueNameSet();
     private final List<CodeBlock> initializations = new ArrayList<>();
-    private final Map<Key, CodeBlock> cancellations = new LinkedHashMap<>();
+    private final Map<Object, CodeBlock> cancellations = new LinkedHashMap<>();
     private final Map<VariableElement, String> uniqueAssistedName = new LinkedHashMap<>();
     private final List<CodeBlock> componentRequirementInitializations = new ArrayList<>();
     private final ImmutableMap<ComponentRequirement, ParameterSpec> constructorParameters;
@@ -494,15 +651,24 @@ public final class ComponentImplementation {
         // Add the shard if this is the first time it's requested by something.
         String shardFieldName =
             componentShard.getUniqueFieldName(UPPER_CAMEL.to(LOWER_CAMEL, name.simpleName()));
-        FieldSpec shardField = FieldSpec.builder(name, shardFieldName, PRIVATE).build();
-
-        shardFieldsByImplementation.put(this, shardField);
+        FieldSpec.Builder shardField = FieldSpec.builder(name, shardFieldName, PRIVATE);
+        if (lazyShards) {
+          // Lazy shards are created by a method on the component, the first time they're needed.
+          shardField.addModifiers(VOLATILE);
+          shardMethodNamesByImplementation.put(
+              this, componentShard.getUniqueMethodName(shardFieldName));
+        }
+        shardFieldsByImplementation.put(this, shardField.build());
       }
       // TODO(bcorso): This currently relies on all requesting classes having a reference to the
       // component with the same name, which is kind of sketchy. Try to think of a better way that
       // can accomodate the component missing in some classes if it's not used.
-      return isComponentShard()
-          ? componentFieldReference()
+      if (isComponentShard()) {
+        return componentFieldReference();
+      }
+      return lazyShards
+          ? CodeBlock.of(
+              "$L.$N()", componentFieldReference(), shardMethodNamesByImplementation.get(this))
           : CodeBlock.of("$L.$N", componentFieldReference(), shardFieldsByImplementation.get(this));
     }
 
@@ -576,6 +742,14 @@ public final class ComponentImplementation {
       cancellations.putIfAbsent(key, codeBlock);
     }
 
+    /**
+     * Adds the given cancellation statement for an instance of {@code nestedClass}, such as a
+     * production state machine, which cancels the producers of several keys.
+     */
+    void addCancellation(ClassName nestedClass, CodeBlock codeBlock) {
+      cancellations.putIfAbsent(nestedClass, codeBlock);
+    }
+
     /** Returns a new, unique field name for the component based on the given name. */
     String getUniqueFieldName(String name) {
       return componentFieldNames.getUniqueName(name);
@@ -653,6 +827,16 @@ public final class ComponentImplementation {
         addCreator();
         addFactoryMethods();
         addInterfaceMethods();
+        if (generateWarmUpMethod) {
+          addWarmUpMethod();
+        }
+        if (generateIntrospectionMethods) {
+          addIntrospectionMethods();
+        }
+        if (writeProducerDependencies) {
+          builder.addSuperinterface(TypeNames.PRODUCER_DEPENDENCIES);
+          addProducerDependenciesMethod();
+        }
         addChildComponents();
         addShards();
       }
@@ -818,6 +1002,235 @@ public final class ComponentImplementation {
       }
     }
 
+    /**
+     * Adds a {@code warmUp(Executor)} method that creates each cached scoped binding of the
+     * component on the given executor after the scoped bindings it depends on, and returns a {@link
+     * Future} that completes when all of them have been created.
+     */
+    private void addWarmUpMethod() {
+      checkState(isComponentShard() && !parent.isPresent());
+      validateMethodNameDoesNotOverrideGeneratedMethod(WARM_UP_METHOD_NAME, 1, "Executor");
+
+      ImmutableMap<Binding, ImmutableList<Integer>> warmUpBindings = warmUpBindings(graph);
+      ParameterSpec builderParameter = ParameterSpec.builder(WARM_UP_BUILDER, "builder").build();
+      List<CodeBlock> statements = new ArrayList<>();
+      warmUpBindings.forEach(
+          (binding, dependencies) -> {
+            CodeBlock.Builder arguments =
+                CodeBlock.builder()
+                    .add(
+                        bindingExpressionsProvider
+                            .get()
+                            .getDependencyExpression(
+                                bindingRequest(binding.key(), RequestKind.PROVIDER), name)
+                            .codeBlock());
+            dependencies.forEach(dependency -> arguments.add(", $L", dependency));
+            statements.add(CodeBlock.of("$N.add($L);", builderParameter, arguments.build()));
+          });
+
+      ParameterSpec executorParameter = ParameterSpec.builder(Executor.class, "executor").build();
+      MethodSpec.Builder method =
+          methodBuilder(WARM_UP_METHOD_NAME)
+              .addModifiers(PUBLIC)
+              .returns(ParameterizedTypeName.get(Future.class, Void.class))
+              .addParameter(executorParameter)
+              .addStatement(
+                  "$T $N = $T.builder($L)",
+                  WARM_UP_BUILDER,
+                  builderParameter,
+                  TypeNames.WARM_UP,
+                  warmUpBindings.size());
+      addPartitionedStatements(
+          method, WARM_UP_METHOD_NAME, builderParameter, statements, MethodSpecKind.WARM_UP_METHOD);
+      method.addStatement("return $N.start($N)", builderParameter, executorParameter);
+      addMethod(MethodSpecKind.WARM_UP_METHOD, method.build());
+    }
+
+    /**
+     * Adds a {@code provisionCounts()} method that returns how many instances each counted binding
+     * of the component has provided, and a {@code scopedInstances()} method that returns the
+     * instances of the component's scoped bindings that have already been created, both by the
+     * bindings' keys.
+     */
+    private void addIntrospectionMethods() {
+      checkState(isComponentShard() && !parent.isPresent());
+      validateMethodNameDoesNotOverrideGeneratedMethod(PROVISION_COUNTS_METHOD_NAME, 0, "");
+      validateMethodNameDoesNotOverrideGeneratedMethod(SCOPED_INSTANCES_METHOD_NAME, 0, "");
+
+      ParameterSpec countsParameter = mapBuilderParameter(TypeName.LONG.box(), "counts");
+      List<CodeBlock> countStatements = new ArrayList<>();
+      provisionCounterIndices.forEach(
+          (binding, index) ->
+              countStatements.add(
+                  CodeBlock.of(
+                      "$N.put($S, $N.count($L));",
+                      countsParameter,
+                      binding.key().toString(),
+                      provisionCountersField.get(),
+                      index)));
+      addIntrospectionMethod(PROVISION_COUNTS_METHOD_NAME, countsParameter, countStatements);
+
+      ParameterSpec instancesParameter = mapBuilderParameter(TypeName.OBJECT, "instances");
+      List<CodeBlock> instanceStatements = new ArrayList<>();
+      for (Binding binding : warmUpBindings(graph).keySet()) {
+        // Instances held by static holders belong to the class rather than the component.
+        if (usesStaticHolder((ProvisionBinding) binding, graph, compilerOptions)) {
+          continue;
+        }
+        instanceStatements.add(
+            CodeBlock.of(
+                "$T.putIfCreated($N, $S, $L);",
+                TypeNames.SCOPED_INSTANCES,
+                instancesParameter,
+                binding.key().toString(),
+                bindingExpressionsProvider
+                    .get()
+                    .getDependencyExpression(
+                        bindingRequest(binding.key(), RequestKind.PROVIDER), name)
+                    .codeBlock()));
+      }
+      addIntrospectionMethod(SCOPED_INSTANCES_METHOD_NAME, instancesParameter, instanceStatements);
+    }
+
+    private ParameterSpec mapBuilderParameter(TypeName valueType, String name) {
+      return ParameterSpec.builder(
+              ParameterizedTypeName.get(TypeNames.MAP_BUILDER, TypeName.get(String.class), valueType),
+              name)
+          .build();
+    }
+
+    /**
+     * Adds a method that puts entries into a {@code MapBuilder} with {@code statements} and returns
+     * the map.
+     */
+    private void addIntrospectionMethod(
+        String methodName, ParameterSpec builderParameter, List<CodeBlock> statements) {
+      ParameterizedTypeName builderType = (ParameterizedTypeName) builderParameter.type;
+      MethodSpec.Builder method =
+          methodBuilder(methodName)
+              .addModifiers(PUBLIC)
+              .returns(
+                  ParameterizedTypeName.get(
+                      ClassName.get(Map.class), builderType.typeArguments.toArray(new TypeName[0])))
+              .addStatement(
+                  "$T $N = $T.newMapBuilder($L)",
+                  builderType,
+                  builderParameter,
+                  TypeNames.MAP_BUILDER,
+                  statements.size());
+      addPartitionedStatements(
+          method, methodName, builderParameter, statements, MethodSpecKind.INTROSPECTION_METHOD);
+      method.addStatement("return $N.build()", builderParameter);
+      addMethod(MethodSpecKind.INTROSPECTION_METHOD, method.build());
+    }
+
+    /**
+     * Adds {@code statements} to {@code method}, or to methods of {@code kind} that take {@code
+     * parameter} and that {@code method} calls, if there are too many of them for one method.
+     */
+    private void addPartitionedStatements(
+        MethodSpec.Builder method,
+        String methodName,
+        ParameterSpec parameter,
+        List<CodeBlock> statements,
+        MethodSpecKind kind) {
+      if (statements.size() < STATEMENTS_PER_METHOD) {
+        method.addCode(CodeBlocks.concat(statements));
+        return;
+      }
+      for (MethodSpec partitionMethod :
+          createPartitionedMethods(
+              methodName, ImmutableList.of(parameter), statements, MethodSpec::methodBuilder)) {
+        method.addStatement("$N($N)", partitionMethod, parameter);
+        addMethod(kind, partitionMethod);
+      }
+    }
+
+    /**
+     * Adds a {@code producerDependencies()} method that returns the token of each {@code @Produces}
+     * binding resolved in the component, mapped to the tokens of the {@code @Produces} bindings
+     * that it waits on.
+     */
+    private void addProducerDependenciesMethod() {
+      checkState(isComponentShard());
+      validateMethodNameDoesNotOverrideGeneratedMethod(PRODUCER_DEPENDENCIES_METHOD_NAME, 0, "");
+
+      TypeName tokenSetType =
+          ParameterizedTypeName.get(ClassName.get(Set.class), TypeNames.PRODUCER_TOKEN);
+      ParameterSpec dependenciesParameter =
+          ParameterSpec.builder(
+                  ParameterizedTypeName.get(
+                      TypeNames.MAP_BUILDER, TypeNames.PRODUCER_TOKEN, tokenSetType),
+                  "dependencies")
+              .build();
+      List<CodeBlock> statements = new ArrayList<>();
+      producerDependencies(graph)
+          .forEach(
+              (binding, dependencies) ->
+                  statements.add(
+                      CodeBlock.of(
+                          "$N.put($L, $L);",
+                          dependenciesParameter,
+                          producerTokenConstruction(binding, compilerOptions),
+                          producerTokenSet(dependencies))));
+
+      MethodSpec.Builder method =
+          methodBuilder(PRODUCER_DEPENDENCIES_METHOD_NAME)
+              .addAnnotation(Override.class)
+              .addModifiers(PUBLIC)
+              .returns(
+                  ParameterizedTypeName.get(
+                      ClassName.get(Map.class), TypeNames.PRODUCER_TOKEN, tokenSetType))
+              .addStatement(
+                  "$T $N = $T.newMapBuilder($L)",
+                  dependenciesParameter.type,
+                  dependenciesParameter,
+                  TypeNames.MAP_BUILDER,
+                  statements.size());
+      addPartitionedStatements(
+          method,
+          PRODUCER_DEPENDENCIES_METHOD_NAME,
+          dependenciesParameter,
+          statements,
+          MethodSpecKind.PRODUCER_DEPENDENCIES_METHOD);
+      method.addStatement("return $N.build()", dependenciesParameter);
+      addMethod(MethodSpecKind.PRODUCER_DEPENDENCIES_METHOD, method.build());
+    }
+
+    private CodeBlock producerTokenSet(ImmutableSet<ProductionBinding> bindings) {
+      if (bindings.isEmpty()) {
+        return CodeBlock.of("$T.<$T>emptySet()", Collections.class, TypeNames.PRODUCER_TOKEN);
+      }
+      CodeBlock.Builder set =
+          CodeBlock.builder()
+              .add(
+                  "$T.<$T>newSetBuilder($L)",
+                  TypeNames.SET_BUILDER,
+                  TypeNames.PRODUCER_TOKEN,
+                  bindings.size());
+      for (ProductionBinding binding : bindings) {
+        set.add(".add($L)", producerTokenConstruction(binding, compilerOptions));
+      }
+      return set.add(".build()").build();
+    }
+
+    private void validateMethodNameDoesNotOverrideGeneratedMethod(
+        String methodName, int parameterCount, String parameters) {
+      MoreElements.getAllMethods(toJavac(graph.componentTypeElement()), types, elements).stream()
+          .filter(method -> method.getSimpleName().contentEquals(methodName))
+          .filter(method -> method.getParameters().size() == parameterCount)
+          .filter(method -> !method.getModifiers().contains(Modifier.STATIC))
+          .forEach(
+              (ExecutableElement method) ->
+                  messager.printMessage(
+                      ERROR,
+                      String.format(
+                          "Cannot override generated method: %s.%s(%s)",
+                          method.getEnclosingElement().getSimpleName(),
+                          method.getSimpleName(),
+                          parameters)));
+    }
+
     private void addChildComponents() {
       for (BindingGraph subgraph : graph.subgraphs()) {
         rootComponentImplementation()
@@ -835,10 +1248,73 @@ public final class ComponentImplementation {
           addField(FieldSpecKind.COMPONENT_SHARD_FIELD, shardFieldsByImplementation.get(shard));
           TypeSpec shardTypeSpec = shard.generate();
           addType(TypeSpecKind.COMPONENT_SHARD_TYPE, shardTypeSpec);
+          if (lazyShards) {
+            addMethod(MethodSpecKind.PRIVATE_METHOD, lazyShardMethod(shard));
+          }
         }
       }
     }
 
+    /**
+     * Returns the method that creates {@code shard} the first time that it's called, using
+     * double-checked locking on the component so that a shard is never created twice.
+     *
+     * <p>Creating a shard may create the shards that it depends on, which are guaranteed to come
+     * before it in the reverse topological order of the shards, so this never recurses into a shard
+     * that is already being created.
+     */
+    private MethodSpec lazyShardMethod(ShardImplementation shard) {
+      FieldSpec shardField = shardFieldsByImplementation.get(shard);
+      CodeBlock componentArgs = parameterNames(constructorParameters.values().asList());
+      MethodSpec.Builder method =
+          methodBuilder(shardMethodNamesByImplementation.get(shard))
+              .addModifiers(PRIVATE)
+              .returns(shard.name)
+              .addStatement("$T local = $N", shard.name, shardField)
+              .beginControlFlow("if (local == null)");
+      boolean isCancellable = !shard.cancellations.isEmpty();
+      if (isCancellable) {
+        method.addStatement("$T cancelled", Boolean.class);
+      }
+      method
+          .beginControlFlow("synchronized (this)")
+          .addStatement("local = $N", shardField)
+          .beginControlFlow("if (local != null)")
+          .addStatement("return local")
+          .endControlFlow()
+          .addStatement("local = new $T($L)", shard.name, componentArgs)
+          .addStatement("$N = local", shardField);
+      if (isCancellable) {
+        method.addStatement("cancelled = $N", shardsCancelledField());
+      }
+      method.endControlFlow();
+      if (isCancellable) {
+        // A shard that is created after the component was cancelled must be cancelled, too.
+        method
+            .beginControlFlow("if (cancelled != null)")
+            .addStatement("local.$N(cancelled)", CANCELLATION_LISTENER_METHOD_NAME)
+            .endControlFlow();
+      }
+      return method.endControlFlow().addStatement("return local").build();
+    }
+
+    /**
+     * Returns the field that records whether a production component with lazy shards has been
+     * cancelled, and if so, the value of {@code mayInterruptIfRunning}.
+     */
+    private FieldSpec shardsCancelledField() {
+      if (!shardsCancelledField.isPresent()) {
+        FieldSpec field =
+            FieldSpec.builder(
+                    Boolean.class, componentShard.getUniqueFieldName("shardsCancelled"), PRIVATE)
+                .addModifiers(VOLATILE)
+                .build();
+        addField(FieldSpecKind.COMPONENT_SHARD_FIELD, field);
+        shardsCancelledField = Optional.of(field);
+      }
+      return shardsCancelledField.get();
+    }
+
     /** Creates and adds the constructor and methods needed for initializing the component. */
     private void addConstructorAndInitializationMethods() {
       MethodSpec.Builder constructor = constructorBuilder().addModifiers(PRIVATE);
@@ -864,6 +1340,15 @@ public final class ComponentImplementation {
                   }
                 });
         constructor.addCode(CodeBlocks.concat(componentRequirementInitializations));
+        if (lazyShards && !shardFieldsByImplementation.isEmpty()) {
+          // Keep the constructor parameters, since the shards are created after the constructor.
+          for (ParameterSpec parameter : parameters) {
+            addField(
+                FieldSpecKind.COMPONENT_REQUIREMENT_FIELD,
+                FieldSpec.builder(parameter.type, parameter.name, PRIVATE, FINAL).build());
+            constructor.addStatement("this.$1N = $1N", parameter);
+          }
+        }
       }
       constructor.addParameters(parameters);
 
@@ -906,7 +1391,10 @@ public final class ComponentImplementation {
         CodeBlock componentArgs =
             parameterNames(componentShard.constructorParameters.values().asList());
         FieldSpec shardField = shardFieldsByImplementation.get(this);
-        shardInitializations.add(CodeBlock.of("$N = new $T($L);", shardField, name, componentArgs));
+        if (!lazyShards) {
+          shardInitializations.add(
+              CodeBlock.of("$N = new $T($L);", shardField, name, componentArgs));
+        }
       }
 
       addMethod(MethodSpecKind.CONSTRUCTOR, constructor.build());
@@ -929,15 +1417,36 @@ public final class ComponentImplementation {
       // propagate through most of the graph, making most of the cancel calls that follow in the
       // onProducerFutureCancelled method do nothing.
       if (isComponentShard()) {
+        shardsCancelledField.ifPresent(
+            field ->
+                methodBuilder
+                    .beginControlFlow("synchronized (this)")
+                    .addStatement("$N = $N", field, MAY_INTERRUPT_IF_RUNNING_PARAM)
+                    .endControlFlow());
         methodBuilder.addCode(
             CodeBlocks.concat(ImmutableList.copyOf(shardCancellations).reverse()));
       } else if (!cancellations.isEmpty()) {
-        shardCancellations.add(
-            CodeBlock.of(
-                "$N.$N($N);",
-                shardFieldsByImplementation.get(this),
-                CANCELLATION_LISTENER_METHOD_NAME,
-                MAY_INTERRUPT_IF_RUNNING_PARAM));
+        FieldSpec shardField = shardFieldsByImplementation.get(this);
+        if (lazyShards) {
+          // A lazy shard that hasn't been created yet has nothing to cancel.
+          shardCancellations.add(
+              CodeBlock.builder()
+                  .beginControlFlow("if ($N != null)", shardField)
+                  .addStatement(
+                      "$N.$N($N)",
+                      shardField,
+                      CANCELLATION_LISTENER_METHOD_NAME,
+                      MAY_INTERRUPT_IF_RUNNING_PARAM)
+                  .endControlFlow()
+                  .build());
+        } else {
+          shardCancellations.add(
+              CodeBlock.of(
+                  "$N.$N($N);",
+                  shardField,
+                  CANCELLATION_LISTENER_METHOD_NAME,
+                  MAY_INTERRUPT_IF_RUNNING_PARAM));
+        }
       }
 
       ImmutableList<CodeBlock> cancellationStatements =
@@ -1013,6 +1522,146 @@ public final class ComponentImplementation {
     }
   }
 
+  /**
+   * Returns the provision bindings of {@code graph} that are cached in the component, in the order
+   * in which they should be created, each mapped to the indices in that order of the nearest cached
+   * bindings that it depends on directly or through uncached bindings.
+   *
+   * <p>Only {@link RequestKind#INSTANCE} dependencies are followed, since those are the only ones
+   * that create the dependency's instance when the binding is created.
+   */
+  private static ImmutableMap<Binding, ImmutableList<Integer>> warmUpBindings(BindingGraph graph) {
+    ImmutableNetwork<Node, Edge> network = graph.topLevelBindingGraph().network();
+    // The strongly connected nodes are in reverse topological order, so the dependencies of each
+    // node are visited before it, except for those in the same cycle, which must be requested
+    // lazily anyway.
+    Map<Node, ImmutableSet<Node>> nearestCachedDependencies = new HashMap<>();
+    Map<Binding, Integer> indices = new LinkedHashMap<>();
+    ImmutableMap.Builder<Binding, ImmutableList<Integer>> warmUpBindings = ImmutableMap.builder();
+    for (ImmutableSet<Node> nodes : graph.topLevelBindingGraph().stronglyConnectedNodes()) {
+      for (Node node : nodes) {
+        if (!node.componentPath().equals(graph.componentPath())
+            || !(node instanceof BindingNode)) {
+          continue;
+        }
+        Set<Node> cachedDependencies = new LinkedHashSet<>();
+        for (Edge edge : network.outEdges(node)) {
+          if (edge instanceof DependencyEdge
+              && ((DependencyEdge) edge).dependencyRequest().kind().equals(RequestKind.INSTANCE)) {
+            Node dependency = network.incidentNodes(edge).target();
+            if (dependency instanceof BindingNode
+                && indices.containsKey(((BindingNode) dependency).delegate())) {
+              cachedDependencies.add(dependency);
+            } else {
+              cachedDependencies.addAll(
+                  nearestCachedDependencies.getOrDefault(dependency, ImmutableSet.of()));
+            }
+          }
+        }
+        Binding binding = ((BindingNode) node).delegate();
+        if (binding instanceof ProvisionBinding
+            && ProvisionBindingRepresentation.needsCaching((ProvisionBinding) binding, graph)) {
+          warmUpBindings.put(
+              binding,
+              cachedDependencies.stream()
+                  .map(dependency -> indices.get(((BindingNode) dependency).delegate()))
+                  .sorted()
+                  .collect(toImmutableList()));
+          indices.put(binding, indices.size());
+        } else if (!cachedDependencies.isEmpty()) {
+          nearestCachedDependencies.put(node, ImmutableSet.copyOf(cachedDependencies));
+        }
+      }
+    }
+    return warmUpBindings.build();
+  }
+
+  /**
+   * Returns the {@code @Produces} bindings resolved in the component, each mapped to the
+   * {@code @Produces} bindings that it waits on. Dependencies on delegate, multibinding and
+   * optional bindings are replaced by the {@code @Produces} bindings they wait on.
+   */
+  private static ImmutableMap<ProductionBinding, ImmutableSet<ProductionBinding>>
+      producerDependencies(BindingGraph graph) {
+    ImmutableNetwork<Node, Edge> network = graph.topLevelBindingGraph().network();
+    ImmutableMap.Builder<ProductionBinding, ImmutableSet<ProductionBinding>> producerDependencies =
+        ImmutableMap.builder();
+    for (Node node : network.nodes()) {
+      if (!node.componentPath().equals(graph.componentPath())
+          || !(node instanceof BindingNode)
+          || !((BindingNode) node).delegate().kind().equals(BindingKind.PRODUCTION)) {
+        continue;
+      }
+      Set<ProductionBinding> dependencies = new LinkedHashSet<>();
+      addProducerDependencies(network, node, dependencies);
+      producerDependencies.put(
+          (ProductionBinding) ((BindingNode) node).delegate(), ImmutableSet.copyOf(dependencies));
+    }
+    return producerDependencies.build();
+  }
+
+  private static void addProducerDependencies(
+      ImmutableNetwork<Node, Edge> network, Node node, Set<ProductionBinding> dependencies) {
+    Map<DependencyRequest, Node> dependencyNodes = new HashMap<>();
+    for (Edge edge : network.outEdges(node)) {
+      if (edge instanceof DependencyEdge) {
+        dependencyNodes.put(
+            ((DependencyEdge) edge).dependencyRequest(), network.incidentNodes(edge).target());
+      }
+    }
+    // Follow the binding's dependencies in order, so that the generated code is stable.
+    for (DependencyRequest request : ((BindingNode) node).delegate().dependencies()) {
+      Node dependency = dependencyNodes.get(request);
+      // Producer and Provider dependencies don't hold up the producer, so they aren't followed.
+      if (!isAsyncDependency(request) || !(dependency instanceof BindingNode)) {
+        continue;
+      }
+      Binding binding = ((BindingNode) dependency).delegate();
+      switch (binding.kind()) {
+        case PRODUCTION:
+          dependencies.add((ProductionBinding) binding);
+          break;
+        case DELEGATE:
+        case MULTIBOUND_SET:
+        case MULTIBOUND_MAP:
+        case OPTIONAL:
+          addProducerDependencies(network, dependency, dependencies);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Returns the {@code @Inject} and {@code @Provides} bindings of {@code graph} that are resolved in
+   * its component, each mapped to the index of its counter.
+   *
+   * <p>Bindings whose instances are held by static holders are not counted, since the holders don't
+   * use the component's providers.
+   */
+  private static ImmutableMap<Binding, Integer> countedBindings(
+      BindingGraph graph, CompilerOptions compilerOptions) {
+    Map<Binding, Integer> indices = new LinkedHashMap<>();
+    for (Node node : graph.topLevelBindingGraph().network().nodes()) {
+      if (!node.componentPath().equals(graph.componentPath()) || !(node instanceof BindingNode)) {
+        continue;
+      }
+      Binding binding = ((BindingNode) node).delegate();
+      switch (binding.kind()) {
+        case INJECTION:
+        case PROVISION:
+          if (!usesStaticHolder((ProvisionBinding) binding, graph, compilerOptions)) {
+            indices.put(binding, indices.size());
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return ImmutableMap.copyOf(indices);
+  }
+
   private static ImmutableList<ComponentRequirement> constructorRequirements(BindingGraph graph) {
     if (graph.componentDescriptor().hasCreator()) {
       return graph.componentRequirements().asList();
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.writing;
+
+import static com.google.auto.common.MoreTypes.asTypeElement;
+import static dagger.internal.codegen.binding.MapKeys.unwrapValue;
+import static java.util.Comparator.comparingInt;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import dagger.internal.codegen.base.MapType;
+import dagger.internal.codegen.binding.ContributionBinding;
+import dagger.internal.codegen.compileroption.CompilerOptions;
+import dagger.internal.codegen.javapoet.TypeNames;
+import dagger.internal.codegen.langmodel.DaggerElements;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * How a multibound map stores its keys, when it is one of the maps in {@code dagger.internal} that
+ * look up their keys without a {@link java.util.HashMap}: {@code IntKeyMap}, {@code LongKeyMap},
+ * {@code StringKeyMap} or {@code ClassKeyMap}.
+ */
+@AutoValue
+abstract class IndexedMapLayout {
+  /**
+   * The most displacements that are tried for a bucket of a hash table before giving up on a
+   * perfect hash table for the map.
+   */
+  private static final int MAX_DISPLACEMENT_ATTEMPTS = 1 << 16;
+
+  /** The class of the map. */
+  abstract ClassName mapClass();
+
+  /**
+   * The name of the methods of {@code MapFactory} and {@code MapProviderFactory} that return a
+   * builder of a factory of the map.
+   */
+  abstract String factoryBuilderMethod();
+
+  /** Whether the builder methods take the type of the keys as a type argument. */
+  abstract boolean hasKeyTypeArgument();
+
+  /** The displacements of the map's hash table, if the map is a hash table. */
+  abstract Optional<ImmutableList<Integer>> displacements();
+
+  /** Returns the arguments of a builder method of the map for {@code size} entries. */
+  final CodeBlock builderArguments(int size) {
+    return displacements().isPresent()
+        ? CodeBlock.of("$L, new int[] {$L}", size, Joiner.on(", ").join(displacements().get()))
+        : CodeBlock.of("$L", size);
+  }
+
+  /**
+   * Returns the layout of a multibound map of {@code mapType} with {@code contributions}, if the
+   * map should be one of the maps that look up their keys without a {@link java.util.HashMap}.
+   */
+  static Optional<IndexedMapLayout> forMap(
+      MapType mapType,
+      ImmutableList<ContributionBinding> contributions,
+      DaggerElements elements,
+      CompilerOptions compilerOptions) {
+    if (compilerOptions.primitiveKeyMaps()) {
+      if (mapType.keysAreTypeOf(ClassName.get(Integer.class))) {
+        return Optional.of(create(TypeNames.INT_KEY_MAP, "intKeyBuilder", false, Optional.empty()));
+      } else if (mapType.keysAreTypeOf(ClassName.get(Long.class))) {
+        return Optional.of(
+            create(TypeNames.LONG_KEY_MAP, "longKeyBuilder", false, Optional.empty()));
+      }
+    }
+    if (compilerOptions.perfectHashMaps() && !contributions.isEmpty()) {
+      if (mapType.keysAreTypeOf(ClassName.get(String.class))) {
+        return stringKeyHashes(contributions)
+            .flatMap(IndexedMapLayout::displacements)
+            .map(
+                displacements ->
+                    create(
+                        TypeNames.STRING_KEY_MAP,
+                        "stringKeyBuilder",
+                        false,
+                        Optional.of(displacements)));
+      } else if (mapType.keysAreTypeOf(ClassName.get(Class.class))) {
+        return classKeyHashes(contributions, elements)
+            .flatMap(IndexedMapLayout::displacements)
+            .map(
+                displacements ->
+                    create(
+                        TypeNames.CLASS_KEY_MAP,
+                        "classKeyBuilder",
+                        true,
+                        Optional.of(displacements)));
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static IndexedMapLayout create(
+      ClassName mapClass,
+      String factoryBuilderMethod,
+      boolean hasKeyTypeArgument,
+      Optional<ImmutableList<Integer>> displacements) {
+    return new AutoValue_IndexedMapLayout(
+        mapClass, factoryBuilderMethod, hasKeyTypeArgument, displacements);
+  }
+
+  /** Returns the {@link String#hashCode()} of each key, if all keys are known at compile time. */
+  private static Optional<int[]> stringKeyHashes(ImmutableList<ContributionBinding> contributions) {
+    int[] hashes = new int[contributions.size()];
+    for (int i = 0; i < hashes.length; i++) {
+      Optional<Object> key = unwrappedKey(contributions.get(i));
+      if (!key.isPresent() || !(key.get() instanceof String)) {
+        return Optional.empty();
+      }
+      hashes[i] = key.get().hashCode();
+    }
+    return Optional.of(hashes);
+  }
+
+  /**
+   * Returns the hash code of the {@linkplain Class#getName() name} of each key, if all keys are
+   * known at compile time and are declared types.
+   */
+  private static Optional<int[]> classKeyHashes(
+      ImmutableList<ContributionBinding> contributions, DaggerElements elements) {
+    int[] hashes = new int[contributions.size()];
+    for (int i = 0; i < hashes.length; i++) {
+      Optional<Object> key = unwrappedKey(contributions.get(i));
+      if (!key.isPresent()
+          || !(key.get() instanceof TypeMirror)
+          || ((TypeMirror) key.get()).getKind() != TypeKind.DECLARED) {
+        return Optional.empty();
+      }
+      hashes[i] =
+          elements.getBinaryName(asTypeElement((TypeMirror) key.get())).toString().hashCode();
+    }
+    return Optional.of(hashes);
+  }
+
+  /**
+   * Returns the value of the unwrapped map key of {@code contribution}, unless the key is created
+   * at runtime from the value, as {@code dagger.android.AndroidInjectionKey}s are.
+   */
+  private static Optional<Object> unwrappedKey(ContributionBinding contribution) {
+    AnnotationMirror mapKey = contribution.mapKeyAnnotation().get();
+    if (asTypeElement(mapKey.getAnnotationType())
+        .getQualifiedName()
+        .contentEquals("dagger.android.AndroidInjectionKey")) {
+      return Optional.empty();
+    }
+    return unwrapValue(mapKey).map(AnnotationValue::getValue);
+  }
+
+  /**
+   * Returns displacements for the buckets of a hash table of keys with {@code hashes} such that
+   * every key has its own slot in {@code dagger.internal.HashedKeyMap}, or nothing if there are
+   * none, e.g. because two keys have the same hash.
+   *
+   * <p>The keys are grouped into about one bucket for every four keys. Starting with the largest
+   * bucket, each bucket is given the first displacement that moves all of its keys to empty slots.
+   */
+  private static Optional<ImmutableList<Integer>> displacements(int[] hashes) {
+    if (new HashSet<>(Ints.asList(hashes)).size() != hashes.length) {
+      return Optional.empty();
+    }
+    int[] displacements = new int[Integer.highestOneBit(2 * ((hashes.length + 3) / 4) - 1)];
+    List<List<Integer>> buckets = new ArrayList<>();
+    for (int i = 0; i < displacements.length; i++) {
+      buckets.add(new ArrayList<>());
+    }
+    for (int hash : hashes) {
+      buckets.get(bucket(hash, displacements.length)).add(hash);
+    }
+    List<Integer> bucketOrder = new ArrayList<>();
+    for (int i = 0; i < displacements.length; i++) {
+      bucketOrder.add(i);
+    }
+    bucketOrder.sort(comparingInt((Integer bucket) -> buckets.get(bucket).size()).reversed());
+
+    boolean[] occupied = new boolean[tableSize(hashes.length)];
+    for (int bucket : bucketOrder) {
+      if (buckets.get(bucket).isEmpty()) {
+        break;
+      }
+      Optional<Set<Integer>> slots;
+      int displacement = 0;
+      do {
+        displacements[bucket] = displacement++;
+        slots = freeSlots(buckets.get(bucket), displacements, occupied);
+      } while (!slots.isPresent() && displacement < MAX_DISPLACEMENT_ATTEMPTS);
+      if (!slots.isPresent()) {
+        return Optional.empty();
+      }
+      slots.get().forEach(slot -> occupied[slot] = true);
+    }
+    return Optional.of(ImmutableList.copyOf(Ints.asList(displacements)));
+  }
+
+  /**
+   * Returns the slots of the keys with {@code hashes}, if they are distinct and not {@code
+   * occupied}.
+   */
+  private static Optional<Set<Integer>> freeSlots(
+      List<Integer> hashes, int[] displacements, boolean[] occupied) {
+    Set<Integer> slots = new HashSet<>();
+    for (int hash : hashes) {
+      int slot = slot(hash, displacements, occupied.length - 1);
+      if (occupied[slot] || !slots.add(slot)) {
+        return Optional.empty();
+      }
+    }
+    return Optional.of(slots);
+  }
+
+  // The following methods must compute the same values as dagger.internal.HashedKeyMap.
+
+  private static int tableSize(int size) {
+    return Integer.highestOneBit(Math.max(2 * size - 1, 1)) << 1;
+  }
+
+  private static int bucket(int hash, int bucketCount) {
+    return ((hash * 0x9E3779B9) >>> 16) & (bucketCount - 1);
+  }
+
+  private static int slot(int hash, int[] displacements, int mask) {
+    int h = hash * 0x9E3779B9;
+    return mix(h ^ displacements[bucket(hash, displacements.length)]) & mask;
+  }
+
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.writing;
+
+import static dagger.internal.codegen.extension.DaggerStreams.toImmutableList;
+
+import dagger.internal.codegen.base.MapType;
+import dagger.internal.codegen.binding.BindingGraph;
+import dagger.internal.codegen.binding.ContributionBinding;
+import dagger.internal.codegen.compileroption.CompilerOptions;
+import dagger.internal.codegen.langmodel.DaggerElements;
+import dagger.spi.model.Key;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.inject.Inject;
+
+/**
+ * The {@link IndexedMapLayout}s of the multibound maps of a component, which are computed once for
+ * each map and shared by its request representation and its factory.
+ */
+@PerComponentImplementation
+final class IndexedMapLayouts {
+  private final Map<Key, Optional<IndexedMapLayout>> layouts = new HashMap<>();
+  private final BindingGraph graph;
+  private final DaggerElements elements;
+  private final CompilerOptions compilerOptions;
+
+  @Inject
+  IndexedMapLayouts(BindingGraph graph, DaggerElements elements, CompilerOptions compilerOptions) {
+    this.graph = graph;
+    this.elements = elements;
+    this.compilerOptions = compilerOptions;
+  }
+
+  /**
+   * Returns the layout of the multibound map {@code binding}, if it should be one of the maps that
+   * look up their keys without a {@link java.util.HashMap}.
+   */
+  Optional<IndexedMapLayout> layout(ContributionBinding binding) {
+    return layouts.computeIfAbsent(
+        binding.key(),
+        key ->
+            IndexedMapLayout.forMap(
+                MapType.from(key),
+                binding.dependencies().stream()
+                    .map(dependency -> graph.contributionBinding(dependency.key()))
+                    .collect(toImmutableList()),
+                elements,
+                compilerOptions));
+  }
+}
@@ -20,18 +20,23 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static dagger.internal.codegen.binding.MapKeys.getMapKeyExpression;
 import static dagger.internal.codegen.binding.SourceFiles.mapFactoryClassName;
 import static dagger.internal.codegen.extension.DaggerCollectors.toOptional;
+import static dagger.spi.model.BindingKind.MULTIBOUND_MAP;
 
 import androidx.room.compiler.processing.XType;
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import dagger.assisted.Assisted;
 import dagger.assisted.AssistedFactory;
 import dagger.assisted.AssistedInject;
 import dagger.internal.codegen.base.MapType;
 import dagger.internal.codegen.binding.BindingGraph;
+import dagger.internal.codegen.binding.BindingType;
 import dagger.internal.codegen.binding.ContributionBinding;
+import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.javapoet.TypeNames;
 import dagger.internal.codegen.langmodel.DaggerElements;
 import dagger.spi.model.DependencyRequest;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 /** A factory creation expression for a multibound map. */
@@ -41,6 +46,8 @@ final class MapFactoryCreationExpression extends MultibindingFactoryCreationExpr
   private final BindingGraph graph;
   private final ContributionBinding binding;
   private final DaggerElements elements;
+  private final CompilerOptions compilerOptions;
+  private final IndexedMapLayouts indexedMapLayouts;
 
   @AssistedInject
   MapFactoryCreationExpression(
@@ -48,19 +55,30 @@ final class MapFactoryCreationExpression extends MultibindingFactoryCreationExpr
       ComponentImplementation componentImplementation,
       ComponentRequestRepresentations componentRequestRepresentations,
       BindingGraph graph,
-      DaggerElements elements) {
+      DaggerElements elements,
+      CompilerOptions compilerOptions,
+      IndexedMapLayouts indexedMapLayouts) {
     super(binding, componentImplementation, componentRequestRepresentations);
     this.binding = checkNotNull(binding);
     this.componentImplementation = componentImplementation;
     this.graph = graph;
     this.elements = elements;
+    this.compilerOptions = compilerOptions;
+    this.indexedMapLayouts = indexedMapLayouts;
   }
 
   @Override
   public CodeBlock creationExpression() {
-    CodeBlock.Builder builder = CodeBlock.builder().add("$T.", mapFactoryClassName(binding));
+    ClassName mapFactoryClassName = mapFactoryClassName(binding);
+    MapType mapType = MapType.from(binding.key());
+    // Only the factories of provision maps can store their keys in indexed maps.
+    Optional<IndexedMapLayout> indexedMapLayout =
+        mapFactoryClassName.equals(TypeNames.MAP_FACTORY)
+                || mapFactoryClassName.equals(TypeNames.MAP_PROVIDER_FACTORY)
+            ? indexedMapLayouts.layout(binding)
+            : Optional.empty();
+    CodeBlock.Builder builder = CodeBlock.builder().add("$T.", mapFactoryClassName);
     if (!useRawType()) {
-      MapType mapType = MapType.from(binding.key());
       // TODO(ronshapiro): either inline this into mapFactoryClassName, or add a
       // mapType.unwrappedValueType() method that doesn't require a framework type
       XType valueType =
@@ -69,10 +87,24 @@ final class MapFactoryCreationExpression extends MultibindingFactoryCreationExpr
               .map(mapType::unwrappedValueType)
               .collect(toOptional())
               .orElseGet(mapType::valueType);
-      builder.add("<$T, $T>", mapType.keyType().getTypeName(), valueType.getTypeName());
+      if (indexedMapLayout.isPresent() && !indexedMapLayout.get().hasKeyTypeArgument()) {
+        builder.add("<$T>", valueType.getTypeName());
+      } else {
+        builder.add("<$T, $T>", mapType.keyType().getTypeName(), valueType.getTypeName());
+      }
     }
 
-    builder.add("builder($L)", binding.dependencies().size());
+    if (indexedMapLayout.isPresent()) {
+      builder.add(
+          "$N($L)",
+          indexedMapLayout.get().factoryBuilderMethod(),
+          indexedMapLayout.get().builderArguments(binding.dependencies().size()));
+    } else {
+      builder.add("builder($L)", binding.dependencies().size());
+    }
+    if (usesLazyValues(binding, compilerOptions)) {
+      builder.add(".lazyValues()");
+    }
 
     for (DependencyRequest dependency : binding.dependencies()) {
       ContributionBinding contributionBinding = graph.contributionBinding(dependency.key());
@@ -86,6 +118,18 @@ final class MapFactoryCreationExpression extends MultibindingFactoryCreationExpr
     return builder.build();
   }
 
+  /**
+   * Returns {@code true} if {@code binding} is a multibound {@code Map<K, V>} whose factory should
+   * provide each value when it is first accessed.
+   */
+  static boolean usesLazyValues(ContributionBinding binding, CompilerOptions compilerOptions) {
+    return compilerOptions.lazyMapValues()
+        && binding.kind().equals(MULTIBOUND_MAP)
+        && binding.bindingType().equals(BindingType.PROVISION)
+        && !binding.dependencies().isEmpty()
+        && !MapType.from(binding.key()).valuesAreFrameworkType();
+  }
+
   @AssistedFactory
   static interface Factory {
     MapFactoryCreationExpression create(ContributionBinding binding);
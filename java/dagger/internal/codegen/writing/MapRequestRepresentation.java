@@ -45,6 +45,7 @@ import dagger.internal.codegen.langmodel.DaggerTypes;
 import dagger.spi.model.BindingKind;
 import dagger.spi.model.DependencyRequest;
 import java.util.Collections;
+import java.util.Optional;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
 
@@ -58,6 +59,7 @@ final class MapRequestRepresentation extends RequestRepresentation {
   private final ComponentRequestRepresentations componentRequestRepresentations;
   private final DaggerTypes types;
   private final DaggerElements elements;
+  private final IndexedMapLayouts indexedMapLayouts;
 
   @AssistedInject
   MapRequestRepresentation(
@@ -65,19 +67,25 @@ final class MapRequestRepresentation extends RequestRepresentation {
       BindingGraph graph,
       ComponentRequestRepresentations componentRequestRepresentations,
       DaggerTypes types,
-      DaggerElements elements) {
+      DaggerElements elements,
+      IndexedMapLayouts indexedMapLayouts) {
     this.binding = binding;
     BindingKind bindingKind = this.binding.kind();
     checkArgument(bindingKind.equals(MULTIBOUND_MAP), bindingKind);
     this.componentRequestRepresentations = componentRequestRepresentations;
     this.types = types;
     this.elements = elements;
+    this.indexedMapLayouts = indexedMapLayouts;
     this.dependencies =
         Maps.toMap(binding.dependencies(), dep -> graph.contributionBinding(dep.key()));
   }
 
   @Override
   Expression getDependencyExpression(ClassName requestingClass) {
+    Optional<IndexedMapLayout> indexedMapLayout = indexedMapLayouts.layout(binding);
+    if (indexedMapLayout.isPresent()) {
+      return indexedMapExpression(indexedMapLayout.get(), requestingClass);
+    }
     // TODO(ronshapiro): We should also make an ImmutableMap version of MapFactory
     boolean isImmutableMapAvailable = isImmutableMapAvailable();
     // TODO(ronshapiro, gak): Use Maps.immutableEnumMap() if it's available?
@@ -126,6 +134,24 @@ final class MapRequestRepresentation extends RequestRepresentation {
     }
   }
 
+  private Expression indexedMapExpression(IndexedMapLayout layout, ClassName requestingClass) {
+    CodeBlock.Builder instantiation = CodeBlock.builder().add("$T.", layout.mapClass());
+    if (isTypeAccessibleFrom(binding.key().type().java(), requestingClass.packageName())) {
+      MapType mapType = MapType.from(binding.key());
+      if (layout.hasKeyTypeArgument()) {
+        instantiation.add(
+            "<$T, $T>", mapType.keyType().getTypeName(), mapType.valueType().getTypeName());
+      } else {
+        instantiation.add("<$T>", mapType.valueType().getTypeName());
+      }
+    }
+    instantiation.add("builder($L)", layout.builderArguments(dependencies.size()));
+    for (DependencyRequest dependency : dependencies.keySet()) {
+      instantiation.add(".put($L)", keyAndValueExpression(dependency, requestingClass));
+    }
+    return Expression.create(binding.key().type().java(), instantiation.add(".build()").build());
+  }
+
   private DeclaredType immutableMapType() {
     MapType mapType = MapType.from(binding.key());
     return types.getDeclaredType(
@@ -35,6 +35,7 @@ import static dagger.internal.codegen.javapoet.CodeBlocks.toParametersCodeBlock;
 import static dagger.internal.codegen.javapoet.TypeNames.FUTURES;
 import static dagger.internal.codegen.javapoet.TypeNames.PRODUCERS;
 import static dagger.internal.codegen.javapoet.TypeNames.PRODUCER_TOKEN;
+import static dagger.internal.codegen.javapoet.TypeNames.PRODUCES;
 import static dagger.internal.codegen.javapoet.TypeNames.VOID_CLASS;
 import static dagger.internal.codegen.javapoet.TypeNames.listOf;
 import static dagger.internal.codegen.javapoet.TypeNames.listenableFutureOf;
@@ -168,10 +169,11 @@ public final class ProducerFactoryGenerator extends SourceFileGenerator<Producti
     ImmutableMap<DependencyRequest, FieldSpec> fields = fieldsBuilder.build();
 
     constructorBuilder.addStatement(
-        "super($N, $L, $N)",
+        "super($N, $L, $N$L)",
         verifyNotNull(monitorParameterName),
-        producerTokenConstruction(generatedTypeName, binding),
-        verifyNotNull(executorParameterName));
+        producerTokenConstruction(binding, compilerOptions),
+        verifyNotNull(executorParameterName),
+        isNonBlocking(binding) ? ", true" : "");
 
     if (binding.requiresModuleInstance()) {
       assignField(constructorBuilder, moduleField.get(), null);
@@ -287,8 +289,12 @@ public final class ProducerFactoryGenerator extends SourceFileGenerator<Producti
         .collect(toImmutableList());
   }
 
-  private CodeBlock producerTokenConstruction(
-      ClassName generatedTypeName, ProductionBinding binding) {
+  /**
+   * Returns an expression that creates the {@link dagger.producers.monitoring.ProducerToken} of the
+   * binding's producer.
+   */
+  static CodeBlock producerTokenConstruction(
+      ProductionBinding binding, CompilerOptions compilerOptions) {
     CodeBlock producerTokenArgs =
         compilerOptions.writeProducerNameInToken()
             ? CodeBlock.of(
@@ -297,10 +303,15 @@ public final class ProducerFactoryGenerator extends SourceFileGenerator<Producti
                     "%s#%s",
                     binding.bindingTypeElement().get().getClassName(),
                     toJavac(binding.bindingElement().get()).getSimpleName()))
-            : CodeBlock.of("$T.class", generatedTypeName);
+            : CodeBlock.of("$T.class", generatedClassNameForBinding(binding));
     return CodeBlock.of("$T.create($L)", PRODUCER_TOKEN, producerTokenArgs);
   }
 
+  /** Returns true if the binding's {@code @Produces} method is marked as non-blocking. */
+  static boolean isNonBlocking(ProductionBinding binding) {
+    return binding.bindingElement().get().getAnnotation(PRODUCES).getAsBoolean("nonBlocking");
+  }
+
   /** Returns a name of the variable representing this dependency's future. */
   private static String dependencyFutureName(DependencyRequest dependency) {
     return dependency.requestElement().get().java().getSimpleName() + "Future";
@@ -484,7 +495,8 @@ public final class ProducerFactoryGenerator extends SourceFileGenerator<Producti
     }
   }
 
-  private static boolean isAsyncDependency(DependencyRequest dependency) {
+  /** Returns true if the producer waits for {@code dependency} to complete before it runs. */
+  static boolean isAsyncDependency(DependencyRequest dependency) {
     switch (dependency.kind()) {
       case INSTANCE:
       case PRODUCED:
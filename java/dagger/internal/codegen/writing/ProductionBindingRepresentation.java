@@ -27,6 +27,7 @@ import dagger.assisted.AssistedInject;
 import dagger.internal.codegen.binding.BindingRequest;
 import dagger.internal.codegen.binding.FrameworkType;
 import dagger.internal.codegen.binding.ProductionBinding;
+import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.langmodel.DaggerTypes;
 import java.util.HashMap;
 import java.util.Map;
@@ -53,7 +54,9 @@ final class ProductionBindingRepresentation implements BindingRepresentation {
           producerNodeInstanceRequestRepresentationFactory,
       UnscopedFrameworkInstanceCreationExpressionFactory
           unscopedFrameworkInstanceCreationExpressionFactory,
-      DaggerTypes types) {
+      ProductionStateMachines productionStateMachines,
+      DaggerTypes types,
+      CompilerOptions compilerOptions) {
     this.binding = binding;
     this.derivedFromFrameworkInstanceRequestRepresentationFactory =
         derivedFromFrameworkInstanceRequestRepresentationFactory;
@@ -64,10 +67,14 @@ final class ProductionBindingRepresentation implements BindingRepresentation {
             : new FrameworkFieldInitializer(
                 componentImplementation,
                 binding,
-                binding.scope().isPresent()
-                    ? scope(
-                        binding, unscopedFrameworkInstanceCreationExpressionFactory.create(binding))
-                    : unscopedFrameworkInstanceCreationExpressionFactory.create(binding));
+                productionStateMachines.runs(binding)
+                    ? productionStateMachines.newFrameworkInstanceCreationExpression(binding)
+                    : binding.scope().isPresent()
+                        ? scope(
+                            binding,
+                            unscopedFrameworkInstanceCreationExpressionFactory.create(binding),
+                            compilerOptions)
+                        : unscopedFrameworkInstanceCreationExpressionFactory.create(binding));
     this.frameworkInstanceRequestRepresentation =
         producerNodeInstanceRequestRepresentationFactory.create(binding, frameworkInstanceSupplier);
   }
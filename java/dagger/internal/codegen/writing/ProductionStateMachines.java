@@ -0,0 +1,420 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.writing;
+
+import static androidx.room.compiler.processing.compat.XConverters.toJavac;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.squareup.javapoet.MethodSpec.methodBuilder;
+import static com.squareup.javapoet.TypeSpec.classBuilder;
+import static dagger.internal.codegen.binding.BindingRequest.bindingRequest;
+import static dagger.internal.codegen.javapoet.AnnotationSpecs.Suppression.UNCHECKED;
+import static dagger.internal.codegen.javapoet.AnnotationSpecs.suppressWarnings;
+import static dagger.internal.codegen.javapoet.CodeBlocks.makeParametersCodeBlock;
+import static dagger.internal.codegen.langmodel.Accessibility.isElementAccessibleFrom;
+import static dagger.internal.codegen.langmodel.Accessibility.isTypeAccessibleFrom;
+import static dagger.internal.codegen.writing.ComponentImplementation.FieldSpecKind.FRAMEWORK_FIELD;
+import static dagger.internal.codegen.writing.ProducerFactoryGenerator.isAsyncDependency;
+import static dagger.internal.codegen.writing.ProducerFactoryGenerator.isNonBlocking;
+import static dagger.internal.codegen.writing.ProducerFactoryGenerator.producerTokenConstruction;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PROTECTED;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import androidx.room.compiler.processing.XTypeElement;
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import dagger.internal.codegen.binding.Binding;
+import dagger.internal.codegen.binding.BindingGraph;
+import dagger.internal.codegen.binding.ComponentRequirement;
+import dagger.internal.codegen.binding.FrameworkType;
+import dagger.internal.codegen.binding.KeyFactory;
+import dagger.internal.codegen.binding.ProductionBinding;
+import dagger.internal.codegen.compileroption.CompilerOptions;
+import dagger.internal.codegen.javapoet.CodeBlocks;
+import dagger.internal.codegen.javapoet.TypeNames;
+import dagger.internal.codegen.writing.ComponentImplementation.ShardImplementation;
+import dagger.internal.codegen.writing.FrameworkFieldInitializer.FrameworkInstanceCreationExpression;
+import dagger.producers.internal.Producers;
+import dagger.spi.model.BindingKind;
+import dagger.spi.model.DependencyRequest;
+import dagger.spi.model.Key;
+import dagger.spi.model.RequestKind;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import javax.inject.Inject;
+
+/**
+ * Keeps track of the {@code Produces} methods of a production component that are run by a single
+ * generated {@link dagger.producers.internal.ProductionStateMachine}, when {@code
+ * -Adagger.productionStateMachine=enabled}.
+ *
+ * <p>Each such binding is a node of the state machine, which calls its {@code Produces} method by
+ * switching on the node's id. Its producer field holds a producer of that node, so entry points and
+ * the producers outside the state machine depend on it as they would on a producer factory.
+ * Producers that the state machine can't run itself, such as multibindings, bindings of a parent
+ * component and bindings in other shards, are external nodes, whose producers the state machine
+ * requests.
+ */
+@PerComponentImplementation
+final class ProductionStateMachines {
+  private static final ClassName GRAPH = TypeNames.PRODUCTION_STATE_MACHINE.nestedClass("Graph");
+  private static final String NODE_PARAM = "node";
+
+  /** The node id of each key, in the order that the nodes are added to the graph. */
+  private final Map<Key, Integer> nodeIds = new HashMap<>();
+
+  // Keep the nodes ordered by id. A node's id is reserved before the nodes of its inputs are added.
+  private final Map<Integer, CodeBlock> graphNodes = new TreeMap<>();
+  private final Map<Integer, CodeBlock> produceCases = new TreeMap<>();
+  private final Map<Integer, CodeBlock> tokenCases = new TreeMap<>();
+
+  private final ComponentImplementation componentImplementation;
+  private final ShardImplementation componentShard;
+  private final BindingGraph graph;
+  private final ComponentRequestRepresentations componentRequestRepresentations;
+  private final ComponentRequirementExpressions componentRequirementExpressions;
+  private final KeyFactory keyFactory;
+  private final CompilerOptions compilerOptions;
+  private final int maxCasesPerSwitch;
+
+  private ClassName stateMachineType;
+  private FieldSpec stateMachineField;
+  private CodeBlock componentMonitorExpression;
+  private CodeBlock executorExpression;
+
+  @Inject
+  ProductionStateMachines(
+      ComponentImplementation componentImplementation,
+      BindingGraph graph,
+      ComponentRequestRepresentations componentRequestRepresentations,
+      ComponentRequirementExpressions componentRequirementExpressions,
+      KeyFactory keyFactory,
+      CompilerOptions compilerOptions) {
+    this.componentImplementation = checkNotNull(componentImplementation);
+    this.componentShard = componentImplementation.getComponentShard();
+    this.graph = checkNotNull(graph);
+    this.componentRequestRepresentations = checkNotNull(componentRequestRepresentations);
+    this.componentRequirementExpressions = checkNotNull(componentRequirementExpressions);
+    this.keyFactory = checkNotNull(keyFactory);
+    this.compilerOptions = checkNotNull(compilerOptions);
+    this.maxCasesPerSwitch = compilerOptions.switchingProviderCasesPerSwitch();
+  }
+
+  /**
+   * Returns {@code true} if the state machine runs the {@code Produces} method of {@code binding}.
+   * Bindings that the state machine can't call from the component's package, that are scoped or
+   * that are in another shard keep their producer factories.
+   */
+  boolean runs(ProductionBinding binding) {
+    if (!compilerOptions.productionStateMachine()
+        || !binding.kind().equals(BindingKind.PRODUCTION)
+        || binding.unresolved().isPresent()
+        || binding.scope().isPresent()
+        || !componentImplementation.shardImplementation(binding).isComponentShard()) {
+      return false;
+    }
+    String packageName = componentImplementation.name().packageName();
+    XTypeElement bindingTypeElement = binding.bindingTypeElement().get();
+    return isElementAccessibleFrom(binding.bindingElement().get(), packageName)
+        && isElementAccessibleFrom(bindingTypeElement, packageName)
+        && (!binding.requiresModuleInstance()
+            || isElementAccessibleFrom(binding.contributingModule().get(), packageName))
+        && binding.explicitDependencies().stream()
+            .allMatch(
+                dependency -> isTypeAccessibleFrom(dependency.key().type().java(), packageName));
+  }
+
+  /**
+   * Returns the framework instance creation expression for the producer of a binding that the state
+   * machine {@linkplain #runs(ProductionBinding) runs}.
+   */
+  FrameworkInstanceCreationExpression newFrameworkInstanceCreationExpression(
+      ProductionBinding binding) {
+    return new FrameworkInstanceCreationExpression() {
+      @Override
+      public CodeBlock creationExpression() {
+        FieldSpec field = stateMachineField();
+        return CodeBlock.of("$N.producer($L)", field, nodeId(binding));
+      }
+    };
+  }
+
+  /** Returns the field of the state machine, adding it to the component the first time. */
+  private FieldSpec stateMachineField() {
+    if (stateMachineField == null) {
+      stateMachineType =
+          componentShard.name().nestedClass(componentShard.getUniqueClassName("StateMachine"));
+      stateMachineField =
+          FieldSpec.builder(
+                  stateMachineType, componentShard.getUniqueFieldName("stateMachine"), PRIVATE)
+              .build();
+      componentShard.addField(FRAMEWORK_FIELD, stateMachineField);
+      componentShard.addInitialization(
+          CodeBlock.of(
+              "this.$N = new $T($L);",
+              stateMachineField,
+              stateMachineType,
+              componentShard.componentFieldsByImplementation().values().stream()
+                  .map(field -> CodeBlock.of("$N", field))
+                  .collect(CodeBlocks.toParametersCodeBlock())));
+      componentShard.addCancellation(
+          stateMachineType,
+          CodeBlock.of(
+              "$N.cancel($N);",
+              stateMachineField,
+              ComponentImplementation.MAY_INTERRUPT_IF_RUNNING_PARAM));
+      componentMonitorExpression = instanceExpression(keyFactory.forProductionComponentMonitor());
+      executorExpression = instanceExpression(keyFactory.forProductionImplementationExecutor());
+      componentShard.addTypeSupplier(this::build);
+    }
+    return stateMachineField;
+  }
+
+  /** Returns the id of the node of {@code binding}, adding the node if it's new. */
+  private int nodeId(ProductionBinding binding) {
+    Integer nodeId = nodeIds.get(binding.key());
+    if (nodeId != null) {
+      return nodeId;
+    }
+    int id = nodeIds.size();
+    nodeIds.put(binding.key(), id);
+
+    ImmutableList.Builder<CodeBlock> inputs = ImmutableList.builder();
+    ImmutableList.Builder<CodeBlock> arguments = ImmutableList.builder();
+    for (DependencyRequest dependency : binding.explicitDependencies()) {
+      if (isAsyncDependency(dependency)) {
+        int input = inputId(dependency.key());
+        TypeName type = TypeName.get(dependency.key().type().java()).box();
+        if (dependency.kind().equals(RequestKind.PRODUCED)) {
+          inputs.add(CodeBlock.of("~$L", input));
+          arguments.add(CodeBlock.of("this.<$T>produced($L)", type, input));
+        } else {
+          inputs.add(CodeBlock.of("$L", input));
+          arguments.add(CodeBlock.of("this.<$T>value($L)", type, input));
+        }
+      } else {
+        CodeBlock argument =
+            componentRequestRepresentations
+                .getDependencyArgumentExpression(dependency, stateMachineType)
+                .codeBlock();
+        arguments.add(
+            dependency.kind().equals(RequestKind.PRODUCER)
+                ? CodeBlock.of("$T.nonCancellationPropagatingViewOf($L)", Producers.class, argument)
+                : argument);
+      }
+    }
+
+    graphNodes.put(
+        id,
+        CodeBlock.of(
+            "$L($L)$L",
+            binding.productionKind().get().equals(ProductionBinding.ProductionKind.IMMEDIATE)
+                ? ".producesValue"
+                : ".producesFuture",
+            makeParametersCodeBlock(inputs.build()),
+            isNonBlocking(binding) ? ".nonBlocking()" : ""));
+    produceCases.put(
+        id,
+        CodeBlock.builder()
+            .add("case $L: // $L\n", id, binding.key())
+            .addStatement("return $L", invocation(binding, arguments.build()))
+            .build());
+    tokenCases.put(
+        id,
+        CodeBlock.builder()
+            .add("case $L: // $L\n", id, binding.key())
+            .addStatement("return $L", producerTokenConstruction(binding, compilerOptions))
+            .build());
+    return id;
+  }
+
+  /**
+   * Returns the id of the node that a {@code Produces} method waits on for {@code key}, adding an
+   * external node if the state machine doesn't run the binding of {@code key} itself. Unscoped
+   * {@code Binds} methods wait on the node of the key that they delegate to.
+   */
+  private int inputId(Key key) {
+    Optional<Binding> localBinding = graph.localContributionBinding(key);
+    if (localBinding.isPresent()
+        && localBinding.get().kind().equals(BindingKind.DELEGATE)
+        && !localBinding.get().scope().isPresent()) {
+      return inputId(getOnlyElement(localBinding.get().dependencies()).key());
+    }
+    if (localBinding.isPresent()
+        && localBinding.get() instanceof ProductionBinding
+        && runs((ProductionBinding) localBinding.get())) {
+      return nodeId((ProductionBinding) localBinding.get());
+    }
+    Integer nodeId = nodeIds.get(key);
+    if (nodeId != null) {
+      return nodeId;
+    }
+    int id = nodeIds.size();
+    nodeIds.put(key, id);
+    graphNodes.put(id, CodeBlock.of(".external()"));
+    produceCases.put(
+        id,
+        CodeBlock.builder()
+            .add("case $L: // $L\n", id, key)
+            .addStatement(
+                "return $L.get()",
+                componentRequestRepresentations
+                    .getDependencyExpression(
+                        bindingRequest(key, FrameworkType.PRODUCER_NODE), stateMachineType)
+                    .codeBlock())
+            .build());
+    return id;
+  }
+
+  private CodeBlock invocation(ProductionBinding binding, ImmutableList<CodeBlock> arguments) {
+    CodeBlock invocation =
+        CodeBlock.of(
+            "$L.$L($L)",
+            binding.requiresModuleInstance()
+                ? componentRequirementExpressions.getExpression(
+                    ComponentRequirement.forModule(binding.contributingModule().get().getType()),
+                    stateMachineType)
+                : CodeBlock.of("$T", binding.bindingTypeElement().get().getClassName()),
+            toJavac(binding.bindingElement().get()).getSimpleName(),
+            makeParametersCodeBlock(arguments));
+    return binding.productionKind().get().equals(ProductionBinding.ProductionKind.SET_OF_FUTURE)
+        ? CodeBlock.of("$T.allAsSet($L)", Producers.class, invocation)
+        : invocation;
+  }
+
+  private CodeBlock instanceExpression(Key key) {
+    return componentRequestRepresentations
+        .getDependencyExpression(bindingRequest(key, RequestKind.INSTANCE), stateMachineType)
+        .codeBlock();
+  }
+
+  private TypeSpec build() {
+    CodeBlock.Builder graphInitializer =
+        CodeBlock.builder().add("$T.graphBuilder()$>$>", TypeNames.PRODUCTION_STATE_MACHINE);
+    graphNodes.values().forEach(node -> graphInitializer.add("\n$L", node));
+    graphInitializer.add("\n.build()$<$<");
+
+    TypeSpec.Builder builder =
+        classBuilder(stateMachineType)
+            .addModifiers(PRIVATE, STATIC, FINAL)
+            .superclass(TypeNames.PRODUCTION_STATE_MACHINE)
+            .addField(
+                FieldSpec.builder(GRAPH, "GRAPH", PRIVATE, STATIC, FINAL)
+                    .initializer(graphInitializer.build())
+                    .build());
+
+    // The state machine's constructor lists all component parameters, like a SwitchingProvider's.
+    MethodSpec.Builder constructor = MethodSpec.constructorBuilder().addStatement("super(GRAPH)");
+    componentShard
+        .componentFieldsByImplementation()
+        .values()
+        .forEach(
+            field -> {
+              builder.addField(field);
+              constructor.addParameter(field.type, field.name);
+              constructor.addStatement("this.$1N = $1N", field);
+            });
+
+    return builder
+        .addMethod(constructor.build())
+        .addMethod(
+            overridingMethod("componentMonitor", TypeNames.PRODUCTION_COMPONENT_MONITOR)
+                .addStatement("return $L", componentMonitorExpression)
+                .build())
+        .addMethod(
+            overridingMethod("executor", TypeNames.EXECUTOR)
+                .addStatement("return $L", executorExpression)
+                .build())
+        .addMethods(switchMethods("token", TypeNames.PRODUCER_TOKEN, tokenCases, false))
+        .addMethods(switchMethods("produce", TypeName.OBJECT, produceCases, true))
+        .build();
+  }
+
+  private static MethodSpec.Builder overridingMethod(String name, TypeName returnType) {
+    return methodBuilder(name)
+        .addAnnotation(Override.class)
+        .addModifiers(PROTECTED)
+        .returns(returnType);
+  }
+
+  /**
+   * Returns the method that switches on the node id, and, like {@link SwitchingProviders}, one
+   * private method for each range of {@code maxCasesPerSwitch} node ids if there are more nodes
+   * than that. Only the {@code produce} methods call {@code Produces} methods, so only they throw
+   * and need unchecked casts.
+   */
+  private ImmutableList<MethodSpec> switchMethods(
+      String name, TypeName returnType, Map<Integer, CodeBlock> cases, boolean produce) {
+    // Group the cases by the range of node ids that they're in, which external nodes may leave
+    // without token cases.
+    Map<Integer, List<CodeBlock>> casesByRange = new TreeMap<>();
+    cases.forEach(
+        (id, switchCase) ->
+            casesByRange
+                .computeIfAbsent(id / maxCasesPerSwitch, range -> new ArrayList<>())
+                .add(switchCase));
+
+    MethodSpec.Builder method = switchMethod(overridingMethod(name, returnType), produce);
+    if (graphNodes.size() <= maxCasesPerSwitch) {
+      return ImmutableList.of(
+          method.addCode(switchCodeBlock(ImmutableList.copyOf(cases.values()))).build());
+    }
+
+    method.beginControlFlow("switch ($N / $L)", NODE_PARAM, maxCasesPerSwitch);
+    ImmutableList.Builder<MethodSpec> methods = ImmutableList.builder();
+    casesByRange.forEach(
+        (range, rangeCases) -> {
+          methods.add(
+              switchMethod(methodBuilder(name + range).addModifiers(PRIVATE), produce)
+                  .returns(returnType)
+                  .addCode(switchCodeBlock(rangeCases))
+                  .build());
+          method.addStatement("case $L: return $N$L($N)", range, name, range, NODE_PARAM);
+        });
+    method.addStatement("default: throw new $T($N)", AssertionError.class, NODE_PARAM);
+    method.endControlFlow();
+    return methods.add(method.build()).build();
+  }
+
+  private static MethodSpec.Builder switchMethod(MethodSpec.Builder method, boolean produce) {
+    method.addParameter(TypeName.INT, NODE_PARAM);
+    if (produce) {
+      method.addAnnotation(suppressWarnings(UNCHECKED)).addException(Exception.class);
+    }
+    return method;
+  }
+
+  private static CodeBlock switchCodeBlock(List<CodeBlock> cases) {
+    return CodeBlock.builder()
+        .beginControlFlow("switch ($N)", NODE_PARAM)
+        .add(CodeBlocks.concat(cases))
+        .addStatement("default: throw new $T($N)", AssertionError.class, NODE_PARAM)
+        .endControlFlow()
+        .build();
+  }
+}
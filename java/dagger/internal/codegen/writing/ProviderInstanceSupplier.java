@@ -16,13 +16,21 @@
 
 package dagger.internal.codegen.writing;
 
+import static dagger.internal.codegen.writing.BindingRepresentations.counted;
+import static dagger.internal.codegen.writing.BindingRepresentations.monitored;
 import static dagger.internal.codegen.writing.BindingRepresentations.scope;
+import static dagger.internal.codegen.writing.BindingRepresentations.singleCheck;
+import static dagger.internal.codegen.writing.ProvisionBindingRepresentation.isCachedConstantMultibinding;
+import static dagger.internal.codegen.writing.ProvisionBindingRepresentation.isMonitored;
 
 import dagger.assisted.Assisted;
 import dagger.assisted.AssistedFactory;
 import dagger.assisted.AssistedInject;
+import dagger.internal.codegen.binding.BindingGraph;
 import dagger.internal.codegen.binding.ProvisionBinding;
+import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.writing.FrameworkFieldInitializer.FrameworkInstanceCreationExpression;
+import java.util.Optional;
 
 /** An object that initializes a framework-type component field for a binding. */
 final class ProviderInstanceSupplier implements FrameworkInstanceSupplier {
@@ -31,19 +39,34 @@ final class ProviderInstanceSupplier implements FrameworkInstanceSupplier {
   @AssistedInject
   ProviderInstanceSupplier(
       @Assisted ProvisionBinding binding,
+      BindingGraph graph,
       ComponentImplementation componentImplementation,
       FrameworkInstanceBindingRepresentation.Factory frameworkInstanceBindingRepresentationFactory,
       UnscopedFrameworkInstanceCreationExpressionFactory
-          unscopedFrameworkInstanceCreationExpressionFactory) {
+          unscopedFrameworkInstanceCreationExpressionFactory,
+      CompilerOptions compilerOptions) {
     FrameworkInstanceCreationExpression frameworkInstanceCreationExpression =
         unscopedFrameworkInstanceCreationExpressionFactory.create(binding);
+    Optional<Integer> counterIndex = componentImplementation.provisionCounterIndex(binding);
+    if (counterIndex.isPresent()) {
+      frameworkInstanceCreationExpression =
+          counted(
+              frameworkInstanceCreationExpression,
+              componentImplementation.provisionCountersReference(),
+              counterIndex.get());
+    }
+    if (isMonitored(binding, compilerOptions)) {
+      frameworkInstanceCreationExpression = monitored(binding, frameworkInstanceCreationExpression);
+    }
+    if (binding.scope().isPresent()) {
+      frameworkInstanceCreationExpression =
+          scope(binding, frameworkInstanceCreationExpression, compilerOptions);
+    } else if (isCachedConstantMultibinding(binding, graph, compilerOptions)) {
+      frameworkInstanceCreationExpression = singleCheck(frameworkInstanceCreationExpression);
+    }
     this.frameworkInstanceSupplier =
         new FrameworkFieldInitializer(
-            componentImplementation,
-            binding,
-            binding.scope().isPresent()
-                ? scope(binding, frameworkInstanceCreationExpression)
-                : frameworkInstanceCreationExpression);
+            componentImplementation, binding, frameworkInstanceCreationExpression);
   }
 
   @Override
@@ -16,13 +16,17 @@
 
 package dagger.internal.codegen.writing;
 
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static dagger.internal.codegen.writing.DelegateRequestRepresentation.isBindsScopeStrongerThanDependencyScope;
+import static dagger.internal.codegen.writing.MapFactoryCreationExpression.usesLazyValues;
 import static dagger.internal.codegen.writing.StaticFactoryInstanceSupplier.usesStaticFactoryCreation;
+import static dagger.internal.codegen.writing.StaticHolderRequestRepresentation.usesStaticHolder;
 import static dagger.spi.model.BindingKind.DELEGATE;
 
 import dagger.assisted.Assisted;
 import dagger.assisted.AssistedFactory;
 import dagger.assisted.AssistedInject;
+import dagger.internal.codegen.base.MapType;
 import dagger.internal.codegen.binding.BindingGraph;
 import dagger.internal.codegen.binding.BindingRequest;
 import dagger.internal.codegen.binding.ContributionBinding;
@@ -30,6 +34,7 @@ import dagger.internal.codegen.binding.ProvisionBinding;
 import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.langmodel.DaggerTypes;
 import dagger.spi.model.RequestKind;
+import java.util.Optional;
 
 /**
  * A binding representation that wraps code generation methods that satisfy all kinds of request for
@@ -38,9 +43,12 @@ import dagger.spi.model.RequestKind;
 final class ProvisionBindingRepresentation implements BindingRepresentation {
   private final BindingGraph graph;
   private final boolean isFastInit;
+  private final boolean isCounted;
+  private final CompilerOptions compilerOptions;
   private final ProvisionBinding binding;
   private final DirectInstanceBindingRepresentation directInstanceBindingRepresentation;
   private final FrameworkInstanceBindingRepresentation frameworkInstanceBindingRepresentation;
+  private final Optional<StaticHolderRequestRepresentation> staticHolderRequestRepresentation;
 
   @AssistedInject
   ProvisionBindingRepresentation(
@@ -52,17 +60,36 @@ final class ProvisionBindingRepresentation implements BindingRepresentation {
       SwitchingProviderInstanceSupplier.Factory switchingProviderInstanceSupplierFactory,
       ProviderInstanceSupplier.Factory providerInstanceSupplierFactory,
       StaticFactoryInstanceSupplier.Factory staticFactoryInstanceSupplierFactory,
+      StaticHolderRequestRepresentation.Factory staticHolderRequestRepresentationFactory,
+      SwitchingProviders switchingProviders,
       CompilerOptions compilerOptions,
       DaggerTypes types) {
     this.binding = binding;
     this.graph = graph;
     this.isFastInit = componentImplementation.isFastInit();
+    this.isCounted = componentImplementation.provisionCounterIndex(binding).isPresent();
+    this.compilerOptions = compilerOptions;
     this.directInstanceBindingRepresentation =
         directInstanceBindingRepresentationFactory.create(binding);
+    this.staticHolderRequestRepresentation =
+        usesStaticHolder(binding, graph, compilerOptions) && !isMonitored(binding, compilerOptions)
+            ? Optional.of(staticHolderRequestRepresentationFactory.create(binding))
+            : Optional.empty();
     FrameworkInstanceSupplier frameworkInstanceSupplier = null;
-    if (usesSwitchingProvider(binding, isFastInit)) {
+    if (staticHolderRequestRepresentation.isPresent()) {
+      // The holder already memoizes the instance, so its provider only needs to read the holder.
+      frameworkInstanceSupplier =
+          new FrameworkFieldInitializer(
+              componentImplementation,
+              binding,
+              switchingProviders.newFrameworkInstanceCreationExpression(
+                  binding, staticHolderRequestRepresentation.get()));
+    } else if (usesSwitchingProvider(binding, isFastInit)
+        && !usesLazyValues(binding, compilerOptions)) {
       frameworkInstanceSupplier = switchingProviderInstanceSupplierFactory.create(binding);
-    } else if (usesStaticFactoryCreation(binding, isFastInit)) {
+    } else if (usesStaticFactoryCreation(binding, isFastInit)
+        && !isMonitored(binding, compilerOptions)
+        && !isCounted) {
       frameworkInstanceSupplier = staticFactoryInstanceSupplierFactory.create(binding);
     } else {
       frameworkInstanceSupplier = providerInstanceSupplierFactory.create(binding);
@@ -73,6 +100,10 @@ final class ProvisionBindingRepresentation implements BindingRepresentation {
 
   @Override
   public RequestRepresentation getRequestRepresentation(BindingRequest request) {
+    if (staticHolderRequestRepresentation.isPresent()
+        && request.requestKind() == RequestKind.INSTANCE) {
+      return staticHolderRequestRepresentation.get();
+    }
     return usesDirectInstanceExpression(request.requestKind())
         ? directInstanceBindingRepresentation.getRequestRepresentation(request)
         : frameworkInstanceBindingRepresentation.getRequestRepresentation(request);
@@ -83,6 +114,11 @@ final class ProvisionBindingRepresentation implements BindingRepresentation {
       return false;
     }
 
+    // Monitored and counted bindings report their provisions from their framework instances.
+    if (isMonitored(binding, compilerOptions) || isCounted) {
+      return false;
+    }
+
     // In fast init mode, we can avoid generating direct instance expressions if a framework
     // instance expression already exists in the graph. Default mode has more edge cases, so can not
     // be handled with simple pre-check in the graph. For example, a provider for a subcomponent
@@ -94,6 +130,12 @@ final class ProvisionBindingRepresentation implements BindingRepresentation {
       return false;
     }
 
+    // A lazy map's factory finds the providers of its values without hashing the keys again, so
+    // build it once in a component field, even in fast init mode, rather than for every request.
+    if (usesLazyValues(binding, compilerOptions)) {
+      return false;
+    }
+
     switch (binding.kind()) {
       case MEMBERS_INJECTOR:
         // Currently, we always use a framework instance for MembersInjectors, e.g.
@@ -111,7 +153,8 @@ final class ProvisionBindingRepresentation implements BindingRepresentation {
         // We don't need to use Provider#get() if there's no caching, so use a direct instance.
         // TODO(bcorso): This can be optimized in cases where we know a Provider field already
         // exists, in which case even if it's not scoped we might as well call Provider#get().
-        return !needsCaching(binding, graph);
+        return !needsCaching(binding, graph)
+            && !isCachedConstantMultibinding(binding, graph, compilerOptions);
     }
   }
 
@@ -148,6 +191,24 @@ final class ProvisionBindingRepresentation implements BindingRepresentation {
     throw new AssertionError(String.format("No such binding kind: %s", binding.kind()));
   }
 
+  /**
+   * Returns {@code true} if the provisions of {@code binding} are reported to the installed {@code
+   * ProvisionMonitor}. Only {@code @Inject} and {@code @Provides} bindings are monitored, since the
+   * other kinds of bindings don't call user code to create their instances.
+   */
+  static boolean isMonitored(ContributionBinding binding, CompilerOptions compilerOptions) {
+    if (!compilerOptions.provisionMonitoring()) {
+      return false;
+    }
+    switch (binding.kind()) {
+      case INJECTION:
+      case PROVISION:
+        return true;
+      default:
+        return false;
+    }
+  }
+
   /**
    * Returns {@code true} if the component needs to make sure the provided value is cached.
    *
@@ -164,6 +225,58 @@ final class ProvisionBindingRepresentation implements BindingRepresentation {
     return true;
   }
 
+  /**
+   * Returns {@code true} if {@code binding} is a multibound set or map that the component caches
+   * like a {@link dagger.Reusable} binding because all of its contributions are constant, so every
+   * instance of it would be equal.
+   *
+   * <p>Multibound {@code Map<K, Provider<V>>}s aren't cached this way, since their factories
+   * already return the same map every time.
+   */
+  static boolean isCachedConstantMultibinding(
+      ProvisionBinding binding, BindingGraph graph, CompilerOptions compilerOptions) {
+    if (!compilerOptions.cacheConstantMultibindings()
+        || binding.scope().isPresent()
+        || binding.dependencies().isEmpty()) {
+      return false;
+    }
+    switch (binding.kind()) {
+      case MULTIBOUND_SET:
+        break;
+      case MULTIBOUND_MAP:
+        if (MapType.from(binding.key()).valuesAreFrameworkType()) {
+          return false;
+        }
+        break;
+      default:
+        return false;
+    }
+    return binding.dependencies().stream()
+        .map(dependency -> graph.contributionBinding(dependency.key()))
+        .allMatch(contribution -> isConstantContribution(contribution, graph));
+  }
+
+  /**
+   * Returns {@code true} if {@code binding} always provides the same instance in its component: if
+   * it is scoped, a bound instance, or a {@code @Binds} of a constant binding.
+   */
+  private static boolean isConstantContribution(ContributionBinding binding, BindingGraph graph) {
+    if (binding.scope().isPresent()) {
+      return true;
+    }
+    switch (binding.kind()) {
+      case BOUND_INSTANCE:
+      case COMPONENT:
+      case COMPONENT_DEPENDENCY:
+        return true;
+      case DELEGATE:
+        return isConstantContribution(
+            graph.contributionBinding(getOnlyElement(binding.dependencies()).key()), graph);
+      default:
+        return false;
+    }
+  }
+
   @AssistedFactory
   static interface Factory {
     ProvisionBindingRepresentation create(ProvisionBinding binding);
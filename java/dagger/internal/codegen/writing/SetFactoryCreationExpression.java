@@ -17,6 +17,7 @@
 package dagger.internal.codegen.writing;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static dagger.internal.codegen.binding.SourceFiles.setFactoryClassName;
 
 import com.squareup.javapoet.CodeBlock;
@@ -28,23 +29,33 @@ import dagger.internal.codegen.base.SetType;
 import dagger.internal.codegen.binding.BindingGraph;
 import dagger.internal.codegen.binding.BindingType;
 import dagger.internal.codegen.binding.ContributionBinding;
+import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.javapoet.TypeNames;
 import dagger.spi.model.DependencyRequest;
 
 /** A factory creation expression for a multibound set. */
 final class SetFactoryCreationExpression extends MultibindingFactoryCreationExpression {
+  /**
+   * {@code SetFactory.smallSetBuilder} is only used for sets with fewer than this many (eight)
+   * individual contributions, since finding an element in a larger array is slower than hashing it.
+   */
+  private static final int MAX_SMALL_SET_SIZE = 8;
+
   private final BindingGraph graph;
   private final ContributionBinding binding;
+  private final CompilerOptions compilerOptions;
 
   @AssistedInject
   SetFactoryCreationExpression(
       @Assisted ContributionBinding binding,
       ComponentImplementation componentImplementation,
       ComponentRequestRepresentations componentRequestRepresentations,
-      BindingGraph graph) {
+      BindingGraph graph,
+      CompilerOptions compilerOptions) {
     super(binding, componentImplementation, componentRequestRepresentations);
     this.binding = checkNotNull(binding);
     this.graph = graph;
+    this.compilerOptions = compilerOptions;
   }
 
   @Override
@@ -88,12 +99,35 @@ final class SetFactoryCreationExpression extends MultibindingFactoryCreationExpr
           methodNameSuffix,
           multibindingDependencyExpression(dependency));
     }
+    if (compilerOptions.specializedSetFactories()
+        && setFactoryClassName(binding).equals(TypeNames.SET_FACTORY)) {
+      if (individualProviders == 1 && setProviders == 0) {
+        return builder
+            .add("singleton($L)", multibindingDependencyExpression(onlyDependency()))
+            .build();
+      }
+      if (individualProviders == 0 && setProviders == 1) {
+        return builder
+            .add("fromCollection($L)", multibindingDependencyExpression(onlyDependency()))
+            .build();
+      }
+      if (individualProviders < MAX_SMALL_SET_SIZE && setProviders == 0) {
+        builder.add("smallSetBuilder($L)", individualProviders);
+        builder.add(builderMethodCalls.build());
+        return builder.add(".build()").build();
+      }
+    }
+
     builder.add("builder($L, $L)", individualProviders, setProviders);
     builder.add(builderMethodCalls.build());
 
     return builder.add(".build()").build();
   }
 
+  private DependencyRequest onlyDependency() {
+    return getOnlyElement(binding.dependencies());
+  }
+
   @AssistedFactory
   static interface Factory {
     SetFactoryCreationExpression create(ContributionBinding binding);
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.writing;
+
+import static com.google.common.base.CaseFormat.LOWER_CAMEL;
+import static com.google.common.base.CaseFormat.UPPER_CAMEL;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.squareup.javapoet.TypeSpec.classBuilder;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.TypeName;
+import dagger.assisted.Assisted;
+import dagger.assisted.AssistedFactory;
+import dagger.assisted.AssistedInject;
+import dagger.internal.codegen.binding.BindingGraph;
+import dagger.internal.codegen.binding.KeyVariableNamer;
+import dagger.internal.codegen.binding.ProvisionBinding;
+import dagger.internal.codegen.compileroption.CompilerOptions;
+import dagger.internal.codegen.javapoet.Expression;
+import dagger.internal.codegen.langmodel.DaggerTypes;
+import dagger.internal.codegen.writing.ComponentImplementation.ShardImplementation;
+import dagger.internal.codegen.writing.ComponentImplementation.TypeSpecKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A binding expression for a scoped binding whose instance is held in a static field of a nested
+ * holder class, e.g. {@code FooHolder.INSTANCE}.
+ *
+ * <p>The holder's class initializer creates the instance the first time that the field is read, so
+ * the JVM's class initialization lock guarantees that only one instance is created, and reads after
+ * that don't need any synchronization.
+ */
+final class StaticHolderRequestRepresentation extends RequestRepresentation {
+  private static final String INSTANCE_FIELD = "INSTANCE";
+
+  private final ProvisionBinding binding;
+  private final ShardImplementation componentShard;
+  private final RequestRepresentation unscopedDirectInstanceRequestRepresentation;
+  private final DaggerTypes types;
+  private ClassName holderName;
+  private TypeMirror holderFieldType;
+
+  @AssistedInject
+  StaticHolderRequestRepresentation(
+      @Assisted ProvisionBinding binding,
+      ComponentImplementation componentImplementation,
+      UnscopedDirectInstanceRequestRepresentationFactory
+          unscopedDirectInstanceRequestRepresentationFactory,
+      DaggerTypes types) {
+    this.binding = checkNotNull(binding);
+    this.componentShard = componentImplementation.getComponentShard();
+    this.unscopedDirectInstanceRequestRepresentation =
+        unscopedDirectInstanceRequestRepresentationFactory.create(binding);
+    this.types = checkNotNull(types);
+  }
+
+  @Override
+  Expression getDependencyExpression(ClassName requestingClass) {
+    if (holderName == null) {
+      addHolder();
+    }
+    return Expression.create(holderFieldType, CodeBlock.of("$T.$N", holderName, INSTANCE_FIELD));
+  }
+
+  private void addHolder() {
+    holderName =
+        componentShard
+            .name()
+            .nestedClass(
+                componentShard.getUniqueClassName(
+                    LOWER_CAMEL.to(UPPER_CAMEL, KeyVariableNamer.name(binding.key())) + "Holder"));
+    holderFieldType = types.accessibleType(binding.contributedType(), holderName);
+    // The instance has no dependencies, so it can be created without an instance of the component.
+    CodeBlock instance =
+        unscopedDirectInstanceRequestRepresentation.getDependencyExpression(holderName).codeBlock();
+    componentShard.addType(
+        TypeSpecKind.STATIC_HOLDER,
+        classBuilder(holderName)
+            .addModifiers(PRIVATE, STATIC, FINAL)
+            .addField(
+                FieldSpec.builder(TypeName.get(holderFieldType), INSTANCE_FIELD, STATIC, FINAL)
+                    .initializer(instance)
+                    .build())
+            .build());
+  }
+
+  /**
+   * Returns {@code true} if the instance of {@code binding} can be held in a static holder class.
+   *
+   * <p>Holders are only used when {@link CompilerOptions#staticHolderSingletons()} is enabled, for
+   * scoped {@code @Inject} constructors and static {@code @Provides} methods in the root component
+   * that have no dependencies and no injected members. The holder is shared by all instances of
+   * the root component.
+   */
+  static boolean usesStaticHolder(
+      ProvisionBinding binding, BindingGraph graph, CompilerOptions compilerOptions) {
+    if (!compilerOptions.staticHolderSingletons()
+        || !graph.componentPath().atRoot()
+        || !binding.scope().isPresent()) {
+      return false;
+    }
+    switch (binding.kind()) {
+      case INJECTION:
+      case PROVISION:
+        return binding.dependencies().isEmpty()
+            && binding.injectionSites().isEmpty()
+            && !binding.requiresModuleInstance();
+      default:
+        return false;
+    }
+  }
+
+  @AssistedFactory
+  static interface Factory {
+    StaticHolderRequestRepresentation create(ProvisionBinding binding);
+  }
+}
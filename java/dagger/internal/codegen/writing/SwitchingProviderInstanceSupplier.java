@@ -16,18 +16,23 @@
 
 package dagger.internal.codegen.writing;
 
-import static dagger.internal.codegen.javapoet.TypeNames.DOUBLE_CHECK;
 import static dagger.internal.codegen.javapoet.TypeNames.SINGLE_CHECK;
+import static dagger.internal.codegen.writing.BindingRepresentations.counted;
+import static dagger.internal.codegen.writing.BindingRepresentations.monitored;
+import static dagger.internal.codegen.writing.BindingRepresentations.scopedProviderType;
+import static dagger.internal.codegen.writing.ProvisionBindingRepresentation.isCachedConstantMultibinding;
+import static dagger.internal.codegen.writing.ProvisionBindingRepresentation.isMonitored;
 
 import com.squareup.javapoet.CodeBlock;
 import dagger.assisted.Assisted;
 import dagger.assisted.AssistedFactory;
 import dagger.assisted.AssistedInject;
-import dagger.internal.codegen.binding.Binding;
 import dagger.internal.codegen.binding.BindingGraph;
 import dagger.internal.codegen.binding.ProvisionBinding;
+import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.writing.FrameworkFieldInitializer.FrameworkInstanceCreationExpression;
 import dagger.spi.model.BindingKind;
+import java.util.Optional;
 
 /**
  * An object that initializes a framework-type component field for a binding using instances created
@@ -43,13 +48,27 @@ final class SwitchingProviderInstanceSupplier implements FrameworkInstanceSuppli
       BindingGraph graph,
       ComponentImplementation componentImplementation,
       UnscopedDirectInstanceRequestRepresentationFactory
-          unscopedDirectInstanceRequestRepresentationFactory) {
+          unscopedDirectInstanceRequestRepresentationFactory,
+      CompilerOptions compilerOptions) {
     FrameworkInstanceCreationExpression frameworkInstanceCreationExpression =
         switchingProviders.newFrameworkInstanceCreationExpression(
             binding, unscopedDirectInstanceRequestRepresentationFactory.create(binding));
+    Optional<Integer> counterIndex = componentImplementation.provisionCounterIndex(binding);
+    if (counterIndex.isPresent()) {
+      frameworkInstanceCreationExpression =
+          counted(
+              frameworkInstanceCreationExpression,
+              componentImplementation.provisionCountersReference(),
+              counterIndex.get());
+    }
+    if (isMonitored(binding, compilerOptions)) {
+      frameworkInstanceCreationExpression = monitored(binding, frameworkInstanceCreationExpression);
+    }
     this.frameworkInstanceSupplier =
         new FrameworkFieldInitializer(
-            componentImplementation, binding, scope(binding, frameworkInstanceCreationExpression));
+            componentImplementation,
+            binding,
+            scope(binding, frameworkInstanceCreationExpression, graph, compilerOptions));
   }
 
   @Override
@@ -58,17 +77,23 @@ final class SwitchingProviderInstanceSupplier implements FrameworkInstanceSuppli
   }
 
   private FrameworkInstanceCreationExpression scope(
-      Binding binding, FrameworkInstanceCreationExpression unscoped) {
+      ProvisionBinding binding,
+      FrameworkInstanceCreationExpression unscoped,
+      BindingGraph graph,
+      CompilerOptions compilerOptions) {
     // Caching assisted factory provider, so that there won't be new factory created for each
-    // provider.get() call.
-    if (!binding.scope().isPresent() && !binding.kind().equals(BindingKind.ASSISTED_FACTORY)) {
+    // provider.get() call. Constant multibindings are cached so that their collections aren't
+    // recreated.
+    if (!binding.scope().isPresent()
+        && !binding.kind().equals(BindingKind.ASSISTED_FACTORY)
+        && !isCachedConstantMultibinding(binding, graph, compilerOptions)) {
       return unscoped;
     }
     return () ->
         CodeBlock.of(
             "$T.provider($L)",
             binding.scope().isPresent()
-                ? (binding.scope().get().isReusable() ? SINGLE_CHECK : DOUBLE_CHECK)
+                ? scopedProviderType(binding.scope().get(), compilerOptions)
                 : SINGLE_CHECK,
             unscoped.creationExpression());
   }
@@ -17,7 +17,6 @@
 package dagger.internal.codegen.writing;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Iterables.getLast;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.squareup.javapoet.MethodSpec.methodBuilder;
 import static com.squareup.javapoet.TypeSpec.classBuilder;
@@ -40,6 +39,7 @@ import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
 import dagger.internal.codegen.base.UniqueNameSet;
 import dagger.internal.codegen.binding.ContributionBinding;
+import dagger.internal.codegen.compileroption.CompilerOptions;
 import dagger.internal.codegen.javapoet.CodeBlocks;
 import dagger.internal.codegen.langmodel.DaggerTypes;
 import dagger.internal.codegen.writing.ComponentImplementation.ShardImplementation;
@@ -60,35 +60,43 @@ import javax.inject.Inject;
  */
 @PerComponentImplementation
 final class SwitchingProviders {
-  /**
-   * Each switch size is fixed at 100 cases each and put in its own method. This is to limit the
-   * size of the methods so that we don't reach the "huge" method size limit for Android that will
-   * prevent it from being AOT compiled in some versions of Android (b/77652521). This generally
-   * starts to happen around 1500 cases, but we are choosing 100 to be safe.
-   */
-  // TODO(bcorso): Include a proguard_spec in the Dagger library to prevent inlining these methods?
-  // TODO(ronshapiro): Consider making this configurable via a flag.
-  private static final int MAX_CASES_PER_SWITCH = 100;
-
-  private static final long MAX_CASES_PER_CLASS = MAX_CASES_PER_SWITCH * MAX_CASES_PER_SWITCH;
   private static final TypeVariableName T = TypeVariableName.get("T");
 
   /**
    * Maps a {@link Key} to an instance of a {@link SwitchingProviderBuilder}. Each group of {@code
-   * MAX_CASES_PER_CLASS} keys will share the same instance.
+   * maxCasesPerClass} keys in the same shard will share the same instance.
    */
   private final Map<Key, SwitchingProviderBuilder> switchingProviderBuilders =
       new LinkedHashMap<>();
 
-  private final ShardImplementation shardImplementation;
+  /** The {@link SwitchingProviderBuilder} that new keys are added to, for each shard. */
+  private final Map<ShardImplementation, SwitchingProviderBuilder> currentBuildersByShard =
+      new HashMap<>();
+
+  private final Map<ShardImplementation, UniqueNameSet> switchingProviderNames = new HashMap<>();
+  private final ComponentImplementation componentImplementation;
   private final DaggerTypes types;
-  private final UniqueNameSet switchingProviderNames = new UniqueNameSet();
+
+  /**
+   * The number of cases in each switch, each of which is put in its own method. This is to limit
+   * the size of the methods so that we don't reach the "huge" method size limit for Android that
+   * will prevent it from being AOT compiled in some versions of Android (b/77652521). This
+   * generally starts to happen around 1500 cases, but we are choosing 100 by default to be safe.
+   */
+  // TODO(bcorso): Include a proguard_spec in the Dagger library to prevent inlining these methods?
+  private final int maxCasesPerSwitch;
+
+  private final long maxCasesPerClass;
 
   @Inject
-  SwitchingProviders(ComponentImplementation componentImplementation, DaggerTypes types) {
-    // Currently, the SwitchingProviders types are only added to the componentShard.
-    this.shardImplementation = checkNotNull(componentImplementation).getComponentShard();
+  SwitchingProviders(
+      ComponentImplementation componentImplementation,
+      DaggerTypes types,
+      CompilerOptions compilerOptions) {
+    this.componentImplementation = checkNotNull(componentImplementation);
     this.types = checkNotNull(types);
+    this.maxCasesPerSwitch = compilerOptions.switchingProviderCasesPerSwitch();
+    this.maxCasesPerClass = (long) maxCasesPerSwitch * maxCasesPerSwitch;
   }
 
   /** Returns the framework instance creation expression for an inner switching provider class. */
@@ -98,21 +106,35 @@ final class SwitchingProviders {
       @Override
       public CodeBlock creationExpression() {
         return switchingProviderBuilders
-            .computeIfAbsent(binding.key(), key -> getSwitchingProviderBuilder())
+            .computeIfAbsent(
+                binding.key(),
+                key ->
+                    getSwitchingProviderBuilder(
+                        componentImplementation.shardImplementation(binding)))
             .getNewInstanceCodeBlock(binding, unscopedInstanceRequestRepresentation);
       }
     };
   }
 
-  private SwitchingProviderBuilder getSwitchingProviderBuilder() {
-    if (switchingProviderBuilders.size() % MAX_CASES_PER_CLASS == 0) {
-      String name = switchingProviderNames.getUniqueName("SwitchingProvider");
-      SwitchingProviderBuilder switchingProviderBuilder =
-          new SwitchingProviderBuilder(shardImplementation.name().nestedClass(name));
-      shardImplementation.addTypeSupplier(switchingProviderBuilder::build);
-      return switchingProviderBuilder;
+  /**
+   * Returns the {@link SwitchingProviderBuilder} for a new key in {@code shardImplementation}.
+   *
+   * <p>Each shard gets its own {@code SwitchingProvider} classes, next to the fields of the
+   * bindings that they create, so that the component class doesn't grow with every binding.
+   */
+  private SwitchingProviderBuilder getSwitchingProviderBuilder(
+      ShardImplementation shardImplementation) {
+    SwitchingProviderBuilder current = currentBuildersByShard.get(shardImplementation);
+    if (current == null || current.switchIds.size() >= maxCasesPerClass) {
+      String name =
+          switchingProviderNames
+              .computeIfAbsent(shardImplementation, shard -> new UniqueNameSet())
+              .getUniqueName("SwitchingProvider");
+      current = new SwitchingProviderBuilder(shardImplementation, name);
+      shardImplementation.addTypeSupplier(current::build);
+      currentBuildersByShard.put(shardImplementation, current);
     }
-    return getLast(switchingProviderBuilders.values());
+    return current;
   }
 
   // TODO(bcorso): Consider just merging this class with SwitchingProviders.
@@ -121,10 +143,12 @@ final class SwitchingProviders {
     // traversal, but the switch cases are assigned in post-order traversal of the binding graph.
     private final Map<Integer, CodeBlock> switchCases = new TreeMap<>();
     private final Map<Key, Integer> switchIds = new HashMap<>();
+    private final ShardImplementation shardImplementation;
     private final ClassName switchingProviderType;
 
-    SwitchingProviderBuilder(ClassName switchingProviderType) {
-      this.switchingProviderType = checkNotNull(switchingProviderType);
+    SwitchingProviderBuilder(ShardImplementation shardImplementation, String simpleName) {
+      this.shardImplementation = checkNotNull(shardImplementation);
+      this.switchingProviderType = shardImplementation.name().nestedClass(simpleName);
     }
 
     private CodeBlock getNewInstanceCodeBlock(
@@ -173,11 +197,16 @@ final class SwitchingProviders {
     private TypeSpec build() {
       TypeSpec.Builder builder =
           classBuilder(switchingProviderType)
-              .addModifiers(PRIVATE, FINAL, STATIC)
+              .addModifiers(PRIVATE, FINAL)
               .addTypeVariable(T)
               .addSuperinterface(providerOf(T))
               .addMethods(getMethods());
 
+      // Shards are inner classes, which can't declare static nested classes.
+      if (shardImplementation.isComponentShard()) {
+        builder.addModifiers(STATIC);
+      }
+
       // The SwitchingProvider constructor lists all component parameters first and switch id last.
       MethodSpec.Builder constructor = MethodSpec.constructorBuilder();
       shardImplementation
@@ -198,7 +227,7 @@ final class SwitchingProviders {
     private ImmutableList<MethodSpec> getMethods() {
       ImmutableList<CodeBlock> switchCodeBlockPartitions = switchCodeBlockPartitions();
       if (switchCodeBlockPartitions.size() == 1) {
-        // There are less than MAX_CASES_PER_SWITCH cases, so no need for extra get methods.
+        // There are less than maxCasesPerSwitch cases, so no need for extra get methods.
         return ImmutableList.of(
             methodBuilder("get")
                 .addModifiers(PUBLIC)
@@ -215,7 +244,7 @@ final class SwitchingProviders {
               .addModifiers(PUBLIC)
               .addAnnotation(Override.class)
               .returns(T)
-              .beginControlFlow("switch (id / $L)", MAX_CASES_PER_SWITCH);
+              .beginControlFlow("switch (id / $L)", maxCasesPerSwitch);
 
       ImmutableList.Builder<MethodSpec> getMethods = ImmutableList.builder();
       for (int i = 0; i < switchCodeBlockPartitions.size(); i++) {
@@ -236,7 +265,7 @@ final class SwitchingProviders {
     }
 
     private ImmutableList<CodeBlock> switchCodeBlockPartitions() {
-      return Lists.partition(ImmutableList.copyOf(switchCases.values()), MAX_CASES_PER_SWITCH)
+      return Lists.partition(ImmutableList.copyOf(switchCases.values()), maxCasesPerSwitch)
           .stream()
           .map(
               partitionCases ->
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.monitoring;
+
+/**
+ * A hook for monitoring the provision of individual bindings. See {@link ProvisionMonitors} for how
+ * to install a monitor.
+ *
+ * <p>Each time a monitored binding provides an instance:
+ *
+ * <ul>
+ *   <li>{@link #provisionStarting(ProvisionToken)} is called
+ *   <li>The binding's dependencies are provided, and then the binding's constructor or method is
+ *       called
+ *   <li>{@link #provisionFinished(ProvisionToken)} is called if it returned normally; or {@link
+ *       #provisionFailed(ProvisionToken, Throwable)} is called if it threw an exception.
+ * </ul>
+ *
+ * <p>Both events of a provision happen on the thread that requested the instance, and the
+ * provisions of its dependencies are nested between them. For example, given an entry point A that
+ * depends on B, which depends on C, calling the entry point reports:
+ *
+ * <ul>
+ *   <li>A starting
+ *   <li>B starting
+ *   <li>C starting
+ *   <li>C finished
+ *   <li>B finished
+ *   <li>A finished
+ * </ul>
+ *
+ * <p>Scoped bindings are only reported when their instance is created, not when it is reused.
+ *
+ * <p>Monitors are called on the thread that provides each instance, so they must be thread-safe and
+ * should return quickly. If any of the monitor's methods throw, then the exception will be logged
+ * and the provision will continue unaffected.
+ */
+public abstract class ProvisionMonitor {
+  /** Called before the binding's dependencies are provided. */
+  public void provisionStarting(ProvisionToken token) {}
+
+  /** Called after the binding returned an instance. */
+  public void provisionFinished(ProvisionToken token) {}
+
+  /**
+   * Called after the binding, or the provision of one of its dependencies, threw {@code throwable}.
+   */
+  public void provisionFailed(ProvisionToken token, Throwable throwable) {}
+}
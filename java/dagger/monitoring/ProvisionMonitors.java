@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.monitoring;
+
+/**
+ * Installs the {@link ProvisionMonitor} that components generated with {@code
+ * -Adagger.provisionMonitoring=enabled} report provisions to.
+ *
+ * <p>The monitor is shared by all components in the class loader. While no monitor is installed,
+ * components only check whether one has been installed before each provision.
+ */
+public final class ProvisionMonitors {
+  private static volatile ProvisionMonitor installed;
+
+  /** Installs {@code monitor}, replacing any monitor that was installed before. */
+  public static void install(ProvisionMonitor monitor) {
+    if (monitor == null) {
+      throw new NullPointerException();
+    }
+    installed = monitor;
+  }
+
+  /** Uninstalls the installed monitor, if any. */
+  public static void uninstall() {
+    installed = null;
+  }
+
+  /** Returns the installed monitor, or {@code null} if there is none. */
+  public static ProvisionMonitor installed() {
+    return installed;
+  }
+
+  private ProvisionMonitors() {}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.monitoring;
+
+/**
+ * A token that represents an individual binding, such as an {@link javax.inject.Inject @Inject}
+ * constructor or a {@link dagger.Provides @Provides} method, in {@link ProvisionMonitor} events.
+ *
+ * <p>Components create one token for each monitored binding when they are created, so monitors can
+ * use tokens as keys without any work when a binding is provided.
+ */
+public final class ProvisionToken {
+  private final String key;
+
+  private ProvisionToken(String key) {
+    this.key = key;
+  }
+
+  /**
+   * Creates a token for the binding of a key.
+   *
+   * <p><b>Do not use this!</b> This is intended to be called by generated code only, and its
+   * signature may change at any time.
+   */
+  public static ProvisionToken create(String key) {
+    if (key == null) {
+      throw new NullPointerException();
+    }
+    return new ProvisionToken(key);
+  }
+
+  /** Two tokens are equal if they represent the same key. */
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (o instanceof ProvisionToken) {
+      return key.equals(((ProvisionToken) o).key);
+    } else {
+      return false;
+    }
+  }
+
+  /** Returns an appropriate hash code to match {@link #equals(Object)}. */
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+
+  /** Returns a representation of the key of the binding, e.g. {@code com.example.Foo}. */
+  @Override
+  public String toString() {
+    return key;
+  }
+}
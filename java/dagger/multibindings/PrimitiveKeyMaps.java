@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.multibindings;
+
+import java.util.Map;
+
+/**
+ * Lookups into multibound maps with {@link IntKey @IntKey} or {@link LongKey @LongKey} keys that
+ * take primitive keys.
+ *
+ * <p>When a component is compiled with {@code -Adagger.primitiveKeyMaps=enabled}, its multibound
+ * {@code Map<Integer, V>} and {@code Map<Long, V>} maps store their keys unboxed, and the lookups
+ * returned by {@link #intKeyLookup(Map)} and {@link #longKeyLookup(Map)} are the maps themselves,
+ * so a lookup neither boxes the key nor allocates:
+ *
+ * <pre><code>
+ * {@literal @}Inject
+ * Dispatcher(Map&lt;Integer, Provider&lt;Handler&gt;&gt; handlers) {
+ *   this.handlers = PrimitiveKeyMaps.intKeyLookup(handlers);
+ * }
+ *
+ * void dispatch(Message message) {
+ *   handlers.get(message.type()).get().handle(message);
+ * }
+ * </code></pre>
+ *
+ * <p>For other maps, the lookups delegate to {@link Map#get(Object)}.
+ */
+public final class PrimitiveKeyMaps {
+  /** A lookup into a map with {@code int} keys. */
+  public interface IntKeyLookup<V> {
+    /** Returns the value for {@code key}, or {@code null} if there is none. */
+    V get(int key);
+  }
+
+  /** A lookup into a map with {@code long} keys. */
+  public interface LongKeyLookup<V> {
+    /** Returns the value for {@code key}, or {@code null} if there is none. */
+    V get(long key);
+  }
+
+  /** Returns a lookup into {@code map}. */
+  @SuppressWarnings("unchecked") // Dagger's maps with int keys implement IntKeyLookup<V>
+  public static <V> IntKeyLookup<V> intKeyLookup(final Map<Integer, V> map) {
+    if (map instanceof IntKeyLookup) {
+      return (IntKeyLookup<V>) map;
+    }
+    if (map == null) {
+      throw new NullPointerException();
+    }
+    return new IntKeyLookup<V>() {
+      @Override
+      public V get(int key) {
+        return map.get(key);
+      }
+    };
+  }
+
+  /** Returns a lookup into {@code map}. */
+  @SuppressWarnings("unchecked") // Dagger's maps with long keys implement LongKeyLookup<V>
+  public static <V> LongKeyLookup<V> longKeyLookup(final Map<Long, V> map) {
+    if (map instanceof LongKeyLookup) {
+      return (LongKeyLookup<V>) map;
+    }
+    if (map == null) {
+      throw new NullPointerException();
+    }
+    return new LongKeyLookup<V>() {
+      @Override
+      public V get(long key) {
+        return map.get(key);
+      }
+    };
+  }
+
+  private PrimitiveKeyMaps() {}
+}
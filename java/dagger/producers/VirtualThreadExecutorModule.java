@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers;
+
+import dagger.Binds;
+import dagger.Module;
+import dagger.internal.Beta;
+import dagger.producers.internal.VirtualThreadExecutor;
+import java.util.concurrent.Executor;
+
+/**
+ * A module that binds the {@link Production @Production} {@link Executor} of a production component
+ * to one that runs each {@linkplain Produces producer method} on its own virtual thread, so that
+ * methods that block (e.g., on JDBC or RPC clients) don't need a large pool of platform threads.
+ *
+ * <p>Install it in a {@link ProductionComponent} instead of a module that binds the executor:
+ *
+ * <pre><code>
+ * {@literal @}ProductionComponent(modules = {VirtualThreadExecutorModule.class, ...})
+ * interface MyComponent { ... }
+ * </code></pre>
+ *
+ * <p>The executor is unbounded, so limit concurrency where it matters, e.g. with a semaphore around
+ * the calls to a connection pool. Virtual threads require JDK 21 (or JDK 19 or 20 with {@code
+ * --enable-preview}); on older runtimes, methods run on a shared pool of at most 64 daemon platform
+ * threads instead, so methods that block may wait for each other, and a warning is logged.
+ *
+ * <h3>Pinning</h3>
+ *
+ * <p>Before JDK 24, a virtual thread that blocks while holding a monitor pins its carrier thread,
+ * and enough pinned threads can stall every virtual thread in the process. The producers runtime
+ * doesn't hold monitors while running producer methods, while calling component dependency methods,
+ * or while completing the futures that chain producers together, so blocking in those is fine.
+ * Pinning can still come from:
+ *
+ * <ul>
+ *   <li>Producer methods that block inside {@code synchronized} blocks, including ones in the
+ *       libraries they call.
+ *   <li>Scoped bindings that block while they're created, since they're created while holding a
+ *       monitor by default. Compile with {@code -Adagger.reentrantLockDoubleCheck=enabled} to
+ *       create them while holding a {@link java.util.concurrent.locks.ReentrantLock} instead.
+ *   <li>Values of multibound maps compiled with {@code -Adagger.lazyMapValues=enabled} that block
+ *       while they're provided. Each value is provided the first time it's accessed while holding
+ *       a monitor for that value alone, so only threads that access the same value wait for it.
+ * </ul>
+ *
+ * <p>Run with {@code -Djdk.tracePinnedThreads=full} to find the code that pins a carrier thread.
+ */
+@Beta
+@Module
+public abstract class VirtualThreadExecutorModule {
+  @Binds
+  @Production
+  abstract Executor virtualThreadExecutor(VirtualThreadExecutor executor);
+
+  private VirtualThreadExecutorModule() {}
+}
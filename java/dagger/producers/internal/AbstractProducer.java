@@ -17,15 +17,34 @@
 package dagger.producers.internal;
 
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static dagger.internal.Preconditions.checkNotNull;
 
 import com.google.common.util.concurrent.AbstractFuture;
 import com.google.common.util.concurrent.ListenableFuture;
 import dagger.producers.Producer;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
 
 /** An abstract {@link Producer} implementation that memoizes the result of its compute method. */
 public abstract class AbstractProducer<T> implements CancellableProducer<T> {
-  private final AtomicBoolean requested = new AtomicBoolean();
+  // Every node and every edge of a production component's graph has one of these objects, so they
+  // use field updaters rather than separate atomic objects, and views don't create their futures
+  // until they're requested.
+  @SuppressWarnings("rawtypes")
+  private static final AtomicIntegerFieldUpdater<AbstractProducer> REQUESTED =
+      AtomicIntegerFieldUpdater.newUpdater(AbstractProducer.class, "requested");
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<
+          AbstractProducer.NonCancellationPropagatingView, ListenableFuture>
+      VIEW_FUTURE =
+          AtomicReferenceFieldUpdater.newUpdater(
+              AbstractProducer.NonCancellationPropagatingView.class,
+              ListenableFuture.class,
+              "viewFuture");
+
+  private volatile int requested;
   private final NonExternallyCancellableFuture<T> future = new NonExternallyCancellableFuture<T>();
 
   protected AbstractProducer() {}
@@ -35,7 +54,7 @@ public abstract class AbstractProducer<T> implements CancellableProducer<T> {
 
   @Override
   public final ListenableFuture<T> get() {
-    if (requested.compareAndSet(false, true)) {
+    if (requested == 0 && REQUESTED.compareAndSet(this, 0, 1)) {
       future.setFuture(compute());
     }
     return future;
@@ -43,20 +62,18 @@ public abstract class AbstractProducer<T> implements CancellableProducer<T> {
 
   @Override
   public final void cancel(boolean mayInterruptIfRunning) {
-    requested.set(true); // Avoid potentially starting the task later only to cancel it immediately.
+    requested = 1; // Avoid potentially starting the task later only to cancel it immediately.
     future.doCancel(mayInterruptIfRunning);
   }
 
   @Override
   public Producer<T> newDependencyView() {
-    return new NonCancellationPropagatingView();
+    return new NonCancellationPropagatingView(null);
   }
 
   @Override
   public Producer<T> newEntryPointView(CancellationListener cancellationListener) {
-    NonCancellationPropagatingView result = new NonCancellationPropagatingView();
-    result.addCancellationListener(cancellationListener);
-    return result;
+    return new NonCancellationPropagatingView(checkNotNull(cancellationListener));
   }
 
   /**
@@ -64,20 +81,49 @@ public abstract class AbstractProducer<T> implements CancellableProducer<T> {
    * producer itself.
    */
   private final class NonCancellationPropagatingView implements Producer<T> {
+    @NullableDecl private final CancellationListener cancellationListener;
+
     /**
-     * An independently cancellable view of this node. Needs to be cancellable by normal future
-     * cancellation so that the view at an entry point can listen for its cancellation.
+     * An independently cancellable view of this node, created when this view is first requested.
+     * Needs to be cancellable by normal future cancellation so that the view at an entry point can
+     * listen for its cancellation. Not private, so that {@link #VIEW_FUTURE} can access it before
+     * Java 11.
      */
-    private final ListenableFuture<T> viewFuture = nonCancellationPropagating(future);
+    @NullableDecl volatile ListenableFuture<T> viewFuture;
+
+    NonCancellationPropagatingView(@NullableDecl CancellationListener cancellationListener) {
+      this.cancellationListener = cancellationListener;
+    }
 
     @SuppressWarnings("FutureReturnValueIgnored")
     @Override
     public ListenableFuture<T> get() {
       AbstractProducer.this.get(); // force compute()
-      return viewFuture;
+      ListenableFuture<T> result = viewFuture;
+      return result != null ? result : createViewFuture();
     }
 
-    void addCancellationListener(final CancellationListener cancellationListener) {
+    private ListenableFuture<T> createViewFuture() {
+      // If this node is already done, its future can't be cancelled and can be returned as is.
+      // Otherwise, the view's future only starts listening to the node's future once it has won the
+      // race to be this view's future, so that the losers don't stay registered as listeners.
+      NonCancellationPropagatingFuture<T> pending =
+          future.isDone() ? null : new NonCancellationPropagatingFuture<T>(future);
+      ListenableFuture<T> result = pending != null ? pending : future;
+      if (!VIEW_FUTURE.compareAndSet(this, null, result)) {
+        return viewFuture;
+      }
+      if (pending != null) {
+        future.addListener(pending, directExecutor());
+      }
+      if (cancellationListener != null) {
+        addCancellationListener(result, cancellationListener);
+      }
+      return result;
+    }
+
+    private void addCancellationListener(
+        final ListenableFuture<T> viewFuture, final CancellationListener cancellationListener) {
       viewFuture.addListener(
           new Runnable() {
             @Override
@@ -113,15 +159,6 @@ public abstract class AbstractProducer<T> implements CancellableProducer<T> {
     }
   }
 
-  private static <T> ListenableFuture<T> nonCancellationPropagating(ListenableFuture<T> future) {
-    if (future.isDone()) {
-      return future;
-    }
-    NonCancellationPropagatingFuture<T> output = new NonCancellationPropagatingFuture<T>(future);
-    future.addListener(output, directExecutor());
-    return output;
-  }
-
   /**
    * Equivalent to {@code Futures.nonCancellationPropagating}, but allowing us to check whether or
    * not {@code mayInterruptIfRunning} was set when cancelling it.
@@ -16,6 +16,7 @@
 
 package dagger.producers.internal;
 
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static dagger.internal.Preconditions.checkNotNull;
 
 import com.google.common.util.concurrent.AsyncFunction;
@@ -43,22 +44,45 @@ public abstract class AbstractProducesMethodProducer<D, T> extends AbstractProdu
   private final Provider<ProductionComponentMonitor> monitorProvider;
   @NullableDecl private final ProducerToken token;
   private final Provider<Executor> executorProvider;
+  private final boolean nonBlocking;
   private volatile ProducerMonitor monitor = null;
 
   protected AbstractProducesMethodProducer(
       Provider<ProductionComponentMonitor> monitorProvider,
       @NullableDecl ProducerToken token,
       Provider<Executor> executorProvider) {
+    this(monitorProvider, token, executorProvider, false);
+  }
+
+  /**
+   * @param nonBlocking whether the {@link dagger.producers.Produces} method is {@linkplain
+   *     dagger.producers.Produces#nonBlocking non-blocking}, in which case it is called on the
+   *     requesting thread if its dependencies are already complete
+   */
+  protected AbstractProducesMethodProducer(
+      Provider<ProductionComponentMonitor> monitorProvider,
+      @NullableDecl ProducerToken token,
+      Provider<Executor> executorProvider,
+      boolean nonBlocking) {
     this.monitorProvider = checkNotNull(monitorProvider);
     this.token = token;
     this.executorProvider = checkNotNull(executorProvider);
+    this.nonBlocking = nonBlocking;
   }
 
   @Override
   protected final ListenableFuture<T> compute() {
     monitor = monitorProvider.get().producerMonitorFor(token);
     monitor.requested();
-    ListenableFuture<T> result = Futures.transformAsync(collectDependencies(), this, this);
+    ListenableFuture<D> dependencies = collectDependencies();
+    ListenableFuture<T> result;
+    if (nonBlocking && dependencies.isDone()) {
+      // Skip the executor: the method is called before transformAsync() returns.
+      monitor.ready();
+      result = Futures.transformAsync(dependencies, this, directExecutor());
+    } else {
+      result = Futures.transformAsync(dependencies, this, this);
+    }
     monitor.addCallbackTo(result);
     return result;
   }
@@ -86,7 +110,8 @@ public abstract class AbstractProducesMethodProducer<D, T> extends AbstractProdu
 
   /**
    * Calls the {@link dagger.producers.Produces} method. This will always be called on the {@link
-   * Executor} provided to this producer.
+   * Executor} provided to this producer, unless the method is non-blocking and its dependencies
+   * were already complete when this producer was requested.
    */
   protected abstract ListenableFuture<T> callProducesMethod(D asyncDependencies) throws Exception;
 
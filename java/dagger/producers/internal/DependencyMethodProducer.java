@@ -42,6 +42,7 @@ public abstract class DependencyMethodProducer<T> implements CancellableProducer
       Collections.newSetFromMap(new MapMaker().weakKeys().<ListenableFuture<T>, Boolean>makeMap());
 
   private boolean cancelled = false;
+  private boolean mayInterruptIfRunning = false;
 
   /** Calls a method on a component dependency to get a future. */
   protected abstract ListenableFuture<T> callDependencyMethod();
@@ -52,9 +53,16 @@ public abstract class DependencyMethodProducer<T> implements CancellableProducer
       if (cancelled) {
         return Futures.immediateCancelledFuture();
       }
+    }
 
-      final ListenableFuture<T> future = callDependencyMethod();
-      if (!future.isDone() && futures.add(future)) {
+    // The dependency method is called without holding the lock, since it may block (and a virtual
+    // thread that blocks while holding a monitor pins its carrier thread).
+    final ListenableFuture<T> future = callDependencyMethod();
+    synchronized (futures) {
+      if (cancelled) {
+        // This producer was cancelled while the dependency method was running.
+        future.cancel(mayInterruptIfRunning);
+      } else if (!future.isDone() && futures.add(future)) {
         future.addListener(
             new Runnable() {
               @Override
@@ -74,6 +82,7 @@ public abstract class DependencyMethodProducer<T> implements CancellableProducer
   public final void cancel(boolean mayInterruptIfRunning) {
     synchronized (futures) {
       cancelled = true;
+      this.mayInterruptIfRunning = mayInterruptIfRunning;
       for (ListenableFuture<T> future : futures) {
         // futures is a concurrent set so that the concurrent removal that will happen here is not
         // a problem
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.internal;
+
+import dagger.producers.monitoring.ProducerToken;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implemented by production components that were generated with {@code
+ * -Adagger.writeProducerDependencies=enabled}, so that monitors can relate the producers they see
+ * to one another.
+ */
+public interface ProducerDependencies {
+  /**
+   * Returns the token of each {@link dagger.producers.Produces} method that the component resolves,
+   * mapped to the tokens of the {@code Produces} methods whose results it waits on before it runs.
+   *
+   * <p>A dependency on a {@code @Binds} method, a multibinding or an optional binding is replaced
+   * by the {@code Produces} methods that contribute to it. Dependencies that aren't waited on, such
+   * as {@link dagger.producers.Producer} dependencies, are left out.
+   */
+  Map<ProducerToken, Set<ProducerToken>> producerDependencies();
+}
@@ -0,0 +1,563 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.internal;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static dagger.internal.Preconditions.checkNotNull;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import dagger.producers.Produced;
+import dagger.producers.Producer;
+import dagger.producers.monitoring.ProducerMonitor;
+import dagger.producers.monitoring.ProducerToken;
+import dagger.producers.monitoring.ProductionComponentMonitor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * The {@link dagger.producers.Produces} methods of a production component, run by one state machine
+ * rather than by a graph of {@link AbstractProducesMethodProducer}s. Subclasses are generated for
+ * components compiled with {@code -Adagger.productionStateMachine=enabled}.
+ *
+ * <p>Each node of the state machine's {@link Graph} has an int id. A node is either a {@code
+ * Produces} method, which the subclass calls in {@link #produce(int)}, or an external producer,
+ * such as a multibinding or a binding of a parent component, whose future {@link #produce(int)}
+ * returns. The outcome of each node is kept in a slot of an array, and each requested node counts
+ * the inputs it is still waiting on, so waiting on an input needs no future, no listener and no
+ * {@link Produced} wrapper. A node only gets a future if it is requested through {@link
+ * #producer(int)}, or if its {@link ProducerMonitor} needs one.
+ *
+ * <p>Each {@code Produces} method is requested, monitored, run on the executor and cancelled as its
+ * {@link AbstractProducesMethodProducer} would be.
+ */
+public abstract class ProductionStateMachine {
+  private static final int PRODUCES_VALUE = 0;
+  private static final int PRODUCES_FUTURE = 1;
+  private static final int EXTERNAL = 2;
+  private static final int KIND_MASK = 3;
+  private static final int NON_BLOCKING = 4;
+
+  private static final int NEW = 0;
+  private static final int REQUESTING = 1;
+  private static final int REQUESTED = 2;
+
+  /** The outcome of a node that succeeded with {@code null}. */
+  private static final Object NULL = new Object();
+
+  private static final Failure CANCELLED = new Failure(null, false);
+  private static final Failure CANCELLED_AND_INTERRUPTED = new Failure(null, true);
+
+  /** Returns a builder for the {@link Graph} of a generated state machine. */
+  public static Graph.Builder graphBuilder() {
+    return new Graph.Builder();
+  }
+
+  /**
+   * The nodes of a generated state machine and the inputs that each of them waits on. It is built
+   * once for each generated class, and shared by all of its instances.
+   */
+  public static final class Graph {
+    private final int[] flags;
+
+    /**
+     * The inputs of each node. An input that is requested as {@code Produced} is stored as {@code
+     * ~input}.
+     */
+    private final int[][] inputs;
+
+    /** The index of the edge of each node's first input. */
+    private final int[] firstEdges;
+
+    /** The node that waits on each edge. */
+    private final int[] edgeNodes;
+
+    /** The edges on which each node is an input. */
+    private final int[][] outputEdges;
+
+    private Graph(int[] flags, int[][] inputs) {
+      int nodes = flags.length;
+      this.flags = flags;
+      this.inputs = inputs;
+      this.firstEdges = new int[nodes];
+      int[] outputCounts = new int[nodes];
+      int edges = 0;
+      for (int node = 0; node < nodes; node++) {
+        firstEdges[node] = edges;
+        for (int input : inputs[node]) {
+          int inputNode = inputNode(input);
+          if (inputNode >= nodes) {
+            throw new IllegalArgumentException("Node " + node + " has no input " + inputNode);
+          }
+          outputCounts[inputNode]++;
+        }
+        edges += inputs[node].length;
+      }
+
+      this.edgeNodes = new int[edges];
+      this.outputEdges = new int[nodes][];
+      for (int node = 0; node < nodes; node++) {
+        outputEdges[node] = new int[outputCounts[node]];
+        outputCounts[node] = 0;
+      }
+      for (int node = 0; node < nodes; node++) {
+        for (int i = 0; i < inputs[node].length; i++) {
+          int edge = firstEdges[node] + i;
+          int inputNode = inputNode(inputs[node][i]);
+          edgeNodes[edge] = node;
+          outputEdges[inputNode][outputCounts[inputNode]++] = edge;
+        }
+      }
+    }
+
+    int nodes() {
+      return flags.length;
+    }
+
+    int edges() {
+      return edgeNodes.length;
+    }
+
+    /** A builder for a {@link Graph}, which numbers the nodes in the order that they are added. */
+    public static final class Builder {
+      private final List<Integer> flags = new ArrayList<>();
+      private final List<int[]> inputs = new ArrayList<>();
+
+      private Builder() {}
+
+      /**
+       * Adds a {@code Produces} method that returns its value and waits on {@code inputs}. An input
+       * that is requested as {@code Produced} is passed as {@code ~input}.
+       */
+      public Builder producesValue(int... inputs) {
+        return add(PRODUCES_VALUE, inputs);
+      }
+
+      /**
+       * Adds a {@code Produces} method that returns a future and waits on {@code inputs}. An input
+       * that is requested as {@code Produced} is passed as {@code ~input}.
+       */
+      public Builder producesFuture(int... inputs) {
+        return add(PRODUCES_FUTURE, inputs);
+      }
+
+      /** Adds an external producer. */
+      public Builder external() {
+        return add(EXTERNAL, new int[0]);
+      }
+
+      /**
+       * Marks the last {@code Produces} method that was added as {@linkplain
+       * dagger.producers.Produces#nonBlocking() non-blocking}.
+       */
+      public Builder nonBlocking() {
+        int last = flags.size() - 1;
+        if (last < 0 || (flags.get(last) & KIND_MASK) == EXTERNAL) {
+          throw new IllegalStateException("nonBlocking() must follow a Produces method");
+        }
+        flags.set(last, flags.get(last) | NON_BLOCKING);
+        return this;
+      }
+
+      private Builder add(int kind, int[] nodeInputs) {
+        flags.add(kind);
+        inputs.add(nodeInputs);
+        return this;
+      }
+
+      public Graph build() {
+        int[] flagsArray = new int[flags.size()];
+        for (int node = 0; node < flagsArray.length; node++) {
+          flagsArray[node] = flags.get(node);
+        }
+        return new Graph(flagsArray, inputs.toArray(new int[0][]));
+      }
+    }
+  }
+
+  private final Graph graph;
+
+  /** The state of each node: {@link #NEW}, {@link #REQUESTING} or {@link #REQUESTED}. */
+  private final AtomicIntegerArray states;
+
+  /**
+   * The number of inputs that each requested node is still waiting on, plus one until {@link
+   * #request(int)} has requested all of them.
+   */
+  private final AtomicIntegerArray pendingInputs;
+
+  /** Whether each edge has been subtracted from its node's {@link #pendingInputs}. */
+  private final AtomicIntegerArray resolvedEdges;
+
+  /** The outcome of each node that is done: its value, {@link #NULL} or a {@link Failure}. */
+  private final AtomicReferenceArray<Object> outcomes;
+
+  /** The future of each node that has one. */
+  private final AtomicReferenceArray<NodeFuture> futures;
+
+  /** The future that each running node is waiting on, so that cancelling the node can cancel it. */
+  private final AtomicReferenceArray<ListenableFuture<?>> running;
+
+  /**
+   * The monitor of each requested {@code Produces} method. It is written before the node's state is
+   * set to {@link #REQUESTED}, and only read after its inputs have been counted, so it doesn't need
+   * to be volatile.
+   */
+  private final ProducerMonitor[] monitors;
+
+  protected ProductionStateMachine(Graph graph) {
+    this.graph = checkNotNull(graph);
+    int nodes = graph.nodes();
+    this.states = new AtomicIntegerArray(nodes);
+    this.pendingInputs = new AtomicIntegerArray(nodes);
+    this.resolvedEdges = new AtomicIntegerArray(graph.edges());
+    this.outcomes = new AtomicReferenceArray<>(nodes);
+    this.futures = new AtomicReferenceArray<>(nodes);
+    this.running = new AtomicReferenceArray<>(nodes);
+    this.monitors = new ProducerMonitor[nodes];
+  }
+
+  /** Returns the component's monitor. */
+  protected abstract ProductionComponentMonitor componentMonitor();
+
+  /** Returns the executor that {@code Produces} methods run on. */
+  protected abstract Executor executor();
+
+  /** Returns the token of the {@code Produces} method of {@code node}. */
+  protected abstract ProducerToken token(int node);
+
+  /**
+   * Calls the {@code Produces} method of {@code node} with the outcomes of its inputs, which are
+   * read with {@link #value(int)} and {@link #produced(int)}, and returns the value or the future
+   * that it returns. If {@code node} is an external producer, returns its future.
+   */
+  protected abstract Object produce(int node) throws Exception;
+
+  /** Returns the value of an input that succeeded. */
+  @SuppressWarnings("unchecked")
+  protected final <T> T value(int node) {
+    Object outcome = outcomes.get(node);
+    return outcome == NULL ? null : (T) outcome;
+  }
+
+  /** Returns the outcome of an input that is requested as {@code Produced}. */
+  protected final <T> Produced<T> produced(int node) {
+    Object outcome = outcomes.get(node);
+    return outcome instanceof Failure
+        ? Produced.<T>failed(((Failure) outcome).cause)
+        : Produced.successful(this.<T>value(node));
+  }
+
+  /** Returns a new producer for {@code node}. */
+  public final <T> Producer<T> producer(int node) {
+    if (node < 0 || node >= graph.nodes()) {
+      throw new IndexOutOfBoundsException("No node " + node);
+    }
+    return new NodeProducer<T>(node);
+  }
+
+  /** Cancels every node that isn't done. */
+  public final void cancel(boolean mayInterruptIfRunning) {
+    for (int node = 0; node < graph.nodes(); node++) {
+      cancel(node, mayInterruptIfRunning);
+    }
+  }
+
+  private void request(int node) {
+    if (states.get(node) != NEW || !states.compareAndSet(node, NEW, REQUESTING)) {
+      return;
+    }
+    if (outcomes.get(node) != null) {
+      return; // Cancelled before it was requested.
+    }
+    int flags = graph.flags[node];
+    if ((flags & KIND_MASK) == EXTERNAL) {
+      states.set(node, REQUESTED);
+      run(node);
+      return;
+    }
+
+    ProducerMonitor monitor = componentMonitor().producerMonitorFor(token(node));
+    monitors[node] = monitor;
+    monitor.requested();
+    int[] inputs = graph.inputs[node];
+    int firstEdge = graph.firstEdges[node];
+    pendingInputs.set(node, inputs.length + 1);
+    // From here on, an input that completes resolves its edge. Inputs that are already done are
+    // resolved below, and resolvedEdges makes sure that no edge is resolved twice.
+    states.set(node, REQUESTED);
+    for (int i = 0; i < inputs.length; i++) {
+      int input = inputNode(inputs[i]);
+      request(input);
+      if (outcomes.get(input) != null) {
+        resolve(firstEdge + i);
+      }
+    }
+    if (monitor != ProducerMonitor.noOp()) {
+      monitor.addCallbackTo(nodeFuture(node));
+    }
+    if (pendingInputs.decrementAndGet(node) == 0) {
+      // Like AbstractProducesMethodProducer, only skip the executor if the inputs were done when
+      // the node was requested.
+      ready(node, (flags & NON_BLOCKING) != 0);
+    }
+  }
+
+  private void resolve(int edge) {
+    if (resolvedEdges.compareAndSet(edge, 0, 1)) {
+      int node = graph.edgeNodes[edge];
+      if (pendingInputs.decrementAndGet(node) == 0) {
+        ready(node, false);
+      }
+    }
+  }
+
+  /** Called when all the inputs of {@code node} are done. */
+  private void ready(final int node, boolean runInline) {
+    if (outcomes.get(node) != null) {
+      return; // Cancelled while waiting on its inputs.
+    }
+    monitors[node].ready();
+    Failure failure = failedInput(node);
+    if (failure != null) {
+      complete(node, failure);
+    } else if (runInline) {
+      run(node);
+    } else {
+      try {
+        executor()
+            .execute(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    ProductionStateMachine.this.run(node);
+                  }
+                });
+      } catch (RejectedExecutionException e) {
+        complete(node, new Failure(e, false));
+      }
+    }
+  }
+
+  /**
+   * Returns the failure of the first input that fails {@code node}: an input that failed and isn't
+   * requested as {@code Produced}, or an input that was cancelled.
+   */
+  @NullableDecl
+  private Failure failedInput(int node) {
+    for (int input : graph.inputs[node]) {
+      Object outcome = outcomes.get(inputNode(input));
+      if (outcome instanceof Failure) {
+        Failure failure = (Failure) outcome;
+        if (input >= 0 || failure.cause == null) {
+          return failure;
+        }
+      }
+    }
+    return null;
+  }
+
+  private void run(int node) {
+    if (outcomes.get(node) != null) {
+      return; // Cancelled while waiting for the executor.
+    }
+    int kind = graph.flags[node] & KIND_MASK;
+    ProducerMonitor monitor = monitors[node];
+    Object result = null;
+    Throwable thrown = null;
+    if (monitor != null) {
+      monitor.methodStarting();
+    }
+    try {
+      result = produce(node);
+    } catch (Throwable t) {
+      thrown = t;
+    } finally {
+      if (monitor != null) {
+        monitor.methodFinished();
+      }
+    }
+
+    if (thrown != null) {
+      complete(node, new Failure(thrown, false));
+    } else if (kind == PRODUCES_VALUE) {
+      complete(node, result == null ? NULL : result);
+    } else if (result == null) {
+      NullPointerException e = new NullPointerException("Node " + node + " returned null");
+      complete(node, new Failure(e, false));
+    } else {
+      completeWith(node, (ListenableFuture<?>) result, kind != EXTERNAL);
+    }
+  }
+
+  /**
+   * Completes {@code node} with the outcome of {@code future}. If {@code cancellable}, cancelling
+   * the node cancels the future; external producers are cancelled by their own component.
+   */
+  private void completeWith(final int node, final ListenableFuture<?> future, boolean cancellable) {
+    if (future.isDone()) {
+      complete(node, outcome(future));
+      return;
+    }
+    if (cancellable) {
+      running.set(node, future);
+      Object outcome = outcomes.get(node);
+      if (outcome != null) {
+        // Cancelled while its method was running.
+        future.cancel(((Failure) outcome).mayInterruptIfRunning);
+        return;
+      }
+    }
+    future.addListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            running.set(node, null);
+            complete(node, outcome(future));
+          }
+        },
+        directExecutor());
+  }
+
+  /**
+   * Sets the outcome of {@code node}, and resolves the edges of the requested nodes that wait on
+   * it.
+   */
+  private boolean complete(int node, Object outcome) {
+    if (!outcomes.compareAndSet(node, null, outcome)) {
+      return false;
+    }
+    NodeFuture future = futures.get(node);
+    if (future != null) {
+      future.setOutcome(outcome);
+    }
+    for (int edge : graph.outputEdges[node]) {
+      if (states.get(graph.edgeNodes[edge]) == REQUESTED) {
+        resolve(edge);
+      }
+    }
+    return true;
+  }
+
+  private boolean cancel(int node, boolean mayInterruptIfRunning) {
+    if (!complete(node, mayInterruptIfRunning ? CANCELLED_AND_INTERRUPTED : CANCELLED)) {
+      return false;
+    }
+    ListenableFuture<?> future = running.getAndSet(node, null);
+    if (future != null) {
+      future.cancel(mayInterruptIfRunning);
+    }
+    return true;
+  }
+
+  private NodeFuture nodeFuture(int node) {
+    NodeFuture future = futures.get(node);
+    if (future == null) {
+      NodeFuture newFuture = new NodeFuture(node);
+      future = futures.compareAndSet(node, null, newFuture) ? newFuture : futures.get(node);
+    }
+    // complete() may have missed the future if it was created concurrently.
+    Object outcome = outcomes.get(node);
+    if (outcome != null) {
+      future.setOutcome(outcome);
+    }
+    return future;
+  }
+
+  private static int inputNode(int input) {
+    return input >= 0 ? input : ~input;
+  }
+
+  private static Object outcome(ListenableFuture<?> future) {
+    try {
+      Object value = Futures.getDone(future);
+      return value == null ? NULL : value;
+    } catch (ExecutionException e) {
+      return new Failure(e.getCause(), false);
+    } catch (CancellationException e) {
+      return CANCELLED;
+    }
+  }
+
+  /** The outcome of a node that failed or was cancelled. */
+  private static final class Failure {
+    /** The exception that the node failed with, or {@code null} if it was cancelled. */
+    @NullableDecl final Throwable cause;
+
+    final boolean mayInterruptIfRunning;
+
+    Failure(@NullableDecl Throwable cause, boolean mayInterruptIfRunning) {
+      this.cause = cause;
+      this.mayInterruptIfRunning = mayInterruptIfRunning;
+    }
+  }
+
+  /**
+   * The future of a node. It is only exposed through a {@link NodeProducer}, whose own cancellation
+   * is the only way that it's cancelled, so cancelling it cancels the node.
+   */
+  private final class NodeFuture extends AbstractFuture<Object> {
+    private final int node;
+
+    NodeFuture(int node) {
+      this.node = node;
+    }
+
+    void setOutcome(Object outcome) {
+      if (outcome instanceof Failure) {
+        Failure failure = (Failure) outcome;
+        if (failure.cause == null) {
+          super.cancel(failure.mayInterruptIfRunning);
+        } else {
+          setException(failure.cause);
+        }
+      } else {
+        set(outcome == NULL ? null : outcome);
+      }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return ProductionStateMachine.this.cancel(node, mayInterruptIfRunning);
+    }
+  }
+
+  /** A producer of one node, for entry points and for producers outside the state machine. */
+  private final class NodeProducer<T> extends AbstractProducer<T> {
+    private final int node;
+
+    NodeProducer(int node) {
+      this.node = node;
+    }
+
+    // The generated subclass only creates producers of the node's type.
+    @SuppressWarnings("unchecked")
+    @Override
+    protected ListenableFuture<T> compute() {
+      request(node);
+      return (ListenableFuture<T>) (ListenableFuture<?>) nodeFuture(node);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.internal;
+
+import static dagger.internal.Preconditions.checkNotNull;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.inject.Inject;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * An {@link Executor} that runs each task on its own virtual thread, bound by {@link
+ * dagger.producers.VirtualThreadExecutorModule}.
+ *
+ * <p>Virtual threads are looked up reflectively, since this library targets Java 7. When they
+ * aren't available (before JDK 21, or on JDK 19 and 20 without {@code --enable-preview}), tasks run
+ * on a shared pool of at most {@value #FALLBACK_THREADS} daemon platform threads instead, and a
+ * warning is logged the first time the executor is used.
+ */
+public final class VirtualThreadExecutor implements Executor {
+  /** The most platform threads that run tasks when virtual threads aren't available. */
+  static final int FALLBACK_THREADS = 64;
+
+  private static final Logger logger = Logger.getLogger(VirtualThreadExecutor.class.getName());
+
+  @Inject
+  public VirtualThreadExecutor() {}
+
+  @Override
+  public void execute(Runnable task) {
+    Delegate.EXECUTOR.execute(checkNotNull(task));
+  }
+
+  /** Returns true if tasks run on virtual threads, rather than on the platform thread fallback. */
+  static boolean usesVirtualThreads() {
+    return Delegate.VIRTUAL_THREAD_FACTORY != null;
+  }
+
+  /** Holds the executor that all instances share, so that it's only created when first used. */
+  private static final class Delegate {
+    @NullableDecl static final ThreadFactory VIRTUAL_THREAD_FACTORY = virtualThreadFactory();
+
+    static final Executor EXECUTOR =
+        VIRTUAL_THREAD_FACTORY != null
+            ? new ThreadPerTaskExecutor(VIRTUAL_THREAD_FACTORY)
+            : platformThreadPool();
+
+    /**
+     * Returns a pool of at most {@link #FALLBACK_THREADS} daemon threads that exit when they've
+     * been idle for a minute. Tasks wait in its queue while all of the threads are busy.
+     */
+    private static Executor platformThreadPool() {
+      logger.log(
+          Level.WARNING,
+          "Virtual threads aren't available, so producers will run on at most "
+              + FALLBACK_THREADS
+              + " platform threads. Run on JDK 21 or later, or bind a @Production Executor instead"
+              + " of installing VirtualThreadExecutorModule.");
+      ThreadPoolExecutor pool =
+          new ThreadPoolExecutor(
+              FALLBACK_THREADS,
+              FALLBACK_THREADS,
+              1,
+              TimeUnit.MINUTES,
+              new LinkedBlockingQueue<Runnable>(),
+              new ThreadFactoryBuilder()
+                  .setNameFormat("dagger-production-%d")
+                  .setDaemon(true)
+                  .build());
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    }
+
+    /**
+     * Returns {@code Thread.ofVirtual().name("dagger-production-", 0).factory()}, or null if
+     * virtual threads aren't available.
+     */
+    @NullableDecl
+    private static ThreadFactory virtualThreadFactory() {
+      try {
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        builder =
+            builderClass
+                .getMethod("name", String.class, long.class)
+                .invoke(builder, "dagger-production-", 0L);
+        return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      } catch (ReflectiveOperationException e) {
+        // Either there's no Thread.ofVirtual(), or it threw because preview features are disabled.
+        return null;
+      }
+    }
+  }
+
+  /** An {@link Executor} that starts a new thread for each task. */
+  private static final class ThreadPerTaskExecutor implements Executor {
+    private final ThreadFactory threadFactory;
+
+    ThreadPerTaskExecutor(ThreadFactory threadFactory) {
+      this.threadFactory = threadFactory;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+      threadFactory.newThread(task).start();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.monitoring;
+
+import com.google.common.collect.ImmutableList;
+import dagger.internal.Beta;
+
+/**
+ * The chain of {@linkplain dagger.producers.Produces producer methods} that determined how long an
+ * execution of a production component took, as reported by a {@link CriticalPathMonitor}.
+ *
+ * <p>The path ends at the producer that completed last, usually the entry point. Each producer on
+ * the path is preceded by the input that completed last, i.e. the one that it waited on the
+ * longest. Speeding up producers that aren't on the path doesn't make the execution any faster.
+ *
+ * <p>All times are in nanoseconds since the execution started, i.e. since its first producer was
+ * requested.
+ *
+ * <p>Like the rest of this package, this API is not stable.
+ */
+@Beta
+public final class CriticalPath {
+  /** The time of a point that a producer didn't reach, e.g. because one of its inputs failed. */
+  public static final long NOT_REACHED = -1;
+
+  private final ImmutableList<Node> nodes;
+  private final long durationNanos;
+
+  CriticalPath(ImmutableList<Node> nodes, long durationNanos) {
+    this.nodes = nodes;
+    this.durationNanos = durationNanos;
+  }
+
+  /** Returns the producers on the path, starting with the one that has no inputs on it. */
+  public ImmutableList<Node> nodes() {
+    return nodes;
+  }
+
+  /** Returns the time from the start of the execution until its last producer completed. */
+  public long durationNanos() {
+    return durationNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "CriticalPath{durationNanos=" + durationNanos + ", nodes=" + nodes + "}";
+  }
+
+  /** The timestamps of a producer on a {@link CriticalPath}. */
+  public static final class Node {
+    private final ProducerToken token;
+    private final long requestedNanos;
+    private final long readyNanos;
+    private final long startedNanos;
+    private final long finishedNanos;
+
+    Node(
+        ProducerToken token,
+        long requestedNanos,
+        long readyNanos,
+        long startedNanos,
+        long finishedNanos) {
+      this.token = token;
+      this.requestedNanos = requestedNanos;
+      this.readyNanos = readyNanos;
+      this.startedNanos = startedNanos;
+      this.finishedNanos = finishedNanos;
+    }
+
+    /** Returns the token of the producer. */
+    public ProducerToken token() {
+      return token;
+    }
+
+    /** Returns when the producer was requested. */
+    public long requestedNanos() {
+      return requestedNanos;
+    }
+
+    /**
+     * Returns when the producer's inputs completed and its method was submitted to the executor, or
+     * {@link #NOT_REACHED}.
+     */
+    public long readyNanos() {
+      return readyNanos;
+    }
+
+    /** Returns when the producer's method started running, or {@link #NOT_REACHED}. */
+    public long startedNanos() {
+      return startedNanos;
+    }
+
+    /**
+     * Returns when the producer's future completed. For a method that returns a {@code
+     * ListenableFuture}, this includes the time until that future completed.
+     */
+    public long finishedNanos() {
+      return finishedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return token
+          + "{requested="
+          + requestedNanos
+          + ", ready="
+          + readyNanos
+          + ", started="
+          + startedNanos
+          + ", finished="
+          + finishedNanos
+          + "}";
+    }
+  }
+}
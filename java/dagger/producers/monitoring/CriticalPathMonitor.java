@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.monitoring;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import dagger.internal.Beta;
+import dagger.producers.internal.ProducerDependencies;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A monitor factory that records when each {@linkplain dagger.producers.Produces producer method}
+ * of a production component is requested, becomes ready, starts and finishes, and reports the
+ * {@link CriticalPath} of each execution to a {@link Listener}.
+ *
+ * <p>An execution starts when a producer is requested while none of the component's other producers
+ * are in flight, and ends when all of the producers requested since then have completed. This is
+ * usually a single call to an entry point, and it ends when the entry point's future completes.
+ *
+ * <p>The path follows the dependencies between the producer methods that the component was compiled
+ * with, so the components to monitor must be generated with {@code
+ * -Adagger.writeProducerDependencies=enabled}. Creating a monitor for any other component fails.
+ *
+ * <p>Provide an instance to each production component to monitor, e.g.:
+ *
+ * <pre><code>
+ * {@literal @}Provides {@literal @}IntoSet
+ * static ProductionComponentMonitor.Factory criticalPaths(CriticalPathLogger logger) {
+ *   return new CriticalPathMonitor(logger);
+ * }
+ * </code></pre>
+ *
+ * <p>The listener is called on the thread that completed the execution's last producer, so it
+ * should hand off any slow work.
+ *
+ * <p>Like the rest of this package, this API is not stable.
+ */
+@Beta
+public final class CriticalPathMonitor extends ProductionComponentMonitor.Factory {
+  /** Receives the critical path of each execution of a monitored component. */
+  public interface Listener {
+    /** Called when an execution of {@code component} has completed. */
+    void criticalPathComputed(Object component, CriticalPath criticalPath);
+  }
+
+  private static final long NOT_REACHED = Long.MIN_VALUE;
+
+  private final Listener listener;
+  private final Ticker ticker;
+  private final ConcurrentMap<Class<?>, Map<ProducerToken, Set<ProducerToken>>>
+      dependenciesByComponentClass =
+          new ConcurrentHashMap<Class<?>, Map<ProducerToken, Set<ProducerToken>>>();
+
+  public CriticalPathMonitor(Listener listener) {
+    this(listener, Ticker.systemTicker());
+  }
+
+  CriticalPathMonitor(Listener listener, Ticker ticker) {
+    if (listener == null) {
+      throw new NullPointerException("listener");
+    }
+    this.listener = listener;
+    this.ticker = ticker;
+  }
+
+  @Override
+  public ProductionComponentMonitor create(Object component) {
+    return new ExecutionMonitor(component, dependencies(component));
+  }
+
+  private Map<ProducerToken, Set<ProducerToken>> dependencies(Object component) {
+    // The generated method builds a new map each time, so only call it once per component type.
+    Map<ProducerToken, Set<ProducerToken>> dependencies =
+        dependenciesByComponentClass.get(component.getClass());
+    if (dependencies == null) {
+      if (!(component instanceof ProducerDependencies)) {
+        throw new IllegalArgumentException(
+            component.getClass().getName()
+                + " doesn't describe its producer dependencies. Compile it with"
+                + " -Adagger.writeProducerDependencies=enabled to monitor its critical paths.");
+      }
+      dependencies = ((ProducerDependencies) component).producerDependencies();
+      dependenciesByComponentClass.putIfAbsent(component.getClass(), dependencies);
+    }
+    return dependencies;
+  }
+
+  /** Tracks the executions of one component. */
+  private final class ExecutionMonitor extends ProductionComponentMonitor {
+    private final Object component;
+    private final Map<ProducerToken, Set<ProducerToken>> dependencies;
+    private final AtomicInteger producersInFlight = new AtomicInteger();
+    private final Queue<NodeMonitor> nodes = new ConcurrentLinkedQueue<NodeMonitor>();
+
+    ExecutionMonitor(Object component, Map<ProducerToken, Set<ProducerToken>> dependencies) {
+      this.component = component;
+      this.dependencies = dependencies;
+    }
+
+    @Override
+    public ProducerMonitor producerMonitorFor(ProducerToken token) {
+      if (token == null) {
+        return ProducerMonitor.noOp();
+      }
+      NodeMonitor node = new NodeMonitor(this, token);
+      nodes.add(node);
+      return node;
+    }
+
+    void producerRequested() {
+      producersInFlight.incrementAndGet();
+    }
+
+    void producerCompleted() {
+      // Every producer of the execution has completed once the count drops to zero. A producer
+      // is requested before it requests its inputs, so this can't happen before the entry point
+      // completes.
+      if (producersInFlight.decrementAndGet() == 0) {
+        CriticalPath criticalPath = criticalPath(completedNodes());
+        if (criticalPath != null) {
+          listener.criticalPathComputed(component, criticalPath);
+        }
+      }
+    }
+
+    /** Removes and returns the nodes that have completed since the last execution ended. */
+    private List<NodeMonitor> completedNodes() {
+      List<NodeMonitor> completedNodes = new ArrayList<NodeMonitor>();
+      for (Iterator<NodeMonitor> iterator = nodes.iterator(); iterator.hasNext(); ) {
+        NodeMonitor node = iterator.next();
+        // A producer of the next execution may already have been requested.
+        if (node.finishedNanos != NOT_REACHED) {
+          completedNodes.add(node);
+          iterator.remove();
+        }
+      }
+      return completedNodes;
+    }
+
+    private CriticalPath criticalPath(List<NodeMonitor> completedNodes) {
+      if (completedNodes.isEmpty()) {
+        return null;
+      }
+      Map<ProducerToken, NodeMonitor> nodesByToken = new HashMap<ProducerToken, NodeMonitor>();
+      NodeMonitor last = completedNodes.get(0);
+      long startNanos = last.requestedNanos;
+      for (NodeMonitor node : completedNodes) {
+        nodesByToken.put(node.token, node);
+        if (node.finishedNanos - last.finishedNanos > 0) {
+          last = node;
+        }
+        if (node.requestedNanos - startNanos < 0) {
+          startNanos = node.requestedNanos;
+        }
+      }
+
+      List<CriticalPath.Node> path = new ArrayList<CriticalPath.Node>();
+      for (NodeMonitor node = last;
+          node != null && path.size() < completedNodes.size();
+          node = latestInput(node, nodesByToken)) {
+        path.add(node.toCriticalPathNode(startNanos));
+      }
+      Collections.reverse(path);
+      return new CriticalPath(ImmutableList.copyOf(path), last.finishedNanos - startNanos);
+    }
+
+    /**
+     * Returns the input of {@code node} that completed last in this execution, or null if none of
+     * its inputs were requested in it.
+     */
+    private NodeMonitor latestInput(
+        NodeMonitor node, Map<ProducerToken, NodeMonitor> nodesByToken) {
+      Set<ProducerToken> inputs = dependencies.get(node.token);
+      if (inputs == null) {
+        return null;
+      }
+      NodeMonitor latestInput = null;
+      for (ProducerToken input : inputs) {
+        NodeMonitor inputNode = nodesByToken.get(input);
+        if (inputNode != null
+            && (latestInput == null || inputNode.finishedNanos - latestInput.finishedNanos > 0)) {
+          latestInput = inputNode;
+        }
+      }
+      return latestInput;
+    }
+  }
+
+  /** Records the timestamps of one producer method in one component. */
+  private final class NodeMonitor extends ProducerMonitor {
+    private final ExecutionMonitor execution;
+    private final ProducerToken token;
+    // These are published to the thread that computes the critical path by finishedNanos, or by the
+    // in-flight count.
+    private long requestedNanos = NOT_REACHED;
+    private long readyNanos = NOT_REACHED;
+    private long startedNanos = NOT_REACHED;
+    private volatile long finishedNanos = NOT_REACHED;
+
+    NodeMonitor(ExecutionMonitor execution, ProducerToken token) {
+      this.execution = execution;
+      this.token = token;
+    }
+
+    @Override
+    public void requested() {
+      requestedNanos = ticker.read();
+      execution.producerRequested();
+    }
+
+    @Override
+    public void ready() {
+      readyNanos = ticker.read();
+    }
+
+    @Override
+    public void methodStarting() {
+      startedNanos = ticker.read();
+    }
+
+    @Override
+    public void succeeded(Object value) {
+      completed();
+    }
+
+    @Override
+    public void failed(Throwable t) {
+      completed();
+    }
+
+    private void completed() {
+      finishedNanos = ticker.read();
+      execution.producerCompleted();
+    }
+
+    CriticalPath.Node toCriticalPathNode(long startNanos) {
+      return new CriticalPath.Node(
+          token,
+          requestedNanos - startNanos,
+          relative(readyNanos, startNanos),
+          relative(startedNanos, startNanos),
+          finishedNanos - startNanos);
+    }
+
+    private long relative(long nanos, long startNanos) {
+      return nanos == NOT_REACHED ? CriticalPath.NOT_REACHED : nanos - startNanos;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.monitoring;
+
+import dagger.internal.Beta;
+import dagger.internal.StripedLongArray;
+
+/**
+ * A fixed-size histogram of latencies, in nanoseconds, that can be recorded to concurrently without
+ * locking or allocating.
+ *
+ * <p>Latencies are counted in buckets whose width is at most an eighth of the values they hold, so
+ * reported percentiles are within 12.5% of the recorded values. Latencies from 0 to 15 nanoseconds
+ * are counted exactly, and latencies above {@link #MAX_TRACKABLE_NANOS} (about 36 minutes) are
+ * counted in the top bucket.
+ *
+ * <p>Like {@link ProducerLatencyHistograms}, this API is not stable.
+ */
+@Beta
+public final class LatencyHistogram {
+  /** The number of buckets for each power of two, as a power of two. */
+  private static final int SUB_BUCKET_BITS = 3;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /** The exponent of the largest power of two with its own buckets. */
+  private static final int MAX_EXPONENT = 40;
+
+  /** The largest latency that isn't counted in the top bucket. */
+  public static final long MAX_TRACKABLE_NANOS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+  private static final int BUCKETS = bucketIndex(MAX_TRACKABLE_NANOS) + 1;
+
+  private final StripedLongArray buckets = new StripedLongArray(BUCKETS);
+
+  /** Records a latency. Negative latencies are recorded as zero. */
+  public void record(long nanos) {
+    buckets.increment(bucketIndex(Math.max(nanos, 0)));
+  }
+
+  /** Returns the latencies recorded so far. */
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.sum(i);
+    }
+    return new Snapshot(counts);
+  }
+
+  /**
+   * Returns the latencies recorded so far and clears them. Each latency that is recorded
+   * concurrently is either in the returned snapshot or remains recorded, but never both.
+   */
+  public Snapshot snapshotAndReset() {
+    long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.sumThenReset(i);
+    }
+    return new Snapshot(counts);
+  }
+
+  /**
+   * Returns the bucket for a non-negative latency. Values below {@code 2 * SUB_BUCKETS} have a
+   * bucket each, and every larger power of two is split into {@code SUB_BUCKETS} equal buckets.
+   */
+  private static int bucketIndex(long nanos) {
+    if (nanos < 2 * SUB_BUCKETS) {
+      return (int) nanos;
+    }
+    int exponent = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_EXPONENT);
+    if (exponent == MAX_EXPONENT && nanos > MAX_TRACKABLE_NANOS) {
+      nanos = MAX_TRACKABLE_NANOS;
+    }
+    int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /** Returns the largest latency counted in a bucket. */
+  private static long bucketUpperBound(int index) {
+    if (index < 2 * SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    return lowerBound + width - 1;
+  }
+
+  /** The latencies recorded by a {@link LatencyHistogram} at some point in time. */
+  public static final class Snapshot {
+    private final long[] counts;
+    private final long count;
+
+    Snapshot(long[] counts) {
+      this.counts = counts;
+      long count = 0;
+      for (long bucketCount : counts) {
+        count += bucketCount;
+      }
+      this.count = count;
+    }
+
+    /** Returns the number of recorded latencies. */
+    public long count() {
+      return count;
+    }
+
+    /**
+     * Returns the latency that {@code percentile} percent of the recorded latencies are at or
+     * below, rounded up to the end of its bucket, or 0 if no latencies were recorded.
+     *
+     * @param percentile a percentile between 0 and 100
+     */
+    public long percentileNanos(double percentile) {
+      if (!(percentile >= 0 && percentile <= 100)) {
+        throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+      }
+      if (count == 0) {
+        return 0;
+      }
+      // Rounded to the nearest rank, so that floating point error doesn't skip to the next one.
+      long rank = Math.max(1, (long) (percentile / 100 * count + 0.5));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return bucketUpperBound(i);
+        }
+      }
+      throw new AssertionError();
+    }
+
+    /** Returns the median latency. */
+    public long p50Nanos() {
+      return percentileNanos(50);
+    }
+
+    /** Returns the 99th percentile latency. */
+    public long p99Nanos() {
+      return percentileNanos(99);
+    }
+
+    /** Returns the 99.9th percentile latency. */
+    public long p999Nanos() {
+      return percentileNanos(99.9);
+    }
+
+    /** Returns the largest recorded latency, rounded up to the end of its bucket. */
+    public long maxNanos() {
+      return percentileNanos(100);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "count=%d p50=%dns p99=%dns p999=%dns max=%dns",
+          count, p50Nanos(), p99Nanos(), p999Nanos(), maxNanos());
+    }
+  }
+}
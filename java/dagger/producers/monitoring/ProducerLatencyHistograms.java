@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.monitoring;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import dagger.internal.Beta;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A monitor factory that keeps a {@link LatencyHistogram} of the execution time and of the input
+ * wait time of each {@linkplain dagger.producers.Produces producer method}, aggregated across all
+ * of the components it monitors.
+ *
+ * <ul>
+ *   <li>The <em>input wait time</em> is from when the producer is requested until its inputs have
+ *       completed and its method is submitted to the executor ({@link ProducerMonitor#requested} to
+ *       {@link ProducerMonitor#ready}).
+ *   <li>The <em>execution time</em> is the time spent in the method itself ({@link
+ *       ProducerMonitor#methodStarting} to {@link ProducerMonitor#methodFinished}).
+ * </ul>
+ *
+ * <p>Provide the same instance to each production component to monitor, e.g.:
+ *
+ * <pre><code>
+ * static final ProducerLatencyHistograms LATENCIES = new ProducerLatencyHistograms();
+ *
+ * {@literal @}Provides {@literal @}IntoSet
+ * static ProductionComponentMonitor.Factory latencies() {
+ *   return LATENCIES;
+ * }
+ * </code></pre>
+ *
+ * <p>Then periodically export {@link #executionTimes()} and {@link #inputWaitTimes()}, using {@link
+ * LatencyHistogram#snapshotAndReset()} to report each interval separately.
+ *
+ * <p>The histograms for a producer method are created the first time it is requested, and have a
+ * fixed size after that. Recording a latency doesn't lock or allocate, so monitoring a request
+ * costs little beyond the {@link ProducerMonitor} objects that every monitor needs.
+ *
+ * <p>Like the rest of this package, this API is not stable.
+ */
+@Beta
+public final class ProducerLatencyHistograms extends ProductionComponentMonitor.Factory {
+  private final ConcurrentMap<ProducerToken, Histograms> histograms =
+      new ConcurrentHashMap<ProducerToken, Histograms>();
+  private final Ticker ticker;
+  private final ProductionComponentMonitor componentMonitor =
+      new ProductionComponentMonitor() {
+        @Override
+        public ProducerMonitor producerMonitorFor(ProducerToken token) {
+          return token == null
+              ? ProducerMonitor.noOp()
+              : new LatencyProducerMonitor(histogramsFor(token), ticker);
+        }
+      };
+
+  public ProducerLatencyHistograms() {
+    this(Ticker.systemTicker());
+  }
+
+  ProducerLatencyHistograms(Ticker ticker) {
+    this.ticker = ticker;
+  }
+
+  @Override
+  public ProductionComponentMonitor create(Object component) {
+    // The monitor has no per-component state, so all components share it.
+    return componentMonitor;
+  }
+
+  /** Returns the execution time histogram of each producer method that has been requested. */
+  public ImmutableMap<ProducerToken, LatencyHistogram> executionTimes() {
+    ImmutableMap.Builder<ProducerToken, LatencyHistogram> executionTimes = ImmutableMap.builder();
+    for (Map.Entry<ProducerToken, Histograms> entry : histograms.entrySet()) {
+      executionTimes.put(entry.getKey(), entry.getValue().executionTime);
+    }
+    return executionTimes.build();
+  }
+
+  /** Returns the input wait time histogram of each producer method that has been requested. */
+  public ImmutableMap<ProducerToken, LatencyHistogram> inputWaitTimes() {
+    ImmutableMap.Builder<ProducerToken, LatencyHistogram> inputWaitTimes = ImmutableMap.builder();
+    for (Map.Entry<ProducerToken, Histograms> entry : histograms.entrySet()) {
+      inputWaitTimes.put(entry.getKey(), entry.getValue().inputWaitTime);
+    }
+    return inputWaitTimes.build();
+  }
+
+  private Histograms histogramsFor(ProducerToken token) {
+    Histograms tokenHistograms = histograms.get(token);
+    if (tokenHistograms == null) {
+      Histograms newHistograms = new Histograms();
+      tokenHistograms = histograms.putIfAbsent(token, newHistograms);
+      if (tokenHistograms == null) {
+        tokenHistograms = newHistograms;
+      }
+    }
+    return tokenHistograms;
+  }
+
+  /** The histograms of a producer method. */
+  private static final class Histograms {
+    final LatencyHistogram inputWaitTime = new LatencyHistogram();
+    final LatencyHistogram executionTime = new LatencyHistogram();
+  }
+
+  /** Records the latencies of one producer method in one component. */
+  private static final class LatencyProducerMonitor extends ProducerMonitor {
+    private final Histograms histograms;
+    private final Ticker ticker;
+    private long requestedNanos;
+    private long methodStartingNanos;
+
+    LatencyProducerMonitor(Histograms histograms, Ticker ticker) {
+      this.histograms = histograms;
+      this.ticker = ticker;
+    }
+
+    @Override
+    public void requested() {
+      requestedNanos = ticker.read();
+    }
+
+    @Override
+    public void ready() {
+      histograms.inputWaitTime.record(ticker.read() - requestedNanos);
+    }
+
+    @Override
+    public void methodStarting() {
+      methodStartingNanos = ticker.read();
+    }
+
+    @Override
+    public void methodFinished() {
+      histograms.executionTime.record(ticker.read() - methodStartingNanos);
+    }
+  }
+}
@@ -91,4 +91,17 @@ public interface BindingGraphPlugin {
   default String pluginName() {
     return getClass().getCanonicalName();
   }
+
+  /**
+   * Returns {@code true} if this plugin may {@linkplain #visitGraph(BindingGraph,
+   * DiagnosticReporter) visit} a graph concurrently with other plugins, off of the processing
+   * thread, when {@code -Adagger.parallelBindingGraphPlugins=enabled} is passed. By default,
+   * plugins are visited one after another on the processing thread.
+   *
+   * <p>A plugin that returns {@code true} must be thread-safe, and must not use the {@link Filer},
+   * {@link Types} or {@link Elements} passed to it while visiting a graph, since they are not.
+   */
+  default boolean supportsConcurrentVisits() {
+    return false;
+  }
 }
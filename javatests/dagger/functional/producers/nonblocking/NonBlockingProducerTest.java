@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.functional.producers.nonblocking;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import dagger.BindsInstance;
+import dagger.producers.ProducerModule;
+import dagger.producers.Produces;
+import dagger.producers.Production;
+import dagger.producers.ProductionComponent;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Named;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class NonBlockingProducerTest {
+  @ProducerModule
+  static final class NonBlockingModule {
+    @Produces(nonBlocking = true)
+    @Named("greeting")
+    static String greeting() {
+      return "hello";
+    }
+
+    @Produces(nonBlocking = true)
+    @Named("nonBlocking")
+    static String nonBlocking(@Named("greeting") String greeting) {
+      return greeting + " world";
+    }
+
+    @Produces
+    @Named("blocking")
+    static String blocking(@Named("greeting") String greeting) {
+      return greeting + " executor";
+    }
+  }
+
+  @ProductionComponent(modules = NonBlockingModule.class)
+  interface TestComponent {
+    @Named("nonBlocking")
+    ListenableFuture<String> nonBlocking();
+
+    @Named("blocking")
+    ListenableFuture<String> blocking();
+
+    @ProductionComponent.Factory
+    interface Factory {
+      TestComponent create(@BindsInstance @Production Executor executor);
+    }
+  }
+
+  /** A direct executor that counts the tasks submitted to it. */
+  private static final class CountingExecutor implements Executor {
+    final AtomicInteger submissions = new AtomicInteger();
+
+    @Override
+    public void execute(Runnable task) {
+      submissions.incrementAndGet();
+      task.run();
+    }
+  }
+
+  @Test
+  public void nonBlockingProducersWithCompleteInputs_skipTheExecutor() throws Exception {
+    CountingExecutor executor = new CountingExecutor();
+    TestComponent component =
+        DaggerNonBlockingProducerTest_TestComponent.factory().create(executor);
+
+    ListenableFuture<String> future = component.nonBlocking();
+    assertThat(future.isDone()).isTrue();
+    assertThat(future.get()).isEqualTo("hello world");
+    assertThat(executor.submissions.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void otherProducers_useTheExecutor() throws Exception {
+    CountingExecutor executor = new CountingExecutor();
+    TestComponent component =
+        DaggerNonBlockingProducerTest_TestComponent.factory().create(executor);
+
+    assertThat(component.blocking().get()).isEqualTo("hello executor");
+    assertThat(executor.submissions.get()).isEqualTo(1);
+  }
+}
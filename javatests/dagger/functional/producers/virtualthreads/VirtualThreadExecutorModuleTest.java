@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.functional.producers.virtualthreads;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import dagger.BindsInstance;
+import dagger.producers.ProducerModule;
+import dagger.producers.Produces;
+import dagger.producers.ProductionComponent;
+import dagger.producers.VirtualThreadExecutorModule;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import javax.inject.Named;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class VirtualThreadExecutorModuleTest {
+  @ProducerModule
+  static final class BlockingModule {
+    @Produces
+    @Named("first")
+    static String first(CountDownLatch bothStarted) throws InterruptedException {
+      return awaitOtherProducer(bothStarted);
+    }
+
+    @Produces
+    @Named("second")
+    static String second(CountDownLatch bothStarted) throws InterruptedException {
+      return awaitOtherProducer(bothStarted);
+    }
+
+    @Produces
+    static List<String> threadNames(@Named("first") String first, @Named("second") String second) {
+      return ImmutableList.of(first, second);
+    }
+
+    /** Blocks until both producers have started, and returns the name of the current thread. */
+    private static String awaitOtherProducer(CountDownLatch bothStarted)
+        throws InterruptedException {
+      bothStarted.countDown();
+      if (!bothStarted.await(30, SECONDS)) {
+        throw new IllegalStateException("The producers didn't run concurrently");
+      }
+      return Thread.currentThread().getName();
+    }
+  }
+
+  @ProductionComponent(modules = {VirtualThreadExecutorModule.class, BlockingModule.class})
+  interface TestComponent {
+    ListenableFuture<List<String>> threadNames();
+
+    @ProductionComponent.Factory
+    interface Factory {
+      TestComponent create(@BindsInstance CountDownLatch bothStarted);
+    }
+  }
+
+  @Test
+  public void blockingProducersRunConcurrentlyOnProductionThreads() throws Exception {
+    TestComponent component =
+        DaggerVirtualThreadExecutorModuleTest_TestComponent.factory().create(new CountDownLatch(2));
+
+    List<String> threadNames = component.threadNames().get(30, SECONDS);
+    assertThat(threadNames).containsNoDuplicates();
+    for (String threadName : threadNames) {
+      assertThat(threadName).startsWith("dagger-production-");
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ClassKeyMapTest {
+  private static final int[] NO_DISPLACEMENTS = {0};
+
+  @Test
+  public void iterationOrder() {
+    ClassKeyMap<Class<?>, String> map =
+        ClassKeyMap.<Class<?>, String>builder(3, NO_DISPLACEMENTS)
+            .put(String.class, "string")
+            .put(Integer.class, "integer")
+            .put(Map.class, "map")
+            .build();
+    assertThat(map)
+        .containsExactly(String.class, "string", Integer.class, "integer", Map.class, "map")
+        .inOrder();
+  }
+
+  @Test
+  public void get() {
+    ClassKeyMap<Class<?>, String> map =
+        ClassKeyMap.<Class<?>, String>builder(2, new int[] {7, 11})
+            .put(String.class, "string")
+            .put(Map.Entry.class, "entry")
+            .build();
+    assertThat(map.get(String.class)).isEqualTo("string");
+    assertThat(map.get(Map.Entry.class)).isEqualTo("entry");
+    assertThat(map.get(Integer.class)).isNull();
+    assertThat(map.get("java.lang.String")).isNull();
+    assertThat(map.get(null)).isNull();
+    assertThat(map.containsKey(String.class)).isTrue();
+    assertThat(map).hasSize(2);
+  }
+
+  @Test
+  public void duplicateKey() {
+    ClassKeyMap.Builder<Class<?>, String> builder =
+        ClassKeyMap.<Class<?>, String>builder(2, NO_DISPLACEMENTS)
+            .put(String.class, "one")
+            .put(String.class, "two");
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void mapFactory() {
+    Factory<Map<Class<?>, String>> factory =
+        MapFactory.<Class<?>, String>classKeyBuilder(2, NO_DISPLACEMENTS)
+            .put(Integer.class, InstanceFactory.create("integer"))
+            .put(String.class, InstanceFactory.create("string"))
+            .build();
+    Map<Class<?>, String> map = factory.get();
+    assertThat(map).isInstanceOf(ClassKeyMap.class);
+    assertThat(map)
+        .containsExactlyEntriesIn(ImmutableMap.of(Integer.class, "integer", String.class, "string"))
+        .inOrder();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.testing.EqualsTester;
+import dagger.multibindings.PrimitiveKeyMaps;
+import java.util.Map;
+import javax.inject.Provider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class IntKeyMapTest {
+  @Test
+  public void iterationOrder() {
+    IntKeyMap<String> map =
+        IntKeyMap.<String>builder(4)
+            .put(3, "three")
+            .put(-1, "minus one")
+            .put(2, "two")
+            .put(Integer.MAX_VALUE, "max")
+            .build();
+    assertThat(map)
+        .containsExactly(3, "three", -1, "minus one", 2, "two", Integer.MAX_VALUE, "max")
+        .inOrder();
+  }
+
+  @Test
+  public void get() {
+    IntKeyMap<String> map = IntKeyMap.<String>builder(3).put(3, "three").put(1, "one").build();
+    assertThat(map.get(3)).isEqualTo("three");
+    assertThat(map.get(1)).isEqualTo("one");
+    assertThat(map.get(2)).isNull();
+    assertThat(map.get((Object) 3)).isEqualTo("three");
+    assertThat(map.get((Object) 3L)).isNull();
+    assertThat(map.get(null)).isNull();
+    assertThat(map.containsKey(1)).isTrue();
+    assertThat(map.containsKey(2)).isFalse();
+    assertThat(map).hasSize(2);
+  }
+
+  @Test
+  public void empty() {
+    IntKeyMap<String> map = IntKeyMap.<String>builder(0).build();
+    assertThat(map).isEmpty();
+    assertThat(map.get(0)).isNull();
+  }
+
+  @Test
+  public void duplicateKey() {
+    IntKeyMap.Builder<String> builder = IntKeyMap.<String>builder(2).put(1, "one").put(1, "uno");
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void immutable() {
+    Map<Integer, String> map = IntKeyMap.<String>builder(1).put(1, "one").build();
+    try {
+      map.put(2, "two");
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      map.entrySet().iterator().remove();
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+  }
+
+  @Test
+  public void equality() {
+    new EqualsTester()
+        .addEqualityGroup(
+            IntKeyMap.<String>builder(2).put(1, "one").put(2, "two").build(),
+            IntKeyMap.<String>builder(2).put(2, "two").put(1, "one").build(),
+            ImmutableMap.of(1, "one", 2, "two"))
+        .addEqualityGroup(IntKeyMap.<String>builder(1).put(1, "one").build())
+        .testEquals();
+  }
+
+  @Test
+  public void mapFactory() {
+    Factory<Map<Integer, String>> factory =
+        MapFactory.<String>intKeyBuilder(2)
+            .put(2, InstanceFactory.create("two"))
+            .put(1, InstanceFactory.create("one"))
+            .build();
+    Map<Integer, String> map = factory.get();
+    assertThat(map).isInstanceOf(IntKeyMap.class);
+    assertThat(map).containsExactly(2, "two", 1, "one").inOrder();
+    assertThat(PrimitiveKeyMaps.intKeyLookup(map)).isSameInstanceAs(map);
+  }
+
+  @Test
+  public void mapProviderFactory() {
+    Provider<String> one = InstanceFactory.create("one");
+    Factory<Map<Integer, Provider<String>>> factory =
+        MapProviderFactory.<String>intKeyBuilder(1).put(1, one).build();
+    assertThat(factory.get()).isInstanceOf(IntKeyMap.class);
+    assertThat(factory.get()).isSameInstanceAs(factory.get());
+    assertThat(PrimitiveKeyMaps.intKeyLookup(factory.get()).get(1)).isSameInstanceAs(one);
+  }
+
+  @Test
+  public void putAllFromPrimitiveKeyFactory() {
+    Provider<String> one = InstanceFactory.create("one");
+    Provider<String> two = InstanceFactory.create("two");
+    MapProviderFactory<Integer, String> parent =
+        MapProviderFactory.<String>intKeyBuilder(1).put(1, one).build();
+    Map<Integer, Provider<String>> map =
+        MapProviderFactory.<String>intKeyBuilder(2).putAll(parent).put(2, two).build().get();
+    assertThat(map).containsExactly(1, one, 2, two).inOrder();
+  }
+
+  @Test
+  public void lookupOfOtherMap() {
+    PrimitiveKeyMaps.IntKeyLookup<String> lookup =
+        PrimitiveKeyMaps.intKeyLookup(ImmutableMap.of(1, "one"));
+    assertThat(lookup.get(1)).isEqualTo("one");
+    assertThat(lookup.get(2)).isNull();
+  }
+}
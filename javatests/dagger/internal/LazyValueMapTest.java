@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import dagger.multibindings.PrimitiveKeyMaps;
+import dagger.multibindings.PrimitiveKeyMaps.IntKeyLookup;
+import dagger.multibindings.PrimitiveKeyMaps.LongKeyLookup;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Provider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LazyValueMapTest {
+  @Test
+  public void valuesAreProvidedOnAccess() {
+    CountingProvider one = new CountingProvider("one");
+    CountingProvider two = new CountingProvider("two");
+    Map<String, String> map =
+        MapFactory.<String, String>builder(2)
+            .put("1", one)
+            .put("2", two)
+            .lazyValues()
+            .build()
+            .get();
+    assertThat(one.count.get()).isEqualTo(0);
+    assertThat(two.count.get()).isEqualTo(0);
+
+    assertThat(map.get("1")).isEqualTo("one");
+    assertThat(map.get("1")).isEqualTo("one");
+    assertThat(map.containsKey("2")).isTrue();
+    assertThat(map.get("3")).isNull();
+    assertThat(one.count.get()).isEqualTo(1);
+    assertThat(two.count.get()).isEqualTo(0);
+
+    assertThat(map).containsExactly("1", "one", "2", "two").inOrder();
+    assertThat(one.count.get()).isEqualTo(1);
+    assertThat(two.count.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void eachMapProvidesItsOwnValues() {
+    CountingProvider one = new CountingProvider("one");
+    MapFactory<String, String> factory =
+        MapFactory.<String, String>builder(1).put("1", one).lazyValues().build();
+    factory.get().get("1");
+    factory.get().get("1");
+    assertThat(one.count.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void nullValue() {
+    CountingProvider nullProvider = new CountingProvider(null);
+    Map<String, String> map =
+        MapFactory.<String, String>builder(1).put("null", nullProvider).lazyValues().build().get();
+    assertThat(map.get("null")).isNull();
+    assertThat(map.containsKey("null")).isTrue();
+    map.get("null");
+    assertThat(nullProvider.count.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void primitiveKeys() {
+    Map<Integer, String> map =
+        MapFactory.<String>intKeyBuilder(2)
+            .put(2, InstanceFactory.create("two"))
+            .put(1, InstanceFactory.create("one"))
+            .lazyValues()
+            .build()
+            .get();
+    assertThat(map.get(1)).isEqualTo("one");
+    assertThat(map).containsExactly(2, "two", 1, "one").inOrder();
+  }
+
+  @Test
+  public void primitiveKeyLookups() {
+    CountingProvider one = new CountingProvider("one");
+    CountingProvider two = new CountingProvider("two");
+    Map<Integer, String> intKeyMap =
+        MapFactory.<String>intKeyBuilder(2).put(1, one).put(2, two).lazyValues().build().get();
+    IntKeyLookup<String> intKeyLookup = PrimitiveKeyMaps.intKeyLookup(intKeyMap);
+    assertThat(intKeyLookup).isSameInstanceAs(intKeyMap);
+    assertThat(intKeyLookup.get(1)).isEqualTo("one");
+    assertThat(intKeyLookup.get(3)).isNull();
+    assertThat(one.count.get()).isEqualTo(1);
+    assertThat(two.count.get()).isEqualTo(0);
+
+    Map<Long, String> longKeyMap =
+        MapFactory.<String>longKeyBuilder(1)
+            .put(1L, InstanceFactory.create("one"))
+            .lazyValues()
+            .build()
+            .get();
+    LongKeyLookup<String> longKeyLookup = PrimitiveKeyMaps.longKeyLookup(longKeyMap);
+    assertThat(longKeyLookup).isSameInstanceAs(longKeyMap);
+    assertThat(longKeyLookup.get(1L)).isEqualTo("one");
+    assertThat(longKeyLookup.get(2L)).isNull();
+  }
+
+  @Test
+  public void equality() {
+    Map<String, String> map =
+        MapFactory.<String, String>builder(2)
+            .put("1", InstanceFactory.create("one"))
+            .put("2", InstanceFactory.create("two"))
+            .lazyValues()
+            .build()
+            .get();
+    assertThat(map).isEqualTo(ImmutableMap.of("1", "one", "2", "two"));
+    assertThat(map.hashCode()).isEqualTo(ImmutableMap.of("1", "one", "2", "two").hashCode());
+  }
+
+  private static final class CountingProvider implements Provider<String> {
+    private final String value;
+    private final AtomicInteger count = new AtomicInteger();
+
+    CountingProvider(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public String get() {
+      count.incrementAndGet();
+      return value;
+    }
+  }
+}
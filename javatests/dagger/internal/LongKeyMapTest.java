@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import dagger.multibindings.PrimitiveKeyMaps;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LongKeyMapTest {
+  @Test
+  public void iterationOrderAndGet() {
+    LongKeyMap<String> map =
+        LongKeyMap.<String>builder(3)
+            .put(Long.MAX_VALUE, "max")
+            .put(Long.MIN_VALUE, "min")
+            .put(0L, "zero")
+            .build();
+    assertThat(map)
+        .containsExactly(Long.MAX_VALUE, "max", Long.MIN_VALUE, "min", 0L, "zero")
+        .inOrder();
+    assertThat(map.get(Long.MIN_VALUE)).isEqualTo("min");
+    assertThat(map.get(1L)).isNull();
+    assertThat(map.get((Object) 0L)).isEqualTo("zero");
+    assertThat(map.get((Object) 0)).isNull();
+  }
+
+  @Test
+  public void mapFactory() {
+    Map<Long, String> map =
+        MapFactory.<String>longKeyBuilder(2)
+            .put(2L, InstanceFactory.create("two"))
+            .put(1L, InstanceFactory.create("one"))
+            .build()
+            .get();
+    assertThat(map).isInstanceOf(LongKeyMap.class);
+    assertThat(map).containsExactly(2L, "two", 1L, "one").inOrder();
+    assertThat(PrimitiveKeyMaps.longKeyLookup(map).get(1L)).isEqualTo("one");
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import dagger.monitoring.ProvisionMonitor;
+import dagger.monitoring.ProvisionMonitors;
+import dagger.monitoring.ProvisionToken;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Provider;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MonitoredProviderTest {
+  private static final ProvisionToken FOO = ProvisionToken.create("Foo");
+  private static final ProvisionToken BAR = ProvisionToken.create("Bar");
+
+  private final RecordingMonitor monitor = new RecordingMonitor();
+
+  @After
+  public void uninstallMonitor() {
+    ProvisionMonitors.uninstall();
+  }
+
+  @Test
+  public void noMonitorInstalled() {
+    Provider<String> provider = MonitoredProvider.provider(() -> "foo", FOO);
+    assertThat(provider.get()).isEqualTo("foo");
+    assertThat(monitor.events).isEmpty();
+  }
+
+  @Test
+  public void reportsNestedProvisions() {
+    ProvisionMonitors.install(monitor);
+    Provider<String> bar = MonitoredProvider.provider(() -> "bar", BAR);
+    Provider<String> foo = MonitoredProvider.provider(() -> "foo" + bar.get(), FOO);
+    assertThat(foo.get()).isEqualTo("foobar");
+    assertThat(monitor.events)
+        .containsExactly("Foo starting", "Bar starting", "Bar finished", "Foo finished")
+        .inOrder();
+  }
+
+  @Test
+  public void reportsFailures() {
+    ProvisionMonitors.install(monitor);
+    IllegalStateException exception = new IllegalStateException();
+    Provider<String> provider =
+        MonitoredProvider.provider(
+            () -> {
+              throw exception;
+            },
+            FOO);
+    assertThat(assertThrows(IllegalStateException.class, provider::get))
+        .isSameInstanceAs(exception);
+    assertThat(monitor.events).containsExactly("Foo starting", "Foo failed").inOrder();
+  }
+
+  @Test
+  public void monitorExceptionsAreIgnored() {
+    ProvisionMonitors.install(
+        new ProvisionMonitor() {
+          @Override
+          public void provisionStarting(ProvisionToken token) {
+            throw new RuntimeException("monitor");
+          }
+
+          @Override
+          public void provisionFinished(ProvisionToken token) {
+            throw new RuntimeException("monitor");
+          }
+        });
+    assertThat(MonitoredProvider.provider(() -> "foo", FOO).get()).isEqualTo("foo");
+  }
+
+  @Test
+  public void tokens() {
+    assertThat(ProvisionToken.create("Foo")).isEqualTo(FOO);
+    assertThat(ProvisionToken.create("Foo").hashCode()).isEqualTo(FOO.hashCode());
+    assertThat(FOO).isNotEqualTo(BAR);
+    assertThat(FOO.toString()).isEqualTo("Foo");
+  }
+
+  private static final class RecordingMonitor extends ProvisionMonitor {
+    final List<String> events = new ArrayList<>();
+
+    @Override
+    public void provisionStarting(ProvisionToken token) {
+      events.add(token + " starting");
+    }
+
+    @Override
+    public void provisionFinished(ProvisionToken token) {
+      events.add(token + " finished");
+    }
+
+    @Override
+    public void provisionFailed(ProvisionToken token, Throwable throwable) {
+      events.add(token + " failed");
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import javax.inject.Provider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ProvisionCountersTest {
+  @Test
+  public void countsEachIndex() {
+    ProvisionCounters counters = new ProvisionCounters(3);
+    counters.increment(0);
+    counters.increment(2);
+    counters.increment(2);
+    assertThat(counters.count(0)).isEqualTo(1);
+    assertThat(counters.count(1)).isEqualTo(0);
+    assertThat(counters.count(2)).isEqualTo(2);
+  }
+
+  @Test
+  public void countingProvider() {
+    ProvisionCounters counters = new ProvisionCounters(1);
+    Provider<Object> provider = CountingProvider.provider(Object::new, counters, 0);
+    provider.get();
+    provider.get();
+    assertThat(counters.count(0)).isEqualTo(2);
+  }
+
+  @Test
+  public void concurrentIncrements() throws InterruptedException {
+    int threadCount = 8;
+    int incrementsPerThread = 100_000;
+    ProvisionCounters counters = new ProvisionCounters(2);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  throw new AssertionError(e);
+                }
+                for (int j = 0; j < incrementsPerThread; j++) {
+                  counters.increment(1);
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(counters.count(0)).isEqualTo(0);
+    assertThat(counters.count(1)).isEqualTo((long) threadCount * incrementsPerThread);
+  }
+}
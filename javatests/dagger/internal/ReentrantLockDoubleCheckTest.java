@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.inject.Provider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ReentrantLockDoubleCheckTest {
+  @Test
+  public void provider_nullPointerException() {
+    try {
+      ReentrantLockDoubleCheck.provider(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  @Test
+  public void doubleWrapping_provider() {
+    Provider<Object> provider = ReentrantLockDoubleCheck.provider(Object::new);
+    assertThat(ReentrantLockDoubleCheck.provider(provider)).isSameInstanceAs(provider);
+    assertThat(DoubleCheck.provider(provider)).isSameInstanceAs(provider);
+    assertThat(SingleCheck.provider(provider)).isSameInstanceAs(provider);
+    assertThat(DoubleCheck.lazy(provider)).isSameInstanceAs(provider);
+  }
+
+  @Test
+  public void doubleWrapping_doubleCheck() {
+    Provider<Object> doubleCheck = DoubleCheck.provider(Object::new);
+    assertThat(ReentrantLockDoubleCheck.provider(doubleCheck)).isSameInstanceAs(doubleCheck);
+  }
+
+  @Test
+  public void get() throws Exception {
+    int numThreads = 10;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+    final CountDownLatch latch = new CountDownLatch(numThreads);
+    final AtomicInteger provisions = new AtomicInteger();
+    final Provider<Object> provider =
+        ReentrantLockDoubleCheck.provider(
+            () -> {
+              Uninterruptibles.awaitUninterruptibly(latch);
+              provisions.incrementAndGet();
+              return new Object();
+            });
+
+    List<Callable<Object>> tasks = Lists.newArrayListWithCapacity(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      tasks.add(
+          () -> {
+            latch.countDown();
+            return provider.get();
+          });
+    }
+
+    List<Future<Object>> futures = executor.invokeAll(tasks);
+
+    assertThat(provisions.get()).isEqualTo(1);
+    Set<Object> results = Sets.newIdentityHashSet();
+    for (Future<Object> future : futures) {
+      results.add(future.get());
+    }
+    assertThat(results).hasSize(1);
+    executor.shutdown();
+  }
+
+  @Test
+  public void reentranceReturningSameInstance() {
+    final AtomicReference<Provider<Object>> doubleCheckReference = new AtomicReference<>();
+    final AtomicInteger invocationCount = new AtomicInteger();
+    final Object object = new Object();
+    Provider<Object> doubleCheck =
+        ReentrantLockDoubleCheck.provider(
+            () -> {
+              if (invocationCount.incrementAndGet() == 1) {
+                doubleCheckReference.get().get();
+              }
+              return object;
+            });
+    doubleCheckReference.set(doubleCheck);
+    assertThat(doubleCheck.get()).isSameInstanceAs(object);
+  }
+
+  @Test
+  public void reentranceReturningDifferentInstances_throwsIllegalStateException() {
+    final AtomicReference<Provider<Object>> doubleCheckReference = new AtomicReference<>();
+    final AtomicInteger invocationCount = new AtomicInteger();
+    Provider<Object> doubleCheck =
+        ReentrantLockDoubleCheck.provider(
+            () -> {
+              if (invocationCount.incrementAndGet() == 1) {
+                doubleCheckReference.get().get();
+              }
+              return new Object();
+            });
+    doubleCheckReference.set(doubleCheck);
+    try {
+      doubleCheck.get();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @Test
+  public void exceptionInProvider_releasesLock() throws Exception {
+    final AtomicInteger invocationCount = new AtomicInteger();
+    final Object object = new Object();
+    final Provider<Object> provider =
+        ReentrantLockDoubleCheck.provider(
+            () -> {
+              if (invocationCount.incrementAndGet() == 1) {
+                throw new IllegalStateException();
+              }
+              return object;
+            });
+    try {
+      provider.get();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+
+    // Another thread must be able to acquire the lock and create the instance.
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    assertThat(executor.submit(provider::get).get()).isSameInstanceAs(object);
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Provider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ScopedInstancesTest {
+  private final AtomicInteger provisions = new AtomicInteger();
+
+  @Test
+  public void onlyCreatedInstancesAreIncluded() {
+    Provider<Integer> created = DoubleCheck.provider(provisions::incrementAndGet);
+    Provider<Integer> notCreated = DoubleCheck.provider(provisions::incrementAndGet);
+    created.get();
+
+    MapBuilder<String, Object> instances = MapBuilder.newMapBuilder(2);
+    ScopedInstances.putIfCreated(instances, "created", created);
+    ScopedInstances.putIfCreated(instances, "notCreated", notCreated);
+
+    assertThat(instances.build()).containsExactly("created", 1);
+    assertThat(provisions.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void allScopedProviders() {
+    Provider<Integer> singleCheck = SingleCheck.provider(provisions::incrementAndGet);
+    Provider<Integer> reentrantLockDoubleCheck =
+        ReentrantLockDoubleCheck.provider(provisions::incrementAndGet);
+    DelegateFactory<Integer> delegateFactory = new DelegateFactory<>();
+    DelegateFactory.setDelegate(delegateFactory, DoubleCheck.provider(provisions::incrementAndGet));
+    singleCheck.get();
+    reentrantLockDoubleCheck.get();
+    delegateFactory.get();
+
+    MapBuilder<String, Object> instances = MapBuilder.newMapBuilder(3);
+    ScopedInstances.putIfCreated(instances, "singleCheck", singleCheck);
+    ScopedInstances.putIfCreated(instances, "reentrantLockDoubleCheck", reentrantLockDoubleCheck);
+    ScopedInstances.putIfCreated(instances, "delegateFactory", delegateFactory);
+
+    Map<String, Object> map = instances.build();
+    assertThat(map.keySet())
+        .containsExactly("singleCheck", "reentrantLockDoubleCheck", "delegateFactory")
+        .inOrder();
+    assertThat(provisions.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void unscopedProvider() {
+    MapBuilder<String, Object> instances = MapBuilder.newMapBuilder(1);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> ScopedInstances.putIfCreated(instances, "unscoped", provisions::incrementAndGet));
+  }
+}
@@ -18,7 +18,9 @@ package dagger.internal;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.testing.EqualsTester;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -74,6 +76,80 @@ public class SetFactoryTest {
     assertThat(factory.get()).containsExactly(2, 12, 24, 25, 34, 35);
   }
 
+  @Test
+  public void singleton() {
+    Factory<Set<Integer>> factory = SetFactory.singleton(incrementingIntegerProvider(0));
+    assertThat(factory.get()).containsExactly(0);
+    assertThat(factory.get()).containsExactly(1);
+  }
+
+  @Test
+  public void singleton_providerReturnsNull() {
+    Factory<Set<Integer>> factory = SetFactory.<Integer>singleton(() -> null);
+    thrown.expect(NullPointerException.class);
+    factory.get();
+  }
+
+  @Test
+  public void fromCollection() {
+    Factory<Set<Integer>> factory = SetFactory.fromCollection(() -> ImmutableList.of(1, 2, 1, 3));
+    assertThat(factory.get()).containsExactly(1, 2, 3);
+    assertThat(SetFactory.<Integer>fromCollection(ImmutableList::of).get()).isEmpty();
+  }
+
+  @Test
+  public void fromCollection_setIsNotCopied() {
+    Set<Integer> set = new LinkedHashSet<>(Arrays.asList(1, 2, 3));
+    Set<Integer> provided = SetFactory.fromCollection(() -> set).get();
+    assertThat(provided).containsExactly(1, 2, 3).inOrder();
+    set.add(4);
+    assertThat(provided).contains(4);
+    thrown.expect(UnsupportedOperationException.class);
+    provided.add(5);
+  }
+
+  @Test
+  public void fromCollection_setWithNullElement() {
+    Set<Integer> set = new LinkedHashSet<>(Arrays.asList(1, null, 3));
+    Factory<Set<Integer>> factory = SetFactory.fromCollection(() -> set);
+    thrown.expect(NullPointerException.class);
+    factory.get();
+  }
+
+  @Test
+  public void smallSet() {
+    Factory<Set<Integer>> factory =
+        SetFactory.<Integer>smallSetBuilder(3)
+            .addProvider(incrementingIntegerProvider(10))
+            .addProvider(incrementingIntegerProvider(0))
+            .addProvider(() -> 10)
+            .build();
+    Set<Integer> set = factory.get();
+    assertThat(set).containsExactly(10, 0).inOrder();
+    assertThat(set).doesNotContain(null);
+    assertThat(set).doesNotContain(1);
+    assertThat(factory.get()).containsExactly(11, 1, 10).inOrder();
+    new EqualsTester()
+        .addEqualityGroup(set, ImmutableSet.of(0, 10))
+        .addEqualityGroup(factory.get())
+        .testEquals();
+  }
+
+  @Test
+  public void smallSet_isImmutable() {
+    Set<Integer> set = SetFactory.<Integer>smallSetBuilder(1).addProvider(() -> 1).build().get();
+    thrown.expect(UnsupportedOperationException.class);
+    set.iterator().remove();
+  }
+
+  @Test
+  public void smallSet_providerReturnsNull() {
+    Factory<Set<Integer>> factory =
+        SetFactory.<Integer>smallSetBuilder(1).addProvider(() -> null).build();
+    thrown.expect(NullPointerException.class);
+    factory.get();
+  }
+
   private static Provider<Integer> incrementingIntegerProvider(int seed) {
     final AtomicInteger value = new AtomicInteger(seed);
     return value::getAndIncrement;
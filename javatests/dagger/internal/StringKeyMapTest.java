@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.testing.EqualsTester;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.inject.Provider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class StringKeyMapTest {
+  private static final int[] NO_DISPLACEMENTS = {0};
+
+  @Test
+  public void iterationOrder() {
+    StringKeyMap<Integer> map =
+        StringKeyMap.<Integer>builder(3, NO_DISPLACEMENTS)
+            .put("c", 3)
+            .put("a", 1)
+            .put("b", 2)
+            .build();
+    assertThat(map).containsExactly("c", 3, "a", 1, "b", 2).inOrder();
+  }
+
+  @Test
+  public void get() {
+    StringKeyMap<Integer> map =
+        StringKeyMap.<Integer>builder(2, new int[] {5, 17}).put("one", 1).put("two", 2).build();
+    assertThat(map.get("one")).isEqualTo(1);
+    assertThat(map.get(new String("two"))).isEqualTo(2);
+    assertThat(map.get("three")).isNull();
+    assertThat(map.get(1)).isNull();
+    assertThat(map.get(null)).isNull();
+    assertThat(map.containsKey("one")).isTrue();
+    assertThat(map.containsKey("three")).isFalse();
+    assertThat(map).hasSize(2);
+  }
+
+  @Test
+  public void manyKeys_anyDisplacements() {
+    Map<String, Integer> expected = new LinkedHashMap<>();
+    StringKeyMap.Builder<Integer> builder =
+        StringKeyMap.builder(1000, new int[] {3, -1, 0, 123456789});
+    for (int i = 0; i < 1000; i++) {
+      expected.put("key" + i, i);
+      builder.put("key" + i, i);
+    }
+    StringKeyMap<Integer> map = builder.build();
+    assertThat(map).containsExactlyEntriesIn(expected).inOrder();
+    for (int i = 0; i < 1000; i++) {
+      assertThat(map.get("key" + i)).isEqualTo(i);
+    }
+    assertThat(map.get("key1000")).isNull();
+  }
+
+  @Test
+  public void empty() {
+    StringKeyMap<Integer> map = StringKeyMap.<Integer>builder(0, NO_DISPLACEMENTS).build();
+    assertThat(map).isEmpty();
+    assertThat(map.get("")).isNull();
+  }
+
+  @Test
+  public void duplicateKey() {
+    StringKeyMap.Builder<Integer> builder =
+        StringKeyMap.<Integer>builder(2, NO_DISPLACEMENTS).put("one", 1).put("one", 2);
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void displacementsNotPowerOfTwo() {
+    StringKeyMap.Builder<Integer> builder =
+        StringKeyMap.<Integer>builder(1, new int[] {0, 0, 0}).put("one", 1);
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void equality() {
+    new EqualsTester()
+        .addEqualityGroup(
+            StringKeyMap.<Integer>builder(2, NO_DISPLACEMENTS).put("a", 1).put("b", 2).build(),
+            StringKeyMap.<Integer>builder(2, NO_DISPLACEMENTS).put("b", 2).put("a", 1).build(),
+            ImmutableMap.of("a", 1, "b", 2))
+        .addEqualityGroup(StringKeyMap.<Integer>builder(1, NO_DISPLACEMENTS).put("a", 1).build())
+        .testEquals();
+  }
+
+  @Test
+  public void mapFactory() {
+    Factory<Map<String, Integer>> factory =
+        MapFactory.<Integer>stringKeyBuilder(2, NO_DISPLACEMENTS)
+            .put("two", InstanceFactory.create(2))
+            .put("one", InstanceFactory.create(1))
+            .build();
+    Map<String, Integer> map = factory.get();
+    assertThat(map).isInstanceOf(StringKeyMap.class);
+    assertThat(map).containsExactly("two", 2, "one", 1).inOrder();
+  }
+
+  @Test
+  public void mapProviderFactory() {
+    Provider<Integer> one = InstanceFactory.create(1);
+    Factory<Map<String, Provider<Integer>>> factory =
+        MapProviderFactory.<Integer>stringKeyBuilder(1, NO_DISPLACEMENTS).put("one", one).build();
+    assertThat(factory.get()).isInstanceOf(StringKeyMap.class);
+    assertThat(factory.get()).isSameInstanceAs(factory.get());
+    assertThat(factory.get().get("one")).isSameInstanceAs(one);
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Provider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class WarmUpTest {
+  @Test
+  public void empty() throws Exception {
+    Future<Void> future = WarmUp.builder(0).start(MoreExecutors.directExecutor());
+    assertThat(future.isDone()).isTrue();
+    assertThat(future.get()).isNull();
+  }
+
+  @Test
+  public void invalidDependency() {
+    WarmUp.Builder builder = WarmUp.builder(1);
+    try {
+      builder.add(Object::new, 0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void dependenciesAreCalledFirst() throws Exception {
+    List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      // 0 <- 1, 0 <- 2, {1, 2} <- 3
+      Future<Void> future =
+          WarmUp.builder(4)
+              .add(recording(order, 0))
+              .add(recording(order, 1), 0)
+              .add(recording(order, 2), 0)
+              .add(recording(order, 3), 1, 2)
+              .start(executor);
+      future.get(10, TimeUnit.SECONDS);
+      assertThat(future.isDone()).isTrue();
+      assertThat(order).containsExactly(0, 1, 2, 3);
+      assertThat(order.get(0)).isEqualTo(0);
+      assertThat(order.get(3)).isEqualTo(3);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void independentProvidersRunInParallel() throws Exception {
+    int parallelism = 4;
+    CountDownLatch latch = new CountDownLatch(parallelism);
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      WarmUp.Builder builder = WarmUp.builder(parallelism);
+      for (int i = 0; i < parallelism; i++) {
+        builder.add(
+            () -> {
+              // Each provider waits for all of the others to start, so this only completes if
+              // they all run at the same time.
+              latch.countDown();
+              Uninterruptibles.awaitUninterruptibly(latch);
+              return new Object();
+            });
+      }
+      builder.start(executor).get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void failure() throws Exception {
+    AtomicInteger dependentCalls = new AtomicInteger();
+    RuntimeException exception = new RuntimeException();
+    Future<Void> future =
+        WarmUp.builder(2)
+            .add(
+                () -> {
+                  throw exception;
+                })
+            .add(
+                () -> {
+                  dependentCalls.incrementAndGet();
+                  return new Object();
+                },
+                0)
+            .start(MoreExecutors.directExecutor());
+    assertThat(future.isDone()).isTrue();
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException expected) {
+      assertThat(expected).hasCauseThat().isSameInstanceAs(exception);
+    }
+    assertThat(dependentCalls.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void concurrentFailures() throws Exception {
+    int size = 8;
+    CountDownLatch started = new CountDownLatch(size);
+    ExecutorService executor = Executors.newFixedThreadPool(size);
+    try {
+      WarmUp.Builder builder = WarmUp.builder(size);
+      for (int i = 0; i < size; i++) {
+        builder.add(
+            () -> {
+              started.countDown();
+              Uninterruptibles.awaitUninterruptibly(started);
+              throw new RuntimeException();
+            });
+      }
+      Future<Void> future = builder.start(executor);
+      Throwable firstCause = failureCause(future);
+      executor.shutdown();
+      assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+      // The failures that lost the race don't replace the one that was reported.
+      assertThat(firstCause).isNotNull();
+      assertThat(failureCause(future)).isSameInstanceAs(firstCause);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Throwable failureCause(Future<Void> future) throws Exception {
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      throw new AssertionError("Expected the future to fail");
+    } catch (ExecutionException expected) {
+      return expected.getCause();
+    }
+  }
+
+  @Test
+  public void rejectedExecution() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.shutdown();
+    Future<Void> future = WarmUp.builder(1).add(Object::new).start(executor);
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException expected) {
+      assertThat(expected).hasCauseThat().isInstanceOf(RejectedExecutionException.class);
+    }
+  }
+
+  @Test
+  public void cancel() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger dependentCalls = new AtomicInteger();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Void> future =
+          WarmUp.builder(2)
+              .add(
+                  () -> {
+                    started.countDown();
+                    Uninterruptibles.awaitUninterruptibly(release);
+                    return new Object();
+                  })
+              .add(
+                  () -> {
+                    dependentCalls.incrementAndGet();
+                    return new Object();
+                  },
+                  0)
+              .start(executor);
+      Uninterruptibles.awaitUninterruptibly(started);
+      assertThat(future.cancel(false)).isTrue();
+      release.countDown();
+      assertThat(future.isCancelled()).isTrue();
+      assertThat(future.isDone()).isTrue();
+      try {
+        future.get();
+        fail();
+      } catch (CancellationException expected) {
+      }
+      executor.shutdown();
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+      assertThat(dependentCalls.get()).isEqualTo(0);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Provider<Object> recording(List<Integer> order, int index) {
+    return () -> {
+      order.add(index);
+      return new Object();
+    };
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.benchmarks;
+
+import dagger.internal.DelegateFactory;
+import dagger.internal.InstanceFactory;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Provider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks for the unscoped factories, {@link InstanceFactory} and {@link DelegateFactory}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FactoryBenchmark {
+  private Provider<Object> instanceFactory;
+  private Provider<Object> delegateFactory;
+
+  @Setup
+  public void setUp() {
+    instanceFactory = InstanceFactory.create(new Object());
+    delegateFactory = new DelegateFactory<>();
+    DelegateFactory.setDelegate(delegateFactory, instanceFactory);
+  }
+
+  @Benchmark
+  public Object instanceFactory() {
+    return instanceFactory.get();
+  }
+
+  @Benchmark
+  public Object delegateFactory() {
+    return delegateFactory.get();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Object contendedDelegateFactory() {
+    return delegateFactory.get();
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.benchmarks;
+
+import dagger.internal.InstanceFactory;
+import dagger.internal.MapFactory;
+import dagger.internal.MapProviderFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Provider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for assembling and reading {@code Map} multibindings with {@link MapFactory} and
+ * {@link MapProviderFactory}.
+ *
+ * <p>{@code size} is the number of contributions. Both {@code String} keys (as with {@code
+ * @StringKey}) and {@code Integer} keys (as with {@code @IntKey}) are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapFactoryBenchmark {
+  @Param({"1", "10", "100", "1000", "10000"})
+  public int size;
+
+  private String[] stringKeys;
+  private Provider<Object>[] valueProviders;
+  private Provider<Map<String, Object>> stringMapFactory;
+  private Provider<Map<Integer, Object>> intMapFactory;
+  private Provider<Map<String, Provider<Object>>> stringMapProviderFactory;
+  private Provider<Map<Integer, Provider<Object>>> intMapProviderFactory;
+  private int lookupIndex;
+
+  @SuppressWarnings("unchecked") // generic array creation
+  @Setup
+  public void setUp() {
+    stringKeys = new String[size];
+    valueProviders = new Provider[size];
+    for (int i = 0; i < size; i++) {
+      stringKeys[i] = "key" + i;
+      valueProviders[i] = InstanceFactory.create(new Object());
+    }
+    stringMapFactory = buildStringMapFactory();
+    MapFactory.Builder<Integer, Object> intMapBuilder = MapFactory.builder(size);
+    MapProviderFactory.Builder<String, Object> stringMapProviderBuilder =
+        MapProviderFactory.builder(size);
+    MapProviderFactory.Builder<Integer, Object> intMapProviderBuilder =
+        MapProviderFactory.builder(size);
+    for (int i = 0; i < size; i++) {
+      intMapBuilder.put(i, valueProviders[i]);
+      stringMapProviderBuilder.put(stringKeys[i], valueProviders[i]);
+      intMapProviderBuilder.put(i, valueProviders[i]);
+    }
+    intMapFactory = intMapBuilder.build();
+    stringMapProviderFactory = stringMapProviderBuilder.build();
+    intMapProviderFactory = intMapProviderBuilder.build();
+  }
+
+  @Benchmark
+  public Map<String, Object> stringKeyGet() {
+    return stringMapFactory.get();
+  }
+
+  @Benchmark
+  public Map<Integer, Object> intKeyGet() {
+    return intMapFactory.get();
+  }
+
+  @Benchmark
+  public Map<String, Provider<Object>> stringKeyProviderGet() {
+    return stringMapProviderFactory.get();
+  }
+
+  /** Injects a {@code Map<String, Provider<V>>} and looks up one entry, as a dispatcher would. */
+  @Benchmark
+  public Object stringKeyProviderLookup() {
+    return stringMapProviderFactory.get().get(stringKeys[nextLookupIndex()]).get();
+  }
+
+  /** Injects a {@code Map<Integer, Provider<V>>} and looks up one entry, as a dispatcher would. */
+  @Benchmark
+  public Object intKeyProviderLookup() {
+    return intMapProviderFactory.get().get(nextLookupIndex()).get();
+  }
+
+  /** Measures the cost paid once per component instance to create the factory. */
+  @Benchmark
+  public Provider<Map<String, Object>> stringKeyBuild() {
+    return buildStringMapFactory();
+  }
+
+  private Provider<Map<String, Object>> buildStringMapFactory() {
+    MapFactory.Builder<String, Object> builder = MapFactory.builder(size);
+    for (int i = 0; i < size; i++) {
+      builder.put(stringKeys[i], valueProviders[i]);
+    }
+    return builder.build();
+  }
+
+  private int nextLookupIndex() {
+    int index = lookupIndex;
+    lookupIndex = index + 1 == size ? 0 : index + 1;
+    return index;
+  }
+}
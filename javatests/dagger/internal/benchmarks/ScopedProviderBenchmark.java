@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.benchmarks;
+
+import dagger.internal.DoubleCheck;
+import dagger.internal.SingleCheck;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Provider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the scoped providers, {@link DoubleCheck} and {@link SingleCheck}.
+ *
+ * <p>The {@code warm*} benchmarks measure {@code get()} once the instance has been memoized, which
+ * is the steady state for every scoped binding. The {@code contended*} variants run the same
+ * operation from several threads at once. The {@code cold*} benchmarks create a new scoped
+ * provider for each invocation and measure the first {@code get()}, which includes taking the
+ * lock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScopedProviderBenchmark {
+  private static final Provider<Object> OBJECT_PROVIDER =
+      new Provider<Object>() {
+        @Override
+        public Object get() {
+          return new Object();
+        }
+      };
+
+  private Provider<Object> doubleCheck;
+  private Provider<Object> singleCheck;
+
+  @Setup
+  public void setUp() {
+    doubleCheck = DoubleCheck.provider(OBJECT_PROVIDER);
+    doubleCheck.get();
+    singleCheck = SingleCheck.provider(OBJECT_PROVIDER);
+    singleCheck.get();
+  }
+
+  @Benchmark
+  public Object warmDoubleCheck() {
+    return doubleCheck.get();
+  }
+
+  @Benchmark
+  public Object warmSingleCheck() {
+    return singleCheck.get();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Object contendedDoubleCheck() {
+    return doubleCheck.get();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Object contendedSingleCheck() {
+    return singleCheck.get();
+  }
+
+  /** A fresh, uninitialized set of scoped providers for each invocation. */
+  @State(Scope.Thread)
+  public static class ColdProviders {
+    Provider<Object> doubleCheck;
+    Provider<Object> singleCheck;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+      doubleCheck = DoubleCheck.provider(OBJECT_PROVIDER);
+      singleCheck = SingleCheck.provider(OBJECT_PROVIDER);
+    }
+  }
+
+  @Benchmark
+  public Object coldDoubleCheck(ColdProviders providers) {
+    return providers.doubleCheck.get();
+  }
+
+  @Benchmark
+  public Object coldSingleCheck(ColdProviders providers) {
+    return providers.singleCheck.get();
+  }
+}
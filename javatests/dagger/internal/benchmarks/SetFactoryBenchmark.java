@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.benchmarks;
+
+import dagger.internal.InstanceFactory;
+import dagger.internal.SetFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Provider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for assembling {@code Set} multibindings with {@link SetFactory}.
+ *
+ * <p>{@code size} is the number of contributions. The {@code individual} benchmarks use one {@code
+ * @IntoSet} provider per element, the {@code collection} benchmarks split the elements across
+ * {@code @ElementsIntoSet} providers of {@link #ELEMENTS_PER_COLLECTION} elements each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetFactoryBenchmark {
+  private static final int ELEMENTS_PER_COLLECTION = 10;
+
+  @Param({"1", "10", "100", "1000", "10000"})
+  public int size;
+
+  private List<Provider<Object>> individualProviders;
+  private List<Provider<Collection<Object>>> collectionProviders;
+  private Provider<Set<Object>> individualSetFactory;
+  private Provider<Set<Object>> collectionSetFactory;
+
+  @Setup
+  public void setUp() {
+    individualProviders = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      individualProviders.add(InstanceFactory.create(new Object()));
+    }
+    collectionProviders = new ArrayList<>();
+    for (int i = 0; i < size; i += ELEMENTS_PER_COLLECTION) {
+      List<Object> elements = new ArrayList<>(ELEMENTS_PER_COLLECTION);
+      for (int j = i; j < Math.min(size, i + ELEMENTS_PER_COLLECTION); j++) {
+        elements.add(new Object());
+      }
+      collectionProviders.add(InstanceFactory.<Collection<Object>>create(elements));
+    }
+    individualSetFactory = buildIndividualSetFactory();
+    collectionSetFactory = buildCollectionSetFactory();
+  }
+
+  @Benchmark
+  public Set<Object> individualGet() {
+    return individualSetFactory.get();
+  }
+
+  @Benchmark
+  public Set<Object> collectionGet() {
+    return collectionSetFactory.get();
+  }
+
+  /** Measures the cost paid once per component instance to create the factory. */
+  @Benchmark
+  public Provider<Set<Object>> individualBuild() {
+    return buildIndividualSetFactory();
+  }
+
+  private Provider<Set<Object>> buildIndividualSetFactory() {
+    SetFactory.Builder<Object> builder = SetFactory.builder(individualProviders.size(), 0);
+    for (int i = 0; i < individualProviders.size(); i++) {
+      builder.addProvider(individualProviders.get(i));
+    }
+    return builder.build();
+  }
+
+  private Provider<Set<Object>> buildCollectionSetFactory() {
+    SetFactory.Builder<Object> builder = SetFactory.builder(0, collectionProviders.size());
+    for (int i = 0; i < collectionProviders.size(); i++) {
+      builder.addCollectionProvider(collectionProviders.get(i));
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen;
+
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static dagger.internal.codegen.Compilers.daggerCompiler;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.Compiler;
+import com.google.testing.compile.JavaFileObjects;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import javax.tools.JavaFileObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for -Adagger.componentCacheDirectory. */
+@RunWith(JUnit4.class)
+public final class ComponentCacheTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final JavaFileObject FOO =
+      JavaFileObjects.forSourceLines(
+          "test.Foo",
+          "package test;",
+          "",
+          "import javax.inject.Inject;",
+          "",
+          "final class Foo {",
+          "  @Inject Foo(String string) {}",
+          "}");
+
+  private static final JavaFileObject COMPONENT =
+      JavaFileObjects.forSourceLines(
+          "test.TestComponent",
+          "package test;",
+          "",
+          "import dagger.Component;",
+          "",
+          "@Component(modules = TestModule.class)",
+          "interface TestComponent {",
+          "  Foo foo();",
+          "}");
+
+  private static JavaFileObject module(String... members) {
+    return JavaFileObjects.forSourceLines(
+        "test.TestModule",
+        "package test;",
+        "",
+        "import dagger.Module;",
+        "import dagger.Provides;",
+        "",
+        "@Module",
+        "final class TestModule {",
+        String.join("\n", members),
+        "}");
+  }
+
+  private static JavaFileObject outer(String declaration) {
+    return JavaFileObjects.forSourceLines(
+        "test.Outer",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "",
+        declaration,
+        "  static final class Nested {",
+        "    @Inject Nested() {}",
+        "  }",
+        "}");
+  }
+
+  @Test
+  public void unchangedComponentIsReusedFromCache() throws IOException {
+    JavaFileObject module = module("@Provides static String string() { return \"a\"; }");
+    // Method bodies don't affect the generated component, so changing them keeps the cache entry.
+    JavaFileObject changedBody = module("@Provides static String string() { return \"b\"; }");
+
+    Compilation uncached =
+        daggerCompiler()
+            .withOptions("-Adagger.nullableValidation=WARNING")
+            .compile(FOO, COMPONENT, module);
+    Compilation first = compileWithCache("first", FOO, COMPONENT, module);
+    Compilation second = compileWithCache("second", FOO, COMPONENT, changedBody);
+
+    assertThat(uncached).succeeded();
+    assertThat(first).succeeded();
+    assertThat(second).succeeded();
+    assertThat(trace("first")).contains("\"hit\":\"false\"");
+    assertThat(trace("second")).contains("\"hit\":\"true\"");
+    assertThat(new File(cacheDirectory(), "test.TestComponent.daggercache").exists()).isTrue();
+    assertThat(generatedSources(first)).containsExactlyEntriesIn(generatedSources(uncached));
+    assertThat(generatedSources(second)).containsExactlyEntriesIn(generatedSources(uncached));
+  }
+
+  @Test
+  public void parallelComponentGenerationIsCached() throws IOException {
+    JavaFileObject module = module("@Provides static String string() { return \"a\"; }");
+
+    Compilation uncached =
+        daggerCompiler()
+            .withOptions("-Adagger.nullableValidation=WARNING")
+            .compile(FOO, COMPONENT, module);
+    Compilation first =
+        cachingCompiler("first", "-Adagger.parallelComponentGeneration=ENABLED")
+            .compile(FOO, COMPONENT, module);
+    Compilation second = compileWithCache("second", FOO, COMPONENT, module);
+
+    assertThat(first).succeeded();
+    assertThat(second).succeeded();
+    assertThat(trace("first")).contains("\"hit\":\"false\"");
+    assertThat(trace("first")).contains("\"name\":\"JavaFile\"");
+    assertThat(trace("second")).contains("\"hit\":\"true\"");
+    assertThat(generatedSources(first)).containsExactlyEntriesIn(generatedSources(uncached));
+    assertThat(generatedSources(second)).containsExactlyEntriesIn(generatedSources(uncached));
+  }
+
+  @Test
+  public void changedModuleInvalidatesCache() throws IOException {
+    JavaFileObject module = module("@Provides static String string() { return \"a\"; }");
+    JavaFileObject changedModule =
+        module(
+            "@Provides static String string(Integer i) { return \"a\" + i; }",
+            "@Provides static Integer integer() { return 1; }");
+
+    Compilation first = compileWithCache("first", FOO, COMPONENT, module);
+    Compilation second = compileWithCache("second", FOO, COMPONENT, changedModule);
+    Compilation uncached =
+        daggerCompiler()
+            .withOptions("-Adagger.nullableValidation=WARNING")
+            .compile(FOO, COMPONENT, changedModule);
+
+    assertThat(first).succeeded();
+    assertThat(second).succeeded();
+    assertThat(trace("second")).contains("\"hit\":\"false\"");
+    assertThat(generatedSources(second)).containsExactlyEntriesIn(generatedSources(uncached));
+    assertThat(generatedSources(second)).isNotEqualTo(generatedSources(first));
+  }
+
+  @Test
+  public void changedEnclosingTypeModifiersInvalidateCache() throws IOException {
+    JavaFileObject component =
+        JavaFileObjects.forSourceLines(
+            "test.TestComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "",
+            "@Component",
+            "interface TestComponent {",
+            "  Outer.Nested nested();",
+            "}");
+
+    Compilation first = compileWithCache("first", component, outer("final class Outer {"));
+    Compilation second = compileWithCache("second", component, outer("public class Outer {"));
+
+    assertThat(first).succeeded();
+    assertThat(second).succeeded();
+    assertThat(trace("first")).contains("\"hit\":\"false\"");
+    assertThat(trace("second")).contains("\"hit\":\"false\"");
+  }
+
+  @Test
+  public void componentWithWarningsIsNotCached() throws IOException {
+    JavaFileObject nullable =
+        JavaFileObjects.forSourceLines(
+            "test.Nullable", "package test;", "", "@interface Nullable {}");
+    JavaFileObject module = module("@Provides @Nullable static String string() { return null; }");
+
+    Compilation first = compileWithCache("first", FOO, COMPONENT, module, nullable);
+    Compilation second = compileWithCache("second", FOO, COMPONENT, module, nullable);
+
+    assertThat(first).succeeded();
+    assertThat(first).hadWarningContaining("is not nullable, but is being provided by");
+    assertThat(second).succeeded();
+    assertThat(second).hadWarningContaining("is not nullable, but is being provided by");
+    assertThat(trace("second")).contains("\"hit\":\"false\"");
+    assertThat(new File(cacheDirectory(), "test.TestComponent.daggercache").exists()).isFalse();
+  }
+
+  private Compilation compileWithCache(String name, JavaFileObject... sources) {
+    return cachingCompiler(name).compile(sources);
+  }
+
+  private Compiler cachingCompiler(String name, String... options) {
+    return daggerCompiler()
+        .withOptions(
+            ImmutableList.<String>builder()
+                .add(
+                    "-Adagger.nullableValidation=WARNING",
+                    "-Adagger.componentCacheDirectory=" + cacheDirectory(),
+                    "-Adagger.processingTraceFile="
+                        + new File(temporaryFolder.getRoot(), name + ".json"))
+                .add(options)
+                .build());
+  }
+
+  private File cacheDirectory() {
+    return new File(temporaryFolder.getRoot(), "cache");
+  }
+
+  private String trace(String name) throws IOException {
+    return new String(
+        Files.readAllBytes(new File(temporaryFolder.getRoot(), name + ".json").toPath()), UTF_8);
+  }
+
+  private static ImmutableMap<String, String> generatedSources(Compilation compilation) {
+    return compilation
+        .generatedSourceFiles()
+        .stream()
+        .collect(toImmutableMap(JavaFileObject::getName, file -> contents(file)));
+  }
+
+  private static String contents(JavaFileObject file) {
+    try {
+      return file.getCharContent(false).toString();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
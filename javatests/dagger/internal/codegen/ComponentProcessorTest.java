@@ -26,6 +26,7 @@ import static dagger.internal.codegen.Compilers.daggerCompiler;
 import com.google.auto.common.MoreElements;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import com.google.testing.compile.Compilation;
 import com.google.testing.compile.JavaFileObjects;
@@ -327,6 +328,347 @@ public class ComponentProcessorTest {
         .containsElementsIn(generatedComponent);
   }
 
+  @Test
+  public void componentWithScope_reentrantLockDoubleCheck() {
+    JavaFileObject injectableTypeFile =
+        JavaFileObjects.forSourceLines(
+            "test.SomeInjectableType",
+            "package test;",
+            "",
+            "import javax.inject.Inject;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "final class SomeInjectableType {",
+            "  @Inject SomeInjectableType() {}",
+            "}");
+    JavaFileObject componentFile =
+        JavaFileObjects.forSourceLines(
+            "test.SimpleComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "import dagger.Lazy;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "@Component",
+            "interface SimpleComponent {",
+            "  SomeInjectableType someInjectableType();",
+            "  Lazy<SomeInjectableType> lazySomeInjectableType();",
+            "}");
+    JavaFileObject generatedComponent =
+        compilerMode
+            .javaFileBuilder("test.DaggerSimpleComponent")
+            .addLines(
+                "package test;",
+                "",
+                GeneratedLines.generatedAnnotations(),
+                "final class DaggerSimpleComponent implements SimpleComponent {",
+                "  private Provider<SomeInjectableType> someInjectableTypeProvider;")
+            .addLinesIn(
+                FAST_INIT_MODE,
+                "  @SuppressWarnings(\"unchecked\")",
+                "  private void initialize() {",
+                "    this.someInjectableTypeProvider =",
+                "        ReentrantLockDoubleCheck.provider(",
+                "            new SwitchingProvider<SomeInjectableType>(simpleComponent, 0));",
+                "  }")
+            .addLinesIn(
+                DEFAULT_MODE,
+                "  @SuppressWarnings(\"unchecked\")",
+                "  private void initialize() {",
+                "    this.someInjectableTypeProvider =",
+                "        ReentrantLockDoubleCheck.provider(SomeInjectableType_Factory.create());",
+                "  }")
+            .addLines(
+                "  @Override",
+                "  public SomeInjectableType someInjectableType() {",
+                "    return someInjectableTypeProvider.get();",
+                "  }",
+                "",
+                "  @Override",
+                "  public Lazy<SomeInjectableType> lazySomeInjectableType() {",
+                "    return DoubleCheck.lazy(someInjectableTypeProvider);",
+                "  }",
+                "}")
+            .build();
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.reentrantLockDoubleCheck=enabled")
+                    .build())
+            .compile(injectableTypeFile, componentFile);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerSimpleComponent")
+        .containsElementsIn(generatedComponent);
+  }
+
+  @Test
+  public void componentWithScope_staticHolderSingletons() {
+    JavaFileObject injectableTypeFile =
+        JavaFileObjects.forSourceLines(
+            "test.SomeInjectableType",
+            "package test;",
+            "",
+            "import javax.inject.Inject;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "final class SomeInjectableType {",
+            "  @Inject SomeInjectableType() {}",
+            "}");
+    JavaFileObject componentFile =
+        JavaFileObjects.forSourceLines(
+            "test.SimpleComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "import javax.inject.Provider;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "@Component",
+            "interface SimpleComponent {",
+            "  SomeInjectableType someInjectableType();",
+            "  Provider<SomeInjectableType> someInjectableTypeProvider();",
+            "}");
+    JavaFileObject generatedComponent =
+        compilerMode
+            .javaFileBuilder("test.DaggerSimpleComponent")
+            .addLines(
+                "package test;",
+                "",
+                GeneratedLines.generatedAnnotations(),
+                "final class DaggerSimpleComponent implements SimpleComponent {",
+                "  private Provider<SomeInjectableType> someInjectableTypeProvider;",
+                "",
+                "  @SuppressWarnings(\"unchecked\")",
+                "  private void initialize() {",
+                "    this.someInjectableTypeProvider =",
+                "        new SwitchingProvider<SomeInjectableType>(simpleComponent, 0);",
+                "  }",
+                "",
+                "  @Override",
+                "  public SomeInjectableType someInjectableType() {",
+                "    return SomeInjectableTypeHolder.INSTANCE;",
+                "  }",
+                "",
+                "  @Override",
+                "  public Provider<SomeInjectableType> someInjectableTypeProvider() {",
+                "    return someInjectableTypeProvider;",
+                "  }",
+                "",
+                "  private static final class SomeInjectableTypeHolder {",
+                "    static final SomeInjectableType INSTANCE = new SomeInjectableType();",
+                "  }",
+                "",
+                "  private static final class SwitchingProvider<T> implements Provider<T> {",
+                "    @SuppressWarnings(\"unchecked\")",
+                "    @Override",
+                "    public T get() {",
+                "      switch (id) {",
+                "        case 0: return (T) SomeInjectableTypeHolder.INSTANCE;",
+                "        default: throw new AssertionError(id);",
+                "      }",
+                "    }",
+                "  }",
+                "}")
+            .build();
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.staticHolderSingletons=enabled")
+                    .build())
+            .compile(injectableTypeFile, componentFile);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerSimpleComponent")
+        .containsElementsIn(generatedComponent);
+  }
+
+  @Test
+  public void componentWithScope_warmUpMethod() {
+    JavaFileObject aFile =
+        JavaFileObjects.forSourceLines(
+            "test.A",
+            "package test;",
+            "",
+            "import javax.inject.Inject;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "final class A {",
+            "  @Inject A() {}",
+            "}");
+    JavaFileObject bFile =
+        JavaFileObjects.forSourceLines(
+            "test.B",
+            "package test;",
+            "",
+            "import javax.inject.Inject;",
+            "",
+            "final class B {",
+            "  @Inject B(A a) {}",
+            "}");
+    JavaFileObject cFile =
+        JavaFileObjects.forSourceLines(
+            "test.C",
+            "package test;",
+            "",
+            "import javax.inject.Inject;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "final class C {",
+            "  @Inject C(B b) {}",
+            "}");
+    JavaFileObject componentFile =
+        JavaFileObjects.forSourceLines(
+            "test.SimpleComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "@Component",
+            "interface SimpleComponent {",
+            "  C c();",
+            "}");
+    JavaFileObject generatedComponent =
+        compilerMode
+            .javaFileBuilder("test.DaggerSimpleComponent")
+            .addLines(
+                "package test;",
+                "",
+                GeneratedLines.generatedAnnotations(),
+                "final class DaggerSimpleComponent implements SimpleComponent {",
+                "  public Future<Void> warmUp(Executor executor) {",
+                "    WarmUp.Builder builder = WarmUp.builder(2);",
+                "    builder.add(aProvider);",
+                "    builder.add(cProvider, 0);",
+                "    return builder.start(executor);",
+                "  }",
+                "}")
+            .build();
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.generateWarmUpMethod=enabled")
+                    .build())
+            .compile(aFile, bFile, cFile, componentFile);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerSimpleComponent")
+        .containsElementsIn(generatedComponent);
+  }
+
+  @Test
+  public void componentWithScope_introspectionMethods() {
+    JavaFileObject aFile =
+        JavaFileObjects.forSourceLines(
+            "test.A",
+            "package test;",
+            "",
+            "import javax.inject.Inject;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "final class A {",
+            "  @Inject A() {}",
+            "}");
+    JavaFileObject bFile =
+        JavaFileObjects.forSourceLines(
+            "test.B",
+            "package test;",
+            "",
+            "import javax.inject.Inject;",
+            "",
+            "final class B {",
+            "  @Inject B(A a) {}",
+            "}");
+    JavaFileObject componentFile =
+        JavaFileObjects.forSourceLines(
+            "test.SimpleComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "@Component",
+            "interface SimpleComponent {",
+            "  B b();",
+            "}");
+    JavaFileObject generatedComponent =
+        compilerMode
+            .javaFileBuilder("test.DaggerSimpleComponent")
+            .addLines(
+                "package test;",
+                "",
+                GeneratedLines.generatedAnnotations(),
+                "final class DaggerSimpleComponent implements SimpleComponent {",
+                "  private final ProvisionCounters provisionCounters = new ProvisionCounters(2);",
+                "",
+                "  @SuppressWarnings(\"unchecked\")",
+                "  private void initialize() {")
+            .addLinesIn(
+                DEFAULT_MODE,
+                "    this.aProvider =",
+                "        DoubleCheck.provider(",
+                "            CountingProvider.provider(",
+                "                A_Factory.create(), simpleComponent.provisionCounters, 1));",
+                "    this.bProvider =",
+                "        CountingProvider.provider(",
+                "            B_Factory.create(aProvider), simpleComponent.provisionCounters, 0);")
+            .addLinesIn(
+                FAST_INIT_MODE,
+                "    this.aProvider =",
+                "        DoubleCheck.provider(",
+                "            CountingProvider.provider(",
+                "                new SwitchingProvider<A>(simpleComponent, 1),",
+                "                simpleComponent.provisionCounters,",
+                "                1));",
+                "    this.bProvider =",
+                "        CountingProvider.provider(",
+                "            new SwitchingProvider<>(simpleComponent, 0),",
+                "            simpleComponent.provisionCounters,",
+                "            0);")
+            .addLines(
+                "  }",
+                "",
+                "  public Map<String, Long> provisionCounts() {",
+                "    MapBuilder<String, Long> counts = MapBuilder.newMapBuilder(2);",
+                "    counts.put(\"test.B\", provisionCounters.count(0));",
+                "    counts.put(\"test.A\", provisionCounters.count(1));",
+                "    return counts.build();",
+                "  }",
+                "",
+                "  public Map<String, Object> scopedInstances() {",
+                "    MapBuilder<String, Object> instances = MapBuilder.newMapBuilder(1);",
+                "    ScopedInstances.putIfCreated(instances, \"test.A\", aProvider);",
+                "    return instances.build();",
+                "  }",
+                "}")
+            .build();
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.generateIntrospectionMethods=enabled")
+                    .build())
+            .compile(aFile, bFile, componentFile);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerSimpleComponent")
+        .containsElementsIn(generatedComponent);
+  }
+
   @Test public void simpleComponentWithNesting() {
     JavaFileObject nestedTypesFile = JavaFileObjects.forSourceLines("test.OuterType",
         "package test;",
@@ -2778,6 +3120,95 @@ public class ComponentProcessorTest {
                 .build());
   }
 
+  @Test
+  public void provisionMonitoring() {
+    JavaFileObject foo =
+        JavaFileObjects.forSourceLines(
+            "test.Foo",
+            "package test;",
+            "",
+            "import javax.inject.Inject;",
+            "",
+            "public class Foo {",
+            "  @Inject Foo(Bar bar) {}",
+            "}");
+    JavaFileObject bar =
+        JavaFileObjects.forSourceLines(
+            "test.Bar",
+            "package test;",
+            "",
+            "import javax.inject.Inject;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "public class Bar {",
+            "  @Inject Bar() {}",
+            "}");
+    JavaFileObject component =
+        JavaFileObjects.forSourceLines(
+            "test.TestComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "@Component",
+            "public interface TestComponent {",
+            "  Foo foo();",
+            "}");
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.provisionMonitoring=enabled")
+                    .build())
+            .compile(component, foo, bar);
+
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerTestComponent")
+        .containsElementsIn(
+            compilerMode
+                .javaFileBuilder("test.DaggerTestComponent")
+                .addLines(
+                    "package test;",
+                    "",
+                    GeneratedLines.generatedAnnotations(),
+                    "public final class DaggerTestComponent implements TestComponent {",
+                    "  @SuppressWarnings(\"unchecked\")",
+                    "  private void initialize() {")
+                .addLinesIn(
+                    DEFAULT_MODE,
+                    "    this.barProvider =",
+                    "        DoubleCheck.provider(",
+                    "            MonitoredProvider.provider(",
+                    "                Bar_Factory.create(), ProvisionToken.create(\"test.Bar\")));",
+                    "    this.fooProvider =",
+                    "        MonitoredProvider.provider(",
+                    "            Foo_Factory.create(barProvider), ProvisionToken.create(\"test.Foo\"));")
+                .addLinesIn(
+                    FAST_INIT_MODE,
+                    "    this.barProvider =",
+                    "        DoubleCheck.provider(",
+                    "            MonitoredProvider.provider(",
+                    "                new SwitchingProvider<Bar>(testComponent, 1),",
+                    "                ProvisionToken.create(\"test.Bar\")));",
+                    "    this.fooProvider =",
+                    "        MonitoredProvider.provider(",
+                    "            new SwitchingProvider<>(testComponent, 0),",
+                    "            ProvisionToken.create(\"test.Foo\"));")
+                .addLines(
+                    "  }",
+                    "",
+                    "  @Override",
+                    "  public Foo foo() {",
+                    "    return fooProvider.get();",
+                    "  }",
+                    "}")
+                .build());
+  }
+
   @Test
   public void injectedTypeHasGeneratedParam() {
     JavaFileObject foo =
@@ -136,9 +136,9 @@ public class ComponentShardTest {
                     "  @SuppressWarnings(\"unchecked\")",
                     "  private void initialize() {",
                     "    this.binding7Provider = DoubleCheck.provider(",
-                    "        new SwitchingProvider<Binding7>(testComponent, 6));",
+                    "        new SwitchingProvider<Binding7>(testComponent, 1));",
                     "    this.binding6Provider = DoubleCheck.provider(",
-                    "        new SwitchingProvider<Binding6>(testComponent, 5));",
+                    "        new SwitchingProvider<Binding6>(testComponent, 0));",
                     "  }")
                 .addLines(
                     "  @Override",
@@ -239,13 +239,32 @@ public class ComponentShardTest {
                     "    @SuppressWarnings(\"unchecked\")",
                     "    private void initialize() {",
                     "      this.binding5Provider = DoubleCheck.provider(",
-                    "          new SwitchingProvider<Binding5>(testComponent, 4));",
+                    "          new SwitchingProvider<Binding5>(testComponent, 3));",
                     "      this.binding4Provider = DoubleCheck.provider(",
-                    "          new SwitchingProvider<Binding4>(testComponent, 3));",
+                    "          new SwitchingProvider<Binding4>(testComponent, 2));",
                     "      this.binding3Provider = DoubleCheck.provider(",
-                    "          new SwitchingProvider<Binding3>(testComponent, 2));",
+                    "          new SwitchingProvider<Binding3>(testComponent, 1));",
                     "      this.binding2Provider = DoubleCheck.provider(",
-                    "          new SwitchingProvider<Binding2>(testComponent, 1));",
+                    "          new SwitchingProvider<Binding2>(testComponent, 0));",
+                    "    }",
+                    "",
+                    "    private final class SwitchingProvider<T> implements Provider<T> {",
+                    "      @SuppressWarnings(\"unchecked\")",
+                    "      @Override",
+                    "      public T get() {",
+                    "        switch (id) {",
+                    "          case 0: return (T) new Binding2(",
+                    "              testComponent.shard1.binding3Provider.get());",
+                    "          case 1: return (T) new Binding3(",
+                    "              testComponent.shard1.binding4Provider.get());",
+                    "          case 2: return (T) new Binding4(",
+                    "              testComponent.shard1.binding5Provider.get(),",
+                    "              testComponent.shard1.binding2Provider);",
+                    "          case 3: return (T) new Binding5(",
+                    "              testComponent.binding6Provider.get());",
+                    "          default: throw new AssertionError(id);",
+                    "        }",
+                    "      }",
                     "    }",
                     "  }")
                 .addLines(
@@ -268,6 +287,18 @@ public class ComponentShardTest {
                     "      this.binding1Provider = DoubleCheck.provider(",
                     "          new SwitchingProvider<Binding1>(testComponent, 0));",
                     "    }",
+                    "",
+                    "    private final class SwitchingProvider<T> implements Provider<T> {",
+                    "      @SuppressWarnings(\"unchecked\")",
+                    "      @Override",
+                    "      public T get() {",
+                    "        switch (id) {",
+                    "          case 0: return (T) new Binding1(",
+                    "              testComponent.shard1.binding2Provider.get());",
+                    "          default: throw new AssertionError(id);",
+                    "        }",
+                    "      }",
+                    "    }",
                     "  }",
                     "",
                     "  private static final class SwitchingProvider<T> implements Provider<T> {",
@@ -275,20 +306,9 @@ public class ComponentShardTest {
                     "    @Override",
                     "    public T get() {",
                     "      switch (id) {",
-                    "        case 0: return (T) new Binding1(",
-                    "            testComponent.shard1.binding2Provider.get());",
-                    "        case 1: return (T) new Binding2(",
-                    "            testComponent.shard1.binding3Provider.get());",
-                    "        case 2: return (T) new Binding3(",
-                    "            testComponent.shard1.binding4Provider.get());",
-                    "        case 3: return (T) new Binding4(",
-                    "            testComponent.shard1.binding5Provider.get(),",
-                    "            testComponent.shard1.binding2Provider);",
-                    "        case 4: return (T) new Binding5(",
-                    "            testComponent.binding6Provider.get());",
-                    "        case 5: return (T) new Binding6(",
+                    "        case 0: return (T) new Binding6(",
                     "            testComponent.binding7Provider.get());",
-                    "        case 6: return (T) new Binding7();",
+                    "        case 1: return (T) new Binding7();",
                     "        default: throw new AssertionError(id);",
                     "      }",
                     "    }",
@@ -296,6 +316,182 @@ public class ComponentShardTest {
                 .build());
   }
 
+  @Test
+  public void testLazyShards() {
+    // Shard 2: Binding1, Shard 1: Binding2, Component shard: Binding3
+    ImmutableList<JavaFileObject> javaFileObjects =
+        ImmutableList.of(
+            createBinding("Binding1", "Binding2 binding2"),
+            createBinding("Binding2", "Binding3 binding3"),
+            createBinding("Binding3"),
+            JavaFileObjects.forSourceLines(
+                "dagger.internal.codegen.TestComponent",
+                "package dagger.internal.codegen;",
+                "",
+                "import dagger.Component;",
+                "import javax.inject.Singleton;",
+                "",
+                "@Singleton",
+                "@Component",
+                "interface TestComponent {",
+                "  Binding1 binding1();",
+                "  Binding2 binding2();",
+                "  Binding3 binding3();",
+                "}"));
+
+    Compilation compilation =
+        compiler("-Adagger.keysPerComponentShard=1", "-Adagger.lazyComponentShards=enabled")
+            .compile(javaFileObjects);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("dagger.internal.codegen.DaggerTestComponent")
+        .containsElementsIn(
+            compilerMode
+                .javaFileBuilder("dagger.internal.codegen.DaggerTestComponent")
+                .addLines(
+                    "package dagger.internal.codegen;",
+                    "",
+                    GeneratedLines.generatedAnnotations(),
+                    "final class DaggerTestComponent implements TestComponent {",
+                    "  private volatile Shard1 shard1;",
+                    "  private volatile Shard2 shard2;",
+                    "  private final DaggerTestComponent testComponent = this;",
+                    "",
+                    "  private DaggerTestComponent() {",
+                    "    initialize();",
+                    "  }",
+                    "",
+                    "  private Shard1 shard1() {",
+                    "    Shard1 local = shard1;",
+                    "    if (local == null) {",
+                    "      synchronized (this) {",
+                    "        local = shard1;",
+                    "        if (local != null) {",
+                    "          return local;",
+                    "        }",
+                    "        local = new Shard1();",
+                    "        shard1 = local;",
+                    "      }",
+                    "    }",
+                    "    return local;",
+                    "  }",
+                    "",
+                    "  @Override",
+                    "  public Binding1 binding1() {",
+                    "    return testComponent.shard2().binding1Provider.get();",
+                    "  }",
+                    "",
+                    "  @Override",
+                    "  public Binding2 binding2() {",
+                    "    return testComponent.shard1().binding2Provider.get();",
+                    "  }",
+                    "}")
+                .build());
+  }
+
+  @Test
+  public void testPerComponentKeysPerShard() {
+    ImmutableList<JavaFileObject> javaFileObjects =
+        ImmutableList.of(
+            createBinding("Binding1", "Binding2 binding2"),
+            createBinding("Binding2", "Binding3 binding3"),
+            createBinding("Binding3"),
+            createComponent("TestComponent"),
+            createComponent("OtherComponent"));
+
+    Compilation compilation =
+        compiler("-Adagger.keysPerComponentShard=100,dagger.internal.codegen.TestComponent=1")
+            .compile(javaFileObjects);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("dagger.internal.codegen.DaggerTestComponent")
+        .contentsAsUtf8String()
+        .contains("Shard2");
+    assertThat(compilation)
+        .generatedSourceFile("dagger.internal.codegen.DaggerOtherComponent")
+        .contentsAsUtf8String()
+        .doesNotContain("Shard1");
+  }
+
+  @Test
+  public void testInvalidKeysPerShard() {
+    ImmutableList<JavaFileObject> javaFileObjects =
+        ImmutableList.of(
+            createBinding("Binding1", "Binding2 binding2"),
+            createBinding("Binding2", "Binding3 binding3"),
+            createBinding("Binding3"),
+            createComponent("TestComponent"));
+
+    Compilation compilation =
+        compiler("-Adagger.keysPerComponentShard=100,dagger.internal.codegen.TestComponent=zero")
+            .compile(javaFileObjects);
+    assertThat(compilation).failed();
+    assertThat(compilation)
+        .hadErrorContaining(
+            "Processor option -Adagger.keysPerComponentShard may only have a positive number");
+  }
+
+  @Test
+  public void testKeysPerShardOverrideForUnknownComponent() {
+    ImmutableList<JavaFileObject> javaFileObjects =
+        ImmutableList.of(
+            createBinding("Binding1", "Binding2 binding2"),
+            createBinding("Binding2", "Binding3 binding3"),
+            createBinding("Binding3"),
+            createComponent("TestComponent"));
+
+    Compilation compilation =
+        compiler("-Adagger.keysPerComponentShard=100,dagger.internal.codegen.Binding1=1")
+            .compile(javaFileObjects);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .hadWarningContaining(
+            "Processor option -Adagger.keysPerComponentShard has an override for "
+                + "dagger.internal.codegen.Binding1, which is not a root component");
+  }
+
+  @Test
+  public void testSizeAwareShards() {
+    // Binding3 has no dependencies, so it is small enough to share the component shard with
+    // Binding2, and only Binding1 is moved to Shard1.
+    ImmutableList<JavaFileObject> javaFileObjects =
+        ImmutableList.of(
+            createBinding("Binding1", "Binding2 binding2"),
+            createBinding("Binding2", "Binding3 binding3"),
+            createBinding("Binding3"),
+            createComponent("TestComponent"));
+
+    Compilation compilation =
+        compiler("-Adagger.keysPerComponentShard=1", "-Adagger.sizeAwareComponentShards=enabled")
+            .compile(javaFileObjects);
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("dagger.internal.codegen.DaggerTestComponent")
+        .contentsAsUtf8String()
+        .contains("Shard1");
+    assertThat(compilation)
+        .generatedSourceFile("dagger.internal.codegen.DaggerTestComponent")
+        .contentsAsUtf8String()
+        .doesNotContain("Shard2");
+  }
+
+  private static JavaFileObject createComponent(String componentName) {
+    return JavaFileObjects.forSourceLines(
+        "dagger.internal.codegen." + componentName,
+        "package dagger.internal.codegen;",
+        "",
+        "import dagger.Component;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "@Component",
+        "interface " + componentName + " {",
+        "  Binding1 binding1();",
+        "  Binding2 binding2();",
+        "  Binding3 binding3();",
+        "}");
+  }
+
   private static JavaFileObject createBinding(String bindingName, String... deps) {
     return JavaFileObjects.forSourceLines(
         "dagger.internal.codegen." + bindingName,
@@ -313,10 +509,11 @@ public class ComponentShardTest {
   }
 
   private Compiler compiler() {
+    return compiler("-Adagger.keysPerComponentShard=" + BINDINGS_PER_SHARD);
+  }
+
+  private Compiler compiler(String... options) {
     return compilerWithOptions(
-        ImmutableSet.<String>builder()
-            .add("-Adagger.keysPerComponentShard=" + BINDINGS_PER_SHARD)
-            .addAll(compilerMode.javacopts())
-            .build());
+        ImmutableSet.<String>builder().add(options).addAll(compilerMode.javacopts()).build());
   }
 }
@@ -22,6 +22,7 @@ import static dagger.internal.codegen.CompilerMode.FAST_INIT_MODE;
 import static dagger.internal.codegen.Compilers.CLASS_PATH_WITHOUT_GUAVA_OPTION;
 import static dagger.internal.codegen.Compilers.compilerWithOptions;
 
+import com.google.common.collect.ImmutableList;
 import com.google.testing.compile.Compilation;
 import com.google.testing.compile.Compiler;
 import com.google.testing.compile.JavaFileObjects;
@@ -342,6 +343,304 @@ public class MapRequestRepresentationTest {
         .containsElementsIn(generatedComponent);
   }
 
+  @Test
+  public void mapBindings_primitiveKeyMaps() {
+    JavaFileObject mapModuleFile =
+        JavaFileObjects.forSourceLines(
+            "test.MapModule",
+            "package test;",
+            "",
+            "import dagger.Module;",
+            "import dagger.Provides;",
+            "import dagger.multibindings.IntKey;",
+            "import dagger.multibindings.IntoMap;",
+            "import dagger.multibindings.LongKey;",
+            "",
+            "@Module",
+            "interface MapModule {",
+            "  @Provides @IntoMap @IntKey(0) static int provideInt() { return 0; }",
+            "  @Provides @IntoMap @LongKey(0) static long provideLong0() { return 0; }",
+            "  @Provides @IntoMap @LongKey(1) static long provideLong1() { return 1; }",
+            "}");
+    JavaFileObject componentFile =
+        JavaFileObjects.forSourceLines(
+            "test.TestComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "import java.util.Map;",
+            "import javax.inject.Provider;",
+            "",
+            "@Component(modules = MapModule.class)",
+            "interface TestComponent {",
+            "  Map<Integer, Integer> ints();",
+            "  Provider<Map<Integer, Integer>> intsProvider();",
+            "  Map<Long, Provider<Long>> providerLongs();",
+            "  Provider<Map<Long, Provider<Long>>> providerLongsProvider();",
+            "}");
+    JavaFileObject generatedComponent =
+        compilerMode
+            .javaFileBuilder("test.DaggerTestComponent")
+            .addLines(
+                "package test;",
+                "",
+                GeneratedLines.generatedAnnotations(),
+                "final class DaggerTestComponent implements TestComponent {")
+            .addLinesIn(
+                DEFAULT_MODE,
+                "  @SuppressWarnings(\"unchecked\")",
+                "  private void initialize() {",
+                "    this.mapOfIntegerAndIntegerProvider =",
+                "        MapFactory.<Integer>intKeyBuilder(1)",
+                "            .put(0, MapModule_ProvideIntFactory.create())",
+                "            .build();",
+                "    this.mapOfLongAndProviderOfLongProvider =",
+                "        MapProviderFactory.<Long>longKeyBuilder(2)",
+                "            .put(0L, MapModule_ProvideLong0Factory.create())",
+                "            .put(1L, MapModule_ProvideLong1Factory.create())",
+                "            .build();",
+                "  }",
+                "",
+                "  @Override",
+                "  public Map<Integer, Integer> ints() {",
+                "    return IntKeyMap.<Integer>builder(1).put(0, MapModule.provideInt()).build();",
+                "  }",
+                "",
+                "  @Override",
+                "  public Map<Long, Provider<Long>> providerLongs() {",
+                "    return LongKeyMap.<Provider<Long>>builder(2)",
+                "        .put(0L, MapModule_ProvideLong0Factory.create())",
+                "        .put(1L, MapModule_ProvideLong1Factory.create())",
+                "        .build();",
+                "  }",
+                "}")
+            .addLinesIn(
+                FAST_INIT_MODE,
+                "  private static final class SwitchingProvider<T> implements Provider<T> {",
+                "    @SuppressWarnings(\"unchecked\")",
+                "    @Override",
+                "    public T get() {",
+                "      switch (id) {",
+                "        case 0: return (T)",
+                "            IntKeyMap.<Integer>builder(1).put(0, MapModule.provideInt()).build();",
+                "        case 1: return (T) LongKeyMap.<Provider<Long>>builder(2)",
+                "            .put(0L, testComponent.provideLong0Provider)",
+                "            .put(1L, testComponent.provideLong1Provider)",
+                "            .build();",
+                "        case 2: return (T) (Long) MapModule.provideLong0();",
+                "        case 3: return (T) (Long) MapModule.provideLong1();",
+                "        default: throw new AssertionError(id);",
+                "      }",
+                "    }",
+                "  }",
+                "}")
+            .build();
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.primitiveKeyMaps=enabled")
+                    .build())
+            .compile(mapModuleFile, componentFile);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerTestComponent")
+        .containsElementsIn(generatedComponent);
+  }
+
+  @Test
+  public void mapBindings_perfectHashMaps() {
+    JavaFileObject mapModuleFile =
+        JavaFileObjects.forSourceLines(
+            "test.MapModule",
+            "package test;",
+            "",
+            "import dagger.Module;",
+            "import dagger.Provides;",
+            "import dagger.multibindings.ClassKey;",
+            "import dagger.multibindings.IntoMap;",
+            "import dagger.multibindings.StringKey;",
+            "",
+            "@Module",
+            "interface MapModule {",
+            "  @Provides @IntoMap @StringKey(\"a\") static int provideA() { return 0; }",
+            "  @Provides @IntoMap @StringKey(\"b\") static int provideB() { return 1; }",
+            "  @Provides @IntoMap @ClassKey(String.class) static int provideString() { return 2; }",
+            "}");
+    JavaFileObject componentFile =
+        JavaFileObjects.forSourceLines(
+            "test.TestComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "import java.util.Map;",
+            "import javax.inject.Provider;",
+            "",
+            "@Component(modules = MapModule.class)",
+            "interface TestComponent {",
+            "  Map<String, Integer> strings();",
+            "  Provider<Map<String, Integer>> stringsProvider();",
+            "  Map<Class<?>, Integer> classes();",
+            "  Provider<Map<Class<?>, Integer>> classesProvider();",
+            "}");
+    JavaFileObject generatedComponent =
+        compilerMode
+            .javaFileBuilder("test.DaggerTestComponent")
+            .addLines(
+                "package test;",
+                "",
+                GeneratedLines.generatedAnnotations(),
+                "final class DaggerTestComponent implements TestComponent {")
+            .addLinesIn(
+                DEFAULT_MODE,
+                "  @SuppressWarnings(\"unchecked\")",
+                "  private void initialize() {",
+                "    this.mapOfStringAndIntegerProvider =",
+                "        MapFactory.<Integer>stringKeyBuilder(2, new int[] {5})",
+                "            .put(\"a\", MapModule_ProvideAFactory.create())",
+                "            .put(\"b\", MapModule_ProvideBFactory.create())",
+                "            .build();",
+                "    this.mapOfClassOfAndIntegerProvider =",
+                "        MapFactory.<Class<?>, Integer>classKeyBuilder(1, new int[] {0})",
+                "            .put(String.class, MapModule_ProvideStringFactory.create())",
+                "            .build();",
+                "  }",
+                "",
+                "  @Override",
+                "  public Map<String, Integer> strings() {",
+                "    return StringKeyMap.<Integer>builder(2, new int[] {5})",
+                "        .put(\"a\", MapModule.provideA())",
+                "        .put(\"b\", MapModule.provideB())",
+                "        .build();",
+                "  }",
+                "",
+                "  @Override",
+                "  public Map<Class<?>, Integer> classes() {",
+                "    return ClassKeyMap.<Class<?>, Integer>builder(1, new int[] {0})",
+                "        .put(String.class, MapModule.provideString())",
+                "        .build();",
+                "  }",
+                "}")
+            .addLinesIn(
+                FAST_INIT_MODE,
+                "  private static final class SwitchingProvider<T> implements Provider<T> {",
+                "    @SuppressWarnings(\"unchecked\")",
+                "    @Override",
+                "    public T get() {",
+                "      switch (id) {",
+                "        case 0: return (T) StringKeyMap.<Integer>builder(2, new int[] {5})",
+                "            .put(\"a\", MapModule.provideA())",
+                "            .put(\"b\", MapModule.provideB())",
+                "            .build();",
+                "        case 1: return (T) ClassKeyMap.<Class<?>, Integer>builder(1, new int[] {0})",
+                "            .put(String.class, MapModule.provideString())",
+                "            .build();",
+                "        default: throw new AssertionError(id);",
+                "      }",
+                "    }",
+                "  }",
+                "}")
+            .build();
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.perfectHashMaps=enabled")
+                    .build())
+            .compile(mapModuleFile, componentFile);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerTestComponent")
+        .containsElementsIn(generatedComponent);
+  }
+
+  @Test
+  public void mapBindings_lazyMapValues() {
+    JavaFileObject mapModuleFile =
+        JavaFileObjects.forSourceLines(
+            "test.MapModule",
+            "package test;",
+            "",
+            "import dagger.Module;",
+            "import dagger.Provides;",
+            "import dagger.multibindings.IntoMap;",
+            "import dagger.multibindings.StringKey;",
+            "",
+            "@Module",
+            "interface MapModule {",
+            "  @Provides @IntoMap @StringKey(\"a\") static Object provideA() { return 0; }",
+            "  @Provides @IntoMap @StringKey(\"b\") static Object provideB() { return 1; }",
+            "}");
+    JavaFileObject componentFile =
+        JavaFileObjects.forSourceLines(
+            "test.TestComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "import java.util.Map;",
+            "",
+            "@Component(modules = MapModule.class)",
+            "interface TestComponent {",
+            "  Map<String, Object> objects();",
+            "}");
+    JavaFileObject generatedComponent =
+        compilerMode
+            .javaFileBuilder("test.DaggerTestComponent")
+            .addLines(
+                "package test;",
+                "",
+                GeneratedLines.generatedAnnotations(),
+                "final class DaggerTestComponent implements TestComponent {")
+            .addLinesIn(
+                DEFAULT_MODE,
+                "  @SuppressWarnings(\"unchecked\")",
+                "  private void initialize() {",
+                "    this.mapOfStringAndObjectProvider =",
+                "        MapFactory.<String, Object>builder(2)",
+                "            .lazyValues()",
+                "            .put(\"a\", MapModule_ProvideAFactory.create())",
+                "            .put(\"b\", MapModule_ProvideBFactory.create())",
+                "            .build();",
+                "  }",
+                "",
+                "  @Override",
+                "  public Map<String, Object> objects() {",
+                "    return mapOfStringAndObjectProvider.get();",
+                "  }",
+                "}")
+            .addLinesIn(
+                FAST_INIT_MODE,
+                "  @SuppressWarnings(\"unchecked\")",
+                "  private void initialize() {",
+                "    this.provideAProvider = new SwitchingProvider<>(testComponent, 0);",
+                "    this.provideBProvider = new SwitchingProvider<>(testComponent, 1);",
+                "    this.mapOfStringAndObjectProvider =",
+                "        MapFactory.<String, Object>builder(2)",
+                "            .lazyValues()",
+                "            .put(\"a\", provideAProvider)",
+                "            .put(\"b\", provideBProvider)",
+                "            .build();",
+                "  }",
+                "",
+                "  @Override",
+                "  public Map<String, Object> objects() {",
+                "    return mapOfStringAndObjectProvider.get();",
+                "  }",
+                "}")
+            .build();
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.lazyMapValues=enabled")
+                    .build())
+            .compile(mapModuleFile, componentFile);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerTestComponent")
+        .containsElementsIn(generatedComponent);
+  }
+
   private Compiler daggerCompilerWithoutGuava() {
     return compilerWithOptions(compilerMode.javacopts())
         .withClasspath(CLASS_PATH_WITHOUT_GUAVA_OPTION);
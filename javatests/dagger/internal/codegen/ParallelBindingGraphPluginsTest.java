@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import dagger.model.BindingGraph;
+import dagger.spi.BindingGraphPlugin;
+import dagger.spi.DiagnosticReporter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.tools.JavaFileObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runners.JUnit4;
+
+/** Tests for -Adagger.parallelBindingGraphPlugins. */
+@RunWith(JUnit4.class)
+public final class ParallelBindingGraphPluginsTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final JavaFileObject COMPONENT =
+      JavaFileObjects.forSourceLines(
+          "test.TestComponent",
+          "package test;",
+          "",
+          "import dagger.Component;",
+          "",
+          "@Component",
+          "interface TestComponent {}");
+
+  private static final JavaFileObject COMPONENT_WITH_MISSING_BINDING =
+      JavaFileObjects.forSourceLines(
+          "test.TestComponent",
+          "package test;",
+          "",
+          "import dagger.Component;",
+          "",
+          "@Component",
+          "interface TestComponent {",
+          "  Runnable runnable();",
+          "}");
+
+  @Test
+  public void diagnosticsAreReportedInPluginOrder() {
+    // The earlier plugins take longer, so they finish after the later ones.
+    Compilation compilation =
+        javac()
+            .withProcessors(
+                ComponentProcessor.forTesting(
+                    new SlowErrorPlugin("first", 300),
+                    new SlowErrorPlugin("second", 150),
+                    new SlowErrorPlugin("third", 0)))
+            .withOptions("-Adagger.parallelBindingGraphPlugins=enabled")
+            .compile(COMPONENT);
+
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorCount(3);
+    assertThat(
+            compilation
+                .errors()
+                .stream()
+                .map(error -> error.getMessage(null))
+                .collect(toImmutableList()))
+        .containsExactly("[first] Error!", "[second] Error!", "[third] Error!")
+        .inOrder();
+  }
+
+  @Test
+  public void pluginsThatDoNotSupportConcurrentVisitsRunOnTheProcessingThread() {
+    AtomicReference<Thread> visitingThread = new AtomicReference<>();
+    BindingGraphPlugin serialPlugin =
+        new BindingGraphPlugin() {
+          @Override
+          public void visitGraph(BindingGraph bindingGraph, DiagnosticReporter reporter) {
+            visitingThread.set(Thread.currentThread());
+            reporter.reportComponent(ERROR, bindingGraph.rootComponentNode(), "Error!");
+          }
+
+          @Override
+          public String pluginName() {
+            return "serial";
+          }
+        };
+    Compilation compilation =
+        javac()
+            .withProcessors(
+                ComponentProcessor.forTesting(
+                    new SlowErrorPlugin("first", 300),
+                    serialPlugin,
+                    new SlowErrorPlugin("third", 0)))
+            .withOptions("-Adagger.parallelBindingGraphPlugins=enabled")
+            .compile(COMPONENT);
+
+    assertThat(visitingThread.get()).isSameInstanceAs(Thread.currentThread());
+    assertThat(
+            compilation
+                .errors()
+                .stream()
+                .map(error -> error.getMessage(null))
+                .collect(toImmutableList()))
+        .containsExactly("[first] Error!", "[serial] Error!", "[third] Error!")
+        .inOrder();
+  }
+
+  @Test
+  public void validationErrorsAreReported() {
+    Compilation compilation =
+        javac()
+            .withProcessors(ComponentProcessor.forTesting(new SlowErrorPlugin("plugin", 0)))
+            .withOptions(
+                "-Adagger.parallelBindingGraphPlugins=enabled", "-Adagger.processingThreads=2")
+            .compile(COMPONENT_WITH_MISSING_BINDING);
+
+    assertThat(compilation).failed();
+    assertThat(compilation)
+        .hadErrorContaining("Runnable cannot be provided without an @Provides-annotated method")
+        .inFile(COMPONENT_WITH_MISSING_BINDING)
+        .onLineContaining("interface TestComponent");
+  }
+
+  @Test
+  public void validationPluginsTraverseConcurrently() throws IOException {
+    File traceFile = new File(temporaryFolder.getRoot(), "trace.json");
+    Compilation compilation =
+        javac()
+            .withProcessors(new ComponentProcessor())
+            .withOptions(
+                "-Adagger.parallelBindingGraphPlugins=enabled",
+                "-Adagger.processingThreads=2",
+                "-Adagger.processingTraceFile=" + traceFile)
+            .compile(COMPONENT);
+
+    assertThat(compilation).succeeded();
+    String trace = new String(Files.readAllBytes(traceFile.toPath()), UTF_8);
+    // The cycle validator traverses the graph on the thread pool, while the missing binding
+    // validator looks up types with javac, so it runs on the processing thread.
+    long processingThreadId = threadId(trace, "round 1");
+    assertThat(threadIds(trace, "Dagger/DependencyCycle")).isNotEmpty();
+    assertThat(threadIds(trace, "Dagger/DependencyCycle")).doesNotContain(processingThreadId);
+    assertThat(threadIds(trace, "Dagger/MissingBinding")).containsExactly(processingThreadId);
+  }
+
+  @Test
+  public void concurrentValidationErrorsAreReported() {
+    JavaFileObject cycle =
+        JavaFileObjects.forSourceLines(
+            "test.Cycle",
+            "package test;",
+            "",
+            "import javax.inject.Inject;",
+            "",
+            "final class Cycle {",
+            "  @Inject Cycle(Cycle cycle) {}",
+            "}");
+    JavaFileObject component =
+        JavaFileObjects.forSourceLines(
+            "test.TestComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "",
+            "@Component",
+            "interface TestComponent {",
+            "  Cycle cycle();",
+            "}");
+    Compilation compilation =
+        javac()
+            .withProcessors(new ComponentProcessor())
+            .withOptions(
+                "-Adagger.parallelBindingGraphPlugins=enabled", "-Adagger.processingThreads=2")
+            .compile(cycle, component);
+
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorCount(1);
+    assertThat(compilation)
+        .hadErrorContaining("Found a dependency cycle")
+        .inFile(component)
+        .onLineContaining("interface TestComponent");
+  }
+
+  @Test
+  public void pluginExceptionIsRethrown() {
+    RuntimeException exception = new RuntimeException("plugin failed");
+    BindingGraphPlugin throwingPlugin =
+        new BindingGraphPlugin() {
+          @Override
+          public void visitGraph(BindingGraph bindingGraph, DiagnosticReporter reporter) {
+            throw exception;
+          }
+
+          @Override
+          public String pluginName() {
+            return "throwing";
+          }
+
+          @Override
+          public boolean supportsConcurrentVisits() {
+            return true;
+          }
+        };
+    try {
+      javac()
+          .withProcessors(
+              ComponentProcessor.forTesting(new SlowErrorPlugin("first", 0), throwingPlugin))
+          .withOptions("-Adagger.parallelBindingGraphPlugins=enabled")
+          .compile(COMPONENT);
+      throw new AssertionError("Expected the plugin's exception to be rethrown");
+    } catch (RuntimeException e) {
+      assertThat(Throwables.getCausalChain(e)).contains(exception);
+    }
+  }
+
+  /** Returns the IDs of the threads of the events named {@code name} in {@code trace}. */
+  private static ImmutableList<Long> threadIds(String trace, String name) {
+    Matcher matcher =
+        Pattern.compile("\"name\":\"" + Pattern.quote(name) + "\",[^}]*\"tid\":(\\d+)")
+            .matcher(trace);
+    ImmutableList.Builder<Long> threadIds = ImmutableList.builder();
+    while (matcher.find()) {
+      threadIds.add(Long.parseLong(matcher.group(1)));
+    }
+    return threadIds.build();
+  }
+
+  private static long threadId(String trace, String name) {
+    return getOnlyElement(threadIds(trace, name));
+  }
+
+  /** Reports an error on the root component after waiting for the given time. */
+  private static final class SlowErrorPlugin implements BindingGraphPlugin {
+    private final String name;
+    private final long delayMillis;
+
+    SlowErrorPlugin(String name, long delayMillis) {
+      this.name = name;
+      this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public void visitGraph(BindingGraph bindingGraph, DiagnosticReporter diagnosticReporter) {
+      Uninterruptibles.sleepUninterruptibly(delayMillis, TimeUnit.MILLISECONDS);
+      diagnosticReporter.reportComponent(ERROR, bindingGraph.rootComponentNode(), "Error!");
+    }
+
+    @Override
+    public String pluginName() {
+      return name;
+    }
+
+    @Override
+    public boolean supportsConcurrentVisits() {
+      return true;
+    }
+  }
+}
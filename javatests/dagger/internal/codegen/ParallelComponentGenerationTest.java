@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen;
+
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static dagger.internal.codegen.Compilers.compilerWithOptions;
+import static dagger.internal.codegen.Compilers.daggerCompiler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for -Adagger.parallelComponentGeneration. */
+@RunWith(JUnit4.class)
+public final class ParallelComponentGenerationTest {
+  private static final JavaFileObject FOO =
+      JavaFileObjects.forSourceLines(
+          "test.Foo",
+          "package test;",
+          "",
+          "import javax.inject.Inject;",
+          "",
+          "final class Foo {",
+          "  @Inject Foo() {}",
+          "}");
+
+  private static final JavaFileObject SUBCOMPONENT =
+      JavaFileObjects.forSourceLines(
+          "test.Child",
+          "package test;",
+          "",
+          "import dagger.Subcomponent;",
+          "",
+          "@Subcomponent",
+          "interface Child {",
+          "  Foo foo();",
+          "}");
+
+  private static ImmutableList<JavaFileObject> components(int count) {
+    ImmutableList.Builder<JavaFileObject> components = ImmutableList.builder();
+    for (int i = 0; i < count; i++) {
+      components.add(
+          JavaFileObjects.forSourceLines(
+              "test.Component" + i,
+              "package test;",
+              "",
+              "import dagger.Component;",
+              "import javax.inject.Provider;",
+              "import javax.inject.Singleton;",
+              "",
+              "@Singleton",
+              "@Component",
+              "interface Component" + i + " {",
+              "  Foo foo();",
+              "  Provider<Foo> fooProvider();",
+              "  Child child();",
+              "}"));
+    }
+    return components.build();
+  }
+
+  @Test
+  public void generatedSourcesAreIdentical() {
+    ImmutableList<JavaFileObject> sources =
+        ImmutableList.<JavaFileObject>builder()
+            .add(FOO, SUBCOMPONENT)
+            .addAll(components(10))
+            .build();
+
+    Compilation serial = daggerCompiler().compile(sources);
+    Compilation parallel =
+        compilerWithOptions(
+                "-Adagger.parallelComponentGeneration=enabled", "-Adagger.processingThreads=4")
+            .compile(sources);
+
+    assertThat(serial).succeeded();
+    assertThat(parallel).succeeded();
+    assertThat(generatedSources(parallel)).containsExactlyEntriesIn(generatedSources(serial));
+    assertThat(generatedSources(parallel)).containsKey("/SOURCE_OUTPUT/test/DaggerComponent9.java");
+  }
+
+  @Test
+  public void invalidComponentIsReported() {
+    JavaFileObject component =
+        JavaFileObjects.forSourceLines(
+            "test.TestComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "",
+            "@Component",
+            "interface TestComponent {",
+            "  Runnable runnable();",
+            "}");
+
+    Compilation compilation =
+        daggerCompiler()
+            .withOptions("-Adagger.parallelComponentGeneration=enabled")
+            .compile(FOO, SUBCOMPONENT, component, components(1).get(0));
+
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorCount(1);
+    assertThat(compilation)
+        .hadErrorContaining("Runnable cannot be provided without an @Provides-annotated method")
+        .inFile(component)
+        .onLineContaining("interface TestComponent");
+  }
+
+  private static ImmutableMap<String, String> generatedSources(Compilation compilation) {
+    return compilation
+        .generatedSourceFiles()
+        .stream()
+        .collect(toImmutableMap(JavaFileObject::getName, file -> contents(file)));
+  }
+
+  private static String contents(JavaFileObject file) {
+    try {
+      return file.getCharContent(false).toString();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
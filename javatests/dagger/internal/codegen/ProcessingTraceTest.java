@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static dagger.internal.codegen.Compilers.compilerWithOptions;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import dagger.model.BindingGraph;
+import dagger.spi.BindingGraphPlugin;
+import dagger.spi.DiagnosticReporter;
+import java.io.File;
+import java.nio.file.Files;
+import javax.tools.JavaFileObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ProcessingTraceTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final JavaFileObject FOO =
+      JavaFileObjects.forSourceLines(
+          "test.Foo",
+          "package test;",
+          "",
+          "import javax.inject.Inject;",
+          "",
+          "final class Foo {",
+          "  @Inject Foo() {}",
+          "}");
+
+  private static final JavaFileObject COMPONENT =
+      JavaFileObjects.forSourceLines(
+          "test.TestComponent",
+          "package test;",
+          "",
+          "import dagger.Component;",
+          "",
+          "@Component",
+          "interface TestComponent {",
+          "  Foo foo();",
+          "}");
+
+  @Test
+  public void traceFileWritten() throws Exception {
+    File traceFile = new File(temporaryFolder.getRoot(), "trace.json");
+    Compilation compilation =
+        compilerWithOptions("-Adagger.processingTraceFile=" + traceFile.getAbsolutePath())
+            .compile(FOO, COMPONENT);
+    assertThat(compilation).succeeded();
+
+    String trace = new String(Files.readAllBytes(traceFile.toPath()), UTF_8);
+    assertThat(trace).startsWith("{\"traceEvents\":[");
+    assertThat(trace).contains("\"name\":\"ComponentProcessingStep\",\"ph\":\"X\"");
+    assertThat(trace).contains("\"name\":\"test.TestComponent\",\"ph\":\"X\"");
+    assertThat(trace).contains("\"name\":\"BindingGraphFactory\",\"ph\":\"X\"");
+    assertThat(trace).contains("\"name\":\"ValidationBindingGraphPlugins\",\"ph\":\"X\"");
+    assertThat(trace).contains("\"name\":\"ComponentGenerator types\",\"ph\":\"X\"");
+    assertThat(trace).contains("\"type\":\"test.DaggerTestComponent\",\"sourceLength\":");
+    assertThat(trace).contains("\"name\":\"InjectValidator lookups\",\"ph\":\"C\"");
+    assertThat(trace).contains("\"name\":\"round 1\",\"ph\":\"X\"");
+  }
+
+  @Test
+  public void anonymousPluginTraced() throws Exception {
+    File traceFile = new File(temporaryFolder.getRoot(), "trace.json");
+    BindingGraphPlugin anonymousPlugin =
+        new BindingGraphPlugin() {
+          @Override
+          public void visitGraph(BindingGraph bindingGraph, DiagnosticReporter reporter) {}
+        };
+    Compilation compilation =
+        javac()
+            .withProcessors(ComponentProcessor.forTesting(anonymousPlugin))
+            .withOptions("-Adagger.processingTraceFile=" + traceFile.getAbsolutePath())
+            .compile(FOO, COMPONENT);
+    assertThat(compilation).succeeded();
+
+    String trace = new String(Files.readAllBytes(traceFile.toPath()), UTF_8);
+    assertThat(trace)
+        .contains("\"name\":\"" + anonymousPlugin.getClass().getName() + "\",\"ph\":\"X\"");
+  }
+}
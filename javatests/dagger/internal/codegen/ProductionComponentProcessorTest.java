@@ -22,6 +22,7 @@ import static dagger.internal.codegen.CompilerMode.FAST_INIT_MODE;
 import static dagger.internal.codegen.Compilers.compilerWithOptions;
 import static dagger.internal.codegen.Compilers.daggerCompiler;
 
+import com.google.common.collect.ImmutableList;
 import com.google.testing.compile.Compilation;
 import com.google.testing.compile.JavaFileObjects;
 import java.util.Collection;
@@ -451,4 +452,270 @@ public class ProductionComponentProcessorTest {
                     "}")
                 .build());
   }
+
+  @Test
+  public void producerDependencies() {
+    JavaFileObject component =
+        JavaFileObjects.forSourceLines(
+            "test.TestClass",
+            "package test;",
+            "",
+            "import com.google.common.util.concurrent.ListenableFuture;",
+            "import com.google.common.util.concurrent.MoreExecutors;",
+            "import dagger.Binds;",
+            "import dagger.Module;",
+            "import dagger.Provides;",
+            "import dagger.multibindings.IntoSet;",
+            "import dagger.producers.Producer;",
+            "import dagger.producers.ProducerModule;",
+            "import dagger.producers.Produces;",
+            "import dagger.producers.Production;",
+            "import dagger.producers.ProductionComponent;",
+            "import java.util.Set;",
+            "import java.util.concurrent.Executor;",
+            "",
+            "final class TestClass {",
+            "  interface A {}",
+            "  interface B {}",
+            "  interface BImpl extends B {}",
+            "  interface C {}",
+            "",
+            "  @Module",
+            "  static final class ExecutorModule {",
+            "    @Provides @Production static Executor executor() {",
+            "      return MoreExecutors.directExecutor();",
+            "    }",
+            "  }",
+            "",
+            "  @ProducerModule",
+            "  abstract static class ProducersModule {",
+            "    @Produces static A a(B b, Set<String> strings, Producer<C> c) {",
+            "      return null;",
+            "    }",
+            "",
+            "    @Produces static BImpl bImpl() {",
+            "      return null;",
+            "    }",
+            "",
+            "    @Binds abstract B b(BImpl bImpl);",
+            "",
+            "    @Produces @IntoSet static String string(C c) {",
+            "      return null;",
+            "    }",
+            "",
+            "    @Produces static C c() {",
+            "      return null;",
+            "    }",
+            "  }",
+            "",
+            "  @ProductionComponent(modules = {ExecutorModule.class, ProducersModule.class})",
+            "  interface TestComponent {",
+            "    ListenableFuture<A> a();",
+            "  }",
+            "}");
+
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.writeProducerDependencies=enabled")
+                    .build())
+            .compile(component);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerTestClass_TestComponent")
+        .containsElementsIn(
+            new JavaFileBuilder(compilerMode, "test.DaggerTestClass_TestComponent")
+                .addLines(
+                    "package test;",
+                    "",
+                    GeneratedLines.generatedAnnotations(),
+                    "final class DaggerTestClass_TestComponent",
+                    "    implements TestClass.TestComponent, ProducerDependencies,"
+                        + " CancellationListener {",
+                    "  @Override",
+                    "  public Map<ProducerToken, Set<ProducerToken>> producerDependencies() {",
+                    "    MapBuilder<ProducerToken, Set<ProducerToken>> dependencies =",
+                    "        MapBuilder.newMapBuilder(4);",
+                    "    dependencies.put(",
+                    "        ProducerToken.create(TestClass_ProducersModule_AFactory.class),",
+                    "        SetBuilder.<ProducerToken>newSetBuilder(2)",
+                    "            .add(ProducerToken.create(TestClass_ProducersModule_BImplFactory.class))",
+                    "            .add(ProducerToken.create(TestClass_ProducersModule_StringFactory.class))",
+                    "            .build());",
+                    "    dependencies.put(",
+                    "        ProducerToken.create(TestClass_ProducersModule_CFactory.class),",
+                    "        Collections.<ProducerToken>emptySet());",
+                    "    dependencies.put(",
+                    "        ProducerToken.create(TestClass_ProducersModule_BImplFactory.class),",
+                    "        Collections.<ProducerToken>emptySet());",
+                    "    dependencies.put(",
+                    "        ProducerToken.create(TestClass_ProducersModule_StringFactory.class),",
+                    "        SetBuilder.<ProducerToken>newSetBuilder(1)",
+                    "            .add(ProducerToken.create(TestClass_ProducersModule_CFactory.class))",
+                    "            .build());",
+                    "    return dependencies.build();",
+                    "  }",
+                    "}")
+                .build());
+  }
+
+  @Test
+  public void productionStateMachine() {
+    JavaFileObject component =
+        JavaFileObjects.forSourceLines(
+            "test.TestClass",
+            "package test;",
+            "",
+            "import com.google.common.util.concurrent.ListenableFuture;",
+            "import com.google.common.util.concurrent.MoreExecutors;",
+            "import dagger.Binds;",
+            "import dagger.Module;",
+            "import dagger.Provides;",
+            "import dagger.multibindings.IntoSet;",
+            "import dagger.producers.Producer;",
+            "import dagger.producers.ProducerModule;",
+            "import dagger.producers.Produces;",
+            "import dagger.producers.Production;",
+            "import dagger.producers.ProductionComponent;",
+            "import java.util.Set;",
+            "import java.util.concurrent.Executor;",
+            "",
+            "final class TestClass {",
+            "  interface A {}",
+            "  interface B {}",
+            "  interface BImpl extends B {}",
+            "  interface C {}",
+            "",
+            "  @Module",
+            "  static final class ExecutorModule {",
+            "    @Provides @Production static Executor executor() {",
+            "      return MoreExecutors.directExecutor();",
+            "    }",
+            "  }",
+            "",
+            "  @ProducerModule",
+            "  abstract static class ProducersModule {",
+            "    @Produces static A a(B b, Set<String> strings, Producer<C> c) {",
+            "      return null;",
+            "    }",
+            "",
+            "    @Produces static BImpl bImpl() {",
+            "      return null;",
+            "    }",
+            "",
+            "    @Binds abstract B b(BImpl bImpl);",
+            "",
+            "    @Produces @IntoSet static String string(C c) {",
+            "      return null;",
+            "    }",
+            "",
+            "    @Produces static C c() {",
+            "      return null;",
+            "    }",
+            "  }",
+            "",
+            "  @ProductionComponent(modules = {ExecutorModule.class, ProducersModule.class})",
+            "  interface TestComponent {",
+            "    ListenableFuture<A> a();",
+            "  }",
+            "}");
+
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.productionStateMachine=enabled")
+                    .build())
+            .compile(component);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerTestClass_TestComponent")
+        .containsElementsIn(
+            new JavaFileBuilder(compilerMode, "test.DaggerTestClass_TestComponent")
+                .addLines(
+                    "package test;",
+                    "",
+                    GeneratedLines.generatedAnnotations(),
+                    "final class DaggerTestClass_TestComponent",
+                    "    implements TestClass.TestComponent, CancellationListener {",
+                    "  private StateMachine stateMachine;",
+                    "",
+                    "  @Override",
+                    "  public void onProducerFutureCancelled(boolean mayInterruptIfRunning) {",
+                    "    Producers.cancel(aProducer, mayInterruptIfRunning);",
+                    "    Producers.cancel(testComponent.cProducer, mayInterruptIfRunning);",
+                    "    Producers.cancel(testComponent.setOfStringProducer, mayInterruptIfRunning);",
+                    "    Producers.cancel(stringProducer, mayInterruptIfRunning);",
+                    "    stateMachine.cancel(mayInterruptIfRunning);",
+                    "  }",
+                    "",
+                    "  private static final class StateMachine extends ProductionStateMachine {",
+                    "    private static final ProductionStateMachine.Graph GRAPH =",
+                    "        ProductionStateMachine.graphBuilder()",
+                    "            .producesValue(1, 2)",
+                    "            .producesValue()",
+                    "            .external()",
+                    "            .producesValue(4)",
+                    "            .producesValue()",
+                    "            .build();",
+                    "",
+                    "    private final DaggerTestClass_TestComponent testComponent;",
+                    "",
+                    "    StateMachine(DaggerTestClass_TestComponent testComponent) {",
+                    "      super(GRAPH);",
+                    "      this.testComponent = testComponent;",
+                    "    }",
+                    "",
+                    "    @Override",
+                    "    protected ProductionComponentMonitor componentMonitor() {",
+                    "      return testComponent.monitorProvider.get();",
+                    "    }",
+                    "",
+                    "    @Override",
+                    "    protected Executor executor() {",
+                    "      return testComponent.productionImplementationExecutorProvider.get();",
+                    "    }",
+                    "",
+                    "    @Override",
+                    "    protected ProducerToken token(int node) {",
+                    "      switch (node) {",
+                    "        case 0: // test.TestClass.A",
+                    "        return ProducerToken.create(TestClass_ProducersModule_AFactory.class);",
+                    "        case 1: // test.TestClass.BImpl",
+                    "        return ProducerToken.create(TestClass_ProducersModule_BImplFactory.class);",
+                    "        case 3: // java.util.Set<java.lang.String>"
+                        + " test.TestClass.ProducersModule#string",
+                    "        return ProducerToken.create(TestClass_ProducersModule_StringFactory.class);",
+                    "        case 4: // test.TestClass.C",
+                    "        return ProducerToken.create(TestClass_ProducersModule_CFactory.class);",
+                    "        default: throw new AssertionError(node);",
+                    "      }",
+                    "    }",
+                    "",
+                    "    @Override",
+                    "    @SuppressWarnings(\"unchecked\")",
+                    "    protected Object produce(int node) throws Exception {",
+                    "      switch (node) {",
+                    "        case 0: // test.TestClass.A",
+                    "        return TestClass.ProducersModule.a(",
+                    "            this.<TestClass.B>value(1),",
+                    "            this.<Set<String>>value(2),",
+                    "            Producers.nonCancellationPropagatingViewOf(testComponent.cProducer));",
+                    "        case 1: // test.TestClass.BImpl",
+                    "        return TestClass.ProducersModule.bImpl();",
+                    "        case 2: // java.util.Set<java.lang.String>",
+                    "        return testComponent.setOfStringProducer.get();",
+                    "        case 3: // java.util.Set<java.lang.String>"
+                        + " test.TestClass.ProducersModule#string",
+                    "        return TestClass.ProducersModule.string(this.<TestClass.C>value(4));",
+                    "        case 4: // test.TestClass.C",
+                    "        return TestClass.ProducersModule.c();",
+                    "        default: throw new AssertionError(node);",
+                    "      }",
+                    "    }",
+                    "  }",
+                    "}")
+                .build());
+  }
 }
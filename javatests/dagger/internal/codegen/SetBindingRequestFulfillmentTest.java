@@ -18,8 +18,11 @@ package dagger.internal.codegen;
 
 import static com.google.testing.compile.CompilationSubject.assertThat;
 import static dagger.internal.codegen.Compilers.CLASS_PATH_WITHOUT_GUAVA_OPTION;
+import static dagger.internal.codegen.CompilerMode.DEFAULT_MODE;
+import static dagger.internal.codegen.CompilerMode.FAST_INIT_MODE;
 import static dagger.internal.codegen.Compilers.compilerWithOptions;
 
+import com.google.common.collect.ImmutableList;
 import com.google.testing.compile.Compilation;
 import com.google.testing.compile.Compiler;
 import com.google.testing.compile.JavaFileObjects;
@@ -321,6 +324,181 @@ public class SetBindingRequestFulfillmentTest {
         .hasSourceEquivalentTo(generatedComponent);
   }
 
+  @Test
+  public void constantMultibindingsAreCached() {
+    JavaFileObject setModuleFile =
+        JavaFileObjects.forSourceLines(
+            "test.SetModule",
+            "package test;",
+            "",
+            "import dagger.Binds;",
+            "import dagger.Module;",
+            "import dagger.Provides;",
+            "import dagger.multibindings.IntoSet;",
+            "import javax.inject.Named;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Module",
+            "abstract class SetModule {",
+            "  @Provides @IntoSet @Singleton static String scoped() { return \"\"; }",
+            "  @Binds @IntoSet abstract String bound(@Named(\"bound\") String string);",
+            "  @Provides @IntoSet static Integer unscoped() { return 0; }",
+            "}");
+    JavaFileObject componentFile =
+        JavaFileObjects.forSourceLines(
+            "test.TestComponent",
+            "package test;",
+            "",
+            "import dagger.BindsInstance;",
+            "import dagger.Component;",
+            "import java.util.Set;",
+            "import javax.inject.Named;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "@Component(modules = SetModule.class)",
+            "interface TestComponent {",
+            "  Set<String> strings();",
+            "  Set<Integer> integers();",
+            "",
+            "  @Component.Factory",
+            "  interface Factory {",
+            "    TestComponent create(@BindsInstance @Named(\"bound\") String string);",
+            "  }",
+            "}");
+    JavaFileObject generatedComponent =
+        compilerMode
+            .javaFileBuilder("test.DaggerTestComponent")
+            .addLines(
+                "package test;",
+                "",
+                GeneratedLines.generatedAnnotations(),
+                "final class DaggerTestComponent implements TestComponent {")
+            .addLinesIn(
+                DEFAULT_MODE,
+                "  @SuppressWarnings(\"unchecked\")",
+                "  private void initialize(final String stringParam) {",
+                "    this.scopedProvider = DoubleCheck.provider(SetModule_ScopedFactory.create());",
+                "    this.stringProvider = InstanceFactory.create(stringParam);",
+                "    this.setOfStringProvider =",
+                "        SingleCheck.provider(",
+                "            SetFactory.<String>builder(2, 0)",
+                "                .addProvider(scopedProvider)",
+                "                .addProvider(stringProvider)",
+                "                .build());",
+                "  }",
+                "")
+            .addLinesIn(
+                FAST_INIT_MODE,
+                "  @SuppressWarnings(\"unchecked\")",
+                "  private void initialize(final String stringParam) {",
+                "    this.scopedProvider =",
+                "        DoubleCheck.provider(new SwitchingProvider<String>(testComponent, 1));",
+                "    this.setOfStringProvider =",
+                "        SingleCheck.provider(new SwitchingProvider<>(testComponent, 0));",
+                "  }",
+                "")
+            .addLines(
+                "  @Override",
+                "  public Set<String> strings() {",
+                "    return setOfStringProvider.get();",
+                "  }",
+                "",
+                "  @Override",
+                "  public Set<Integer> integers() {",
+                "    return Collections.<Integer>singleton(SetModule_UnscopedFactory.unscoped());",
+                "  }",
+                "}")
+            .build();
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.cacheConstantMultibindings=enabled")
+                    .build())
+            .withClasspath(CLASS_PATH_WITHOUT_GUAVA_OPTION)
+            .compile(setModuleFile, componentFile);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerTestComponent")
+        .containsElementsIn(generatedComponent);
+  }
+
+  @Test
+  public void specializedSetFactories() {
+    JavaFileObject setModuleFile =
+        JavaFileObjects.forSourceLines(
+            "test.SetModule",
+            "package test;",
+            "",
+            "import dagger.Module;",
+            "import dagger.Provides;",
+            "import dagger.multibindings.ElementsIntoSet;",
+            "import dagger.multibindings.IntoSet;",
+            "import java.util.Set;",
+            "",
+            "@Module",
+            "final class SetModule {",
+            "  @Provides @IntoSet static String string() { return \"\"; }",
+            "  @Provides @ElementsIntoSet static Set<Integer> integers() { return null; }",
+            "  @Provides @IntoSet static Long long1() { return 1L; }",
+            "  @Provides @IntoSet static Long long2() { return 2L; }",
+            "  @Provides @IntoSet static Long long3() { return 3L; }",
+            "}");
+    JavaFileObject componentFile =
+        JavaFileObjects.forSourceLines(
+            "test.TestComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "import java.util.Set;",
+            "import javax.inject.Provider;",
+            "",
+            "@Component(modules = SetModule.class)",
+            "interface TestComponent {",
+            "  Provider<Set<String>> strings();",
+            "  Provider<Set<Integer>> integers();",
+            "  Provider<Set<Long>> longs();",
+            "}");
+    JavaFileObject generatedComponent =
+        compilerMode
+            .javaFileBuilder("test.DaggerTestComponent")
+            .addLines(
+                "package test;",
+                "",
+                GeneratedLines.generatedAnnotations(),
+                "final class DaggerTestComponent implements TestComponent {")
+            .addLinesIn(
+                DEFAULT_MODE,
+                "  @SuppressWarnings(\"unchecked\")",
+                "  private void initialize() {",
+                "    this.setOfStringProvider =",
+                "        SetFactory.<String>singleton(SetModule_StringFactory.create());",
+                "    this.setOfIntegerProvider =",
+                "        SetFactory.<Integer>fromCollection(SetModule_IntegersFactory.create());",
+                "    this.setOfLongProvider =",
+                "        SetFactory.<Long>smallSetBuilder(3)",
+                "            .addProvider(SetModule_Long1Factory.create())",
+                "            .addProvider(SetModule_Long2Factory.create())",
+                "            .addProvider(SetModule_Long3Factory.create())",
+                "            .build();",
+                "  }")
+            .addLines("}")
+            .build();
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(compilerMode.javacopts())
+                    .add("-Adagger.specializedSetFactories=enabled")
+                    .build())
+            .withClasspath(CLASS_PATH_WITHOUT_GUAVA_OPTION)
+            .compile(setModuleFile, componentFile);
+    assertThat(compilation).succeeded();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerTestComponent")
+        .containsElementsIn(generatedComponent);
+  }
+
   private Compiler daggerCompilerWithoutGuava() {
     return compilerWithOptions(compilerMode.javacopts())
         .withClasspath(CLASS_PATH_WITHOUT_GUAVA_OPTION);
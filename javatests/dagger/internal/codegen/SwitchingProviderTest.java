@@ -203,6 +203,100 @@ public class SwitchingProviderTest {
         .containsElementsIn(generatedComponent);
   }
 
+  @Test
+  public void switchingProviderCasesPerSwitch() {
+    ImmutableList.Builder<JavaFileObject> javaFileObjects = ImmutableList.builder();
+    StringBuilder entryPoints = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      String bindingName = "Binding" + i;
+      javaFileObjects.add(
+          JavaFileObjects.forSourceLines(
+              "test." + bindingName,
+              "package test;",
+              "",
+              "import javax.inject.Inject;",
+              "",
+              "final class " + bindingName + " {",
+              "  @Inject",
+              "  " + bindingName + "() {}",
+              "}"));
+      entryPoints.append(String.format("  Provider<%1$s> get%1$sProvider();\n", bindingName));
+    }
+
+    javaFileObjects.add(
+        JavaFileObjects.forSourceLines(
+            "test.TestComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "import javax.inject.Provider;",
+            "",
+            "@Component",
+            "interface TestComponent {",
+            entryPoints.toString(),
+            "}"));
+
+    // With 2 cases per switch, each SwitchingProvider has at most 2 switches of 2 cases each.
+    JavaFileObject generatedComponent =
+        JavaFileObjects.forSourceLines(
+            "test.DaggerTestComponent",
+            "package test;",
+            GeneratedLines.generatedAnnotations(),
+            "final class DaggerTestComponent implements TestComponent {",
+            "  private static final class SwitchingProvider<T> implements Provider<T> {",
+            "    @SuppressWarnings(\"unchecked\")",
+            "    private T get0() {",
+            "      switch (id) {",
+            "        case 0: return (T) new Binding0();",
+            "        case 1: return (T) new Binding1();",
+            "        default: throw new AssertionError(id);",
+            "      }",
+            "    }",
+            "",
+            "    @SuppressWarnings(\"unchecked\")",
+            "    private T get1() {",
+            "      switch (id) {",
+            "        case 2: return (T) new Binding2();",
+            "        case 3: return (T) new Binding3();",
+            "        default: throw new AssertionError(id);",
+            "      }",
+            "    }",
+            "",
+            "    @Override",
+            "    public T get() {",
+            "      switch (id / 2) {",
+            "        case 0: return get0();",
+            "        case 1: return get1();",
+            "        default: throw new AssertionError(id);",
+            "      }",
+            "    }",
+            "  }",
+            "",
+            "  private static final class SwitchingProvider2<T> implements Provider<T> {",
+            "    @SuppressWarnings(\"unchecked\")",
+            "    @Override",
+            "    public T get() {",
+            "      switch (id) {",
+            "        case 0: return (T) new Binding4();",
+            "        default: throw new AssertionError(id);",
+            "      }",
+            "    }",
+            "  }",
+            "}");
+
+    Compilation compilation =
+        compilerWithOptions(
+                ImmutableList.<String>builder()
+                    .addAll(CompilerMode.FAST_INIT_MODE.javacopts())
+                    .add("-Adagger.switchingProviderCasesPerSwitch=2")
+                    .build())
+            .compile(javaFileObjects.build());
+    assertThat(compilation).succeededWithoutWarnings();
+    assertThat(compilation)
+        .generatedSourceFile("test.DaggerTestComponent")
+        .containsElementsIn(generatedComponent);
+  }
+
   @Test
   public void unscopedBinds() {
     JavaFileObject module =
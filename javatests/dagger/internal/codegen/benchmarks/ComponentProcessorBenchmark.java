@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.benchmarks;
+
+import static com.google.testing.compile.Compiler.javac;
+
+import com.google.common.collect.ImmutableList;
+import com.google.testing.compile.Compilation;
+import dagger.internal.codegen.ComponentProcessor;
+import dagger.model.BindingGraph;
+import dagger.spi.BindingGraphPlugin;
+import dagger.spi.DiagnosticReporter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+
+/**
+ * Runs {@link ComponentProcessor} in-process over a {@link SyntheticGraph} and reports the wall
+ * time and the allocated bytes of each phase of the compilation.
+ *
+ * <p>By default, the phases are measured from outside the processor:
+ *
+ * <ul>
+ *   <li>{@code javac}: parsing, attribution and bytecode generation, i.e. everything outside of
+ *       {@link Processor#process}.
+ *   <li>{@code graph}: processing up to the point where a root binding graph has been resolved
+ *       and validated, measured by a {@link BindingGraphPlugin} that runs after the validation
+ *       plugins.
+ *   <li>{@code generation}: processing after the last binding graph of a round has been
+ *       validated, which is dominated by writing the component implementations.
+ * </ul>
+ *
+ * <p>With {@code --trace}, the processor also writes a trace with {@code
+ * -Adagger.processingTraceFile}, and the time and allocations of its phases (e.g. {@code
+ * BindingGraphFactory}, the validation plugins, writing the {@code ComponentImplementation} and
+ * emitting it with JavaPoet) are reported for each iteration. Tracing adds some overhead to the
+ * totals.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * bazel run //javatests/dagger/internal/codegen/benchmarks -- \
+ *     --bindings=20000 --depth=20 --fanOut=3 --subcomponentDepth=2 \
+ *     --multibindingDensity=0.1 --producers --warmup=2 --iterations=5 \
+ *     --trace --javacopt=-Adagger.fastInit=enabled
+ * </pre>
+ */
+public final class ComponentProcessorBenchmark {
+  private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  public static void main(String[] args) throws IOException {
+    SyntheticGraph.Builder graph = SyntheticGraph.builder();
+    ImmutableList.Builder<String> javacopts = ImmutableList.builder();
+    int warmup = 1;
+    int iterations = 3;
+    boolean trace = false;
+    for (String arg : args) {
+      String name = arg.contains("=") ? arg.substring(0, arg.indexOf('=')) : arg;
+      String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+      switch (name) {
+        case "--bindings":
+          graph.bindings(Integer.parseInt(value));
+          break;
+        case "--depth":
+          graph.depth(Integer.parseInt(value));
+          break;
+        case "--fanOut":
+          graph.fanOut(Integer.parseInt(value));
+          break;
+        case "--subcomponentDepth":
+          graph.subcomponentDepth(Integer.parseInt(value));
+          break;
+        case "--multibindingDensity":
+          graph.multibindingDensity(Double.parseDouble(value));
+          break;
+        case "--producers":
+          graph.producers(value.isEmpty() || Boolean.parseBoolean(value));
+          break;
+        case "--warmup":
+          warmup = Integer.parseInt(value);
+          break;
+        case "--iterations":
+          iterations = Integer.parseInt(value);
+          break;
+        case "--trace":
+          trace = value.isEmpty() || Boolean.parseBoolean(value);
+          break;
+        case "--javacopt":
+          javacopts.add(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+
+    SyntheticGraph syntheticGraph = graph.build();
+    ImmutableList<JavaFileObject> sources = syntheticGraph.generateSources();
+    System.out.printf("Synthetic graph: %s (%d sources)%n", syntheticGraph, sources.size());
+
+    Optional<Path> traceFile =
+        trace ? Optional.of(Files.createTempFile("dagger-trace", ".json")) : Optional.empty();
+    traceFile.ifPresent(
+        file -> javacopts.add("-Adagger.processingTraceFile=" + file.toAbsolutePath()));
+
+    List<Measurement> measurements = new ArrayList<>();
+    for (int i = 0; i < warmup + iterations; i++) {
+      Measurement measurement = compile(sources, javacopts.build());
+      boolean isWarmup = i < warmup;
+      System.out.printf("%s %d: %s%n", isWarmup ? "Warmup" : "Iteration", i + 1, measurement);
+      if (traceFile.isPresent()) {
+        System.out.printf("  phases: %s%n", ProcessingTraceSummary.read(traceFile.get()));
+      }
+      if (!isWarmup) {
+        measurements.add(measurement);
+      }
+    }
+    System.out.printf("Median: %s%n", Measurement.median(measurements));
+  }
+
+  private static Measurement compile(
+      ImmutableList<JavaFileObject> sources, ImmutableList<String> javacopts) {
+    PhaseRecorder recorder = new PhaseRecorder();
+    Processor processor =
+        new TimingProcessor(ComponentProcessor.forTesting(recorder.graphPlugin()), recorder);
+
+    // Collect garbage from the previous iteration so it doesn't skew this one.
+    System.gc();
+    long startNanos = System.nanoTime();
+    long startBytes = allocatedBytes();
+    Compilation compilation =
+        javac().withProcessors(processor).withOptions(javacopts).compile(sources);
+    long totalNanos = System.nanoTime() - startNanos;
+    long totalBytes = allocatedBytes() - startBytes;
+
+    if (compilation.status() != Compilation.Status.SUCCESS) {
+      compilation.errors().stream().limit(10).forEach(System.err::println);
+      throw new IllegalStateException("Compilation of the synthetic graph failed");
+    }
+    return new Measurement(totalNanos, totalBytes, recorder);
+  }
+
+  private static long allocatedBytes() {
+    return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Accumulates the time and allocations spent in each processing phase. Javac runs annotation
+   * processors on the compiling thread, so the per-thread allocation counter covers all of the
+   * processor's allocations.
+   */
+  private static final class PhaseRecorder {
+    private long graphNanos;
+    private long graphBytes;
+    private long generationNanos;
+    private long generationBytes;
+    private int graphs;
+
+    private long markNanos;
+    private long markBytes;
+
+    void startRound() {
+      markNanos = System.nanoTime();
+      markBytes = allocatedBytes();
+    }
+
+    void graphValidated() {
+      long nanos = System.nanoTime();
+      long bytes = allocatedBytes();
+      graphNanos += nanos - markNanos;
+      graphBytes += bytes - markBytes;
+      graphs++;
+      markNanos = nanos;
+      markBytes = bytes;
+    }
+
+    void endRound() {
+      generationNanos += System.nanoTime() - markNanos;
+      generationBytes += allocatedBytes() - markBytes;
+    }
+
+    BindingGraphPlugin graphPlugin() {
+      return new BindingGraphPlugin() {
+        @Override
+        public void visitGraph(BindingGraph bindingGraph, DiagnosticReporter diagnosticReporter) {
+          graphValidated();
+        }
+      };
+    }
+  }
+
+  /** A {@link Processor} that delegates to another and records when each round starts and ends. */
+  private static final class TimingProcessor implements Processor {
+    private final Processor delegate;
+    private final PhaseRecorder recorder;
+
+    TimingProcessor(Processor delegate, PhaseRecorder recorder) {
+      this.delegate = delegate;
+      this.recorder = recorder;
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+      return delegate.getSupportedOptions();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return delegate.getSupportedAnnotationTypes();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return delegate.getSupportedSourceVersion();
+    }
+
+    @Override
+    public void init(ProcessingEnvironment processingEnv) {
+      recorder.startRound();
+      delegate.init(processingEnv);
+      recorder.endRound();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      recorder.startRound();
+      try {
+        return delegate.process(annotations, roundEnv);
+      } finally {
+        recorder.endRound();
+      }
+    }
+
+    @Override
+    public Iterable<? extends Completion> getCompletions(
+        Element element, AnnotationMirror annotation, ExecutableElement member, String userText) {
+      return delegate.getCompletions(element, annotation, member, userText);
+    }
+  }
+
+  private static final class Measurement {
+    final long totalNanos;
+    final long totalBytes;
+    final long graphNanos;
+    final long graphBytes;
+    final long generationNanos;
+    final long generationBytes;
+    final int graphs;
+
+    Measurement(long totalNanos, long totalBytes, PhaseRecorder recorder) {
+      this(
+          totalNanos,
+          totalBytes,
+          recorder.graphNanos,
+          recorder.graphBytes,
+          recorder.generationNanos,
+          recorder.generationBytes,
+          recorder.graphs);
+    }
+
+    Measurement(
+        long totalNanos,
+        long totalBytes,
+        long graphNanos,
+        long graphBytes,
+        long generationNanos,
+        long generationBytes,
+        int graphs) {
+      this.totalNanos = totalNanos;
+      this.totalBytes = totalBytes;
+      this.graphNanos = graphNanos;
+      this.graphBytes = graphBytes;
+      this.generationNanos = generationNanos;
+      this.generationBytes = generationBytes;
+      this.graphs = graphs;
+    }
+
+    static Measurement median(List<Measurement> measurements) {
+      return new Measurement(
+          median(measurements, m -> m.totalNanos),
+          median(measurements, m -> m.totalBytes),
+          median(measurements, m -> m.graphNanos),
+          median(measurements, m -> m.graphBytes),
+          median(measurements, m -> m.generationNanos),
+          median(measurements, m -> m.generationBytes),
+          measurements.get(0).graphs);
+    }
+
+    private static long median(
+        List<Measurement> measurements, ToLongFunction<Measurement> metric) {
+      long[] values = measurements.stream().mapToLong(metric).sorted().toArray();
+      return values[values.length / 2];
+    }
+
+    @Override
+    public String toString() {
+      long javacNanos = totalNanos - graphNanos - generationNanos;
+      long javacBytes = totalBytes - graphBytes - generationBytes;
+      return String.format(
+          "total %s / %s | javac %s / %s | graph (%d) %s / %s | generation %s / %s",
+          millis(totalNanos),
+          megabytes(totalBytes),
+          millis(javacNanos),
+          megabytes(javacBytes),
+          graphs,
+          millis(graphNanos),
+          megabytes(graphBytes),
+          millis(generationNanos),
+          megabytes(generationBytes));
+    }
+
+    private static String millis(long nanos) {
+      return String.format("%,d ms", nanos / 1_000_000);
+    }
+
+    private static String megabytes(long bytes) {
+      return String.format("%,d MB", Math.max(0, bytes) / (1024 * 1024));
+    }
+  }
+
+  private ComponentProcessorBenchmark() {}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sums the durations and allocations of the phases recorded in a trace written by {@code
+ * -Adagger.processingTraceFile}.
+ */
+final class ProcessingTraceSummary {
+  /** The span names in the trace, and the names of the phases they are reported as. */
+  private static final ImmutableMap<String, String> PHASES =
+      ImmutableMap.<String, String>builder()
+          .put("SuperficialValidator", "superficial validation")
+          .put("BindingGraphFactory", "BindingGraphFactory")
+          .put("ValidationBindingGraphPlugins", "ValidationBindingGraphPlugins")
+          .put("ExternalBindingGraphPlugins", "ExternalBindingGraphPlugins")
+          .put("ComponentGenerator types", "ComponentImplementation")
+          .put("JavaFile", "JavaPoet emission")
+          .put("InjectBindingRegistry", "factories")
+          .build();
+
+  // The tracer writes one event per line, so there's no need for a full JSON parser.
+  private static final Pattern COMPLETE_EVENT =
+      Pattern.compile(
+          "\\{\"name\":\"([^\"]*)\",\"ph\":\"X\".*\"dur\":([0-9.]+)"
+              + "(?:.*\"allocatedBytes\":(-?[0-9]+))?.*");
+
+  private final Map<String, double[]> microsAndBytesByPhase;
+
+  private ProcessingTraceSummary(Map<String, double[]> microsAndBytesByPhase) {
+    this.microsAndBytesByPhase = microsAndBytesByPhase;
+  }
+
+  static ProcessingTraceSummary read(Path traceFile) throws IOException {
+    Map<String, double[]> microsAndBytesByPhase = new LinkedHashMap<>();
+    PHASES.values().forEach(phase -> microsAndBytesByPhase.put(phase, new double[2]));
+    for (String line : Files.readAllLines(traceFile, UTF_8)) {
+      Matcher matcher = COMPLETE_EVENT.matcher(line);
+      if (matcher.matches() && PHASES.containsKey(matcher.group(1))) {
+        double[] microsAndBytes = microsAndBytesByPhase.get(PHASES.get(matcher.group(1)));
+        microsAndBytes[0] += Double.parseDouble(matcher.group(2));
+        if (matcher.group(3) != null) {
+          microsAndBytes[1] += Long.parseLong(matcher.group(3));
+        }
+      }
+    }
+    return new ProcessingTraceSummary(microsAndBytesByPhase);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder summary = new StringBuilder();
+    microsAndBytesByPhase.forEach(
+        (phase, microsAndBytes) ->
+            summary
+                .append(summary.length() == 0 ? "" : " | ")
+                .append(
+                    String.format(
+                        "%s %,d ms / %,d MB",
+                        phase,
+                        (long) microsAndBytes[0] / 1000,
+                        (long) microsAndBytes[1] / (1024 * 1024))));
+    return summary.toString();
+  }
+}
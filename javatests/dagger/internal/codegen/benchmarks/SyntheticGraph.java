@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.benchmarks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import com.google.testing.compile.JavaFileObjects;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates the sources of a synthetic Dagger application whose shape is controlled by a handful
+ * of parameters.
+ *
+ * <p>The root component has {@link Builder#bindings(int) bindings} bindings split evenly over
+ * {@link Builder#depth(int) depth} layers. Each binding in a layer depends on {@link
+ * Builder#fanOut(int) fanOut} bindings of the next layer, so that every binding is reachable from
+ * the entry points of the first layer. Every fourth binding is a {@code @Provides} method and
+ * every eighth binding is {@code @Singleton} scoped; the rest are {@code @Inject} constructors. A
+ * {@link Builder#multibindingDensity(double) fraction} of the bindings are also contributed to a
+ * {@code Set<Object>} multibinding.
+ *
+ * <p>The graph is deterministic: the same parameters always generate the same sources.
+ */
+final class SyntheticGraph {
+  private static final String PACKAGE = "test";
+
+  /** The maximum number of methods generated into a single module. */
+  private static final int METHODS_PER_MODULE = 500;
+
+  private final int bindings;
+  private final int depth;
+  private final int fanOut;
+  private final int subcomponentDepth;
+  private final double multibindingDensity;
+  private final boolean producers;
+
+  private SyntheticGraph(Builder builder) {
+    this.bindings = builder.bindings;
+    this.depth = builder.depth;
+    this.fanOut = builder.fanOut;
+    this.subcomponentDepth = builder.subcomponentDepth;
+    this.multibindingDensity = builder.multibindingDensity;
+    this.producers = builder.producers;
+  }
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  /** Returns the sources of the synthetic application. */
+  ImmutableList<JavaFileObject> generateSources() {
+    ImmutableList.Builder<JavaFileObject> sources = ImmutableList.builder();
+    generateRootGraph(sources);
+    for (int level = 1; level <= subcomponentDepth; level++) {
+      generateSubcomponent(level, sources);
+    }
+    if (producers) {
+      generateProductionGraph(sources);
+    }
+    return sources.build();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "bindings=%d, depth=%d, fanOut=%d, subcomponentDepth=%d, multibindingDensity=%.2f,"
+            + " producers=%s",
+        bindings, depth, fanOut, subcomponentDepth, multibindingDensity, producers);
+  }
+
+  private int layerSize() {
+    return (bindings + depth - 1) / depth;
+  }
+
+  private int layerOf(int binding) {
+    return binding / layerSize();
+  }
+
+  /** Returns the bindings that {@code binding} depends on, which are all in the next layer. */
+  private ImmutableList<Integer> dependenciesOf(int binding) {
+    int layer = layerOf(binding);
+    int nextLayerStart = (layer + 1) * layerSize();
+    int nextLayerSize = Math.min(layerSize(), bindings - nextLayerStart);
+    if (nextLayerSize <= 0) {
+      return ImmutableList.of();
+    }
+    int position = binding - layer * layerSize();
+    ImmutableList.Builder<Integer> dependencies = ImmutableList.builder();
+    for (int i = 0; i < Math.min(fanOut, nextLayerSize); i++) {
+      dependencies.add(nextLayerStart + (position * fanOut + i) % nextLayerSize);
+    }
+    return dependencies.build();
+  }
+
+  private static boolean isProvidesBinding(int binding) {
+    return binding % 4 == 0;
+  }
+
+  private static boolean isScoped(int binding) {
+    return binding % 8 == 1;
+  }
+
+  private boolean isMultibindingContribution(int binding) {
+    return Math.floor((binding + 1) * multibindingDensity)
+        > Math.floor(binding * multibindingDensity);
+  }
+
+  private boolean hasMultibindings() {
+    for (int i = 0; i < bindings; i++) {
+      if (isMultibindingContribution(i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void generateRootGraph(ImmutableList.Builder<JavaFileObject> sources) {
+    for (int i = 0; i < bindings; i++) {
+      ImmutableList<Integer> dependencies = dependenciesOf(i);
+      StringBuilder source = new StringBuilder();
+      source.append("package ").append(PACKAGE).append(";\n\n");
+      if (isScoped(i)) {
+        source.append("@javax.inject.Singleton\n");
+      }
+      source.append("public final class Binding").append(i).append(" {\n");
+      if (!isProvidesBinding(i)) {
+        source.append("  @javax.inject.Inject\n");
+      }
+      source.append("  Binding").append(i).append("(");
+      appendParameters(source, "Binding", dependencies);
+      source.append(") {}\n}\n");
+      sources.add(JavaFileObjects.forSourceString(PACKAGE + ".Binding" + i, source.toString()));
+    }
+
+    int moduleCount = 0;
+    StringBuilder module = null;
+    int methodsInModule = 0;
+    for (int i = 0; i < bindings; i++) {
+      boolean provides = isProvidesBinding(i);
+      boolean contributes = isMultibindingContribution(i);
+      if (!provides && !contributes) {
+        continue;
+      }
+      if (module == null) {
+        module = startModule("RootModule" + moduleCount, "@dagger.Module");
+      }
+      if (provides) {
+        ImmutableList<Integer> dependencies = dependenciesOf(i);
+        module.append("  @dagger.Provides\n");
+        if (isScoped(i)) {
+          module.append("  @javax.inject.Singleton\n");
+        }
+        module.append("  static Binding").append(i).append(" provideBinding").append(i).append("(");
+        appendParameters(module, "Binding", dependencies);
+        module.append(") {\n    return new Binding").append(i).append("(");
+        appendArguments(module, dependencies);
+        module.append(");\n  }\n\n");
+        methodsInModule++;
+      }
+      if (contributes) {
+        module
+            .append("  @dagger.Provides\n  @dagger.multibindings.IntoSet\n")
+            .append("  static Object contributeBinding")
+            .append(i)
+            .append("(Binding")
+            .append(i)
+            .append(" binding) {\n    return binding;\n  }\n\n");
+        methodsInModule++;
+      }
+      if (methodsInModule >= METHODS_PER_MODULE) {
+        sources.add(endModule("RootModule" + moduleCount, module));
+        moduleCount++;
+        module = null;
+        methodsInModule = 0;
+      }
+    }
+    if (module != null) {
+      sources.add(endModule("RootModule" + moduleCount, module));
+      moduleCount++;
+    }
+
+    StringBuilder component = new StringBuilder();
+    component.append("package ").append(PACKAGE).append(";\n\n");
+    component.append("@javax.inject.Singleton\n");
+    component.append("@dagger.Component(modules = {");
+    for (int i = 0; i < moduleCount; i++) {
+      component.append(i == 0 ? "" : ", ").append("RootModule").append(i).append(".class");
+    }
+    component.append("})\n");
+    component.append("public interface RootComponent {\n");
+    for (int i = 0; i < bindings && layerOf(i) == 0; i++) {
+      component.append("  Binding").append(i).append(" binding").append(i).append("();\n");
+    }
+    if (hasMultibindings()) {
+      component.append("  java.util.Set<Object> contributions();\n");
+    }
+    if (subcomponentDepth > 0) {
+      component.append("  Sub1Component sub1();\n");
+    }
+    component.append("}\n");
+    sources.add(JavaFileObjects.forSourceString(PACKAGE + ".RootComponent", component.toString()));
+  }
+
+  /**
+   * Generates the subcomponent at the given nesting level. Each subcomponent has a chain of
+   * bindings that depends on a seed bound in the subcomponent's module, so the bindings cannot be
+   * resolved in an ancestor component, as well as on bindings of the root component.
+   */
+  private void generateSubcomponent(int level, ImmutableList.Builder<JavaFileObject> sources) {
+    String prefix = "Sub" + level;
+    int subcomponentBindings = Math.max(1, bindings / 10);
+    for (int i = 0; i < subcomponentBindings; i++) {
+      StringBuilder source = new StringBuilder();
+      source.append("package ").append(PACKAGE).append(";\n\n");
+      source.append("public final class ").append(prefix).append("Binding").append(i);
+      source.append(" {\n  @javax.inject.Inject\n  ");
+      source.append(prefix).append("Binding").append(i).append("(");
+      source.append(i + 1 < subcomponentBindings ? prefix + "Binding" + (i + 1) : prefix + "Seed");
+      source.append(" next");
+      for (int j = 0; j < fanOut; j++) {
+        int rootBinding = (i * fanOut + j) % bindings;
+        source.append(", Binding").append(rootBinding).append(" root").append(j);
+      }
+      source.append(") {}\n}\n");
+      sources.add(
+          JavaFileObjects.forSourceString(
+              PACKAGE + "." + prefix + "Binding" + i, source.toString()));
+    }
+
+    sources.add(
+        JavaFileObjects.forSourceString(
+            PACKAGE + "." + prefix + "Seed",
+            "package " + PACKAGE + ";\n\npublic final class " + prefix + "Seed {}\n"));
+
+    StringBuilder module = startModule(prefix + "Module", "@dagger.Module");
+    module
+        .append("  @dagger.Provides\n  static ")
+        .append(prefix)
+        .append("Seed seed() {\n    return new ")
+        .append(prefix)
+        .append("Seed();\n  }\n\n");
+    sources.add(endModule(prefix + "Module", module));
+
+    StringBuilder component = new StringBuilder();
+    component.append("package ").append(PACKAGE).append(";\n\n");
+    component.append("@dagger.Subcomponent(modules = ").append(prefix).append("Module.class)\n");
+    component.append("public interface ").append(prefix).append("Component {\n");
+    component.append("  ").append(prefix).append("Binding0 binding0();\n");
+    if (level < subcomponentDepth) {
+      component.append("  Sub").append(level + 1).append("Component sub").append(level + 1);
+      component.append("();\n");
+    }
+    component.append("}\n");
+    sources.add(
+        JavaFileObjects.forSourceString(
+            PACKAGE + "." + prefix + "Component", component.toString()));
+  }
+
+  /**
+   * Generates a production component with a chain of {@code @Produces} methods. Each produced
+   * value depends on the next {@code fanOut} values, so all of them are reachable from the single
+   * entry point.
+   */
+  private void generateProductionGraph(ImmutableList.Builder<JavaFileObject> sources) {
+    int producerCount = Math.max(1, bindings / 10);
+    for (int i = 0; i < producerCount; i++) {
+      sources.add(
+          JavaFileObjects.forSourceString(
+              PACKAGE + ".Produced" + i,
+              "package " + PACKAGE + ";\n\npublic final class Produced" + i + " {}\n"));
+    }
+
+    StringBuilder module = startModule("ProducersModule", "@dagger.producers.ProducerModule");
+    for (int i = 0; i < producerCount; i++) {
+      module.append("  @dagger.producers.Produces\n");
+      module.append("  static Produced").append(i).append(" produce").append(i).append("(");
+      for (int j = 1; j <= fanOut && i + j < producerCount; j++) {
+        module.append(j == 1 ? "" : ", ");
+        module.append("Produced").append(i + j).append(" dep").append(j);
+      }
+      module.append(") {\n    return new Produced").append(i).append("();\n  }\n\n");
+    }
+    module
+        .append("  @dagger.Provides\n  @dagger.producers.Production\n")
+        .append("  static java.util.concurrent.Executor executor() {\n")
+        .append("    return com.google.common.util.concurrent.MoreExecutors.directExecutor();\n")
+        .append("  }\n\n");
+    sources.add(endModule("ProducersModule", module));
+
+    sources.add(
+        JavaFileObjects.forSourceString(
+            PACKAGE + ".ProductionRootComponent",
+            "package "
+                + PACKAGE
+                + ";\n\n"
+                + "@dagger.producers.ProductionComponent(modules = ProducersModule.class)\n"
+                + "public interface ProductionRootComponent {\n"
+                + "  com.google.common.util.concurrent.ListenableFuture<Produced0> produced0();\n"
+                + "}\n"));
+  }
+
+  private static StringBuilder startModule(String name, String annotation) {
+    StringBuilder module = new StringBuilder();
+    module.append("package ").append(PACKAGE).append(";\n\n");
+    module.append(annotation).append("\n");
+    module.append("final class ").append(name).append(" {\n");
+    return module;
+  }
+
+  private static JavaFileObject endModule(String name, StringBuilder module) {
+    module.append("}\n");
+    return JavaFileObjects.forSourceString(PACKAGE + "." + name, module.toString());
+  }
+
+  private static void appendParameters(
+      StringBuilder source, String typePrefix, ImmutableList<Integer> dependencies) {
+    for (int i = 0; i < dependencies.size(); i++) {
+      source.append(i == 0 ? "" : ", ");
+      source.append(typePrefix).append(dependencies.get(i)).append(" dep").append(i);
+    }
+  }
+
+  private static void appendArguments(StringBuilder source, ImmutableList<Integer> dependencies) {
+    for (int i = 0; i < dependencies.size(); i++) {
+      source.append(i == 0 ? "" : ", ").append("dep").append(i);
+    }
+  }
+
+  /** A builder for {@link SyntheticGraph}. */
+  static final class Builder {
+    private int bindings = 1000;
+    private int depth = 10;
+    private int fanOut = 3;
+    private int subcomponentDepth = 0;
+    private double multibindingDensity = 0.0;
+    private boolean producers = false;
+
+    private Builder() {}
+
+    /** Sets the number of bindings in the root component. */
+    Builder bindings(int bindings) {
+      checkArgument(bindings > 0, "bindings must be positive: %s", bindings);
+      this.bindings = bindings;
+      return this;
+    }
+
+    /** Sets the number of layers the root component bindings are split over. */
+    Builder depth(int depth) {
+      checkArgument(depth > 0, "depth must be positive: %s", depth);
+      this.depth = depth;
+      return this;
+    }
+
+    /** Sets the number of dependencies of each binding. */
+    Builder fanOut(int fanOut) {
+      checkArgument(fanOut >= 0, "fanOut must not be negative: %s", fanOut);
+      this.fanOut = fanOut;
+      return this;
+    }
+
+    /** Sets the number of nested subcomponents below the root component. */
+    Builder subcomponentDepth(int subcomponentDepth) {
+      checkArgument(
+          subcomponentDepth >= 0, "subcomponentDepth must not be negative: %s", subcomponentDepth);
+      this.subcomponentDepth = subcomponentDepth;
+      return this;
+    }
+
+    /** Sets the fraction of root bindings that are also contributed to a set multibinding. */
+    Builder multibindingDensity(double multibindingDensity) {
+      checkArgument(
+          multibindingDensity >= 0 && multibindingDensity <= 1,
+          "multibindingDensity must be between 0 and 1: %s",
+          multibindingDensity);
+      this.multibindingDensity = multibindingDensity;
+      return this;
+    }
+
+    /** Sets whether a production component is generated as well. */
+    Builder producers(boolean producers) {
+      this.producers = producers;
+      return this;
+    }
+
+    SyntheticGraph build() {
+      return new SyntheticGraph(this);
+    }
+  }
+}
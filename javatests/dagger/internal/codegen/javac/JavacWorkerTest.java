@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.internal.codegen.javac;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link JavacWorker}. */
+@RunWith(JUnit4.class)
+public final class JavacWorkerTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void persistentWorker() throws IOException {
+    Path validComponent =
+        source(
+            "ValidComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "import javax.inject.Inject;",
+            "",
+            "@Component",
+            "interface ValidComponent {",
+            "  Foo foo();",
+            "",
+            "  final class Foo {",
+            "    @Inject Foo() {}",
+            "  }",
+            "}");
+    Path invalidComponent =
+        source(
+            "InvalidComponent",
+            "package test;",
+            "",
+            "import dagger.Component;",
+            "",
+            "@Component",
+            "interface InvalidComponent {",
+            "  Runnable runnable();",
+            "}");
+
+    String requests =
+        workRequest(1, validComponent, "first")
+            + "\n"
+            + workRequest(2, invalidComponent, "second")
+            + "\n"
+            // The processor's caches are cleared between compilations.
+            + workRequest(3, validComponent, "third");
+    ByteArrayOutputStream responses = new ByteArrayOutputStream();
+    try (JavacWorker worker = new JavacWorker()) {
+      worker.runPersistentWorker(
+          new ByteArrayInputStream(requests.getBytes(UTF_8)),
+          new PrintStream(responses, true, "UTF-8"));
+    }
+
+    List<String> responseLines = Splitter.on('\n').splitToList(responses.toString("UTF-8").trim());
+    assertThat(responseLines).hasSize(3);
+    assertThat(responseLines.get(0)).startsWith("{\"exitCode\":0,");
+    assertThat(responseLines.get(0)).endsWith("\"requestId\":1}");
+    assertThat(responseLines.get(1)).startsWith("{\"exitCode\":1,");
+    assertThat(responseLines.get(1))
+        .contains("Runnable cannot be provided without an @Provides-annotated method");
+    assertThat(responseLines.get(1)).endsWith("\"requestId\":2}");
+    assertThat(responseLines.get(2)).startsWith("{\"exitCode\":0,");
+    assertThat(responseLines.get(2)).endsWith("\"requestId\":3}");
+    assertThat(generatedFile("first", "test/DaggerValidComponent.java").exists()).isTrue();
+    assertThat(generatedFile("third", "test/DaggerValidComponent.java").exists()).isTrue();
+    assertThat(generatedFile("third", "test/ValidComponent_Foo_Factory.java").exists()).isTrue();
+  }
+
+  @Test
+  public void requestsDoNotInheritPathsFromEarlierRequests() throws Exception {
+    File sourcePath = temporaryFolder.newFolder("sourcepath");
+    Files.write(sourcePath.toPath().resolve("Lib.java"), "class Lib {}".getBytes(UTF_8));
+    Path usesLib = source("UsesLib", "class UsesLib {", "  Lib lib;", "}");
+
+    try (JavacWorker worker = new JavacWorker()) {
+      JavacWorker.Result withSourcePath =
+          worker.compile(
+              ImmutableList.of(
+                  "-proc:none",
+                  "-d",
+                  temporaryFolder.newFolder("first-classes").getPath(),
+                  "-sourcepath",
+                  sourcePath.getPath(),
+                  usesLib.toString()),
+              ImmutableMap.of());
+      JavacWorker.Result withoutSourcePath =
+          worker.compile(
+              ImmutableList.of(
+                  "-proc:none",
+                  "-d",
+                  temporaryFolder.newFolder("second-classes").getPath(),
+                  usesLib.toString()),
+              ImmutableMap.of());
+
+      assertThat(withSourcePath.exitCode).isEqualTo(0);
+      assertThat(withoutSourcePath.exitCode).isEqualTo(1);
+      assertThat(withoutSourcePath.output).contains("cannot find symbol");
+    }
+  }
+
+  private Path source(String name, String... lines) throws IOException {
+    Path source = temporaryFolder.getRoot().toPath().resolve(name + ".java");
+    Files.write(source, Joiner.on('\n').join(lines).getBytes(UTF_8));
+    return source;
+  }
+
+  private File generatedFile(String compilation, String path) {
+    return new File(new File(temporaryFolder.getRoot(), compilation + "-gen"), path);
+  }
+
+  private String workRequest(int requestId, Path source, String compilation) throws IOException {
+    File classes = temporaryFolder.newFolder(compilation + "-classes");
+    File generatedSources = temporaryFolder.newFolder(compilation + "-gen");
+    return String.format(
+        "{\"arguments\": [%s], \"requestId\": %d}",
+        Joiner.on(", ")
+            .join(
+                quote("-d"),
+                quote(classes.getPath()),
+                quote("-s"),
+                quote(generatedSources.getPath()),
+                quote("-cp"),
+                quote(System.getProperty("java.class.path")),
+                quote("-processor"),
+                quote("dagger.internal.codegen.ComponentProcessor"),
+                quote(source.toString())),
+        requestId);
+  }
+
+  private static String quote(String string) {
+    return "\"" + string.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+}
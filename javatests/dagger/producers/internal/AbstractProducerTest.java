@@ -21,7 +21,17 @@ import static org.junit.Assert.fail;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import dagger.producers.Producer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -57,6 +67,128 @@ public class AbstractProducerTest {
     assertThat(producer.get().get()).isEqualTo(0);
   }
 
+  @Test
+  public void get_concurrentRequests_computeOnce() throws Exception {
+    final AtomicInteger computations = new AtomicInteger();
+    final SettableFuture<Integer> delegate = SettableFuture.create();
+    final AbstractProducer<Integer> producer =
+        new AbstractProducer<Integer>() {
+          @Override
+          protected ListenableFuture<Integer> compute() {
+            computations.incrementAndGet();
+            return delegate;
+          }
+        };
+    Producer<Integer> view = producer.newDependencyView();
+
+    List<ListenableFuture<Integer>> producerFutures = getConcurrently(producer);
+    List<ListenableFuture<Integer>> viewFutures = getConcurrently(view);
+    assertThat(computations.get()).isEqualTo(1);
+    assertThat(producerFutures).containsNoneIn(viewFutures);
+    for (ListenableFuture<Integer> future : producerFutures) {
+      assertThat(future).isSameInstanceAs(producerFutures.get(0));
+    }
+    for (ListenableFuture<Integer> future : viewFutures) {
+      assertThat(future).isSameInstanceAs(viewFutures.get(0));
+    }
+
+    delegate.set(42);
+    assertThat(viewFutures.get(0).get()).isEqualTo(42);
+  }
+
+  @Test
+  public void dependencyView_cancellingViewFuture_doesNotCancelProducer() throws Exception {
+    SettableFuture<Integer> delegate = SettableFuture.create();
+    AbstractProducer<Integer> producer = new DelegateProducer<>(delegate);
+    Producer<Integer> view = producer.newDependencyView();
+
+    ListenableFuture<Integer> viewFuture = view.get();
+    assertThat(viewFuture.cancel(true)).isTrue();
+    assertThat(view.get()).isSameInstanceAs(viewFuture);
+    assertThat(producer.get().isCancelled()).isFalse();
+
+    delegate.set(42);
+    assertThat(producer.get().get()).isEqualTo(42);
+    assertThat(producer.newDependencyView().get().get()).isEqualTo(42);
+  }
+
+  @Test
+  public void dependencyView_ofCompletedProducer_returnsProducerFuture() throws Exception {
+    AbstractProducer<Integer> producer = new DelegateProducer<>(Futures.immediateFuture(42));
+    Producer<Integer> view = producer.newDependencyView();
+
+    assertThat(view.get()).isSameInstanceAs(producer.get());
+    assertThat(view.get().cancel(true)).isFalse();
+    assertThat(view.get().get()).isEqualTo(42);
+  }
+
+  @Test
+  public void entryPointView_cancellingViewFuture_notifiesListener() throws Exception {
+    SettableFuture<Integer> delegate = SettableFuture.create();
+    AbstractProducer<Integer> producer = new DelegateProducer<>(delegate);
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    final AtomicBoolean interrupted = new AtomicBoolean();
+    Producer<Integer> view =
+        producer.newEntryPointView(
+            new CancellationListener() {
+              @Override
+              public void onProducerFutureCancelled(boolean mayInterruptIfRunning) {
+                cancelled.set(true);
+                interrupted.set(mayInterruptIfRunning);
+              }
+            });
+
+    ListenableFuture<Integer> viewFuture = view.get();
+    assertThat(cancelled.get()).isFalse();
+    viewFuture.cancel(true);
+    assertThat(cancelled.get()).isTrue();
+    assertThat(interrupted.get()).isTrue();
+    assertThat(producer.get().isCancelled()).isFalse();
+  }
+
+  @Test
+  public void cancel_cancelsRequestedViews() throws Exception {
+    SettableFuture<Integer> delegate = SettableFuture.create();
+    AbstractProducer<Integer> producer = new DelegateProducer<>(delegate);
+    Producer<Integer> view = producer.newDependencyView();
+
+    ListenableFuture<Integer> viewFuture = view.get();
+    producer.cancel(false);
+    assertThat(producer.get().isCancelled()).isTrue();
+    assertThat(viewFuture.isCancelled()).isTrue();
+    assertThat(producer.newDependencyView().get().isCancelled()).isTrue();
+  }
+
+  /** Calls {@link Producer#get()} from several threads at once. */
+  private static <T> List<ListenableFuture<T>> getConcurrently(final Producer<T> producer)
+      throws Exception {
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      List<Future<ListenableFuture<T>>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        results.add(
+            executor.submit(
+                new Callable<ListenableFuture<T>>() {
+                  @Override
+                  public ListenableFuture<T> call() throws InterruptedException {
+                    start.await();
+                    return producer.get();
+                  }
+                }));
+      }
+      start.countDown();
+      List<ListenableFuture<T>> futures = new ArrayList<>();
+      for (Future<ListenableFuture<T>> result : results) {
+        futures.add(result.get());
+      }
+      return futures;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   static final class DelegateProducer<T> extends AbstractProducer<T> {
     private final ListenableFuture<T> delegate;
 
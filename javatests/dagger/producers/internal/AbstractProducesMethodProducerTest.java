@@ -24,6 +24,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -32,8 +33,13 @@ import dagger.producers.Producer;
 import dagger.producers.monitoring.ProducerMonitor;
 import dagger.producers.monitoring.ProducerToken;
 import dagger.producers.monitoring.ProductionComponentMonitor;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Provider;
 import org.junit.Before;
 import org.junit.Test;
@@ -117,6 +123,94 @@ public class AbstractProducesMethodProducerTest {
     new DelegateProducer<>(null, Futures.immediateFuture(42));
   }
 
+  // A virtual thread that blocks while holding a monitor pins its carrier thread, so producer
+  // methods that block must not be called while any monitor is held.
+  @Test
+  public void producesMethodsInAChain_runWithoutHoldingMonitors_onExecutorThreads()
+      throws Exception {
+    ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      assertChainRunsWithoutHoldingMonitors(executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void producesMethodsInAChain_runWithoutHoldingMonitors_onCompletingThread()
+      throws Exception {
+    assertChainRunsWithoutHoldingMonitors(MoreExecutors.directExecutor());
+  }
+
+  private void assertChainRunsWithoutHoldingMonitors(Executor executor) throws Exception {
+    SettableFuture<Integer> input = SettableFuture.create();
+    IncrementingProducer first =
+        new IncrementingProducer(componentMonitorProvider, executor, input, false);
+    IncrementingProducer second =
+        new IncrementingProducer(
+            componentMonitorProvider, executor, first.newDependencyView().get(), false);
+    ListenableFuture<Integer> result = second.get();
+
+    input.set(1);
+    assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(3);
+    assertThat(first.monitorsHeldByMethod).isEmpty();
+    assertThat(second.monitorsHeldByMethod).isEmpty();
+  }
+
+  @Test
+  public void nonBlocking_completeDependencies_runsOnRequestingThread() throws Exception {
+    CountingExecutor executor = new CountingExecutor();
+    IncrementingProducer producer =
+        new IncrementingProducer(
+            componentMonitorProvider, executor, Futures.immediateFuture(1), true);
+
+    ListenableFuture<Integer> future = producer.get();
+    assertThat(future.get()).isEqualTo(2);
+    assertThat(producer.methodThread).isSameInstanceAs(Thread.currentThread());
+    assertThat(executor.submissions).isEqualTo(0);
+    verify(monitor).requested();
+    verify(monitor).ready();
+    verify(monitor).methodStarting();
+    verify(monitor).methodFinished();
+    verify(monitor).succeeded(2);
+  }
+
+  @Test
+  public void nonBlocking_incompleteDependencies_usesExecutor() throws Exception {
+    CountingExecutor executor = new CountingExecutor();
+    SettableFuture<Integer> input = SettableFuture.create();
+    IncrementingProducer producer =
+        new IncrementingProducer(componentMonitorProvider, executor, input, true);
+
+    ListenableFuture<Integer> future = producer.get();
+    input.set(1);
+    assertThat(future.get()).isEqualTo(2);
+    assertThat(executor.submissions).isEqualTo(1);
+    verify(monitor).ready();
+  }
+
+  @Test
+  public void blocking_completeDependencies_usesExecutor() throws Exception {
+    CountingExecutor executor = new CountingExecutor();
+    IncrementingProducer producer =
+        new IncrementingProducer(
+            componentMonitorProvider, executor, Futures.immediateFuture(1), false);
+
+    assertThat(producer.get().get()).isEqualTo(2);
+    assertThat(executor.submissions).isEqualTo(1);
+  }
+
+  /** A direct executor that counts the tasks submitted to it. */
+  private static final class CountingExecutor implements Executor {
+    int submissions;
+
+    @Override
+    public void execute(Runnable task) {
+      submissions++;
+      task.run();
+    }
+  }
+
   static final class DelegateProducer<T> extends AbstractProducesMethodProducer<Void, T> {
     private final ListenableFuture<T> delegate;
 
@@ -145,4 +239,55 @@ public class AbstractProducesMethodProducerTest {
       return delegate;
     }
   }
+
+  /**
+   * A producer that increments its input, recording the thread it runs on and which monitors are
+   * held while it does.
+   */
+  static final class IncrementingProducer extends AbstractProducesMethodProducer<Integer, Integer> {
+    private final ListenableFuture<Integer> input;
+    volatile Thread methodThread;
+    volatile ImmutableList<String> monitorsHeldByMethod;
+
+    IncrementingProducer(
+        Provider<ProductionComponentMonitor> componentMonitorProvider,
+        final Executor executor,
+        ListenableFuture<Integer> input,
+        boolean nonBlocking) {
+      super(
+          componentMonitorProvider,
+          null, // token
+          new Provider<Executor>() {
+            @Override
+            public Executor get() {
+              return executor;
+            }
+          },
+          nonBlocking);
+      this.input = input;
+    }
+
+    @Override
+    protected ListenableFuture<Integer> collectDependencies() {
+      return input;
+    }
+
+    @Override
+    protected ListenableFuture<Integer> callProducesMethod(Integer value) {
+      methodThread = Thread.currentThread();
+      monitorsHeldByMethod = monitorsHeldByCurrentThread();
+      return Futures.immediateFuture(value + 1);
+    }
+  }
+
+  static ImmutableList<String> monitorsHeldByCurrentThread() {
+    ImmutableList.Builder<String> monitors = ImmutableList.builder();
+    for (MonitorInfo monitor :
+        ManagementFactory.getThreadMXBean()
+            .getThreadInfo(new long[] {Thread.currentThread().getId()}, true, false)[0]
+            .getLockedMonitors()) {
+      monitors.add(monitor.toString());
+    }
+    return monitors.build();
+  }
 }
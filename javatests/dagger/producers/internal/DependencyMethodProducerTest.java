@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.util.concurrent.Futures.getDone;
+import static dagger.producers.internal.AbstractProducesMethodProducerTest.monitorsHeldByCurrentThread;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests {@link DependencyMethodProducer}. */
+@RunWith(JUnit4.class)
+public final class DependencyMethodProducerTest {
+  @Test
+  public void cancel_cancelsIncompleteFutures() {
+    final SettableFuture<String> future = SettableFuture.create();
+    DependencyMethodProducer<String> producer =
+        new DependencyMethodProducer<String>() {
+          @Override
+          protected ListenableFuture<String> callDependencyMethod() {
+            return future;
+          }
+        };
+
+    assertThat(producer.get()).isSameInstanceAs(future);
+    producer.cancel(true);
+    assertThat(future.isCancelled()).isTrue();
+    assertThat(producer.get().isCancelled()).isTrue();
+  }
+
+  // A virtual thread that blocks while holding a monitor pins its carrier thread, so dependency
+  // methods, which may block, must not be called while any monitor is held.
+  @Test
+  public void callsDependencyMethodWithoutHoldingMonitors() throws Exception {
+    final SettableFuture<ImmutableList<String>> future = SettableFuture.create();
+    DependencyMethodProducer<ImmutableList<String>> producer =
+        new DependencyMethodProducer<ImmutableList<String>>() {
+          @Override
+          protected ListenableFuture<ImmutableList<String>> callDependencyMethod() {
+            future.set(monitorsHeldByCurrentThread());
+            return future;
+          }
+        };
+
+    assertThat(producer.get()).isSameInstanceAs(future);
+    assertThat(getDone(future)).isEmpty();
+  }
+
+  @Test
+  public void cancelWhileCallingDependencyMethod_cancelsReturnedFuture() {
+    final SettableFuture<String> future = SettableFuture.create();
+    DependencyMethodProducer<String> producer =
+        new DependencyMethodProducer<String>() {
+          @Override
+          protected ListenableFuture<String> callDependencyMethod() {
+            // Simulates the producer being cancelled on another thread while this method runs.
+            cancel(false);
+            return future;
+          }
+        };
+
+    assertThat(producer.get()).isSameInstanceAs(future);
+    assertThat(future.isCancelled()).isTrue();
+  }
+}
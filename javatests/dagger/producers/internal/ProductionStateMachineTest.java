@@ -0,0 +1,442 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import dagger.producers.Produced;
+import dagger.producers.Producer;
+import dagger.producers.monitoring.ProducerMonitor;
+import dagger.producers.monitoring.ProducerToken;
+import dagger.producers.monitoring.ProductionComponentMonitor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+/** Tests {@link ProductionStateMachine}. */
+@RunWith(JUnit4.class)
+public class ProductionStateMachineTest {
+  @Mock private ProductionComponentMonitor componentMonitor;
+  private ProducerMonitor monitor;
+  private QueueingExecutor executor;
+
+  @Before
+  public void initMocks() {
+    MockitoAnnotations.initMocks(this);
+    monitor = Mockito.mock(ProducerMonitor.class, Mockito.CALLS_REAL_METHODS);
+    when(componentMonitor.producerMonitorFor(any(ProducerToken.class))).thenReturn(monitor);
+    executor = new QueueingExecutor();
+  }
+
+  @Test
+  public void producesValuesOfInputs_onlyRunsRequestedNodes() throws Exception {
+    TestStateMachine machine =
+        new TestStateMachine(
+            ProductionStateMachine.graphBuilder()
+                .producesValue(1, 2)
+                .producesValue()
+                .producesValue(3)
+                .producesValue()
+                .producesValue()
+                .build()) {
+          @Override
+          Object produceNode(int node) {
+            switch (node) {
+              case 0:
+                return this.<Integer>value(1) + this.<Integer>value(2);
+              case 1:
+                return 1;
+              case 2:
+                return this.<Integer>value(3) * 10;
+              case 3:
+                return 2;
+              default:
+                return 100;
+            }
+          }
+        };
+
+    ListenableFuture<Integer> future = machine.<Integer>producer(0).get();
+    executor.runAll();
+    assertThat(future.get()).isEqualTo(21);
+    assertThat(machine.producedNodes).containsExactly(1, 3, 2, 0);
+  }
+
+  @Test
+  public void sharedInput_runsOnce() throws Exception {
+    TestStateMachine machine =
+        new TestStateMachine(
+            ProductionStateMachine.graphBuilder()
+                .producesValue(1, 2)
+                .producesValue(3)
+                .producesValue(3)
+                .producesValue()
+                .build()) {
+          @Override
+          Object produceNode(int node) {
+            return node == 3 ? 1 : this.<Integer>value(node == 0 ? 1 : 3) + 1;
+          }
+        };
+
+    ListenableFuture<Integer> future = machine.<Integer>producer(0).get();
+    executor.runAll();
+    assertThat(future.get()).isEqualTo(3);
+    assertThat(machine.producedNodes).containsExactly(3, 1, 2, 0);
+  }
+
+  @Test
+  public void failedInput_failsInstanceDependent_andIsProducedToProducedDependent()
+      throws Exception {
+    final IOException failure = new IOException("monkey");
+    TestStateMachine machine =
+        new TestStateMachine(
+            ProductionStateMachine.graphBuilder()
+                .producesValue(2)
+                .producesValue(~2)
+                .producesValue()
+                .build()) {
+          @Override
+          Object produceNode(int node) throws IOException {
+            switch (node) {
+              case 0:
+                return this.<Integer>value(2);
+              case 1:
+                return this.<Integer>produced(2);
+              default:
+                throw failure;
+            }
+          }
+        };
+
+    ListenableFuture<Integer> instance = machine.<Integer>producer(0).get();
+    ListenableFuture<Produced<Integer>> produced = machine.<Produced<Integer>>producer(1).get();
+    executor.runAll();
+    try {
+      instance.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e).hasCauseThat().isSameInstanceAs(failure);
+    }
+    assertThat(produced.get()).isEqualTo(Produced.<Integer>failed(failure));
+    assertThat(machine.producedNodes).containsExactly(2, 1);
+  }
+
+  @Test
+  public void producesFuture_dependentWaitsForIt() throws Exception {
+    final SettableFuture<Integer> input = SettableFuture.create();
+    TestStateMachine machine =
+        new TestStateMachine(
+            ProductionStateMachine.graphBuilder().producesValue(1).producesFuture().build()) {
+          @Override
+          Object produceNode(int node) {
+            return node == 0 ? this.<Integer>value(1) + 1 : input;
+          }
+        };
+
+    ListenableFuture<Integer> future = machine.<Integer>producer(0).get();
+    executor.runAll();
+    assertThat(future.isDone()).isFalse();
+
+    input.set(1);
+    executor.runAll();
+    assertThat(future.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void producesFuture_null_fails() throws Exception {
+    TestStateMachine machine =
+        new TestStateMachine(ProductionStateMachine.graphBuilder().producesFuture().build()) {
+          @Override
+          Object produceNode(int node) {
+            return null;
+          }
+        };
+
+    ListenableFuture<Integer> future = machine.<Integer>producer(0).get();
+    executor.runAll();
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e).hasCauseThat().isInstanceOf(NullPointerException.class);
+    }
+  }
+
+  @Test
+  public void nonBlocking_completeInputs_runsOnRequestingThread() throws Exception {
+    TestStateMachine machine =
+        new TestStateMachine(
+            ProductionStateMachine.graphBuilder().producesValue().nonBlocking().build()) {
+          @Override
+          Object produceNode(int node) {
+            return 1;
+          }
+        };
+
+    ListenableFuture<Integer> future = machine.<Integer>producer(0).get();
+    assertThat(future.get()).isEqualTo(1);
+    assertThat(executor.submissions).isEqualTo(0);
+  }
+
+  @Test
+  public void nonBlocking_incompleteInputs_usesExecutor() throws Exception {
+    final SettableFuture<Integer> input = SettableFuture.create();
+    TestStateMachine machine =
+        new TestStateMachine(
+            ProductionStateMachine.graphBuilder()
+                .producesValue(1)
+                .nonBlocking()
+                .external()
+                .build()) {
+          @Override
+          Object produceNode(int node) {
+            return node == 0 ? this.<Integer>value(1) + 1 : input;
+          }
+        };
+
+    ListenableFuture<Integer> future = machine.<Integer>producer(0).get();
+    input.set(1);
+    assertThat(future.isDone()).isFalse();
+    executor.runAll();
+    assertThat(future.get()).isEqualTo(2);
+    assertThat(executor.submissions).isEqualTo(1);
+  }
+
+  @Test
+  public void nonBlocking_afterExternal_throws() {
+    ProductionStateMachine.Graph.Builder builder =
+        ProductionStateMachine.graphBuilder().producesValue().external();
+    try {
+      builder.nonBlocking();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @Test
+  public void inputOutOfRange_throws() {
+    ProductionStateMachine.Graph.Builder builder =
+        ProductionStateMachine.graphBuilder().producesValue(1);
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void rejectedExecution_failsNode() throws Exception {
+    TestStateMachine machine =
+        new TestStateMachine(ProductionStateMachine.graphBuilder().producesValue().build()) {
+          @Override
+          Object produceNode(int node) {
+            return 1;
+          }
+        };
+    executor.rejecting = true;
+
+    ListenableFuture<Integer> future = machine.<Integer>producer(0).get();
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e).hasCauseThat().isInstanceOf(RejectedExecutionException.class);
+    }
+    assertThat(machine.producedNodes).isEmpty();
+  }
+
+  @Test
+  public void cancel_cancelsRunningFuturesAndDependents() throws Exception {
+    final RunningFuture running = new RunningFuture();
+    final SettableFuture<Integer> external = SettableFuture.create();
+    TestStateMachine machine =
+        new TestStateMachine(
+            ProductionStateMachine.graphBuilder()
+                .producesValue(1, ~2)
+                .producesFuture()
+                .external()
+                .build()) {
+          @Override
+          Object produceNode(int node) {
+            return node == 1 ? running : external;
+          }
+        };
+
+    ListenableFuture<Integer> future = machine.<Integer>producer(0).get();
+    executor.runAll();
+    machine.cancel(true);
+    assertThat(future.isCancelled()).isTrue();
+    assertThat(running.isCancelled()).isTrue();
+    assertThat(running.interrupted()).isTrue();
+    // External producers are cancelled by their own components.
+    assertThat(external.isCancelled()).isFalse();
+    assertThat(machine.producedNodes).containsExactly(1, 2);
+  }
+
+  @Test
+  public void cancelProducer_cancelsNode() throws Exception {
+    final RunningFuture running = new RunningFuture();
+    TestStateMachine machine =
+        new TestStateMachine(ProductionStateMachine.graphBuilder().producesFuture().build()) {
+          @Override
+          Object produceNode(int node) {
+            return running;
+          }
+        };
+
+    Producer<Integer> producer = machine.producer(0);
+    ListenableFuture<Integer> future = producer.get();
+    executor.runAll();
+    Producers.cancel(producer, false);
+    assertThat(future.isCancelled()).isTrue();
+    assertThat(running.isCancelled()).isTrue();
+    assertThat(running.interrupted()).isFalse();
+  }
+
+  @Test
+  public void monitor_success() throws Exception {
+    TestStateMachine machine =
+        new TestStateMachine(
+            ProductionStateMachine.graphBuilder().producesValue(1).external().build()) {
+          @Override
+          Object produceNode(int node) {
+            return node == 0 ? this.<Integer>value(1) + 1 : Futures.immediateFuture(1);
+          }
+        };
+
+    ListenableFuture<Integer> future = machine.<Integer>producer(0).get();
+    executor.runAll();
+    assertThat(future.get()).isEqualTo(2);
+    InOrder order = inOrder(monitor);
+    order.verify(monitor).requested();
+    order.verify(monitor).addCallbackTo(any(ListenableFuture.class));
+    order.verify(monitor).ready();
+    order.verify(monitor).methodStarting();
+    order.verify(monitor).methodFinished();
+    order.verify(monitor).succeeded(2);
+    order.verifyNoMoreInteractions();
+    // External producers are monitored by their own components.
+    verify(componentMonitor).producerMonitorFor(ProducerToken.create("node0"));
+    Mockito.verifyNoMoreInteractions(componentMonitor);
+  }
+
+  @Test
+  public void monitor_failure() throws Exception {
+    final RuntimeException failure = new RuntimeException("monkey");
+    TestStateMachine machine =
+        new TestStateMachine(ProductionStateMachine.graphBuilder().producesValue().build()) {
+          @Override
+          Object produceNode(int node) {
+            throw failure;
+          }
+        };
+
+    ListenableFuture<Integer> future = machine.<Integer>producer(0).get();
+    executor.runAll();
+    assertThat(future.isDone()).isTrue();
+    InOrder order = inOrder(monitor);
+    order.verify(monitor).requested();
+    order.verify(monitor).ready();
+    order.verify(monitor).methodStarting();
+    order.verify(monitor).methodFinished();
+    order.verify(monitor).failed(failure);
+  }
+
+  /**
+   * A state machine that records the nodes it produces, with the tokens {@code "node" + node}, the
+   * component's monitor and the test's executor.
+   */
+  private abstract class TestStateMachine extends ProductionStateMachine {
+    final List<Integer> producedNodes = new ArrayList<>();
+
+    TestStateMachine(Graph graph) {
+      super(graph);
+    }
+
+    abstract Object produceNode(int node) throws Exception;
+
+    @Override
+    protected final Object produce(int node) throws Exception {
+      producedNodes.add(node);
+      return produceNode(node);
+    }
+
+    @Override
+    protected ProductionComponentMonitor componentMonitor() {
+      return componentMonitor;
+    }
+
+    @Override
+    protected Executor executor() {
+      return executor;
+    }
+
+    @Override
+    protected ProducerToken token(int node) {
+      return ProducerToken.create("node" + node);
+    }
+  }
+
+  /** A future returned by a {@code Produces} method, which records whether it was interrupted. */
+  private static final class RunningFuture extends AbstractFuture<Integer> {
+    boolean interrupted() {
+      return wasInterrupted();
+    }
+  }
+
+  /** An executor that queues its tasks until the test runs them. */
+  private static final class QueueingExecutor implements Executor {
+    private final List<Runnable> tasks = new ArrayList<>();
+    int submissions;
+    boolean rejecting;
+
+    @Override
+    public void execute(Runnable task) {
+      if (rejecting) {
+        throw new RejectedExecutionException();
+      }
+      submissions++;
+      tasks.add(task);
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove(0).run();
+      }
+    }
+  }
+}
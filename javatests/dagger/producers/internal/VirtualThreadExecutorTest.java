@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests {@link VirtualThreadExecutor}. */
+@RunWith(JUnit4.class)
+public final class VirtualThreadExecutorTest {
+  private final Executor executor = new VirtualThreadExecutor();
+
+  @Test
+  public void runsTasksOnAnotherThread() throws Exception {
+    assertThat(runOnExecutor()).isNotSameInstanceAs(Thread.currentThread());
+  }
+
+  @Test
+  public void blockingTasksDontWaitForEachOther() throws Exception {
+    assumeTrue(VirtualThreadExecutor.usesVirtualThreads());
+
+    // Every task blocks until all of them have started, which only finishes if none of them waits
+    // for a thread to become free.
+    int tasks = 500;
+    final CountDownLatch started = new CountDownLatch(tasks);
+    final CountDownLatch finished = new CountDownLatch(tasks);
+    for (int i = 0; i < tasks; i++) {
+      executor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              started.countDown();
+              try {
+                if (started.await(30, SECONDS)) {
+                  finished.countDown();
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+          });
+    }
+    assertThat(finished.await(30, SECONDS)).isTrue();
+  }
+
+  @Test
+  public void usesVirtualThreadsWhenAvailable() throws Exception {
+    assumeTrue(javaFeatureVersion() >= 21);
+    assertThat(VirtualThreadExecutor.usesVirtualThreads()).isTrue();
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      threads.add(runOnExecutor());
+    }
+    assertThat(threads).containsNoDuplicates();
+    for (Thread thread : threads) {
+      assertThat(Thread.class.getMethod("isVirtual").invoke(thread)).isEqualTo(true);
+      assertThat(thread.getName()).startsWith("dagger-production-");
+    }
+  }
+
+  @Test
+  public void fallsBackToDaemonPlatformThreads() throws Exception {
+    assumeFalse(VirtualThreadExecutor.usesVirtualThreads());
+
+    Thread thread = runOnExecutor();
+    assertThat(thread.isDaemon()).isTrue();
+    assertThat(thread.getName()).startsWith("dagger-production-");
+  }
+
+  @Test
+  public void fallbackPoolIsBounded() throws Exception {
+    assumeFalse(VirtualThreadExecutor.usesVirtualThreads());
+
+    int tasks = VirtualThreadExecutor.FALLBACK_THREADS * 3;
+    final Set<Thread> threads =
+        Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+    final CountDownLatch finished = new CountDownLatch(tasks);
+    for (int i = 0; i < tasks; i++) {
+      executor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              threads.add(Thread.currentThread());
+              finished.countDown();
+            }
+          });
+    }
+    assertThat(finished.await(30, SECONDS)).isTrue();
+    assertThat(threads.size()).isAtMost(VirtualThreadExecutor.FALLBACK_THREADS);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void nullTask() {
+    executor.execute(null);
+  }
+
+  private Thread runOnExecutor() throws InterruptedException {
+    final AtomicReference<Thread> thread = new AtomicReference<>();
+    final CountDownLatch done = new CountDownLatch(1);
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            thread.set(Thread.currentThread());
+            done.countDown();
+          }
+        });
+    assertThat(done.await(10, SECONDS)).isTrue();
+    return thread.get();
+  }
+
+  private static int javaFeatureVersion() {
+    String version = System.getProperty("java.specification.version");
+    return version.startsWith("1.") ? 8 : Integer.parseInt(version);
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.monitoring;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.testing.FakeTicker;
+import dagger.producers.internal.ProducerDependencies;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class CriticalPathMonitorTest {
+  private static final class ProducerClassA {}
+
+  private static final class ProducerClassB {}
+
+  private static final class ProducerClassC {}
+
+  private static final class ProducerClassD {}
+
+  private static final ProducerToken TOKEN_A = ProducerToken.create(ProducerClassA.class);
+  private static final ProducerToken TOKEN_B = ProducerToken.create(ProducerClassB.class);
+  private static final ProducerToken TOKEN_C = ProducerToken.create(ProducerClassC.class);
+  private static final ProducerToken TOKEN_D = ProducerToken.create(ProducerClassD.class);
+
+  /** A depends on B and C, which both depend on D. */
+  private static final class Component implements ProducerDependencies {
+    int producerDependenciesCalls;
+
+    @Override
+    public Map<ProducerToken, Set<ProducerToken>> producerDependencies() {
+      producerDependenciesCalls++;
+      return ImmutableMap.<ProducerToken, Set<ProducerToken>>of(
+          TOKEN_A, ImmutableSet.of(TOKEN_B, TOKEN_C),
+          TOKEN_B, ImmutableSet.of(TOKEN_D),
+          TOKEN_C, ImmutableSet.of(TOKEN_D),
+          TOKEN_D, ImmutableSet.<ProducerToken>of());
+    }
+  }
+
+  private final FakeTicker ticker = new FakeTicker();
+  private final List<CriticalPath> criticalPaths = new ArrayList<>();
+  private final CriticalPathMonitor monitor =
+      new CriticalPathMonitor(
+          new CriticalPathMonitor.Listener() {
+            @Override
+            public void criticalPathComputed(Object component, CriticalPath criticalPath) {
+              criticalPaths.add(criticalPath);
+            }
+          },
+          ticker);
+
+  @Test
+  public void reportsTheInputsThatCompletedLast() {
+    ProductionComponentMonitor componentMonitor = monitor.create(new Component());
+    ProducerMonitor a = componentMonitor.producerMonitorFor(TOKEN_A);
+    ProducerMonitor b = componentMonitor.producerMonitorFor(TOKEN_B);
+    ProducerMonitor c = componentMonitor.producerMonitorFor(TOKEN_C);
+    ProducerMonitor d = componentMonitor.producerMonitorFor(TOKEN_D);
+
+    a.requested();
+    b.requested();
+    d.requested();
+    c.requested();
+    d.ready();
+    ticker.advance(1);
+    d.methodStarting();
+    ticker.advance(10);
+    d.methodFinished();
+    d.succeeded(new Object());
+    b.ready();
+    c.ready();
+    b.methodStarting();
+    c.methodStarting();
+    ticker.advance(5);
+    b.methodFinished();
+    b.succeeded(new Object());
+    ticker.advance(20);
+    c.methodFinished();
+    c.succeeded(new Object());
+    assertThat(criticalPaths).isEmpty();
+    a.ready();
+    ticker.advance(2);
+    a.methodStarting();
+    ticker.advance(3);
+    a.methodFinished();
+    a.succeeded(new Object());
+
+    assertThat(criticalPaths).hasSize(1);
+    CriticalPath criticalPath = criticalPaths.get(0);
+    assertThat(criticalPath.durationNanos()).isEqualTo(41);
+    assertThat(tokens(criticalPath)).containsExactly(TOKEN_D, TOKEN_C, TOKEN_A).inOrder();
+    assertNode(criticalPath.nodes().get(0), 0, 0, 1, 11);
+    assertNode(criticalPath.nodes().get(1), 0, 11, 11, 36);
+    assertNode(criticalPath.nodes().get(2), 0, 36, 38, 41);
+  }
+
+  @Test
+  public void failedInput() {
+    ProductionComponentMonitor componentMonitor = monitor.create(new Component());
+    ProducerMonitor b = componentMonitor.producerMonitorFor(TOKEN_B);
+    ProducerMonitor d = componentMonitor.producerMonitorFor(TOKEN_D);
+
+    ticker.advance(100);
+    b.requested();
+    ticker.advance(1);
+    d.requested();
+    d.ready();
+    d.methodStarting();
+    ticker.advance(4);
+    d.methodFinished();
+    d.failed(new RuntimeException());
+    b.failed(new RuntimeException());
+
+    assertThat(criticalPaths).hasSize(1);
+    CriticalPath criticalPath = criticalPaths.get(0);
+    assertThat(criticalPath.durationNanos()).isEqualTo(5);
+    assertThat(tokens(criticalPath)).containsExactly(TOKEN_D, TOKEN_B).inOrder();
+    assertNode(criticalPath.nodes().get(0), 1, 1, 1, 5);
+    assertNode(
+        criticalPath.nodes().get(1), 0, CriticalPath.NOT_REACHED, CriticalPath.NOT_REACHED, 5);
+  }
+
+  @Test
+  public void reportsEachExecutionSeparately() {
+    ProductionComponentMonitor componentMonitor = monitor.create(new Component());
+    ProducerMonitor b = componentMonitor.producerMonitorFor(TOKEN_B);
+    ProducerMonitor d = componentMonitor.producerMonitorFor(TOKEN_D);
+    d.requested();
+    ticker.advance(7);
+    d.succeeded(new Object());
+    assertThat(criticalPaths).hasSize(1);
+
+    // B's input completed in the previous execution, so it's the only node on this path.
+    ticker.advance(100);
+    b.requested();
+    ticker.advance(2);
+    b.failed(new CancellationException());
+
+    assertThat(criticalPaths).hasSize(2);
+    assertThat(tokens(criticalPaths.get(0))).containsExactly(TOKEN_D);
+    assertThat(criticalPaths.get(0).durationNanos()).isEqualTo(7);
+    assertThat(tokens(criticalPaths.get(1))).containsExactly(TOKEN_B);
+    assertThat(criticalPaths.get(1).durationNanos()).isEqualTo(2);
+  }
+
+  @Test
+  public void readsDependenciesOncePerComponentClass() {
+    Component component = new Component();
+    monitor.create(component);
+    monitor.create(component);
+    monitor.create(new Component());
+    assertThat(component.producerDependenciesCalls).isEqualTo(1);
+  }
+
+  @Test
+  public void componentWithoutDependencies() {
+    try {
+      monitor.create(new Object());
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected).hasMessageThat().contains("-Adagger.writeProducerDependencies=enabled");
+    }
+  }
+
+  private static List<ProducerToken> tokens(CriticalPath criticalPath) {
+    List<ProducerToken> tokens = new ArrayList<>();
+    for (CriticalPath.Node node : criticalPath.nodes()) {
+      tokens.add(node.token());
+    }
+    return tokens;
+  }
+
+  private static void assertNode(
+      CriticalPath.Node node,
+      long requestedNanos,
+      long readyNanos,
+      long startedNanos,
+      long finishedNanos) {
+    assertThat(node.requestedNanos()).isEqualTo(requestedNanos);
+    assertThat(node.readyNanos()).isEqualTo(readyNanos);
+    assertThat(node.startedNanos()).isEqualTo(startedNanos);
+    assertThat(node.finishedNanos()).isEqualTo(finishedNanos);
+  }
+}
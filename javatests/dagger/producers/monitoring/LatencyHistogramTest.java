@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.monitoring;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class LatencyHistogramTest {
+  @Test
+  public void empty() {
+    LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+    assertThat(snapshot.count()).isEqualTo(0);
+    assertThat(snapshot.p50Nanos()).isEqualTo(0);
+    assertThat(snapshot.maxNanos()).isEqualTo(0);
+  }
+
+  @Test
+  public void smallLatenciesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int nanos = 0; nanos < 16; nanos++) {
+      histogram.record(nanos);
+    }
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertThat(snapshot.count()).isEqualTo(16);
+    assertThat(snapshot.percentileNanos(0)).isEqualTo(0);
+    assertThat(snapshot.p50Nanos()).isEqualTo(7);
+    assertThat(snapshot.maxNanos()).isEqualTo(15);
+  }
+
+  @Test
+  public void percentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1_000_000L);
+    }
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertThat(snapshot.count()).isEqualTo(1000);
+    assertWithinBucket(snapshot.p50Nanos(), 500_000_000L);
+    assertWithinBucket(snapshot.p99Nanos(), 990_000_000L);
+    assertWithinBucket(snapshot.p999Nanos(), 999_000_000L);
+    assertWithinBucket(snapshot.maxNanos(), 1_000_000_000L);
+  }
+
+  @Test
+  public void everyLatencyIsWithinItsBucket() {
+    for (long nanos = 1; nanos > 0 && nanos <= LatencyHistogram.MAX_TRACKABLE_NANOS; nanos *= 3) {
+      for (long value : new long[] {nanos - 1, nanos, nanos + 1}) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(value);
+        assertWithinBucket(histogram.snapshot().maxNanos(), value);
+      }
+    }
+  }
+
+  @Test
+  public void outOfRangeLatencies() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(Long.MAX_VALUE);
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertThat(snapshot.count()).isEqualTo(2);
+    assertThat(snapshot.percentileNanos(0)).isEqualTo(0);
+    assertThat(snapshot.maxNanos()).isEqualTo(LatencyHistogram.MAX_TRACKABLE_NANOS);
+  }
+
+  @Test
+  public void snapshotAndReset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(100);
+    histogram.record(200);
+
+    assertThat(histogram.snapshot().count()).isEqualTo(2);
+    assertThat(histogram.snapshotAndReset().count()).isEqualTo(2);
+    assertThat(histogram.snapshot().count()).isEqualTo(0);
+
+    histogram.record(300);
+    assertWithinBucket(histogram.snapshotAndReset().maxNanos(), 300);
+  }
+
+  @Test
+  public void invalidPercentile() {
+    LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+    for (double percentile : new double[] {-1, 100.1, Double.NaN}) {
+      try {
+        snapshot.percentileNanos(percentile);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void concurrentRecording() throws Exception {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final int threads = 8;
+    final int recordsPerThread = 100_000;
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> recorders = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      Thread recorder =
+          new Thread() {
+            @Override
+            public void run() {
+              try {
+                start.await();
+              } catch (InterruptedException e) {
+                throw new AssertionError(e);
+              }
+              for (int j = 0; j < recordsPerThread; j++) {
+                histogram.record(1000);
+              }
+            }
+          };
+      recorder.start();
+      recorders.add(recorder);
+    }
+    start.countDown();
+    long resetCounts = 0;
+    for (Thread recorder : recorders) {
+      resetCounts += histogram.snapshotAndReset().count();
+      recorder.join();
+    }
+    assertThat(resetCounts + histogram.snapshot().count())
+        .isEqualTo((long) threads * recordsPerThread);
+  }
+
+  /** Asserts that {@code reported} is the upper bound of the bucket that {@code actual} is in. */
+  private static void assertWithinBucket(long reported, long actual) {
+    assertThat(reported).isAtLeast(actual);
+    assertThat((double) reported).isAtMost(actual * 1.125);
+  }
+}
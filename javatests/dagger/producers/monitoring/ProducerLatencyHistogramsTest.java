@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2021 The Dagger Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dagger.producers.monitoring;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.FakeTicker;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ProducerLatencyHistogramsTest {
+  private static final class ProducerClassA {}
+
+  private static final class ProducerClassB {}
+
+  private static final ProducerToken TOKEN_A = ProducerToken.create(ProducerClassA.class);
+  private static final ProducerToken TOKEN_B = ProducerToken.create(ProducerClassB.class);
+
+  private final FakeTicker ticker = new FakeTicker();
+  private final ProducerLatencyHistograms histograms = new ProducerLatencyHistograms(ticker);
+
+  @Test
+  public void recordsInputWaitAndExecutionTimes() {
+    ProductionComponentMonitor monitor = histograms.create(new Object());
+    ProducerMonitor producerMonitorA = monitor.producerMonitorFor(TOKEN_A);
+    ProducerMonitor producerMonitorB = monitor.producerMonitorFor(TOKEN_B);
+
+    producerMonitorB.requested();
+    producerMonitorA.requested();
+    producerMonitorA.ready();
+    producerMonitorA.methodStarting();
+    ticker.advance(12);
+    producerMonitorA.methodFinished();
+    producerMonitorA.succeeded(new Object());
+    ticker.advance(3);
+    producerMonitorB.ready();
+    ticker.advance(10);
+    producerMonitorB.methodStarting();
+    ticker.advance(7);
+    producerMonitorB.methodFinished();
+
+    assertThat(histograms.inputWaitTimes().keySet()).containsExactly(TOKEN_A, TOKEN_B);
+    assertThat(histograms.inputWaitTimes().get(TOKEN_A).snapshot().maxNanos()).isEqualTo(0);
+    assertThat(histograms.executionTimes().get(TOKEN_A).snapshot().maxNanos()).isEqualTo(12);
+    assertThat(histograms.inputWaitTimes().get(TOKEN_B).snapshot().maxNanos()).isEqualTo(15);
+    assertThat(histograms.executionTimes().get(TOKEN_B).snapshot().maxNanos()).isEqualTo(7);
+  }
+
+  @Test
+  public void aggregatesAcrossComponents() {
+    for (int i = 1; i <= 3; i++) {
+      ProducerMonitor producerMonitor = histograms.create(new Object()).producerMonitorFor(TOKEN_A);
+      producerMonitor.requested();
+      producerMonitor.ready();
+      producerMonitor.methodStarting();
+      ticker.advance(i);
+      producerMonitor.methodFinished();
+    }
+
+    LatencyHistogram.Snapshot executionTimes =
+        histograms.executionTimes().get(TOKEN_A).snapshotAndReset();
+    assertThat(executionTimes.count()).isEqualTo(3);
+    assertThat(executionTimes.p50Nanos()).isEqualTo(2);
+    assertThat(executionTimes.maxNanos()).isEqualTo(3);
+    assertThat(histograms.executionTimes().get(TOKEN_A).snapshot().count()).isEqualTo(0);
+    assertThat(histograms.inputWaitTimes().get(TOKEN_A).snapshot().count()).isEqualTo(3);
+  }
+
+  @Test
+  public void nullToken_notRecorded() {
+    ProducerMonitor producerMonitor = histograms.create(new Object()).producerMonitorFor(null);
+    producerMonitor.requested();
+    producerMonitor.ready();
+    producerMonitor.methodStarting();
+    producerMonitor.methodFinished();
+
+    assertThat(histograms.executionTimes()).isEmpty();
+    assertThat(histograms.inputWaitTimes()).isEmpty();
+  }
+}
@@ -22,6 +22,8 @@ BUILD_VARIANTS = {
     "Shards": ["-Adagger.keysPerComponentShard=2"],
     "FastInit": ["-Adagger.fastInit=enabled"],
     "FastInit_Shards": ["-Adagger.fastInit=enabled", "-Adagger.keysPerComponentShard=2"],
+    "LazyShards": ["-Adagger.keysPerComponentShard=2", "-Adagger.lazyComponentShards=enabled"],
+    "ProductionStateMachine": ["-Adagger.productionStateMachine=enabled"],
 }
 
 # TODO(ronshapiro): convert this to use bazel_common